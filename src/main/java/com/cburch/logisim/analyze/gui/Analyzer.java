@@ -128,8 +128,7 @@ public class Analyzer extends LFrame.SubWindow {
       exportTex.setEnabled(hasInputsAndOutputs
               && tt.getRowCount() <= AnalyzerTexWriter.MAX_TRUTH_TABLE_ROWS);
       tabbedPane.setEnabledAt(TABLE_TAB, hasInputsAndOutputs);
-      tabbedPane.setEnabledAt(EXPRESSION_TAB, hasInputsAndOutputs
-              && (nrOfInputs <= Implicant.MAXIMAL_NR_OF_INPUTS_FOR_AUTO_MINIMAL_FORM));
+      tabbedPane.setEnabledAt(EXPRESSION_TAB, hasInputsAndOutputs);
       tabbedPane.setEnabledAt(ALGEBRA_TAB, hasInputsAndOutputs
               && (nrOfInputs <= Implicant.MAXIMAL_NR_OF_INPUTS_FOR_AUTO_MINIMAL_FORM));
       tabbedPane.setEnabledAt(MINIMIZED_TAB, hasInputsAndOutputs
@@ -0,0 +1,515 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.analyze.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Two-level minimizer for truth tables that are too large for the Quine-McCluskey method of {@link
+ * Implicant#computeMinimal}. The rows to cover and the rows that must stay uncovered are kept as
+ * bitmaps over the rows of the table, and each cube as the two masks of an {@link Implicant}.
+ *
+ * <p>The cover is found heuristically, the way Espresso does: every uncovered row is expanded
+ * into a prime, redundant cubes are dropped, and then the cubes are repeatedly reduced and
+ * expanded again as long as this makes the cover cheaper. This is bounded by a time budget too:
+ * rows still uncovered when it runs out are covered by their minterms, and no further passes are
+ * made. Optionally an exact cover is searched next, from all prime implicants by branch and bound;
+ * it replaces the heuristic one only if it completes within the given time budget.
+ */
+final class CubeMinimizer {
+  /* the reduce-expand passes after which the heuristic gives up improving */
+  private static final int MAX_PASSES = 8;
+  /* above this many cubes in the heuristic cover, no exact cover is searched */
+  private static final int MAX_EXACT_CUBES = 256;
+
+  private static class TimeoutException extends Exception {
+    private static final long serialVersionUID = 1L;
+  }
+
+  private final int nrOfInputs;
+  private final long[] on;
+  private final long[] off;
+  /* number of cubes of the cover holding each row to cover */
+  private final int[] coverCount;
+  private int[] cubeValues = new int[64];
+  private int[] cubeUnknowns = new int[64];
+  private int nrOfCubes = 0;
+  private long deadline;
+  private int deadlineCheck = 0;
+
+  private CubeMinimizer(int nrOfInputs, long[] on, long[] off) {
+    this.nrOfInputs = nrOfInputs;
+    this.on = on;
+    this.off = off;
+    coverCount = new int[1 << nrOfInputs];
+  }
+
+  /**
+   * Returns a cover of the rows of the truth table in which the given output equals the desired
+   * term, using the rows where it is neither this term nor its opposite as don't cares. The
+   * heuristic cover is given the first time budget, in milliseconds; with a positive second one,
+   * an exact minimal cover is searched as well.
+   */
+  static List<Implicant> minimize(TruthTable table, int outputIndex, Entry desiredTerm,
+      long budget, long exactBudget) {
+    final var skippedTerm = desiredTerm == Entry.ONE ? Entry.ZERO : Entry.ONE;
+    final var nrOfInputs = table.getInputColumnCount();
+    final var rowCount = 1 << nrOfInputs;
+    final var words = (rowCount + 63) >>> 6;
+    final var on = new long[words];
+    final var off = new long[words];
+    var empty = true;
+    for (var row = 0; row < rowCount; row++) {
+      final var term = table.getOutputEntry(row, outputIndex);
+      if (term == desiredTerm) {
+        on[row >>> 6] |= 1L << row;
+        empty = false;
+      } else if (term == skippedTerm) {
+        off[row >>> 6] |= 1L << row;
+      }
+    }
+    if (empty) return Collections.emptyList();
+
+    final var minimizer = new CubeMinimizer(nrOfInputs, on, off);
+    minimizer.deadline = System.nanoTime() + budget * 1_000_000L;
+    minimizer.computeHeuristicCover();
+    var ret = minimizer.getCover();
+    if (exactBudget > 0 && ret.size() <= MAX_EXACT_CUBES) {
+      minimizer.deadline = System.nanoTime() + exactBudget * 1_000_000L;
+      try {
+        final var exact = minimizer.computeExactCover(ret);
+        if (exact != null) ret = exact;
+      } catch (TimeoutException e) {
+        // keep the heuristic cover
+      }
+    }
+    return ret;
+  }
+
+  private static boolean contains(long[] set, int row) {
+    return (set[row >>> 6] & (1L << row)) != 0;
+  }
+
+  /* the cost of a cover, ordered first by number of cubes, then by number of literals */
+  private long getCost() {
+    var literals = 0L;
+    for (var i = 0; i < nrOfCubes; i++) {
+      literals += nrOfInputs - Integer.bitCount(cubeUnknowns[i]);
+    }
+    return ((long) nrOfCubes << 32) | literals;
+  }
+
+  private List<Implicant> getCover() {
+    final var ret = new ArrayList<Implicant>(nrOfCubes);
+    for (var i = 0; i < nrOfCubes; i++) ret.add(new Implicant(cubeUnknowns[i], cubeValues[i]));
+    Collections.sort(ret);
+    return ret;
+  }
+
+  private void addCube(int values, int unknowns) {
+    if (nrOfCubes == cubeValues.length) {
+      cubeValues = Arrays.copyOf(cubeValues, 2 * nrOfCubes);
+      cubeUnknowns = Arrays.copyOf(cubeUnknowns, 2 * nrOfCubes);
+    }
+    cubeValues[nrOfCubes] = values;
+    cubeUnknowns[nrOfCubes++] = unknowns;
+    count(values, unknowns, 1);
+  }
+
+  //
+  // operations on the rows of a cube; when a cube spans all 64 rows of a word, whole words are
+  // handled at once
+  //
+  private boolean intersects(long[] set, int values, int unknowns) {
+    if ((unknowns & 63) == 63) {
+      final var high = unknowns & ~63;
+      var sub = 0;
+      do {
+        if (set[(values | sub) >>> 6] != 0) return true;
+        sub = (sub - high) & high;
+      } while (sub != 0);
+      return false;
+    }
+    var sub = 0;
+    do {
+      if (contains(set, values | sub)) return true;
+      sub = (sub - unknowns) & unknowns;
+    } while (sub != 0);
+    return false;
+  }
+
+  private int countRows(long[] set, int values, int unknowns) {
+    var ret = 0;
+    if ((unknowns & 63) == 63) {
+      final var high = unknowns & ~63;
+      var sub = 0;
+      do {
+        ret += Long.bitCount(set[(values | sub) >>> 6]);
+        sub = (sub - high) & high;
+      } while (sub != 0);
+      return ret;
+    }
+    var sub = 0;
+    do {
+      if (contains(set, values | sub)) ret++;
+      sub = (sub - unknowns) & unknowns;
+    } while (sub != 0);
+    return ret;
+  }
+
+  /* adds delta to the cover count of each row to cover in the cube */
+  private void count(int values, int unknowns, int delta) {
+    var sub = 0;
+    do {
+      final var row = values | sub;
+      if (contains(on, row)) coverCount[row] += delta;
+      sub = (sub - unknowns) & unknowns;
+    } while (sub != 0);
+  }
+
+  /* whether every row to cover in the cube is also covered by another cube */
+  private boolean isRedundant(int values, int unknowns) {
+    var sub = 0;
+    do {
+      final var row = values | sub;
+      if (contains(on, row) && coverCount[row] < 2) return false;
+      sub = (sub - unknowns) & unknowns;
+    } while (sub != 0);
+    return true;
+  }
+
+  //
+  // heuristic cover
+  //
+  /**
+   * Raises the literals of a cube one by one for as long as it stays clear of the rows that must
+   * not be covered, each time picking the literal that brings in the most rows to cover. Returns
+   * the unknowns of the prime reached; its values are those of the cube with these bits cleared.
+   */
+  private int expand(int values, int unknowns) {
+    while (true) {
+      var best = -1;
+      var bestGain = -1;
+      for (var bit = 0; bit < nrOfInputs; bit++) {
+        final var mask = 1 << bit;
+        if ((unknowns & mask) != 0) continue;
+        final var mirror = (values ^ mask) & ~unknowns;
+        if (intersects(off, mirror, unknowns)) continue;
+        final var gain = countRows(on, mirror, unknowns);
+        if (gain > bestGain) {
+          best = bit;
+          bestGain = gain;
+        }
+      }
+      if (best < 0) return unknowns;
+      unknowns |= 1 << best;
+      values &= ~(1 << best);
+    }
+  }
+
+  /** Drops the cubes whose rows are all covered by other cubes, smallest cubes first. */
+  private void makeIrredundant() {
+    final var order = new Integer[nrOfCubes];
+    for (var i = 0; i < nrOfCubes; i++) order[i] = i;
+    final var values = Arrays.copyOf(cubeValues, nrOfCubes);
+    final var unknowns = Arrays.copyOf(cubeUnknowns, nrOfCubes);
+    Arrays.sort(order, (a, b) -> Integer.bitCount(unknowns[a]) - Integer.bitCount(unknowns[b]));
+    final var keep = new boolean[order.length];
+    Arrays.fill(keep, true);
+    for (final var i : order) {
+      if (isRedundant(values[i], unknowns[i])) {
+        count(values[i], unknowns[i], -1);
+        keep[i] = false;
+      }
+    }
+    nrOfCubes = 0;
+    for (var i = 0; i < keep.length; i++) {
+      if (keep[i]) {
+        cubeValues[nrOfCubes] = values[i];
+        cubeUnknowns[nrOfCubes++] = unknowns[i];
+      }
+    }
+  }
+
+  /**
+   * Shrinks every cube to the smallest cube holding the rows that no other cube covers, largest
+   * cubes first, so the next expansion may take another direction.
+   */
+  private void reduce() {
+    final var order = new Integer[nrOfCubes];
+    for (var i = 0; i < nrOfCubes; i++) order[i] = i;
+    Arrays.sort(
+        order,
+        (a, b) -> Integer.bitCount(cubeUnknowns[b]) - Integer.bitCount(cubeUnknowns[a]));
+    for (final var i : order) {
+      final var values = cubeValues[i];
+      final var unknowns = cubeUnknowns[i];
+      var and = -1;
+      var or = 0;
+      var sub = 0;
+      do {
+        final var row = values | sub;
+        if (contains(on, row) && coverCount[row] == 1) {
+          and &= row;
+          or |= row;
+        }
+        sub = (sub - unknowns) & unknowns;
+      } while (sub != 0);
+      count(values, unknowns, -1);
+      if (or == 0 && and == -1) {
+        // nothing left to cover, it goes away when the cover is made irredundant
+        cubeUnknowns[i] = 0;
+        cubeValues[i] = values;
+      } else {
+        cubeUnknowns[i] = and ^ or;
+        cubeValues[i] = and;
+      }
+      count(cubeValues[i], cubeUnknowns[i], 1);
+    }
+  }
+
+  /* expands the cubes until the deadline; returns false if it passed before all were expanded */
+  private boolean expandAll() {
+    for (var i = 0; i < nrOfCubes; i++) {
+      if (System.nanoTime() > deadline) return false;
+      count(cubeValues[i], cubeUnknowns[i], -1);
+      final var unknowns = expand(cubeValues[i], cubeUnknowns[i]);
+      cubeValues[i] &= ~unknowns;
+      cubeUnknowns[i] = unknowns;
+      count(cubeValues[i], cubeUnknowns[i], 1);
+    }
+    return true;
+  }
+
+  private void computeHeuristicCover() {
+    var expanding = true;
+    for (var word = 0; word < on.length; word++) {
+      var bits = on[word];
+      while (bits != 0) {
+        final var row = (word << 6) | Long.numberOfTrailingZeros(bits);
+        bits &= bits - 1;
+        if (coverCount[row] != 0) continue;
+        expanding = expanding && System.nanoTime() <= deadline;
+        final var unknowns = expanding ? expand(row, 0) : 0;
+        addCube(row & ~unknowns, unknowns);
+      }
+    }
+    makeIrredundant();
+    if (!expanding) return;
+
+    var bestCost = getCost();
+    var bestValues = Arrays.copyOf(cubeValues, nrOfCubes);
+    var bestUnknowns = Arrays.copyOf(cubeUnknowns, nrOfCubes);
+    for (var pass = 0; pass < MAX_PASSES; pass++) {
+      reduce();
+      final var expanded = expandAll();
+      makeIrredundant();
+      final var cost = getCost();
+      if (cost >= bestCost) break;
+      bestCost = cost;
+      bestValues = Arrays.copyOf(cubeValues, nrOfCubes);
+      bestUnknowns = Arrays.copyOf(cubeUnknowns, nrOfCubes);
+      if (!expanded) break;
+    }
+    nrOfCubes = 0;
+    Arrays.fill(coverCount, 0);
+    for (var i = 0; i < bestValues.length; i++) addCube(bestValues[i], bestUnknowns[i]);
+  }
+
+  //
+  // exact cover
+  //
+  private void checkDeadline() throws TimeoutException {
+    if ((++deadlineCheck & 0x3FF) == 0 && System.nanoTime() > deadline) {
+      throw new TimeoutException();
+    }
+  }
+
+  /**
+   * Generates all prime implicants by merging cubes of equal unknowns that differ in one value, as
+   * Quine-McCluskey does. The cubes of each set of unknowns are kept as a sorted array of values.
+   */
+  private List<long[]> computePrimes() throws TimeoutException {
+    final var primes = new ArrayList<long[]>();
+    var level = new HashMap<Integer, int[]>();
+    final var rows = new int[countOnOrDontCare()];
+    var nrOfRows = 0;
+    for (var row = 0; row < coverCount.length; row++) {
+      if (!contains(off, row)) rows[nrOfRows++] = row;
+    }
+    level.put(0, rows);
+    while (!level.isEmpty()) {
+      final var next = new HashMap<Integer, ArrayList<Integer>>();
+      for (final var entry : level.entrySet()) {
+        final int unknowns = entry.getKey();
+        final var values = entry.getValue();
+        final var merged = new boolean[values.length];
+        for (var i = 0; i < values.length; i++) {
+          for (var bit = 0; bit < nrOfInputs; bit++) {
+            checkDeadline();
+            final var mask = 1 << bit;
+            if ((unknowns & mask) != 0 || (values[i] & mask) != 0) continue;
+            final var j = Arrays.binarySearch(values, values[i] | mask);
+            if (j < 0) continue;
+            merged[i] = merged[j] = true;
+            next.computeIfAbsent(unknowns | mask, k -> new ArrayList<>()).add(values[i]);
+          }
+        }
+        for (var i = 0; i < values.length; i++) {
+          if (!merged[i] && countRows(on, values[i], unknowns) > 0) {
+            primes.add(new long[] {values[i], unknowns});
+          }
+        }
+      }
+      level = new HashMap<>();
+      for (final var entry : next.entrySet()) {
+        final var list = entry.getValue();
+        final var values = new int[list.size()];
+        for (var i = 0; i < values.length; i++) values[i] = list.get(i);
+        Arrays.sort(values);
+        var distinct = 0;
+        for (var i = 0; i < values.length; i++) {
+          if (i == 0 || values[i] != values[i - 1]) values[distinct++] = values[i];
+        }
+        level.put(entry.getKey(), Arrays.copyOf(values, distinct));
+      }
+    }
+    return primes;
+  }
+
+  private int countOnOrDontCare() {
+    var ret = coverCount.length;
+    for (final var word : off) ret -= Long.bitCount(word);
+    return ret;
+  }
+
+  /**
+   * Searches a cover cheaper than the given one among the prime implicants. Returns null if the
+   * given cover is already minimal.
+   */
+  private List<Implicant> computeExactCover(List<Implicant> heuristic) throws TimeoutException {
+    final var primes = computePrimes();
+    final var nrOfPrimes = primes.size();
+    final var primeValues = new int[nrOfPrimes];
+    final var primeUnknowns = new int[nrOfPrimes];
+    for (var p = 0; p < nrOfPrimes; p++) {
+      primeValues[p] = (int) primes.get(p)[0];
+      primeUnknowns[p] = (int) primes.get(p)[1];
+    }
+    // the rows to cover, numbered, and the primes covering each of them
+    final var rowIndex = new int[coverCount.length];
+    Arrays.fill(rowIndex, -1);
+    var nrOfRows = 0;
+    for (var row = 0; row < coverCount.length; row++) {
+      if (contains(on, row)) rowIndex[row] = nrOfRows++;
+    }
+    final var rowPrimes = new ArrayList<ArrayList<Integer>>(nrOfRows);
+    for (var r = 0; r < nrOfRows; r++) rowPrimes.add(new ArrayList<>());
+    final var primeRows = new int[nrOfPrimes][];
+    for (var p = 0; p < nrOfPrimes; p++) {
+      final var rows = new ArrayList<Integer>();
+      var sub = 0;
+      do {
+        checkDeadline();
+        final var row = primeValues[p] | sub;
+        if (rowIndex[row] >= 0) {
+          rows.add(rowIndex[row]);
+          rowPrimes.get(rowIndex[row]).add(p);
+        }
+        sub = (sub - primeUnknowns[p]) & primeUnknowns[p];
+      } while (sub != 0);
+      primeRows[p] = rows.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    final var search = new CoverSearch(primeValues, primeUnknowns, primeRows, rowPrimes);
+    var bound = 0L;
+    for (final var implicant : heuristic) {
+      bound += (1L << 32) + nrOfInputs - implicant.getUnknownCount();
+    }
+    search.bestCost = bound;
+    search.search(0L);
+    if (search.best == null) return null;
+    final var ret = new ArrayList<Implicant>(search.best.length);
+    for (final var p : search.best) ret.add(new Implicant(primeUnknowns[p], primeValues[p]));
+    Collections.sort(ret);
+    return ret;
+  }
+
+  /** Branch and bound over the primes, always branching on the row with the fewest primes. */
+  private class CoverSearch {
+    final int[] primeValues;
+    final int[] primeUnknowns;
+    final int[][] primeRows;
+    final List<ArrayList<Integer>> rowPrimes;
+    final int[] covered;
+    final int[] chosen;
+    int nrOfChosen = 0;
+    int nrOfUncovered;
+    long bestCost;
+    int[] best = null;
+
+    CoverSearch(int[] primeValues, int[] primeUnknowns, int[][] primeRows,
+        List<ArrayList<Integer>> rowPrimes) {
+      this.primeValues = primeValues;
+      this.primeUnknowns = primeUnknowns;
+      this.primeRows = primeRows;
+      this.rowPrimes = rowPrimes;
+      covered = new int[rowPrimes.size()];
+      chosen = new int[rowPrimes.size()];
+      nrOfUncovered = rowPrimes.size();
+    }
+
+    long getPrimeCost(int prime) {
+      return (1L << 32) + nrOfInputs - Integer.bitCount(primeUnknowns[prime]);
+    }
+
+    void choose(int prime, int delta) {
+      for (final var row : primeRows[prime]) {
+        if (delta > 0 && covered[row] == 0) nrOfUncovered--;
+        covered[row] += delta;
+        if (delta < 0 && covered[row] == 0) nrOfUncovered++;
+      }
+    }
+
+    void search(long cost) throws TimeoutException {
+      checkDeadline();
+      if (nrOfUncovered == 0) {
+        if (cost < bestCost) {
+          bestCost = cost;
+          best = Arrays.copyOf(chosen, nrOfChosen);
+        }
+        return;
+      }
+      // at least one more cube is needed
+      if (cost + (1L << 32) >= bestCost) return;
+      var row = -1;
+      var fewest = Integer.MAX_VALUE;
+      for (var r = 0; r < covered.length; r++) {
+        if (covered[r] == 0 && rowPrimes.get(r).size() < fewest) {
+          row = r;
+          fewest = rowPrimes.get(r).size();
+        }
+      }
+      final var candidates = new ArrayList<>(rowPrimes.get(row));
+      candidates.sort((a, b) -> Long.compare(getPrimeCost(a), getPrimeCost(b)));
+      for (final var prime : candidates) {
+        chosen[nrOfChosen++] = prime;
+        choose(prime, 1);
+        search(cost + getPrimeCost(prime));
+        choose(prime, -1);
+        nrOfChosen--;
+      }
+    }
+  }
+}
@@ -97,6 +97,15 @@ public class Implicant implements Comparable<Implicant> {
     final var desiredTerm = format == AnalyzerModel.FORMAT_SUM_OF_PRODUCTS ? Entry.ONE : Entry.ZERO;
     final var skippedTerm = desiredTerm == Entry.ONE ? Entry.ZERO : Entry.ONE;
     final var nrOfInputs = table.getInputColumnCount();
+    // In case the number of inputs is bigger than approx. 8 inputs, the Quine-McCluskey
+    // algorithm below takes a long time. To prevent "freezing" of logisim, it is only used for
+    // systems with more than 6 inputs on user request. Otherwise these are handed to the
+    // heuristic minimizer, which runs on every edit of the table and is therefore given a limited
+    // time, as is its search for an exact cover.
+    if ((nrOfInputs > MAXIMAL_NR_OF_INPUTS_FOR_AUTO_MINIMAL_FORM) && (outputArea == null)) {
+      return CubeMinimizer.minimize(table, outputVariableIndex, desiredTerm,
+          MINIMIZATION_TIME_BUDGET, EXACT_MINIMIZATION_TIME_BUDGET);
+    }
     final var oneHotTable = new HashSet<Integer>();
     var mask = 1;
     for (var bitIndex = 0; bitIndex < nrOfInputs; bitIndex++) {
@@ -138,13 +147,6 @@ public class Implicant implements Comparable<Implicant> {
     }
 
     if (allDontCare) return Collections.emptyList();
-    // In case the number of inputs is bigger than approx. 8 inputs, this
-    // algorithm takes a long time. To prevent "freezing" of logisim, we
-    // only perform an optimization for systems with more than 6 inputs on
-    // user request. Otherwise we exit here and return the set of min/maxterms
-    if ((nrOfInputs > MAXIMAL_NR_OF_INPUTS_FOR_AUTO_MINIMAL_FORM) && (outputArea == null)) {
-      return Collections.emptyList();
-    }
     report(outputArea, String.format("\n%s\n", S.fmt("implicantOutputName", variable)));
     // Here the real work starts, we determine all primes
     var couldMerge = false;
@@ -337,13 +339,17 @@ public class Implicant implements Comparable<Implicant> {
   static final Implicant MINIMAL_IMPLICANT = new Implicant(0, -1);
   static final List<Implicant> MINIMAL_LIST = Collections.singletonList(MINIMAL_IMPLICANT);
   public static final int MAXIMAL_NR_OF_INPUTS_FOR_AUTO_MINIMAL_FORM = 6;
+  /* milliseconds the heuristic minimizer may spend on its cover */
+  static final long MINIMIZATION_TIME_BUDGET = 300;
+  /* milliseconds the heuristic minimizer may spend looking for an exact cover */
+  static final long EXACT_MINIMIZATION_TIME_BUDGET = 200;
 
   final int unknowns;
   final int values;
   final boolean isDontCare;
   boolean isPrime = true;
 
-  private Implicant(int unknowns, int values) {
+  Implicant(int unknowns, int values) {
     this.unknowns = unknowns;
     this.values = values;
     isDontCare = false;
@@ -29,13 +29,19 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 public class Analyze {
+  /* below this many rows per processor, the truth table is not split */
+  private static final int ROWS_PER_WORKER = 4096;
+
   public static class LocationBit {
     final Location loc;
     final int bit;
@@ -165,7 +171,12 @@ public class Analyze {
   //
   // ComputeTable
   //
-  /** Returns a truth table corresponding to the circuit. */
+  /**
+   * Returns a truth table corresponding to the circuit. When the circuit can be compiled into a
+   * {@link LevelizedSimulator}, the rows are evaluated on compiled copies of it, with the rows
+   * split over the available processors. Otherwise each row is simulated in a circuit state of its
+   * own.
+   */
   public static void computeTable(AnalyzerModel model, Project proj, Circuit circuit, Map<Instance, String> pinLabels) {
     final var inputPins = new ArrayList<Instance>();
     final var inputVars = new ArrayList<Var>();
@@ -192,52 +203,30 @@ public class Analyze {
     final var rowCount = 1 << inputCount;
     final var columns = new Entry[outputNames.size()][rowCount];
 
-    for (var i = 0; i < rowCount; i++) {
-      final var circuitState = new CircuitState(proj, circuit);
-      var incol = 0;
-      for (final var pin : inputPins) {
-        final var width = pin.getAttributeValue(StdAttr.WIDTH).getWidth();
-        final var v = new Value[width];
-        for (var b = width - 1; b >= 0; b--) {
-          var value = TruthTable.isInputSet(i, incol++, inputCount);
-          v[b] = value ? Value.TRUE : Value.FALSE;
-        }
-        final var pinState = circuitState.getInstanceState(pin);
-        Pin.FACTORY.setValue(pinState, Value.create(v));
+    final var workers =
+        Math.max(
+            1, Math.min(Runtime.getRuntime().availableProcessors(), rowCount / ROWS_PER_WORKER));
+    final var simulators = compileForTable(proj, circuit, inputPins, workers);
+    if (simulators == null) {
+      for (var i = 0; i < rowCount; i++) {
+        computeRow(proj, circuit, inputPins, outputPins, inputCount, i, columns);
       }
-
-      final var prop = circuitState.getPropagator();
-      prop.propagate();
-      /*
-       * TODO for the SimulatorPrototype class do { prop.step(); } while
-       * (prop.isPending());
-       */
-      // TODO: Search for circuit state
-
-      if (prop.isOscillating()) {
-        for (var j = 0; j < columns.length; j++) {
-          columns[j][i] = Entry.OSCILLATE_ERROR;
-        }
-      } else {
-        var outcol = 0;
-        for (final var pin : outputPins) {
-          int width = pin.getAttributeValue(StdAttr.WIDTH).getWidth();
-          final var pinState = circuitState.getInstanceState(pin);
-          Entry out;
-          for (int b = width - 1; b >= 0; b--) {
-            final var outValue = Pin.FACTORY.getValue(pinState).get(b);
-            if (outValue == Value.TRUE)
-              out = Entry.ONE;
-            else if (outValue == Value.FALSE)
-              out = Entry.ZERO;
-            else if (outValue == Value.ERROR)
-              out = Entry.BUS_ERROR;
-            else
-              out = Entry.DONT_CARE;
-            columns[outcol++][i] = out;
-          }
-        }
+    } else {
+      final var tasks = new ArrayList<ForkJoinTask<?>>();
+      for (var w = 0; w < workers; w++) {
+        final var sim = simulators[w];
+        final var from = (int) ((long) rowCount * w / workers);
+        final var to = (int) ((long) rowCount * (w + 1) / workers);
+        tasks.add(
+            ForkJoinPool.commonPool()
+                .submit(
+                    () -> {
+                      for (var i = from; i < to; i++) {
+                        computeRow(sim, inputPins, outputPins, inputCount, i, columns);
+                      }
+                    }));
       }
+      for (final var task : tasks) task.join();
     }
 
     model.setVariables(inputVars, outputVars);
@@ -246,6 +235,119 @@ public class Analyze {
     }
   }
 
+  /**
+   * Compiles one {@link LevelizedSimulator} of the circuit for each worker, or returns null when
+   * the circuit has to be simulated event by event.
+   */
+  private static LevelizedSimulator[] compileForTable(
+      Project proj, Circuit circuit, List<Instance> inputPins, int workers) {
+    final var circuitState = new CircuitState(proj, circuit);
+    for (final var pin : inputPins) {
+      final var width = pin.getAttributeValue(StdAttr.WIDTH);
+      Pin.FACTORY.setValue(circuitState.getInstanceState(pin), Value.createKnown(width, 0));
+    }
+    final var prop = circuitState.getPropagator();
+    prop.propagate();
+    if (prop.isOscillating()) return null;
+    final var ret = new LevelizedSimulator[workers];
+    try {
+      for (var w = 0; w < workers; w++) {
+        ret[w] = LevelizedSimulator.compile(circuitState);
+      }
+    } catch (CompileException e) {
+      return null;
+    }
+    return ret;
+  }
+
+  /** Simulates one row of the table in a new circuit state. */
+  private static void computeRow(
+      Project proj,
+      Circuit circuit,
+      List<Instance> inputPins,
+      List<Instance> outputPins,
+      int inputCount,
+      int row,
+      Entry[][] columns) {
+    final var circuitState = new CircuitState(proj, circuit);
+    var incol = 0;
+    for (final var pin : inputPins) {
+      final var width = pin.getAttributeValue(StdAttr.WIDTH).getWidth();
+      final var v = new Value[width];
+      for (var b = width - 1; b >= 0; b--) {
+        var value = TruthTable.isInputSet(row, incol++, inputCount);
+        v[b] = value ? Value.TRUE : Value.FALSE;
+      }
+      final var pinState = circuitState.getInstanceState(pin);
+      Pin.FACTORY.setValue(pinState, Value.create(v));
+    }
+
+    final var prop = circuitState.getPropagator();
+    prop.propagate();
+    /*
+     * TODO for the SimulatorPrototype class do { prop.step(); } while
+     * (prop.isPending());
+     */
+    // TODO: Search for circuit state
+
+    if (prop.isOscillating()) {
+      for (var j = 0; j < columns.length; j++) {
+        columns[j][row] = Entry.OSCILLATE_ERROR;
+      }
+    } else {
+      var outcol = 0;
+      for (final var pin : outputPins) {
+        final var width = pin.getAttributeValue(StdAttr.WIDTH).getWidth();
+        final var pinState = circuitState.getInstanceState(pin);
+        outcol = setOutputEntries(Pin.FACTORY.getValue(pinState), width, row, outcol, columns);
+      }
+    }
+  }
+
+  /** Evaluates one row of the table on a compiled simulator. */
+  private static void computeRow(
+      LevelizedSimulator sim,
+      List<Instance> inputPins,
+      List<Instance> outputPins,
+      int inputCount,
+      int row,
+      Entry[][] columns) {
+    var incol = 0;
+    for (final var pin : inputPins) {
+      final var width = pin.getAttributeValue(StdAttr.WIDTH).getWidth();
+      var bits = 0L;
+      for (var b = width - 1; b >= 0; b--) {
+        if (TruthTable.isInputSet(row, incol++, inputCount)) bits |= 1L << b;
+      }
+      sim.setInput(pin, bits);
+    }
+    sim.propagate();
+    var outcol = 0;
+    for (final var pin : outputPins) {
+      final var width = pin.getAttributeValue(StdAttr.WIDTH).getWidth();
+      outcol = setOutputEntries(sim.getValue(pin), width, row, outcol, columns);
+    }
+  }
+
+  /** Stores the bits of an output pin, most significant first, and returns the next column. */
+  private static int setOutputEntries(
+      Value value, int width, int row, int outcol, Entry[][] columns) {
+    for (var b = width - 1; b >= 0; b--) {
+      final var outValue = value.get(b);
+      Entry out;
+      if (outValue == Value.TRUE)
+        out = Entry.ONE;
+      else if (outValue == Value.FALSE)
+        out = Entry.ZERO;
+      else if (outValue == Value.ERROR)
+        out = Entry.BUS_ERROR;
+      else
+        out = Entry.DONT_CARE;
+      columns[outcol++][row] = out;
+    }
+    return outcol;
+  }
+
   // computes outputs of affected components
   private static HashSet<Component> getDirtyComponents(Circuit circuit, Set<LocationBit> pointsToProcess) {
     final var dirtyComponents = new HashSet<Component>();
@@ -104,9 +104,15 @@ public class Circuit {
   private class MyComponentListener implements ComponentListener {
     @Override
     public void componentInvalidated(ComponentEvent e) {
+      index.update(e.getSource());
       fireEvent(CircuitEvent.ACTION_INVALIDATE, e.getSource());
     }
 
+    @Override
+    public void boundsChanged(ComponentEvent e) {
+      index.update(e.getSource());
+    }
+
     @Override
     public void endChanged(ComponentEvent e) {
       locker.checkForWritePermission("ends changed", Circuit.this);
@@ -117,6 +123,7 @@ public class Circuit {
       final var toAdd = toMap(e.getData());
       final var xn = new EndChangedTransaction(comp, toRemove, toAdd);
       locker.execute(xn);
+      index.update(comp);
       fireEvent(CircuitEvent.ACTION_INVALIDATE, comp);
     }
 
@@ -221,6 +228,8 @@ public class Circuit {
   }
 
   private static final int maxTimeoutTestBenchSec = 60000;
+  /* how far a label may reach outside of the bounds of its component */
+  private static final int LABEL_MARGIN = 200;
   private final MyComponentListener myComponentListener = new MyComponentListener();
   private final CircuitAppearance appearance;
   private final AttributeSet staticAttrs;
@@ -228,7 +237,17 @@ public class Circuit {
   private final EventSourceWeakSupport<CircuitListener> listeners = new EventSourceWeakSupport<>();
   private LinkedHashSet<Component> comps = new LinkedHashSet<>(); // doesn't include wires
   CircuitWires wires = new CircuitWires();
+  final CircuitSlots slots = new CircuitSlots(); // slots of the points and components in states
   private final List<Component> clocks = new ArrayList<>();
+  /* number of components of each factory, for the label checks */
+  private final HashMap<ComponentFactory, Integer> factoryCounts = new HashMap<>();
+  // components removed by the running transaction, whose slots are released
+  // once the states have seen the transaction complete
+  private final List<Component> removedComponents = new ArrayList<>();
+  // whether all components, including those of subcircuits, are reentrant
+  private volatile boolean reentrant = true;
+  /* where the components and wires are, for drawing and hit testing */
+  private final ComponentIndex index = new ComponentIndex();
   private final CircuitLocker locker;
 
   private final WeakHashMap<Component, Circuit> circuitsUsingThis;
@@ -466,7 +485,14 @@ public class Circuit {
    * Code taken from Cornell's version of Logisim: http://www.cs.cornell.edu/courses/cs3410/2015sp/
    */
   public void doTestVector(Project project, Instance[] pin, Value[] val) throws TestException {
-    final var state = project.getCircuitState();
+    doTestVector(project.getCircuitState(), pin, val);
+  }
+
+  /**
+   * Tests one line of a test vector on the given state of this circuit, which is reset first, so
+   * that lines tested on different states do not depend on each other.
+   */
+  public void doTestVector(CircuitState state, Instance[] pin, Value[] val) throws TestException {
     state.reset();
 
     for (var i = 0; i < pin.length; ++i) {
@@ -512,12 +538,28 @@ public class Circuit {
   //
   public void draw(ComponentDrawContext context, Collection<Component> hidden) {
     final var g = context.getGraphics();
+    // only what may show inside the clip is drawn; without a clip everything is
+    final var clip = g.getClipBounds();
+    Collection<Component> toDraw = comps;
+    Collection<Wire> wiresToDraw = null;
+    if (clip != null) {
+      final var visible = index.query(Bounds.create(clip).expand(LABEL_MARGIN));
+      toDraw = new ArrayList<>();
+      wiresToDraw = new ArrayList<>();
+      for (final var c : visible) {
+        if (c instanceof Wire wire) {
+          wiresToDraw.add(wire);
+        } else {
+          toDraw.add(c);
+        }
+      }
+    }
     var gCopy = g.create();
     context.setGraphics(gCopy);
-    wires.draw(context, hidden);
+    wires.draw(context, hidden, wiresToDraw, clip);
 
     if (CollectionUtil.isNullOrEmpty(hidden)) {
-      for (final var c : comps) {
+      for (final var c : toDraw) {
         final var gNew = g.create();
         context.setGraphics(gNew);
         gCopy.dispose();
@@ -526,7 +568,7 @@ public class Circuit {
         c.draw(context);
       }
     } else {
-      for (final var c : comps) {
+      for (final var c : toDraw) {
         if (!hidden.contains(c)) {
           final var gNew = g.create();
           context.setGraphics(gNew);
@@ -554,6 +596,12 @@ public class Circuit {
 
   void fireEvent(int action, Object data) {
     fireEvent(new CircuitEvent(action, this, data));
+    if (action == CircuitEvent.TRANSACTION_DONE) {
+      for (final var comp : removedComponents) {
+        if (!comps.contains(comp)) slots.release(comp);
+      }
+      removedComponents.clear();
+    }
   }
 
   public void displayChanged() {
@@ -562,7 +610,7 @@ public class Circuit {
 
   public Collection<Component> getAllContaining(Location pt) {
     final var ret = new LinkedHashSet<Component>();
-    for (final var comp : getComponents()) {
+    for (final var comp : index.query(Bounds.create(pt).expand(1))) {
       if (comp.contains(pt)) ret.add(comp);
     }
     return ret;
@@ -570,7 +618,8 @@ public class Circuit {
 
   public Collection<Component> getAllContaining(Location pt, Graphics g) {
     final var ret = new LinkedHashSet<Component>();
-    for (final var comp : getComponents()) {
+    // the label of a component is part of its bounds here, but not of the ones indexed
+    for (final var comp : index.query(Bounds.create(pt).expand(LABEL_MARGIN))) {
       if (comp.contains(pt, g)) ret.add(comp);
     }
     return ret;
@@ -578,7 +627,7 @@ public class Circuit {
 
   public Collection<Component> getAllWithin(Bounds bds) {
     final var ret = new LinkedHashSet<Component>();
-    for (final var comp : getComponents()) {
+    for (final var comp : index.query(bds)) {
       if (bds.contains(comp.getBounds())) ret.add(comp);
     }
     return ret;
@@ -586,7 +635,7 @@ public class Circuit {
 
   public Collection<Component> getAllWithin(Bounds bds, Graphics g) {
     final var ret = new LinkedHashSet<Component>();
-    for (final var comp : getComponents()) {
+    for (final var comp : index.query(bds)) {
       if (bds.contains(comp.getBounds(g))) ret.add(comp);
     }
     return ret;
@@ -658,7 +707,9 @@ public class Circuit {
   }
 
   public void removeComponent(Component c) {
-    circuitsUsingThis.remove(c);
+    synchronized (circuitsUsingThis) {
+      circuitsUsingThis.remove(c);
+    }
   }
 
   public List<Component> getClocks() {
@@ -732,6 +783,30 @@ public class Circuit {
     return myMappableResources.keySet();
   }
 
+  /**
+   * Returns true if all components of this circuit and of its subcircuits are {@link
+   * ComponentFactory#isReentrant reentrant}, so that its states can be propagated on a worker
+   * thread.
+   */
+  public boolean isReentrant() {
+    return reentrant;
+  }
+
+  // Called on the thread editing the circuit once the factories present have
+  // changed; the circuits using this one are updated as well.
+  private void updateReentrant() {
+    var ret = true;
+    for (final var factory : factoryCounts.keySet()) {
+      if (!factory.isReentrant()) {
+        ret = false;
+        break;
+      }
+    }
+    if (ret == reentrant) return;
+    reentrant = ret;
+    for (final var parent : circuitsUsingThis.values()) parent.updateReentrant();
+  }
+
   public Set<Component> getNonWires() {
     return comps;
   }
@@ -822,28 +897,31 @@ public class Circuit {
       if (wire.getEnd0().equals(wire.getEnd1())) return;
       var added = wires.add(wire);
       if (!added) return;
+      index.add(wire);
     } else {
       // add it into the circuit
       var added = comps.add(c);
       if (!added) return;
+      index.add(c);
       socSim.registerComponent(c);
       // Here we check for duplicated labels and clear the label
       // if it already exists in the circuit
       if (c.getAttributeSet().containsAttribute(StdAttr.LABEL)
           && !(c.getFactory() instanceof Tunnel)) {
-        final var labels = new HashSet<String>();
-        for (final var comp : comps) {
-          if (comp.equals(c) || comp.getFactory() instanceof Tunnel) continue;
-          if (comp.getAttributeSet().containsAttribute(StdAttr.LABEL)) {
-            final var label = comp.getAttributeSet().getValue(StdAttr.LABEL);
-            if (StringUtil.isNotEmpty(label)) labels.add(label.toUpperCase());
-          }
-        }
-        /* we also have to check for the entity name */
-        if (getName() != null && !getName().isEmpty()) labels.add(getName());
         final var label = c.getAttributeSet().getValue(StdAttr.LABEL);
-        if (StringUtil.isNotEmpty(label) && labels.contains(label.toUpperCase())) {
-          c.getAttributeSet().setValue(StdAttr.LABEL, "");
+        if (StringUtil.isNotEmpty(label)) {
+          final var upperLabel = label.toUpperCase();
+          /* we also have to check for the entity name */
+          var duplicate = upperLabel.equals(getName());
+          for (final var comp : comps) {
+            if (duplicate) break;
+            if (comp.equals(c) || comp.getFactory() instanceof Tunnel) continue;
+            if (comp.getAttributeSet().containsAttribute(StdAttr.LABEL)) {
+              final var compLabel = comp.getAttributeSet().getValue(StdAttr.LABEL);
+              duplicate = compLabel != null && upperLabel.equals(compLabel.toUpperCase());
+            }
+          }
+          if (duplicate) c.getAttributeSet().setValue(StdAttr.LABEL, "");
         }
       }
       wires.add(c);
@@ -854,14 +932,25 @@ public class Circuit {
         Rom.closeHexFrame(c);
       } else if (factory instanceof SubcircuitFactory subFactory) {
         final var subcirc = subFactory;
-        subcirc.getSubcircuit().circuitsUsingThis.put(c, this);
+        // circuits which don't use each other may be built on different threads while a file loads
+        final var using = subcirc.getSubcircuit().circuitsUsingThis;
+        synchronized (using) {
+          using.put(c, this);
+        }
       } else if (factory instanceof VhdlEntity vhdlEntity) {
         final var vhdl = vhdlEntity;
         vhdl.addCircuitUsing(c, this);
       }
       c.addComponentListener(myComponentListener);
+      slots.getSlot(c);
+    }
+    for (final var end : c.getEnds()) slots.getSlot(end.getLocation());
+    // we do not have to check the wires as (1) Wire is a reserved keyword,
+    // and (2) they cannot have a label
+    if (!(c instanceof Wire)) {
+      removeWrongLabels(c);
+      updateReentrant();
     }
-    removeWrongLabels(c.getFactory().getName());
     fireEvent(CircuitEvent.ACTION_ADD, c);
   }
 
@@ -872,8 +961,12 @@ public class Circuit {
     comps = new LinkedHashSet<>();
     wires = new CircuitWires();
     clocks.clear();
+    factoryCounts.clear();
+    updateReentrant();
+    index.clear();
     myNetList.clear();
     isAnnotated = false;
+    removedComponents.addAll(oldComps);
     for (final var comp : oldComps) {
       socSim.removeComponent(comp);
       final var factory = comp.getFactory();
@@ -887,11 +980,14 @@ public class Circuit {
 
     isAnnotated = false;
     myNetList.clear();
+    index.remove(c);
     if (c instanceof Wire) {
       wires.remove(c);
     } else {
       wires.remove(c);
-      comps.remove(c);
+      if (comps.remove(c)) {
+        factoryCounts.computeIfPresent(c.getFactory(), (f, count) -> count > 1 ? count - 1 : null);
+      }
       socSim.removeComponent(c);
       final var factory = c.getFactory();
       factory.removeComponent(this, c, proj.getCircuitState(this));
@@ -901,24 +997,39 @@ public class Circuit {
         DynamicElementProvider.removeDynamicElements(this, c);
       }
       c.removeComponentListener(myComponentListener);
+      removedComponents.add(c);
+      updateReentrant();
     }
     fireEvent(CircuitEvent.ACTION_REMOVE, c);
   }
 
-  private void removeWrongLabels(String label) {
+  /**
+   * Clears the labels that equal the factory name of a component just added. Once a factory is
+   * present in the circuit its name can no longer be given as a label, so the other components
+   * only have to be checked for the first component of each factory; later ones only check their
+   * own label against the name of their factory.
+   */
+  private void removeWrongLabels(Component added) {
+    final var label = added.getFactory().getName();
     var changed = false;
-    for (final var comp : comps) {
-      final var attrs = comp.getAttributeSet();
-      if (attrs.containsAttribute(StdAttr.LABEL)) {
-        final var compLabel = attrs.getValue(StdAttr.LABEL);
-        if (label.equalsIgnoreCase(compLabel)) {
-          attrs.setValue(StdAttr.LABEL, "");
-          changed = true;
+    if (factoryCounts.merge(added.getFactory(), 1, Integer::sum) == 1) {
+      for (final var comp : comps) {
+        final var attrs = comp.getAttributeSet();
+        if (attrs.containsAttribute(StdAttr.LABEL)) {
+          final var compLabel = attrs.getValue(StdAttr.LABEL);
+          if (label.equalsIgnoreCase(compLabel)) {
+            attrs.setValue(StdAttr.LABEL, "");
+            changed = true;
+          }
         }
       }
+    } else if (added.getAttributeSet().containsAttribute(StdAttr.LABEL)) {
+      final var attrs = added.getAttributeSet();
+      if (label.equalsIgnoreCase(attrs.getValue(StdAttr.LABEL))) {
+        attrs.setValue(StdAttr.LABEL, "");
+        changed = true;
+      }
     }
-    // we do not have to check the wires as (1) Wire is a reserved keyword,
-    // and (2) they cannot have a label
     if (changed)
       OptionPane.showMessageDialog(
           null, "\"" + label + "\" : " + S.get("ComponentLabelCollisionError"));
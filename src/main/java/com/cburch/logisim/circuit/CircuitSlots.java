@@ -0,0 +1,131 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.circuit;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.Location;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Numbers the locations and components of a circuit, so that each {@link CircuitState} of the
+ * circuit can keep the values and causes at its points and the data of its components in plain
+ * arrays indexed by these slots instead of in hash maps of its own.
+ *
+ * <p>The circuit hands out slots as components are added to its netlist, and on demand for any
+ * other location a component drives. The slot of a removed component is released and handed to
+ * the next component added; its generation is bumped then, so that a state still holding data
+ * for the removed component can tell it apart from data of the new one. Location slots are kept,
+ * as a location that is used again gets its old slot back. Lookups can happen from any thread, as
+ * the propagator may process substates in parallel.
+ */
+class CircuitSlots {
+  private final ConcurrentHashMap<Location, Integer> locationSlots = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<Component, Integer> componentSlots = new ConcurrentHashMap<>();
+  private volatile Location[] locations = new Location[64];
+  private volatile Component[] components = new Component[64];
+  private volatile int[] generations = new int[64];
+  private int[] freeSlots = new int[16];
+  private int freeCount = 0;
+  private volatile int locationCount = 0;
+  private volatile int componentCount = 0;
+
+  /** Returns the slot of the given location, assigning it one if it has none yet. */
+  int getSlot(Location loc) {
+    final var slot = locationSlots.get(loc);
+    return slot != null ? slot : addSlot(loc);
+  }
+
+  /** Returns the slot of the given location, or -1 if it has none. */
+  int findSlot(Location loc) {
+    final var slot = locationSlots.get(loc);
+    return slot != null ? slot : -1;
+  }
+
+  /** Returns the slot of the given component, assigning it one if it has none yet. */
+  int getSlot(Component comp) {
+    final var slot = componentSlots.get(comp);
+    return slot != null ? slot : addSlot(comp);
+  }
+
+  /** Returns the slot of the given component, or -1 if it has none. */
+  int findSlot(Component comp) {
+    final var slot = componentSlots.get(comp);
+    return slot != null ? slot : -1;
+  }
+
+  Location getLocation(int slot) {
+    return locations[slot];
+  }
+
+  /** Returns the component holding the given slot, or null if the slot is free. */
+  Component getComponent(int slot) {
+    return components[slot];
+  }
+
+  /** Returns how many times the given component slot has been released. */
+  int getGeneration(int slot) {
+    final var gens = generations;
+    return slot < gens.length ? gens[slot] : 0;
+  }
+
+  int getLocationCount() {
+    return locationCount;
+  }
+
+  int getComponentCount() {
+    return componentCount;
+  }
+
+  private synchronized int addSlot(Location loc) {
+    final var existing = locationSlots.get(loc);
+    if (existing != null) return existing;
+    final var slot = locationCount;
+    var locs = locations;
+    if (slot == locs.length) locs = Arrays.copyOf(locs, 2 * slot);
+    locs[slot] = loc;
+    locations = locs;
+    locationCount = slot + 1;
+    locationSlots.put(loc, slot);
+    return slot;
+  }
+
+  private synchronized int addSlot(Component comp) {
+    final var existing = componentSlots.get(comp);
+    if (existing != null) return existing;
+    if (freeCount > 0) {
+      final var slot = freeSlots[--freeCount];
+      components[slot] = comp;
+      componentSlots.put(comp, slot);
+      return slot;
+    }
+    final var slot = componentCount;
+    var comps = components;
+    if (slot == comps.length) {
+      comps = Arrays.copyOf(comps, 2 * slot);
+      generations = Arrays.copyOf(generations, 2 * slot);
+    }
+    comps[slot] = comp;
+    components = comps;
+    componentCount = slot + 1;
+    componentSlots.put(comp, slot);
+    return slot;
+  }
+
+  /** Releases the slot of a component that has been removed from the circuit. */
+  synchronized void release(Component comp) {
+    final var slot = componentSlots.remove(comp);
+    if (slot == null) return;
+    components[slot] = null;
+    generations[slot]++;
+    if (freeCount == freeSlots.length) freeSlots = Arrays.copyOf(freeSlots, 2 * freeCount);
+    freeSlots[freeCount++] = slot;
+  }
+}
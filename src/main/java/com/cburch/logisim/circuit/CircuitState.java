@@ -13,6 +13,7 @@ import com.cburch.logisim.circuit.Propagator.SetData;
 import com.cburch.logisim.comp.Component;
 import com.cburch.logisim.comp.ComponentDrawContext;
 import com.cburch.logisim.comp.ComponentState;
+import com.cburch.logisim.comp.StateKey;
 import com.cburch.logisim.data.Location;
 import com.cburch.logisim.data.Value;
 import com.cburch.logisim.instance.Instance;
@@ -25,11 +26,11 @@ import com.cburch.logisim.std.memory.Ram;
 import com.cburch.logisim.std.memory.RamState;
 import com.cburch.logisim.std.wiring.Clock;
 import com.cburch.logisim.std.wiring.Pin;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.ConcurrentModificationException;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Map;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
 
@@ -48,6 +49,7 @@ public class CircuitState implements InstanceData {
           markPointAsDirty(wire.getEnd1());
         } else {
           markComponentAsDirty(comp);
+          if (comp.getFactory() instanceof Clock) clocksChanged();
         }
       } else if (action == CircuitEvent.ACTION_REMOVE) {
         /* Component was removed */
@@ -55,6 +57,7 @@ public class CircuitState implements InstanceData {
         if (comp == temporaryClock) temporaryClock = null;
         if (comp.getFactory() instanceof Clock) {
           knownClocks = false; // just in case, will be recomputed by simulator
+          clocksChanged();
         }
         if (comp.getFactory() instanceof SubcircuitFactory) {
           knownClocks = false; // just in case, will be recomputed by simulator
@@ -62,6 +65,7 @@ public class CircuitState implements InstanceData {
           final var subState = (CircuitState) getData(comp);
           if (subState != null && subState.parentComp == comp) {
             subStates.remove(subState);
+            clocksChanged();
             subState.parentState = null;
             subState.parentComp = null;
             subState.reset();
@@ -81,19 +85,20 @@ public class CircuitState implements InstanceData {
         temporaryClock = null;
         knownClocks = false;
         subStates.clear();
+        clocksChanged();
         wireData = null;
-        for (final var comp : componentData.keySet()) {
-          if (componentData.get(comp) instanceof ComponentDataGuiProvider dataGuiProvider)
+        for (final var data : componentData) {
+          if (data instanceof ComponentDataGuiProvider dataGuiProvider)
             dataGuiProvider.destroy();
-          else if (componentData.get(comp) instanceof CircuitState circuitState) {
+          else if (data instanceof CircuitState circuitState) {
             circuitState.reset();
           }
         }
-        componentData.clear();
-        values.clear();
+        Arrays.fill(componentData, null);
+        Arrays.fill(values, null);
         dirtyComponents.clear();
         dirtyPoints.clear();
-        causes.clear();
+        Arrays.fill(causes, null);
       } else if (action == CircuitEvent.ACTION_INVALIDATE) {
         final var comp = (Component) event.getData();
         markComponentAsDirty(comp);
@@ -106,7 +111,9 @@ public class CircuitState implements InstanceData {
         final var map = event.getResult().getReplacementMap(circuit);
         if (map == null) return;
         for (final var comp : map.getRemovals()) {
-          final var compState = componentData.remove(comp);
+          final var compState = getData(comp);
+          final var slot = circuit.slots.findSlot(comp);
+          if (slot >= 0 && slot < componentData.length) componentData[slot] = null;
           if (compState != null) continue;
           Class<?> compFactory = comp.getFactory().getClass();
           var found = false;
@@ -121,6 +128,7 @@ public class CircuitState implements InstanceData {
           if (!found && compState instanceof CircuitState sub) {
             sub.parentState = null;
             subStates.remove(sub);
+            clocksChanged();
           }
         }
       }
@@ -138,11 +146,15 @@ public class CircuitState implements InstanceData {
   private HashSet<CircuitState> subStates = new HashSet<>();
 
   private CircuitWires.State wireData = null;
-  private final HashMap<Component, Object> componentData = new HashMap<>();
-  private final Map<Location, Value> values = new HashMap<>();
+  // the data of the components, the values at the points and the causes of
+  // these values, indexed by the slots that the circuit assigns to them
+  private Object[] componentData = new Object[0];
+  // generation of the component slot when its data was set, see CircuitSlots
+  private int[] dataGenerations = new int[0];
+  private Value[] values = new Value[0];
+  private SetData[] causes = new SetData[0];
   private CopyOnWriteArraySet<Component> dirtyComponents = new CopyOnWriteArraySet<>();
   private final CopyOnWriteArraySet<Location> dirtyPoints = new CopyOnWriteArraySet<>();
-  final HashMap<Location, SetData> causes = new HashMap<>();
 
   private static int lastId = 0;
   private final int id = lastId++;
@@ -167,7 +179,7 @@ public class CircuitState implements InstanceData {
   }
 
   public boolean containsKey(Location pt) {
-    return values.containsKey(pt);
+    return getValueByWire(pt) != null;
   }
 
   private void copyFrom(CircuitState src, Propagator base) {
@@ -183,26 +195,25 @@ public class CircuitState implements InstanceData {
       this.subStates.add(newSub);
       substateData.put(oldSub, newSub);
     }
-    for (final var key : src.componentData.keySet()) {
-      final var oldValue = src.componentData.get(key);
+    this.componentData = new Object[src.componentData.length];
+    for (var slot = 0; slot < componentData.length; slot++) {
+      final var oldValue = src.componentData[slot];
       if (oldValue instanceof CircuitState) {
-        final var newValue = substateData.get(oldValue);
-        if (newValue != null) this.componentData.put(key, newValue);
-        else this.componentData.remove(key);
+        componentData[slot] = substateData.get(oldValue);
       } else {
-        final var newValue = (oldValue instanceof ComponentState state) ? state.clone() : oldValue;
-        this.componentData.put(key, newValue);
+        componentData[slot] = (oldValue instanceof ComponentState state) ? state.clone() : oldValue;
       }
     }
-    for (final var key : src.causes.keySet()) {
-      final var oldValue = src.causes.get(key);
-      final var newValue = oldValue.cloneFor(this);
-      this.causes.put(key, newValue);
+    this.dataGenerations = src.dataGenerations.clone();
+    this.causes = new SetData[src.causes.length];
+    for (var slot = 0; slot < causes.length; slot++) {
+      final var oldValue = src.causes[slot];
+      if (oldValue != null) causes[slot] = oldValue.cloneFor(this);
     }
     if (src.wireData != null) {
       this.wireData = (CircuitWires.State) src.wireData.clone();
     }
-    this.values.putAll(src.values);
+    this.values = src.values.clone();
     this.dirtyComponents.addAll(src.dirtyComponents);
     this.dirtyPoints.addAll(src.dirtyPoints);
   }
@@ -220,12 +231,42 @@ public class CircuitState implements InstanceData {
 
   Value getComponentOutputAt(Location p) {
     // for CircuitWires - to get values, ignoring wires' contributions
-    final var causeList = causes.get(p);
-    return Propagator.computeValue(causeList);
+    return getComponentOutputAt(circuit.slots.findSlot(p));
+  }
+
+  Value getComponentOutputAt(int slot) {
+    return Propagator.computeValue(getCause(slot));
+  }
+
+  /** Returns the slot of the given location in this state's circuit. */
+  int getSlot(Location p) {
+    return circuit.slots.getSlot(p);
+  }
+
+  SetData getCause(int slot) {
+    final var list = causes;
+    return slot >= 0 && slot < list.length ? list[slot] : null;
+  }
+
+  void setCause(int slot, SetData head) {
+    if (slot >= causes.length) {
+      if (head == null) return;
+      causes = Arrays.copyOf(causes, grownLength(slot, circuit.slots.getLocationCount()));
+    }
+    causes[slot] = head;
   }
 
   public Object getData(Component comp) {
-    return componentData.get(comp);
+    return getDataAt(circuit.slots.findSlot(comp));
+  }
+
+  // Returns the data at the given component slot, or null if there is none or
+  // it was set for a component that has been removed since.
+  private Object getDataAt(int slot) {
+    final var data = componentData;
+    final var gens = dataGenerations;
+    if (slot < 0 || slot >= data.length || slot >= gens.length) return null;
+    return gens[slot] == circuit.slots.getGeneration(slot) ? data[slot] : null;
   }
 
   public InstanceState getInstanceState(Component comp) {
@@ -269,7 +310,7 @@ public class CircuitState implements InstanceData {
   }
 
   public Value getValue(Location pt) {
-    final var ret = values.get(pt);
+    final var ret = getValueByWire(pt);
     if (ret != null) return ret;
 
     final var wid = circuit.getWidth(pt);
@@ -277,7 +318,9 @@ public class CircuitState implements InstanceData {
   }
 
   Value getValueByWire(Location p) {
-    return values.get(p);
+    final var slot = circuit.slots.findSlot(p);
+    final var vals = values;
+    return slot >= 0 && slot < vals.length ? vals[slot] : null;
   }
 
   CircuitWires.State getWireData() {
@@ -317,6 +360,16 @@ public class CircuitState implements InstanceData {
   }
 
   void processDirtyComponents() {
+    processOwnDirtyComponents();
+
+    final var subs = new CircuitState[subStates.size()];
+    for (final var substate : subStates.toArray(subs)) {
+      substate.processDirtyComponents();
+    }
+  }
+
+  /** Propagates the dirty components of this state only, leaving its substates alone. */
+  void processOwnDirtyComponents() {
     if (!dirtyComponents.isEmpty()) {
       // This seeming wasted copy is to avoid ConcurrentModifications
       // if we used an iterator instead.
@@ -346,63 +399,51 @@ public class CircuitState implements InstanceData {
         }
       }
     }
+  }
+
+  void processDirtyPoints() {
+    processOwnDirtyPoints();
 
     final var subs = new CircuitState[subStates.size()];
     for (final var substate : subStates.toArray(subs)) {
-      substate.processDirtyComponents();
+      /* TODO: Analyze why this bug happens, e.g. a substate that is null! */
+      if (substate != null) substate.processDirtyPoints();
     }
   }
 
-  void processDirtyPoints() {
+  /** Propagates the dirty points of this state only, leaving its substates alone. */
+  void processOwnDirtyPoints() {
     final var dirty = new HashSet<>(dirtyPoints);
     dirtyPoints.clear();
-    if (circuit.wires.isMapVoided()) {
-      for (var i = 3; i >= 0; i--) {
-        try {
-          dirty.addAll(circuit.wires.points.getSplitLocations());
-          break;
-        } catch (ConcurrentModificationException e) {
-          // try again...
-          try {
-            Thread.sleep(1);
-          } catch (InterruptedException ignored) {
-          }
-          if (i == 0) e.printStackTrace();
-        }
-      }
-    }
-    if (!dirty.isEmpty()) {
+    // a stale state picks up the points affected by the wiring change itself
+    if (!dirty.isEmpty() || circuit.wires.isStale(wireData)) {
       circuit.wires.propagate(this, dirty);
     }
-
-    final var subs = new CircuitState[subStates.size()];
-    for (final var substate : subStates.toArray(subs)) {
-      /* TODO: Analyze why this bug happens, e.g. a substate that is null! */
-      if (substate != null) substate.processDirtyPoints();
-    }
   }
 
   void reset() {
     temporaryClock = null;
     wireData = null;
-    for (final var comp : componentData.keySet()) {
-      if (comp.getFactory() instanceof Ram ram) {
+    for (var slot = 0; slot < componentData.length; slot++) {
+      if (componentData[slot] == null) continue;
+      final var comp = circuit.slots.getComponent(slot);
+      if (comp == null || getDataAt(slot) == null) {
+        componentData[slot] = null;
+      } else if (comp.getFactory() instanceof Ram ram) {
         final var remove = ram.reset(this, Instance.getInstanceFor(comp));
-        if (remove) componentData.put(comp, null);
+        if (remove) componentData[slot] = null;
       } else if (comp.getFactory() instanceof Buzzer) {
         Buzzer.stopBuzzerSound(comp, this);
       } else if (!(comp.getFactory() instanceof SubcircuitFactory)) {
-        if (componentData.get(comp) instanceof ComponentDataGuiProvider guiProvider)
+        if (componentData[slot] instanceof ComponentDataGuiProvider guiProvider)
           guiProvider.destroy();
-        // it.remove(); ktt1: clear out the state instead of removing the key to
-        // prevent concurrent modification error
-        componentData.put(comp, null);
+        componentData[slot] = null;
       }
     }
-    values.clear();
+    Arrays.fill(values, null);
     dirtyComponents.clear();
     dirtyPoints.clear();
-    causes.clear();
+    Arrays.fill(causes, null);
     markAllComponentsDirty();
 
     for (CircuitState sub : subStates) {
@@ -412,7 +453,7 @@ public class CircuitState implements InstanceData {
 
   public void setData(Component comp, Object data) {
     if (data instanceof CircuitState newState) {
-      final var oldState = (CircuitState) componentData.get(comp);
+      final var oldState = (CircuitState) getData(comp);
       if (oldState != newState) {
         // There's something new going on with this subcircuit.
         // Maybe the subcircuit is new, or perhaps it's being
@@ -420,6 +461,7 @@ public class CircuitState implements InstanceData {
         if (oldState != null && oldState.parentComp == comp) {
           // it looks like it's being removed
           subStates.remove(oldState);
+          clocksChanged();
           oldState.parentState = null;
           oldState.parentComp = null;
           oldState.reset();
@@ -431,14 +473,27 @@ public class CircuitState implements InstanceData {
           newState.parentState = this;
           newState.parentComp = comp;
           newState.markAllComponentsDirty();
+          clocksChanged();
         }
       }
     } else {
-      if (componentData.get(comp) instanceof ComponentDataGuiProvider)
-        ((ComponentDataGuiProvider) componentData.get(comp)).destroy();
+      if (getData(comp) instanceof ComponentDataGuiProvider guiProvider)
+        guiProvider.destroy();
 
     }
-    componentData.put(comp, data);
+    final var slot = circuit.slots.getSlot(comp);
+    if (slot >= componentData.length) {
+      if (data == null) return;
+      final var length = grownLength(slot, circuit.slots.getComponentCount());
+      dataGenerations = Arrays.copyOf(dataGenerations, length);
+      componentData = Arrays.copyOf(componentData, length);
+    }
+    dataGenerations[slot] = circuit.slots.getGeneration(slot);
+    componentData[slot] = data;
+  }
+
+  private static int grownLength(int slot, int slotCount) {
+    return Math.max(slot + 1, slotCount + slotCount / 4);
   }
 
   public void setValue(Location pt, Value val, Component cause, int delay) {
@@ -447,15 +502,25 @@ public class CircuitState implements InstanceData {
 
   void setValueByWire(Location p, Value v) {
     // for CircuitWires - to set value at point
+    setValueByWire(circuit.slots.getSlot(p), v);
+  }
+
+  void setValueByWire(int slot, Value v) {
+    if (slot >= values.length) {
+      if (v == Value.NIL) return;
+      values = Arrays.copyOf(values, grownLength(slot, circuit.slots.getLocationCount()));
+    }
+    final var old = values[slot];
     boolean changed;
     if (v == Value.NIL) {
-      final var old = values.remove(p);
+      values[slot] = null;
       changed = (old != null && old != Value.NIL);
     } else {
-      final var old = values.put(p, v);
+      values[slot] = v;
       changed = !v.equals(old);
     }
     if (changed) {
+      final var p = circuit.slots.getLocation(slot);
       var found = false;
       for (final var comp : circuit.getComponents(p)) {
         if (!(comp instanceof Wire) && !(comp instanceof Splitter)) {
@@ -474,18 +539,69 @@ public class CircuitState implements InstanceData {
     wireData = data;
   }
 
-  boolean toggleClocks(int ticks) {
-    var ret = false;
-    if (temporaryClock != null)
-      ret |= temporaryClockValidateOrTick(ticks);
-
-    for (final var clock : circuit.getClocks())
-      ret |= Clock.tick(this, ticks, clock);
+  /**
+   * Adds the clocks of this state and its substates to the propagator's flat list, a null
+   * component standing for a temporary clock.
+   */
+  void collectClocks(List<CircuitState> states, List<Component> clocks) {
+    if (temporaryClock != null) {
+      states.add(this);
+      clocks.add(null);
+    }
+    for (final var clock : circuit.getClocks()) {
+      states.add(this);
+      clocks.add(clock);
+    }
+    final var subs = new CircuitState[subStates.size()];
+    for (final var substate : subStates.toArray(subs)) substate.collectClocks(states, clocks);
+  }
 
+  /** Returns whether this state or one of its substates has work left to propagate. */
+  boolean hasDirty() {
+    if (!dirtyComponents.isEmpty() || !dirtyPoints.isEmpty()) return true;
     final var subs = new CircuitState[subStates.size()];
-    for (final var substate : subStates.toArray(subs))
-      ret |= substate.toggleClocks(ticks);
-    return ret;
+    for (final var substate : subStates.toArray(subs)) {
+      if (substate.hasDirty()) return true;
+    }
+    return false;
+  }
+
+  /**
+   * Adds the values, their causes and the component data of this state and, through the data of
+   * its subcircuits, of its substates to the given key. This fails while something is left to
+   * propagate or when some component data cannot tell its state.
+   */
+  @Override
+  public boolean addStateTo(StateKey key) {
+    if (!dirtyComponents.isEmpty() || !dirtyPoints.isEmpty()) return false;
+    final var vals = values;
+    key.add(vals.length);
+    for (var slot = 0; slot < vals.length; slot++) {
+      if (vals[slot] != null) key.add(slot).add(vals[slot]);
+    }
+    final var list = causes;
+    key.add(list.length);
+    for (var slot = 0; slot < list.length; slot++) {
+      for (var n = list[slot]; n != null; n = n.next) {
+        key.add(slot).addIdentity(n.cause).add(n.val);
+      }
+    }
+    final var data = componentData;
+    key.add(data.length);
+    for (var slot = 0; slot < data.length; slot++) {
+      final var value = getDataAt(slot);
+      if (value == null) continue;
+      if (!(value instanceof ComponentState state) || !state.addStateTo(key.add(slot))) return false;
+    }
+    return true;
+  }
+
+  boolean tickTemporaryClock(int ticks) {
+    return temporaryClock != null && temporaryClockValidateOrTick(ticks);
+  }
+
+  private void clocksChanged() {
+    if (base != null) base.clocksChanged();
   }
 
   private boolean temporaryClockValidateOrTick(int ticks) {
@@ -523,6 +639,7 @@ public class CircuitState implements InstanceData {
 
   public boolean setTemporaryClock(Component clk) {
     temporaryClock = clk;
+    clocksChanged();
     return clk == null || temporaryClockValidateOrTick(-1);
   }
 
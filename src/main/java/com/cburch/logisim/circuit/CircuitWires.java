@@ -27,27 +27,61 @@ import com.cburch.logisim.util.GraphicsUtil;
 import com.cburch.logisim.util.IteratorUtil;
 import java.awt.Color;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Set;
-import java.util.concurrent.CopyOnWriteArraySet;
-import javax.swing.SwingUtilities;
+import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 class CircuitWires {
 
+  /**
+   * Maps every wired location to its {@link WireBundle}. A bundle map is only mutated while it is
+   * being built by {@link #computeBundleMap} or {@link #deriveBundleMap}; once published through
+   * {@link #getBundleMap} it is never modified again, so it can be read from any thread without
+   * locking.
+   *
+   * <p>A map derived from a previous one shares the bundles and threads that the change did not
+   * touch, and remembers the locations whose bundles it rebuilt, so that a state still holding
+   * values for the previous map only has to propagate those again.
+   */
   static class BundleMap {
+    final long version;
     final HashMap<Location, WireBundle> pointBundles = new HashMap<>();
     final HashSet<WireBundle> bundles = new HashSet<>();
+    final HashMap<Splitter, SplitterData> splitters = new HashMap<>(); // as the map was built
     boolean isValid = true;
     // NOTE: It would make things more efficient if we also had
     // a set of just the first bundle in each tree.
     HashSet<WidthIncompatibilityData> incompatibilityData = null;
+    // the map this one was derived from, and the locations rebuilt since
+    volatile BundleMap previous = null;
+    Set<Location> changedPoints = null;
+
+    BundleMap(long version) {
+      this.version = version;
+    }
+
+    /**
+     * Returns the locations whose bundles were rebuilt since the given map, or null when this map
+     * was not derived from it (or it is too old to be remembered).
+     */
+    Set<Location> getChangesSince(BundleMap base) {
+      final var ret = new HashSet<Location>();
+      for (var map = this; map != base; map = map.previous) {
+        if (map == null || map.changedPoints == null) return null;
+        ret.addAll(map.changedPoints);
+      }
+      return ret;
+    }
 
     void addWidthIncompatibilityData(WidthIncompatibilityData e) {
       if (incompatibilityData == null) {
@@ -96,11 +130,32 @@ class CircuitWires {
     }
   }
 
+  /**
+   * Copy of the configuration of a splitter, taken while holding the splitter's lock, so that the
+   * bundle map can be built without touching the splitter again.
+   */
   static class SplitterData {
+    final Splitter splitter;
+    final EndData[] ends;
+    final byte[] bitEnd;
+    final byte[] bitThread;
     final WireBundle[] endBundle; // PointData associated with each end
 
-    SplitterData(int fanOut) {
-      endBundle = new WireBundle[fanOut + 1];
+    SplitterData(Splitter splitter) {
+      synchronized (splitter) {
+        final var splAttrs = (SplitterAttributes) splitter.getAttributeSet();
+        this.splitter = splitter;
+        this.ends = splitter.getEnds().toArray(new EndData[0]);
+        this.bitEnd = splAttrs.bitEnd.clone();
+        this.bitThread = splitter.bitThread.clone();
+      }
+      endBundle = new WireBundle[ends.length];
+    }
+
+    boolean hasSameConfiguration(SplitterData other) {
+      return Arrays.equals(ends, other.ends)
+          && Arrays.equals(bitEnd, other.bitEnd)
+          && Arrays.equals(bitThread, other.bitThread);
     }
   }
 
@@ -140,7 +195,7 @@ class CircuitWires {
     public void attributeValueChanged(AttributeEvent e) {
       final var attr = e.getAttribute();
       if (attr == StdAttr.LABEL || attr == PullResistor.ATTR_PULL_TYPE) {
-        voidBundleMap();
+        voidBundlesOf(e.getSource());
       }
     }
   }
@@ -181,16 +236,24 @@ class CircuitWires {
   // derived data
   private Bounds bounds = Bounds.EMPTY_BOUNDS;
 
-  private BundleMap masterBundleMap = null;
+  // The bundle map is published as an immutable snapshot. Every structural change
+  // bumps bundleMapVersion; a snapshot is current only while its version matches.
+  private final AtomicLong bundleMapVersion = new AtomicLong();
+  private volatile BundleMap masterBundleMap = null;
+  // Locations whose bundles changed since masterBundleMap was built, or null
+  // when the next map has to be built from scratch. Guarded by this.
+  private HashSet<Location> changedLocations = null;
+
+  // Derived maps remember this many predecessors; a state that is further
+  // behind propagates all of its threads again.
+  private static final int MAX_MAP_HISTORY = 8;
 
   CircuitWires() {}
 
   //
   // action methods
   //
-  // NOTE: this could be made much more efficient in most cases to
-  // avoid voiding the bundle map.
-  /*synchronized*/ boolean add(Component comp) {
+  synchronized boolean add(Component comp) {
     var added = true;
     if (comp instanceof Wire wire) {
       added = addWire(wire);
@@ -208,14 +271,14 @@ class CircuitWires {
     }
     if (added) {
       points.add(comp);
-      voidBundleMap();
+      voidBundlesAt(comp);
     }
     return added;
   }
 
-  /*synchronized*/ void add(Component comp, EndData end) {
+  synchronized void add(Component comp, EndData end) {
     points.add(comp, end);
-    voidBundleMap();
+    voidBundlesAt(end.getLocation());
   }
 
   private boolean addWire(Wire w) {
@@ -228,12 +291,126 @@ class CircuitWires {
     return true;
   }
 
-  // To be called by getBundleMap only
-  private void computeBundleMap(BundleMap ret) {
+  // To be called by getBundleMap only, while holding the lock on this
+  private void computeBundleMap(BundleMap ret, SplitterData[] splitterData) {
+    for (final var spl : splitterData) ret.splitters.put(spl.splitter, spl);
+    computeBundles(ret, wires, tunnels, pulls, Arrays.asList(splitterData));
+    collectWidthIncompatibilityData(ret);
+  }
+
+  /**
+   * Builds a map that differs from the given one only in the bundles around the given locations.
+   * Starting from these locations, it collects everything that was or is now connected to them
+   * through wires, tunnels and splitters, rebuilds the bundles and threads of just that part, and
+   * reuses all other bundles and threads as they are. Returns null when the change reaches so far
+   * that building the map from scratch is cheaper. To be called by getBundleMap only, while
+   * holding the lock on this.
+   */
+  private BundleMap deriveBundleMap(
+      BundleMap old, long version, Set<Location> changed, SplitterData[] splitterData) {
+    final var splittersAt = new HashMap<Location, ArrayList<SplitterData>>();
+    final var pending = new ArrayDeque<Location>(changed);
+    for (final var spl : splitterData) {
+      for (final var end : spl.ends) {
+        splittersAt.computeIfAbsent(end.getLocation(), k -> new ArrayList<>(2)).add(spl);
+      }
+      final var prev = old.splitters.get(spl.splitter);
+      if (prev == null || !prev.hasSameConfiguration(spl)) {
+        for (final var end : spl.ends) pending.add(end.getLocation());
+        if (prev != null) for (final var end : prev.ends) pending.add(end.getLocation());
+      }
+    }
+    final var current = new HashSet<Splitter>();
+    for (final var spl : splitterData) current.add(spl.splitter);
+    for (final var prev : old.splitters.values()) {
+      if (!current.contains(prev.splitter)) {
+        for (final var end : prev.ends) pending.add(end.getLocation());
+      }
+    }
+
+    // close the changed locations over old bundles and current connections
+    final var limit = old.pointBundles.size() / 2;
+    final var region = new HashSet<Location>();
+    HashMap<String, ArrayList<Location>> tunnelSets = null;
+    while (!pending.isEmpty()) {
+      final var loc = pending.poll();
+      if (!region.add(loc)) continue;
+      if (region.size() > limit) return null;
+      final var oldBundle = old.getBundleAt(loc);
+      if (oldBundle != null) pending.addAll(oldBundle.points);
+      for (final var comp : points.getComponents(loc)) {
+        if (comp instanceof Wire wire) {
+          pending.add(wire.e0);
+          pending.add(wire.e1);
+        } else if (tunnels.contains(comp)) {
+          if (tunnelSets == null) tunnelSets = getTunnelSets(tunnels);
+          final var label = comp.getAttributeSet().getValue(StdAttr.LABEL).trim();
+          final var tunnelSet = tunnelSets.get(label);
+          if (tunnelSet != null) pending.addAll(tunnelSet);
+        }
+      }
+      final var spls = splittersAt.get(loc);
+      if (spls != null) {
+        for (final var spl : spls) {
+          for (final var end : spl.ends) pending.add(end.getLocation());
+        }
+      }
+    }
+
+    // rebuild the bundles within the region
+    final var regionWires = new LinkedHashSet<Wire>();
+    final var regionTunnels = new LinkedHashSet<Component>();
+    final var regionPulls = new LinkedHashSet<Component>();
+    for (final var loc : region) {
+      for (final var comp : points.getComponents(loc)) {
+        if (comp instanceof Wire wire) {
+          if (wires.contains(wire)) regionWires.add(wire);
+        } else if (tunnels.contains(comp)) {
+          regionTunnels.add(comp);
+        } else if (pulls.contains(comp)) {
+          regionPulls.add(comp);
+        }
+      }
+    }
+    final var regionSplitters = new ArrayList<SplitterData>();
+    for (final var spl : splitterData) {
+      if (region.contains(spl.ends[0].getLocation())) regionSplitters.add(spl);
+    }
+    final var sub = new BundleMap(version);
+    computeBundles(sub, regionWires, regionTunnels, regionPulls, regionSplitters);
+
+    // and combine them with the untouched part of the old map
+    final var ret = new BundleMap(version);
+    ret.pointBundles.putAll(old.pointBundles);
+    ret.bundles.addAll(old.bundles);
+    for (final var loc : region) {
+      final var oldBundle = ret.pointBundles.remove(loc);
+      if (oldBundle != null) ret.bundles.remove(oldBundle);
+    }
+    ret.pointBundles.putAll(sub.pointBundles);
+    ret.bundles.addAll(sub.bundles);
+    for (final var spl : splitterData) ret.splitters.put(spl.splitter, spl);
+    collectWidthIncompatibilityData(ret);
+    ret.changedPoints = region;
+    ret.previous = old;
+    var map = old;
+    for (var i = 1; map != null && i < MAX_MAP_HISTORY; i++) map = map.previous;
+    if (map != null) map.previous = null;
+    return ret;
+  }
+
+  // Builds the bundles and threads formed by the given wires, tunnels, pull
+  // resistors and splitters into ret.
+  private void computeBundles(
+      BundleMap ret,
+      Collection<Wire> wires,
+      Collection<Component> tunnels,
+      Collection<Component> pulls,
+      Collection<SplitterData> splitterData) {
     // create bundles corresponding to wires and tunnels
-    connectWires(ret);
-    connectTunnels(ret);
-    connectPullResistors(ret);
+    connectWires(ret, wires);
+    connectTunnels(ret, tunnels);
+    connectPullResistors(ret, pulls);
 
     // merge any WireBundle objects united by previous steps
     for (final var it = ret.getBundles().iterator(); it.hasNext(); ) {
@@ -250,9 +427,8 @@ class CircuitWires {
     }
 
     // make a WireBundle object for each end of a splitter
-    for (final var spl : splitters) {
-      final var ends = new ArrayList<>(spl.getEnds());
-      for (final var end : ends) {
+    for (final var spl : splitterData) {
+      for (final var end : spl.ends) {
         final var p = end.getLocation();
         final var pb = ret.createBundleAt(p);
         pb.setWidth(end.getWidth(), p);
@@ -270,45 +446,40 @@ class CircuitWires {
     }
 
     // determine the bundles at the end of each splitter
-    for (final var spl : splitters) {
-      final var ends = new ArrayList<>(spl.getEnds());
+    for (final var spl : splitterData) {
       int index = -1;
-      for (final var end : ends) {
+      for (final var end : spl.ends) {
         index++;
         final var p = end.getLocation();
         final var pb = ret.getBundleAt(p);
         if (pb != null) {
           pb.setWidth(end.getWidth(), p);
-          spl.wireData.endBundle[index] = pb;
+          spl.endBundle[index] = pb;
         }
       }
     }
 
     // unite threads going through splitters
-    for (final var spl : splitters) {
-      synchronized (spl) {
-        final var splAttrs = (SplitterAttributes) spl.getAttributeSet();
-        final var bitEnd = splAttrs.bitEnd;
-        final var splData = spl.wireData;
-        final var fromBundle = splData.endBundle[0];
-        if (fromBundle == null || !fromBundle.isValid()) continue;
-
-        for (var i = 0; i < bitEnd.length; i++) {
-          var j = bitEnd[i];
-          if (j > 0) {
-            var thr = spl.bitThread[i];
-            final var toBundle = splData.endBundle[j];
-            final var toThreads = toBundle.threads;
-            if (toThreads != null && toBundle.isValid()) {
-              final var fromThreads = fromBundle.threads;
-              if (i >= fromThreads.length) {
-                throw new ArrayIndexOutOfBoundsException("from " + i + " of " + fromThreads.length);
-              }
-              if (thr >= toThreads.length) {
-                throw new ArrayIndexOutOfBoundsException("to " + thr + " of " + toThreads.length);
-              }
-              fromThreads[i].unite(toThreads[thr]);
+    for (final var splData : splitterData) {
+      final var bitEnd = splData.bitEnd;
+      final var fromBundle = splData.endBundle[0];
+      if (fromBundle == null || !fromBundle.isValid()) continue;
+
+      for (var i = 0; i < bitEnd.length; i++) {
+        var j = bitEnd[i];
+        if (j > 0) {
+          var thr = splData.bitThread[i];
+          final var toBundle = splData.endBundle[j];
+          final var toThreads = toBundle.threads;
+          if (toThreads != null && toBundle.isValid()) {
+            final var fromThreads = fromBundle.threads;
+            if (i >= fromThreads.length) {
+              throw new ArrayIndexOutOfBoundsException("from " + i + " of " + fromThreads.length);
             }
+            if (thr >= toThreads.length) {
+              throw new ArrayIndexOutOfBoundsException("to " + thr + " of " + toThreads.length);
+            }
+            fromThreads[i].unite(toThreads[thr]);
           }
         }
       }
@@ -325,8 +496,9 @@ class CircuitWires {
       }
     }
 
-    // All threads are sewn together! Compute the exception set before
-    // leaving
+  }
+
+  private void collectWidthIncompatibilityData(BundleMap ret) {
     final var exceptions = points.getWidthIncompatibilityData();
     if (CollectionUtil.isNotEmpty(exceptions)) {
       for (final var wid : exceptions) {
@@ -339,7 +511,7 @@ class CircuitWires {
     }
   }
 
-  private void connectPullResistors(BundleMap ret) {
+  private void connectPullResistors(BundleMap ret, Collection<Component> pulls) {
     for (final var comp : pulls) {
       final var loc = comp.getEnd(0).getLocation();
       var b = ret.getBundleAt(loc);
@@ -353,8 +525,7 @@ class CircuitWires {
     }
   }
 
-  private void connectTunnels(BundleMap ret) {
-    // determine the sets of tunnels
+  private static HashMap<String, ArrayList<Location>> getTunnelSets(Collection<Component> tunnels) {
     final var tunnelSets = new HashMap<String, ArrayList<Location>>();
     for (final var comp : tunnels) {
       final var label = comp.getAttributeSet().getValue(StdAttr.LABEL).trim();
@@ -363,6 +534,12 @@ class CircuitWires {
         tunnelSet.add(comp.getLocation());
       }
     }
+    return tunnelSets;
+  }
+
+  private void connectTunnels(BundleMap ret, Collection<Component> tunnels) {
+    // determine the sets of tunnels
+    final var tunnelSets = getTunnelSets(tunnels);
 
     // now connect the bundles that are tunnelled together
     for (ArrayList<Location> tunnelSet : tunnelSets.values()) {
@@ -394,7 +571,7 @@ class CircuitWires {
     }
   }
 
-  private void connectWires(BundleMap ret) {
+  private void connectWires(BundleMap ret, Collection<Wire> wires) {
     // make a WireBundle object for each tree of connected wires
     for (final var wire : wires) {
       final var bundleA = ret.getBundleAt(wire.e0);
@@ -414,7 +591,16 @@ class CircuitWires {
     }
   }
 
-  void draw(ComponentDrawContext context, Collection<Component> hidden) {
+  /**
+   * Draws the wires, only the given ones if the collection is not null, and the split points that
+   * lie within the clip if there is one.
+   */
+  void draw(
+      ComponentDrawContext context,
+      Collection<Component> hidden,
+      Collection<Wire> visible,
+      Rectangle clip) {
+    final Collection<Wire> toDraw = visible != null ? visible : wires;
     final var showState = context.getShowState();
     final var state = context.getCircuitState();
     final var g = (Graphics2D) context.getGraphics();
@@ -425,7 +611,7 @@ class CircuitWires {
     final var bmap = getBundleMap();
     final var isValid = bmap.isValid();
     if (CollectionUtil.isNullOrEmpty(hidden)) {
-      for (final var wire : wires) {
+      for (final var wire : toDraw) {
         final var s = wire.e0;
         final var t = wire.e1;
         final var wb = bmap.getBundleAt(s);
@@ -470,6 +656,7 @@ class CircuitWires {
       }
 
       for (final var loc : points.getSplitLocations()) {
+        if (isOutside(clip, loc)) continue;
         if (points.getComponentCount(loc) > 2) {
           final var wb = bmap.getBundleAt(loc);
           if (wb != null) {
@@ -495,7 +682,7 @@ class CircuitWires {
         }
       }
     } else {
-      for (final var wire : wires) {
+      for (final var wire : toDraw) {
         if (!hidden.contains(wire)) {
           final var s = wire.e0;
           final var t = wire.e1;
@@ -522,6 +709,7 @@ class CircuitWires {
       // the problem is minor, and hidden only exists for a short
       // while at a time anway.
       for (final var loc : points.getSplitLocations()) {
+        if (isOutside(clip, loc)) continue;
         if (points.getComponentCount(loc) > 2) {
           var icount = 0;
           for (final var comp : points.getComponents(loc)) {
@@ -549,43 +737,73 @@ class CircuitWires {
     }
   }
 
-  // There are only two threads that need to use the bundle map, I think:
-  // the AWT event thread, and the simulation worker thread.
-  // AWT does modifications to the components and wires, then voids the
-  // masterBundleMap, and eventually recomputes a new map (if needed) during
-  // painting. AWT sometimes locks a splitter, then changes components and
-  // wires.
-  // Computing a new bundle map requires both locking splitters and touching
-  // the components and wires, so to avoid deadlock, only the AWT should
-  // create the new bundle map.
+  private static boolean isOutside(Rectangle clip, Location loc) {
+    final var margin = Wire.HIGHLIGHTED_WIDTH_BUS * 2;
+    return clip != null
+        && (loc.getX() < clip.x - margin
+            || loc.getY() < clip.y - margin
+            || loc.getX() > clip.x + clip.width + margin
+            || loc.getY() > clip.y + clip.height + margin);
+  }
 
-  /*synchronized*/ private BundleMap getBundleMap() {
-    if (SwingUtilities.isEventDispatchThread()) {
-      // AWT event thread.
-      if (masterBundleMap != null) return masterBundleMap;
-      final var ret = new BundleMap();
-      try {
-        computeBundleMap(ret);
-        masterBundleMap = ret;
-      } catch (Exception t) {
-        ret.invalidate();
-        logger.error(t.getLocalizedMessage());
-      }
-      return ret;
-    } else {
-      // Simulation thread.
-      try {
-        final var ret = new BundleMap[1];
-        SwingUtilities.invokeAndWait(() -> ret[0] = getBundleMap());
-        return ret[0];
-      } catch (Exception e) {
-        final var ret = new BundleMap();
-        ret.invalidate();
+  // There are two threads that need to use the bundle map: the AWT event
+  // thread, and the simulation worker thread. Whichever asks first after a
+  // change computes the new map itself; neither waits on the other.
+  // AWT does modifications to the components and wires while holding the lock
+  // on this object, then voids the masterBundleMap. AWT sometimes locks a
+  // splitter, then changes components and wires. To avoid deadlock, the
+  // splitters are therefore copied before the lock on this object is taken,
+  // and the copy is thrown away when a change slipped in between.
+
+  private BundleMap getBundleMap() {
+    final var map = masterBundleMap;
+    if (map != null && map.version == bundleMapVersion.get()) return map;
+    while (true) {
+      final var version = bundleMapVersion.get();
+      final var splitterData = snapshotSplitters();
+      synchronized (this) {
+        if (bundleMapVersion.get() != version) continue;
+        final var current = masterBundleMap;
+        if (current != null && current.version == version) return current;
+        if (current != null && current.isValid() && changedLocations != null) {
+          try {
+            final var derived = deriveBundleMap(current, version, changedLocations, splitterData);
+            if (derived != null) {
+              masterBundleMap = derived;
+              changedLocations = new HashSet<>();
+              return derived;
+            }
+          } catch (Exception t) {
+            // fall back to building the whole map, which reports the problem
+          }
+          for (final var spl : splitterData) Arrays.fill(spl.endBundle, null);
+        }
+        final var ret = new BundleMap(version);
+        try {
+          computeBundleMap(ret, splitterData);
+          masterBundleMap = ret;
+          changedLocations = new HashSet<>();
+        } catch (Exception t) {
+          ret.invalidate();
+          logger.error(t.getLocalizedMessage());
+        }
         return ret;
       }
     }
   }
 
+  private SplitterData[] snapshotSplitters() {
+    final Splitter[] spls;
+    synchronized (this) {
+      spls = splitters.toArray(new Splitter[0]);
+    }
+    final var ret = new SplitterData[spls.length];
+    for (var i = 0; i < spls.length; i++) {
+      ret[i] = new SplitterData(spls[i]);
+    }
+    return ret;
+  }
+
   Iterator<? extends Component> getComponents() {
     return IteratorUtil.createJoinedIterator(splitters.iterator(), wires.iterator());
   }
@@ -594,8 +812,8 @@ class CircuitWires {
     var ret = Value.UNKNOWN;
     var pull = Value.UNKNOWN;
     for (final var tb : t.getBundles()) {
-      for (final var p : tb.b.points) {
-        final var val = state.getComponentOutputAt(p);
+      for (final var slot : tb.b.getPointSlots(state)) {
+        final var val = state.getComponentOutputAt(slot);
         if (val != null && val != Value.NIL) {
           ret = ret.combine(val.get(tb.loc));
         }
@@ -665,8 +883,22 @@ class CircuitWires {
   //
   // query methods
   //
-  boolean isMapVoided() {
-    return masterBundleMap == null;
+  /**
+   * Returns true when the wire values cached in the given state were computed from a bundle map
+   * that is no longer current, so that the points affected by the change must be propagated
+   * again.
+   */
+  boolean isStale(State state) {
+    if (state == null) return true;
+    final var map = masterBundleMap;
+    return map == null
+        || state.bundleMap.version != map.version
+        || map.version != bundleMapVersion.get();
+  }
+
+  /** Returns a copy of the locations where wires split, safe to use while wires are edited. */
+  private synchronized Set<Location> getSplitLocationsSnapshot() {
+    return new HashSet<>(points.getSplitLocations());
   }
 
   //
@@ -674,18 +906,39 @@ class CircuitWires {
   //
   void propagate(CircuitState circState, Set<Location> points) {
     final var map = getBundleMap();
-    final var dirtyThreads = new CopyOnWriteArraySet<WireThread>(); // affected threads
+    final var dirtyThreads = new LinkedHashSet<WireThread>(); // affected threads
 
     // get state, or create a new one if current state is outdated
     var state = circState.getWireData();
     if (state == null || state.bundleMap != map) {
-      // if it is outdated, we need to compute for all threads
+      final var changes = state == null ? null : map.getChangesSince(state.bundleMap);
+      final var oldValues = state == null ? null : state.thrValues;
       state = new State(map);
-      for (final var bundle : map.getBundles()) {
-        final var wireThreads = bundle.threads;
-        if (bundle.isValid() && wireThreads != null) {
-          dirtyThreads.addAll(Arrays.asList(wireThreads));
+      if (changes == null) {
+        // if it is unrelated, we need to compute for all threads and points
+        for (final var bundle : map.getBundles()) {
+          final var wireThreads = bundle.threads;
+          if (bundle.isValid() && wireThreads != null) {
+            dirtyThreads.addAll(Arrays.asList(wireThreads));
+          }
         }
+        points = new HashSet<>(points);
+        points.addAll(getSplitLocationsSnapshot());
+      } else {
+        // otherwise only the threads that were rebuilt need computing, along
+        // with the points whose bundles changed
+        for (final var bundle : map.getBundles()) {
+          final var wireThreads = bundle.threads;
+          if (bundle.isValid() && wireThreads != null) {
+            for (final var t : wireThreads) {
+              final var v = oldValues.get(t);
+              if (v == null) dirtyThreads.add(t);
+              else state.thrValues.put(t, v);
+            }
+          }
+        }
+        points = new HashSet<>(points);
+        points.addAll(changes);
       }
       circState.setWireData(state);
     }
@@ -747,8 +1000,8 @@ class CircuitWires {
       }
 
       if (bv != null) {
-        for (final var p : b.points) {
-          circState.setValueByWire(p, bv);
+        for (final var slot : b.getPointSlots(circState)) {
+          circState.setValueByWire(slot, bv);
         }
       }
     }
@@ -781,7 +1034,8 @@ class CircuitWires {
     return bounds;
   }
 
-  /*synchronized*/ void remove(Component comp) {
+  synchronized void remove(Component comp) {
+    voidBundlesAt(comp);
     if (comp instanceof Wire wire) {
       removeWire(wire);
     } else if (comp instanceof Splitter) {
@@ -797,12 +1051,11 @@ class CircuitWires {
       }
     }
     points.remove(comp);
-    voidBundleMap();
   }
 
-  /*synchronized*/ void remove(Component comp, EndData end) {
+  synchronized void remove(Component comp, EndData end) {
     points.remove(comp, end);
-    voidBundleMap();
+    voidBundlesAt(end.getLocation());
   }
 
   private void removeWire(Wire w) {
@@ -817,19 +1070,40 @@ class CircuitWires {
     }
   }
 
-  /*synchronized*/ void replace(Component comp, EndData oldEnd, EndData newEnd) {
+  synchronized void replace(Component comp, EndData oldEnd, EndData newEnd) {
     points.remove(comp, oldEnd);
     points.add(comp, newEnd);
-    voidBundleMap();
+    voidBundlesAt(oldEnd.getLocation());
+    voidBundlesAt(newEnd.getLocation());
   }
 
   //
   // helper methods
   //
-  private void voidBundleMap() {
-    // This should really only be called by AWT thread, but main() also
-    // calls it during startup. It should not be called by the simulation
-    // thread.
-    masterBundleMap = null;
+  // Called, while holding the lock on this, whenever the bundles at the given
+  // location may have changed. This should really only be called by AWT
+  // thread, but main() also calls it during startup. It should not be called
+  // by the simulation thread.
+  private void voidBundlesAt(Location loc) {
+    if (changedLocations != null) changedLocations.add(loc);
+    bundleMapVersion.incrementAndGet();
+  }
+
+  private void voidBundlesAt(Component comp) {
+    if (comp instanceof Wire wire) {
+      voidBundlesAt(wire.e0);
+      voidBundlesAt(wire.e1);
+    } else {
+      for (final var end : comp.getEnds()) voidBundlesAt(end.getLocation());
+    }
+  }
+
+  private synchronized void voidBundlesOf(Object attrs) {
+    for (final var comp : tunnels) {
+      if (comp.getAttributeSet() == attrs) voidBundlesAt(comp);
+    }
+    for (final var comp : pulls) {
+      if (comp.getAttributeSet() == attrs) voidBundlesAt(comp);
+    }
   }
 }
@@ -0,0 +1,47 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.circuit;
+
+import com.cburch.logisim.comp.Component;
+
+/**
+ * Thrown when a circuit cannot be simulated by a {@link LevelizedSimulator}. It names the circuit
+ * and, if one is to blame, the component, so that the message can be shown as is.
+ */
+public class CompileException extends RuntimeException {
+  private static final long serialVersionUID = 1L;
+
+  private final transient Component component;
+  private final String reason;
+
+  public CompileException(Circuit circuit, Component component, String reason) {
+    super(circuit.getName() + ": "
+        + (component == null
+            ? reason
+            : component.getFactory().getDisplayName() + " " + component.getLocation() + " " + reason));
+    this.component = component;
+    this.reason = reason;
+  }
+
+  public CompileException(String reason) {
+    super(reason);
+    this.component = null;
+    this.reason = reason;
+  }
+
+  /** Returns the component that cannot be compiled, or null if the circuit as a whole is to blame. */
+  public Component getComponent() {
+    return component;
+  }
+
+  public String getReason() {
+    return reason;
+  }
+}
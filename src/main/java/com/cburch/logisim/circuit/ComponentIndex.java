@@ -0,0 +1,189 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.circuit;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.Bounds;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * A uniform grid over the bounds of the components and wires of a circuit, so that drawing and
+ * hit testing only look at what lies near the area of interest instead of at the whole circuit.
+ *
+ * <p>Each component is filed in every cell its bounds overlap, or in a separate list when it
+ * spans too many cells. The bounds of a component may change without it being added again, so
+ * the index is told through {@link #update} when a component signals it, and a candidate whose
+ * bounds no longer match the ones it was filed with is filed again when a query meets it. The
+ * components of a query are only candidates: the caller still applies its exact test.
+ *
+ * <p>The circuit changes it while holding its lock, but bounds may change on the simulation
+ * thread while the gui draws, so all methods are synchronized.
+ */
+class ComponentIndex {
+  private static final int CELL_SHIFT = 7;
+  private static final int MAX_CELLS = 256;
+
+  private static class Entry {
+    final Component comp;
+    final long order;
+    final boolean isWire;
+    Bounds bounds;
+    /* the cells filed in, or null if in the list of large components */
+    long[] cells;
+    int mark;
+
+    Entry(Component comp, long order) {
+      this.comp = comp;
+      this.order = order;
+      this.isWire = comp instanceof Wire;
+    }
+  }
+
+  private final HashMap<Component, Entry> entries = new HashMap<>();
+  private final HashMap<Long, ArrayList<Entry>> cells = new HashMap<>();
+  private final ArrayList<Entry> large = new ArrayList<>();
+  private long nextOrder = 0;
+  private int queryMark = 0;
+
+  private static long cellKey(int cx, int cy) {
+    return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+  }
+
+  synchronized void add(Component comp) {
+    if (entries.containsKey(comp)) return;
+    final var entry = new Entry(comp, nextOrder++);
+    entries.put(comp, entry);
+    file(entry);
+  }
+
+  synchronized void remove(Component comp) {
+    final var entry = entries.remove(comp);
+    if (entry != null) unfile(entry);
+  }
+
+  /** Files the component again if its bounds changed since it was filed. */
+  synchronized void update(Component comp) {
+    final var entry = entries.get(comp);
+    if (entry != null && !isCurrent(entry)) {
+      unfile(entry);
+      file(entry);
+    }
+  }
+
+  synchronized void clear() {
+    entries.clear();
+    cells.clear();
+    large.clear();
+  }
+
+  /**
+   * Returns the components whose bounds may overlap the area: first the ones that are not wires
+   * in the order they were added, then the wires.
+   */
+  synchronized List<Component> query(Bounds area) {
+    final var mark = ++queryMark;
+    final var found = new ArrayList<Entry>();
+    for (final var entry : large) {
+      entry.mark = mark;
+      found.add(entry);
+    }
+    final var cx0 = area.getX() >> CELL_SHIFT;
+    final var cy0 = area.getY() >> CELL_SHIFT;
+    final var cx1 = (area.getX() + area.getWidth()) >> CELL_SHIFT;
+    final var cy1 = (area.getY() + area.getHeight()) >> CELL_SHIFT;
+    if ((long) (cx1 - cx0 + 1) * (cy1 - cy0 + 1) > cells.size()) {
+      // the area covers more cells than are in use, so walk the used ones instead
+      for (final var cell : cells.entrySet()) {
+        final int cx = (int) (cell.getKey() >> 32);
+        final int cy = (int) (long) cell.getKey();
+        if (cx >= cx0 && cx <= cx1 && cy >= cy0 && cy <= cy1) {
+          collect(cell.getValue(), mark, found);
+        }
+      }
+    } else {
+      for (var cx = cx0; cx <= cx1; cx++) {
+        for (var cy = cy0; cy <= cy1; cy++) {
+          final var cell = cells.get(cellKey(cx, cy));
+          if (cell != null) collect(cell, mark, found);
+        }
+      }
+    }
+    for (final var entry : found) {
+      if (!isCurrent(entry)) {
+        unfile(entry);
+        file(entry);
+      }
+    }
+    final var ret = new ArrayList<Component>(found.size());
+    found.sort(
+        (a, b) -> a.isWire != b.isWire ? (a.isWire ? 1 : -1) : Long.compare(a.order, b.order));
+    for (final var entry : found) ret.add(entry.comp);
+    return ret;
+  }
+
+  private static void collect(ArrayList<Entry> cell, int mark, ArrayList<Entry> found) {
+    for (final var entry : cell) {
+      if (entry.mark != mark) {
+        entry.mark = mark;
+        found.add(entry);
+      }
+    }
+  }
+
+  private static boolean isCurrent(Entry entry) {
+    final var bds = entry.comp.getBounds();
+    return bds == entry.bounds || (bds != null && bds.equals(entry.bounds));
+  }
+
+  private void file(Entry entry) {
+    final var bds = entry.comp.getBounds();
+    entry.bounds = bds;
+    if (bds == null) {
+      entry.cells = null;
+      large.add(entry);
+      return;
+    }
+    final var cx0 = bds.getX() >> CELL_SHIFT;
+    final var cy0 = bds.getY() >> CELL_SHIFT;
+    final var cx1 = (bds.getX() + bds.getWidth()) >> CELL_SHIFT;
+    final var cy1 = (bds.getY() + bds.getHeight()) >> CELL_SHIFT;
+    final var count = (long) (cx1 - cx0 + 1) * (cy1 - cy0 + 1);
+    if (count > MAX_CELLS) {
+      entry.cells = null;
+      large.add(entry);
+      return;
+    }
+    entry.cells = new long[(int) count];
+    var i = 0;
+    for (var cx = cx0; cx <= cx1; cx++) {
+      for (var cy = cy0; cy <= cy1; cy++) {
+        final var key = cellKey(cx, cy);
+        entry.cells[i++] = key;
+        cells.computeIfAbsent(key, k -> new ArrayList<>()).add(entry);
+      }
+    }
+  }
+
+  private void unfile(Entry entry) {
+    if (entry.cells == null) {
+      large.remove(entry);
+      return;
+    }
+    for (final var key : entry.cells) {
+      final var cell = cells.get(key);
+      if (cell == null) continue;
+      cell.remove(entry);
+      if (cell.isEmpty()) cells.remove(key);
+    }
+    entry.cells = null;
+  }
+}
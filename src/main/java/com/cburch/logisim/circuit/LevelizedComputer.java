@@ -0,0 +1,68 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.circuit;
+
+import com.cburch.logisim.data.AttributeSet;
+
+/**
+ * Feature of components that can take part in a {@link LevelizedSimulator}. A component describes
+ * its behaviour once, at compile time, in terms of its ports; the simulator then evaluates it on
+ * fully defined two-valued bits in topological order instead of through the event queue.
+ */
+public interface LevelizedComputer {
+  /**
+   * Declares the ports the component reads and drives and registers how to evaluate them. If the
+   * component cannot be simulated this way in its current configuration (tri-state outputs, level
+   * triggered clocks, connected asynchronous inputs, ...), it throws the exception returned by
+   * {@link Compiler#unsupported} and the whole circuit is left to the event-driven propagator.
+   */
+  void compile(Compiler compiler);
+
+  interface Compiler {
+    /** The project options, for components whose behaviour depends on them. */
+    AttributeSet getOptions();
+
+    boolean isPortConnected(int port);
+
+    /** Returns the exception to throw when the component cannot be compiled for the given reason. */
+    CompileException unsupported(String reason);
+
+    /** Declares that the component reads the given port and returns its handle. */
+    int input(int port);
+
+    /** Declares that the component drives the given port and returns its handle. */
+    int output(int port);
+
+    /**
+     * Registers a combinational evaluation, which reads the inputs and writes the outputs declared
+     * so far. It runs whenever the circuit settles.
+     */
+    void combinational(Evaluator evaluator);
+
+    /**
+     * Registers a clocked evaluation, which runs on each rising (or falling) edge of the given
+     * clock port. Its reads see the values from just before the edge, and its writes become
+     * visible only once every element triggered by the same edge has been evaluated.
+     */
+    void clocked(int clockPort, boolean rising, Evaluator evaluator);
+  }
+
+  interface Evaluator {
+    void evaluate(Values values);
+  }
+
+  interface Values {
+    /** Returns the bits of a declared port, bit 0 being the least significant one. */
+    long get(int handle);
+
+    /** Sets the bits of a declared output port; bits beyond its width are ignored. */
+    void set(int handle, long value);
+  }
+}
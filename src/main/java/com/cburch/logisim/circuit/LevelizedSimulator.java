@@ -0,0 +1,569 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.circuit;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.std.wiring.Clock;
+import com.cburch.logisim.std.wiring.Pin;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Cycle-based simulator for synchronous circuits. The circuit hierarchy below a settled {@link
+ * CircuitState} is flattened into one net list whose bits are kept in a packed <code>long</code>
+ * array; the combinational components are sorted by level once, and each clock tick then
+ * evaluates the triggered clocked elements followed by a single pass over the combinational ones.
+ *
+ * <p>This only models circuits whose components all provide a {@link LevelizedComputer}, in which
+ * every bit has at most one driver and no combinational loop exists. Everything else makes {@link
+ * #compile} throw a {@link CompileException}, in which case the caller should keep
+ * using the event-driven {@link Propagator}. Once compiled, the simulator does not write anything
+ * back into the circuit state.
+ */
+public class LevelizedSimulator implements LevelizedComputer.Values {
+
+  private static class Scope {
+    final Circuit circuit;
+    final CircuitState state;
+    final HashMap<WireThread, Integer> threadBits = new HashMap<>();
+    final HashMap<Location, int[]> pointBits = new HashMap<>();
+
+    Scope(CircuitState state) {
+      this.circuit = state.getCircuit();
+      this.state = state;
+    }
+  }
+
+  private static class Node {
+    final Circuit circuit;
+    final Component comp;
+    final int[] inputs;
+    final int[] outputs;
+    final LevelizedComputer.Evaluator evaluator;
+    final int clock; // handle of the clock port, -1 for combinational nodes
+    final boolean rising;
+    boolean lastClock;
+
+    Node(Circuit circuit, Component comp, int[] inputs, int[] outputs,
+        LevelizedComputer.Evaluator evaluator, int clock, boolean rising) {
+      this.circuit = circuit;
+      this.comp = comp;
+      this.inputs = inputs;
+      this.outputs = outputs;
+      this.evaluator = evaluator;
+      this.clock = clock;
+      this.rising = rising;
+    }
+  }
+
+  /** Collects the net list while the circuit hierarchy is walked. */
+  private static class Builder {
+    final AttributeSet options;
+    int[] parent = new int[256];
+    int bitCount = 0;
+    final ArrayList<int[]> ports = new ArrayList<>(); // handle -> raw bits
+    final ArrayList<Node> nodes = new ArrayList<>();
+    final ArrayList<Node> clocked = new ArrayList<>();
+    final ArrayList<Integer> clockHandles = new ArrayList<>();
+    final ArrayList<AttributeSet> clockAttrs = new ArrayList<>();
+    final ArrayList<Integer> pinHandles = new ArrayList<>();
+    final ArrayList<Value> pinValues = new ArrayList<>();
+    final HashMap<Instance, Integer> rootPins = new HashMap<>();
+    final ArrayList<Integer> stateHandles = new ArrayList<>();
+    final ArrayList<Value> stateValues = new ArrayList<>();
+
+    Builder(AttributeSet options) {
+      this.options = options;
+    }
+
+    int newBit() {
+      if (bitCount == parent.length) parent = Arrays.copyOf(parent, 2 * bitCount);
+      parent[bitCount] = bitCount;
+      return bitCount++;
+    }
+
+    int find(int bit) {
+      while (parent[bit] != bit) {
+        parent[bit] = parent[parent[bit]];
+        bit = parent[bit];
+      }
+      return bit;
+    }
+
+    void union(int[] a, int[] b) {
+      for (var i = 0; i < a.length; i++) {
+        final var ra = find(a[i]);
+        final var rb = find(b[i]);
+        if (ra != rb) parent[rb] = ra;
+      }
+    }
+
+    int[] bitsAt(Scope scope, Location loc, int width) {
+      final var bundle = scope.circuit.wires.getWireBundle(loc);
+      if (bundle == null) {
+        final var ret = scope.pointBits.computeIfAbsent(loc, l -> newBits(width));
+        if (ret.length != width) throw unsupported(scope, "incompatible widths at " + loc);
+        return ret;
+      }
+      final var threads = bundle.threads;
+      if (!bundle.isValid() || threads == null || threads.length != width) {
+        throw unsupported(scope, "incompatible widths at " + loc);
+      }
+      final var ret = new int[width];
+      for (var i = 0; i < width; i++) {
+        ret[i] = scope.threadBits.computeIfAbsent(threads[i], t -> newBit());
+      }
+      return ret;
+    }
+
+    int[] newBits(int width) {
+      final var ret = new int[width];
+      for (var i = 0; i < width; i++) ret[i] = newBit();
+      return ret;
+    }
+
+    int addPort(Scope scope, Component comp, int port) {
+      final var end = comp.getEnd(port);
+      ports.add(bitsAt(scope, end.getLocation(), end.getWidth().getWidth()));
+      return ports.size() - 1;
+    }
+
+    void addCircuit(Scope scope) {
+      for (final var comp : scope.circuit.getNonWires()) {
+        if (comp instanceof Splitter || comp.getEnds().isEmpty()) continue;
+        final var factory = comp.getFactory();
+        if (factory instanceof Pin) {
+          if (!scope.state.isSubstate()) addRootPin(scope, comp);
+          // pins of subcircuits are joined with the ports of their parent
+        } else if (factory instanceof Clock) {
+          clockHandles.add(addPort(scope, comp, 0));
+          clockAttrs.add(comp.getAttributeSet());
+        } else if (factory instanceof SubcircuitFactory sub) {
+          addSubcircuit(scope, comp, sub);
+        } else {
+          final var computer = (LevelizedComputer) comp.getFeature(LevelizedComputer.class);
+          if (computer == null) throw new CompileException(scope.circuit, comp, "is not supported");
+          computer.compile(new ComponentCompiler(this, scope, comp));
+        }
+      }
+    }
+
+    void addRootPin(Scope scope, Component comp) {
+      final var handle = addPort(scope, comp, 0);
+      final var pin = Instance.getInstanceFor(comp);
+      rootPins.put(pin, handle);
+      if (Pin.FACTORY.isInputPin(pin)) {
+        final var value = Pin.FACTORY.getValue(scope.state.getInstanceState(pin));
+        if (!value.isFullyDefined()) throw unsupported(scope, "input pin " + comp.getLocation()
+            + " is not fully defined");
+        pinHandles.add(handle);
+        pinValues.add(value);
+      }
+    }
+
+    void addSubcircuit(Scope scope, Component comp, SubcircuitFactory factory) {
+      final var subState = factory.getSubstate(scope.state, comp);
+      final var subScope = new Scope(subState);
+      final var pins = ((CircuitAttributes) comp.getAttributeSet()).getPinInstances();
+      for (var i = 0; i < pins.length; i++) {
+        final var outer = ports.get(addPort(scope, comp, i));
+        final var width = pins[i].getAttributeValue(StdAttr.WIDTH).getWidth();
+        final var inner = bitsAt(subScope, pins[i].getLocation(), width);
+        if (outer.length != inner.length) throw unsupported(scope, "incompatible widths at "
+            + comp.getEnd(i).getLocation());
+        union(outer, inner);
+      }
+      addCircuit(subScope);
+    }
+
+    static CompileException unsupported(Scope scope, String reason) {
+      return new CompileException(scope.circuit, null, reason);
+    }
+  }
+
+  private static class ComponentCompiler implements LevelizedComputer.Compiler {
+    final Builder builder;
+    final Scope scope;
+    final Component comp;
+    final ArrayList<Integer> inputs = new ArrayList<>();
+    final ArrayList<Integer> outputs = new ArrayList<>();
+    final ArrayList<Integer> outputPorts = new ArrayList<>();
+
+    ComponentCompiler(Builder builder, Scope scope, Component comp) {
+      this.builder = builder;
+      this.scope = scope;
+      this.comp = comp;
+    }
+
+    @Override
+    public AttributeSet getOptions() {
+      return builder.options;
+    }
+
+    @Override
+    public boolean isPortConnected(int port) {
+      return scope.circuit.isConnected(comp.getEnd(port).getLocation(), comp);
+    }
+
+    @Override
+    public CompileException unsupported(String reason) {
+      return new CompileException(scope.circuit, comp, reason);
+    }
+
+    @Override
+    public int input(int port) {
+      final var ret = builder.addPort(scope, comp, port);
+      inputs.add(ret);
+      return ret;
+    }
+
+    @Override
+    public int output(int port) {
+      final var ret = builder.addPort(scope, comp, port);
+      outputs.add(ret);
+      outputPorts.add(port);
+      return ret;
+    }
+
+    @Override
+    public void combinational(LevelizedComputer.Evaluator evaluator) {
+      builder.nodes.add(
+          new Node(scope.circuit, comp, toArray(inputs), toArray(outputs), evaluator, -1, true));
+    }
+
+    @Override
+    public void clocked(int clockPort, boolean rising, LevelizedComputer.Evaluator evaluator) {
+      final var clock = builder.addPort(scope, comp, clockPort);
+      // the state of a clocked element is what it currently sends on its outputs
+      for (var i = 0; i < outputs.size(); i++) {
+        builder.stateHandles.add(outputs.get(i));
+        builder.stateValues.add(scope.state.getValue(comp.getEnd(outputPorts.get(i)).getLocation()));
+      }
+      builder.clocked.add(
+          new Node(scope.circuit, comp, toArray(inputs), toArray(outputs), evaluator, clock, rising));
+    }
+
+    private static int[] toArray(List<Integer> list) {
+      final var ret = new int[list.size()];
+      for (var i = 0; i < ret.length; i++) ret[i] = list.get(i);
+      return ret;
+    }
+  }
+
+  /** Buffers the writes of clocked elements until every element triggered by an edge has run. */
+  private class Staging implements LevelizedComputer.Values {
+    int[] handles = new int[16];
+    long[] values = new long[16];
+    int count = 0;
+
+    @Override
+    public long get(int handle) {
+      return LevelizedSimulator.this.get(handle);
+    }
+
+    @Override
+    public void set(int handle, long value) {
+      if (count == handles.length) {
+        handles = Arrays.copyOf(handles, 2 * count);
+        values = Arrays.copyOf(values, 2 * count);
+      }
+      handles[count] = handle;
+      values[count] = value;
+      count++;
+    }
+
+    void commit() {
+      for (var i = 0; i < count; i++) LevelizedSimulator.this.set(handles[i], values[i]);
+      count = 0;
+    }
+  }
+
+  /**
+   * Compiles the circuit simulated by the given root state, which must have settled. Throws a
+   * {@link CompileException}, with the reason as its message, when the circuit cannot be simulated
+   * this way.
+   */
+  public static LevelizedSimulator compile(CircuitState root) {
+    final var builder = new Builder(root.getProject().getOptions().getAttributeSet());
+    builder.addCircuit(new Scope(root));
+    return new LevelizedSimulator(builder, root.getPropagator().getTickCount());
+  }
+
+  private final long[] words;
+  private final int[] portStart; // first bit of each port, or -1 if its bits are scattered
+  private final int[] portWidth;
+  private final int[][] portBits;
+  private final boolean[] portDriven;
+  private final boolean[] netDriven;
+  private final Node[] combinational;
+  private final Node[] clocked;
+  private final int[] clockHandles;
+  private final AttributeSet[] clockAttrs;
+  private final HashMap<Instance, Integer> rootPins;
+  private final Staging staging = new Staging();
+  private int ticks;
+
+  private LevelizedSimulator(Builder builder, int ticks) {
+    this.ticks = ticks;
+
+    // number the nets in the order ports were declared, so that buses get consecutive bits
+    final var netOf = new int[builder.bitCount];
+    Arrays.fill(netOf, -1);
+    var nets = 0;
+    final var numPorts = builder.ports.size();
+    portStart = new int[numPorts];
+    portWidth = new int[numPorts];
+    portBits = new int[numPorts][];
+    for (var h = 0; h < numPorts; h++) {
+      final var raw = builder.ports.get(h);
+      final var bits = new int[raw.length];
+      for (var i = 0; i < raw.length; i++) {
+        final var root = builder.find(raw[i]);
+        if (netOf[root] < 0) netOf[root] = nets++;
+        bits[i] = netOf[root];
+      }
+      var contiguous = true;
+      for (var i = 1; i < bits.length && contiguous; i++) contiguous = bits[i] == bits[0] + i;
+      portWidth[h] = bits.length;
+      portStart[h] = contiguous && bits.length > 0 ? bits[0] : -1;
+      portBits[h] = bits;
+    }
+    words = new long[(nets + 63) / 64 + 1];
+
+    // every net may have a single driver; combinational drivers are remembered for sorting
+    final var driver = new int[nets];
+    Arrays.fill(driver, -1);
+    final var sourceNode = -2;
+    final var clockNode = -3;
+    for (final var handle : builder.pinHandles) drive(driver, handle, sourceNode);
+    for (final var handle : builder.clockHandles) drive(driver, handle, clockNode);
+    for (final var node : builder.clocked) {
+      for (final var handle : node.outputs) drive(driver, handle, sourceNode);
+    }
+    final var nodes = builder.nodes;
+    for (var i = 0; i < nodes.size(); i++) {
+      for (final var handle : nodes.get(i).outputs) drive(driver, handle, i);
+    }
+
+    // every net that is read must be driven, and clocks must come straight from a clock
+    final var allNodes = new ArrayList<>(nodes);
+    allNodes.addAll(builder.clocked);
+    for (final var node : allNodes) {
+      for (final var handle : node.inputs) {
+        for (final var bit : portBits[handle]) {
+          if (driver[bit] == -1) {
+            throw new CompileException(node.circuit, node.comp, "has a floating input");
+          }
+        }
+      }
+      if (node.clock >= 0) {
+        for (final var bit : portBits[node.clock]) {
+          if (driver[bit] != clockNode) {
+            throw new CompileException(node.circuit, node.comp, "is not clocked directly by a clock");
+          }
+        }
+      }
+    }
+    netDriven = new boolean[nets];
+    for (var i = 0; i < nets; i++) netDriven[i] = driver[i] != -1;
+    portDriven = new boolean[numPorts];
+    for (var h = 0; h < numPorts; h++) {
+      var driven = true;
+      for (final var bit : portBits[h]) driven &= driver[bit] != -1;
+      portDriven[h] = driven;
+    }
+
+    combinational = levelize(nodes, driver);
+    clocked = builder.clocked.toArray(new Node[0]);
+    clockHandles = builder.clockHandles.stream().mapToInt(Integer::intValue).toArray();
+    clockAttrs = builder.clockAttrs.toArray(new AttributeSet[0]);
+    rootPins = builder.rootPins;
+
+    // start from the values the event-driven simulation settled on
+    for (var i = 0; i < builder.pinHandles.size(); i++) {
+      set(builder.pinHandles.get(i), builder.pinValues.get(i).toLongValue());
+    }
+    for (var i = 0; i < builder.stateHandles.size(); i++) {
+      final var value = builder.stateValues.get(i);
+      if (value == null || !value.isFullyDefined()) {
+        throw new CompileException("the circuit holds undefined state");
+      }
+      set(builder.stateHandles.get(i), value.toLongValue());
+    }
+    updateClocks();
+    for (final var node : clocked) node.lastClock = get(node.clock) != 0;
+    settle();
+  }
+
+  private void drive(int[] driver, int handle, int node) {
+    for (final var bit : portBits[handle]) {
+      if (driver[bit] != -1) {
+        throw new CompileException("a net has more than one driver");
+      }
+      driver[bit] = node;
+    }
+  }
+
+  private Node[] levelize(List<Node> nodes, int[] driver) {
+    final var count = nodes.size();
+    final var successors = new ArrayList<ArrayList<Integer>>(count);
+    final var pending = new int[count];
+    for (var i = 0; i < count; i++) successors.add(new ArrayList<>());
+    for (var i = 0; i < count; i++) {
+      for (final var handle : nodes.get(i).inputs) {
+        for (final var bit : portBits[handle]) {
+          final var from = driver[bit];
+          if (from >= 0) {
+            successors.get(from).add(i);
+            pending[i]++;
+          }
+        }
+      }
+    }
+    final var ret = new Node[count];
+    var head = 0;
+    var tail = 0;
+    final var ready = new int[count];
+    for (var i = 0; i < count; i++) {
+      if (pending[i] == 0) ready[tail++] = i;
+    }
+    while (head < tail) {
+      final var i = ready[head];
+      ret[head++] = nodes.get(i);
+      for (final var next : successors.get(i)) {
+        if (--pending[next] == 0) ready[tail++] = next;
+      }
+    }
+    if (tail < count) {
+      throw new CompileException("the circuit contains a combinational loop");
+    }
+    return ret;
+  }
+
+  @Override
+  public long get(int handle) {
+    final var width = portWidth[handle];
+    final var start = portStart[handle];
+    if (start < 0) {
+      final var bits = portBits[handle];
+      var ret = 0L;
+      for (var i = 0; i < bits.length; i++) {
+        ret |= ((words[bits[i] >>> 6] >>> bits[i]) & 1L) << i;
+      }
+      return ret;
+    }
+    final var word = start >>> 6;
+    final var offset = start & 63;
+    var ret = words[word] >>> offset;
+    if (offset + width > 64) ret |= words[word + 1] << (64 - offset);
+    return width == 64 ? ret : ret & ((1L << width) - 1);
+  }
+
+  @Override
+  public void set(int handle, long value) {
+    final var width = portWidth[handle];
+    final var start = portStart[handle];
+    if (start < 0) {
+      final var bits = portBits[handle];
+      for (var i = 0; i < bits.length; i++) {
+        final var mask = 1L << bits[i];
+        if (((value >>> i) & 1L) != 0) {
+          words[bits[i] >>> 6] |= mask;
+        } else {
+          words[bits[i] >>> 6] &= ~mask;
+        }
+      }
+      return;
+    }
+    final var mask = width == 64 ? -1L : (1L << width) - 1;
+    value &= mask;
+    final var word = start >>> 6;
+    final var offset = start & 63;
+    words[word] = (words[word] & ~(mask << offset)) | (value << offset);
+    if (offset + width > 64) {
+      final var high = (1L << (offset + width - 64)) - 1;
+      words[word + 1] = (words[word + 1] & ~high) | (value >>> (64 - offset));
+    }
+  }
+
+  public int getTickCount() {
+    return ticks;
+  }
+
+  /**
+   * Returns the value of a pin of the root circuit. Bits nothing drives are reported as unknown,
+   * just like the event-driven simulation would.
+   */
+  public Value getValue(Instance pin) {
+    final var handle = rootPins.get(pin);
+    if (handle == null) return Value.NIL;
+    final var width = portWidth[handle];
+    if (portDriven[handle]) return Value.createKnown(width, get(handle));
+    final var bits = portBits[handle];
+    final var values = new Value[width];
+    final var v = get(handle);
+    for (var i = 0; i < width; i++) {
+      final var bit = bits[i];
+      values[i] = !netDriven[bit] ? Value.UNKNOWN : ((v >>> i) & 1L) != 0 ? Value.TRUE : Value.FALSE;
+    }
+    return Value.create(values);
+  }
+
+  /**
+   * Sets the bits sent by an input pin of the root circuit. The rest of the circuit sees them once
+   * {@link #propagate} is called.
+   */
+  public void setInput(Instance pin, long value) {
+    final var handle = rootPins.get(pin);
+    if (handle == null || !Pin.FACTORY.isInputPin(pin)) {
+      throw new IllegalArgumentException("not an input pin of the root circuit");
+    }
+    set(handle, value);
+  }
+
+  /** Settles the combinational components once inputs were set, like the propagator would. */
+  public void propagate() {
+    settle();
+  }
+
+  /**
+   * Advances the simulation by one tick, like {@link Propagator#toggleClocks} followed by {@link
+   * Propagator#propagate}.
+   */
+  public void toggleClocks() {
+    ticks++;
+    updateClocks();
+    for (final var node : clocked) {
+      final var clock = get(node.clock) != 0;
+      final var triggered = node.rising ? !node.lastClock && clock : node.lastClock && !clock;
+      node.lastClock = clock;
+      if (triggered) node.evaluator.evaluate(staging);
+    }
+    staging.commit();
+    settle();
+  }
+
+  private void updateClocks() {
+    for (var i = 0; i < clockHandles.length; i++) {
+      set(clockHandles[i], Clock.getValueAt(ticks, clockAttrs[i]) == Value.TRUE ? 1 : 0);
+    }
+  }
+
+  private void settle() {
+    for (final var node : combinational) node.evaluator.evaluate(this);
+  }
+}
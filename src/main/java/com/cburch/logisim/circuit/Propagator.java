@@ -16,35 +16,18 @@ import com.cburch.logisim.data.AttributeListener;
 import com.cburch.logisim.data.Location;
 import com.cburch.logisim.data.Value;
 import com.cburch.logisim.file.Options;
+import com.cburch.logisim.std.wiring.Clock;
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.PriorityQueue;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
 public class Propagator {
-  private static class ComponentPoint {
-    final Component cause;
-    final Location loc;
-
-    public ComponentPoint(Component cause, Location loc) {
-      this.cause = cause;
-      this.loc = loc;
-    }
-
-    @Override
-    public boolean equals(Object other) {
-      return (other instanceof ComponentPoint o)
-             ? this.cause.equals(o.cause) && this.loc.equals(o.loc)
-             : false;
-    }
-
-    @Override
-    public int hashCode() {
-      return 31 * cause.hashCode() + loc.hashCode();
-    }
-  }
-
   private static class Listener implements AttributeListener {
     final WeakReference<Propagator> prop;
 
@@ -64,26 +47,51 @@ public class Propagator {
         e.getSource().removeAttributeListener(this);
       } else if (e.getAttribute().equals(Options.ATTR_SIM_RAND)) {
         p.updateRandomness();
+      } else if (e.getAttribute().equals(Options.ATTR_SIM_THREADS)) {
+        p.updateThreads();
       }
     }
   }
 
+  // SetData objects are pooled by their propagator, so apart from val and
+  // next the fields are only assigned when an object is (re)initialized.
   static class SetData implements Comparable<SetData> {
-    final int time;
-    final int serialNumber;
-    final CircuitState state; // state of circuit containing component
-    final Component cause; // component emitting the value
-    final Location loc; // the location at which value is emitted
+    int time;
+    int serialNumber;
+    CircuitState state; // state of circuit containing component
+    Component cause; // component emitting the value
+    Location loc; // the location at which value is emitted
+    int slot; // the slot of loc in the state's circuit
     Value val; // value being emitted
-    SetData next = null;
+    SetData next = null; // next cause at the same location
+    SetData queueNext = null; // next event in the same SetDataQueue bucket
+    long stepStamp = 0; // step in which this cause was last set
 
     private SetData(
-        int time, int serialNumber, CircuitState state, Location loc, Component cause, Value val) {
+        int time,
+        int serialNumber,
+        CircuitState state,
+        Location loc,
+        int slot,
+        Component cause,
+        Value val) {
+      init(time, serialNumber, state, loc, slot, cause, val);
+    }
+
+    private void init(
+        int time,
+        int serialNumber,
+        CircuitState state,
+        Location loc,
+        int slot,
+        Component cause,
+        Value val) {
       this.time = time;
       this.serialNumber = serialNumber;
       this.state = state;
       this.cause = cause;
       this.loc = loc;
+      this.slot = slot;
       this.val = val;
     }
 
@@ -91,7 +99,7 @@ public class Propagator {
       final var newProp = newState.getPropagator();
       final var dtime = newProp.clock - state.getPropagator().clock;
       final var ret =
-          new SetData(time + dtime, newProp.setDataSerialNumber, newState, loc, cause, val);
+          new SetData(time + dtime, newProp.setDataSerialNumber, newState, loc, slot, cause, val);
       newProp.setDataSerialNumber++;
       if (this.next != null) ret.next = this.next.cloneFor(newState);
       return ret;
@@ -136,18 +144,76 @@ public class Propagator {
    */
   private volatile int simRandomShift;
 
-  private final PriorityQueue<SetData> toProcess = new PriorityQueue<>();
+  private final SetDataQueue toProcess = new SetDataQueue();
+  // Events that were dropped or replaced are kept here, chained through
+  // next, so that steady-state propagation does not allocate.
+  private SetData freeSetData = null;
+  // Number of the current step; a cause whose stepStamp equals it has already
+  // been set during this step.
+  private long stepCount = 0;
+  // Causes removed during the current step, chained through queueNext.
+  private SetData removedThisStep = null;
   private int clock = 0;
   private boolean isOscillating = false;
   private boolean oscAdding = false;
   private PropagationPoints oscPoints = new PropagationPoints();
   private int halfClockCycles = 0;
+  // Every clock of the tree of states, flattened so that a tick touches only
+  // the clocks. A null component stands for the state's temporary clock. The
+  // list is rebuilt at the next tick whenever a state reports that clocks or
+  // substates came or went.
+  private CircuitState[] clockStates = new CircuitState[0];
+  private Component[] clockComps = new Component[0];
+  private volatile boolean clocksChanged = true;
   private final Random noiseSource = new Random();
   private int noiseCount = 0;
 
   private int setDataSerialNumber = 0;
   static int lastId = 0;
 
+  /**
+   * A value scheduled by a worker thread while independent subcircuits are propagated in
+   * parallel. Workers must not touch the event queue, so these are kept per subcircuit and handed
+   * to {@link #setValue} afterwards, in the order a sequential propagation would have used.
+   */
+  private record DeferredValue(
+      CircuitState state, Location pt, Value val, Component cause, int delay) {}
+
+  /** A worker pool shared by the propagators that use the same number of threads. */
+  private static class WorkerPool {
+    // idle workers exit after this long, so an unused pool holds no threads
+    static final long KEEP_ALIVE_SECONDS = 30;
+
+    final ForkJoinPool pool;
+    int users = 0;
+
+    WorkerPool(int threads) {
+      pool =
+          new ForkJoinPool(
+              threads,
+              ForkJoinPool.defaultForkJoinWorkerThreadFactory,
+              null,
+              false,
+              0,
+              threads,
+              1,
+              null,
+              KEEP_ALIVE_SECONDS,
+              TimeUnit.SECONDS);
+    }
+  }
+
+  // Shared worker pools, by number of threads. A pool is dropped once no
+  // propagator uses it anymore.
+  private static final HashMap<Integer, WorkerPool> workerPools = new HashMap<>();
+
+  // Pool propagating independent subcircuits, or null to do all work on the
+  // calling thread.
+  private volatile WorkerPool workers = null;
+  // Set on a worker while it processes a subtree; values scheduled then go to
+  // this list instead of the event queue.
+  private final ThreadLocal<List<DeferredValue>> deferredValues = new ThreadLocal<>();
+
   final int id = lastId++;
 
   public Propagator(CircuitState root) {
@@ -155,29 +221,36 @@ public class Propagator {
     final var l = new Listener(this);
     root.getProject().getOptions().getAttributeSet().addAttributeListener(l);
     updateRandomness();
+    updateThreads();
   }
 
   private SetData addCause(CircuitState state, SetData head, SetData data) {
     if (data.val == null) { // actually, it should be removed
-      return removeCause(state, head, data.loc, data.cause);
+      final var ret = removeCause(state, head, data.slot, data.cause);
+      // remember the removal, so that later events of this step are skipped
+      data.queueNext = removedThisStep;
+      removedThisStep = data;
+      return ret;
     }
 
-    final var causes = state.causes;
-
     // first check whether this is change of previous info.
     var replaced = false;
     for (var n = head; n != null; n = n.next) {
       if (n.cause == data.cause) {
         n.val = data.val;
+        n.stepStamp = stepCount;
         replaced = true;
         break;
       }
     }
 
     // otherwise, insert to list of causes
-    if (!replaced) {
+    if (replaced) {
+      recycle(data);
+    } else {
+      data.stepStamp = stepCount;
       if (head == null) {
-        causes.put(data.loc, data);
+        state.setCause(data.slot, data);
         head = data;
       } else {
         data.next = head.next;
@@ -188,15 +261,49 @@ public class Propagator {
     return head;
   }
 
+  /**
+   * Returns whether an event of the same component for the same location has already been handled
+   * during the current step. Instead of collecting the handled events in a set, every cause is
+   * stamped with the number of the step in which it was last set.
+   */
+  private boolean isHandled(SetData head, SetData data) {
+    for (var n = head; n != null; n = n.next) {
+      if (n.cause == data.cause) return n.stepStamp == stepCount;
+    }
+    for (var n = removedThisStep; n != null; n = n.queueNext) {
+      if (n.state == data.state && n.cause == data.cause && n.slot == data.slot) return true;
+    }
+    return false;
+  }
+
+  private SetData obtainSetData(
+      int time, CircuitState state, Location loc, Component cause, Value val) {
+    final var slot = state.getSlot(loc);
+    final var ret = freeSetData;
+    if (ret == null) return new SetData(time, setDataSerialNumber, state, loc, slot, cause, val);
+    freeSetData = ret.next;
+    ret.next = null;
+    ret.init(time, setDataSerialNumber, state, loc, slot, cause, val);
+    return ret;
+  }
+
+  private void recycle(SetData data) {
+    data.init(0, 0, null, null, -1, null, null);
+    data.queueNext = null;
+    data.next = freeSetData;
+    freeSetData = data;
+  }
+
   //
   // private methods
   //
   void checkComponentEnds(CircuitState state, Component comp) {
     for (final var end : comp.getEnds()) {
       final var loc = end.getLocation();
-      final var oldHead = state.causes.get(loc);
+      final var slot = state.getSlot(loc);
+      final var oldHead = state.getCause(slot);
       final var oldVal = computeValue(oldHead);
-      final var newHead = removeCause(state, oldHead, loc, comp);
+      final var newHead = removeCause(state, oldHead, slot, comp);
       final var newVal = computeValue(newHead);
       final var wireVal = state.getValueByWire(loc);
 
@@ -268,8 +375,7 @@ public class Propagator {
 
   public boolean propagate(Simulator.Listener propListener, Simulator.Event propEvent) {
     oscPoints.clear();
-    root.processDirtyPoints();
-    root.processDirtyComponents();
+    processDirty();
 
     final var oscThreshold = simLimit;
     final var logThreshold = 3 * oscThreshold / 4;
@@ -296,13 +402,11 @@ public class Propagator {
     return iters > 0;
   }
 
-  private SetData removeCause(CircuitState state, SetData head, Location loc, Component cause) {
-    final var causes = state.causes;
+  private SetData removeCause(CircuitState state, SetData head, int slot, Component cause) {
     if (head == null) {
     } else if (head.cause == cause) {
       head = head.next;
-      if (head == null) causes.remove(loc);
-      else causes.put(loc, head);
+      state.setCause(slot, head);
     } else {
       var prev = head;
       var cur = head.next;
@@ -318,6 +422,94 @@ public class Propagator {
     return head;
   }
 
+  private void processDirty() {
+    final var pool = workers;
+    if (pool == null || oscAdding) {
+      root.processDirtyPoints();
+      root.processDirtyComponents();
+    } else {
+      processDirtyInParallel(pool.pool, true);
+      processDirtyInParallel(pool.pool, false);
+    }
+  }
+
+  /**
+   * Does the same as {@link CircuitState#processDirtyPoints} (or {@link
+   * CircuitState#processDirtyComponents}) on the root, but hands the substates of the first
+   * circuit that holds several of them to the worker pool. Only subtrees made of {@link
+   * com.cburch.logisim.comp.ComponentFactory#isReentrant reentrant} components are handed over, as
+   * those share no state: the only thing they reach outside of themselves is the event queue, and
+   * what they schedule there is collected per subtree and merged in the order of the sequential
+   * walk, so the simulation behaves exactly as it does on a single thread. The other subtrees are
+   * processed on the calling thread once the workers are done.
+   */
+  private void processDirtyInParallel(ForkJoinPool pool, boolean points) {
+    var state = root;
+    CircuitState[] subs;
+    while (true) {
+      if (points) {
+        state.processOwnDirtyPoints();
+      } else {
+        state.processOwnDirtyComponents();
+      }
+      subs = state.getSubStates().toArray(new CircuitState[0]);
+      if (subs.length != 1) break;
+      state = subs[0];
+    }
+    if (subs.length == 0) return;
+
+    final var tasks = new ArrayList<Callable<List<DeferredValue>>>(subs.length);
+    final var parallel = new boolean[subs.length];
+    for (var i = 0; i < subs.length; i++) {
+      parallel[i] = subs[i].getCircuit().isReentrant();
+      if (parallel[i]) tasks.add(processDeferred(subs[i], points));
+    }
+    if (tasks.size() < 2) {
+      for (final var sub : subs) processSubtree(sub, points);
+      return;
+    }
+    final var results = pool.invokeAll(tasks);
+    final var resultIter = results.iterator();
+    for (var i = 0; i < subs.length; i++) {
+      final List<DeferredValue> values;
+      try {
+        values = parallel[i] ? resultIter.next().get() : processDeferred(subs[i], points).call();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException re) throw re;
+        if (e.getCause() instanceof Error err) throw err;
+        throw new IllegalStateException(e.getCause());
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+      for (final var v : values) setValue(v.state(), v.pt(), v.val(), v.cause(), v.delay());
+    }
+  }
+
+  /** Returns a task that processes the given subtree and returns the values it scheduled. */
+  private Callable<List<DeferredValue>> processDeferred(CircuitState sub, boolean points) {
+    return () -> {
+      final var ret = new ArrayList<DeferredValue>();
+      deferredValues.set(ret);
+      try {
+        processSubtree(sub, points);
+      } finally {
+        deferredValues.remove();
+      }
+      return ret;
+    };
+  }
+
+  private static void processSubtree(CircuitState sub, boolean points) {
+    if (points) {
+      sub.processDirtyPoints();
+    } else {
+      sub.processDirtyComponents();
+    }
+  }
+
   void reset() {
     halfClockCycles = 0;
     toProcess.clear();
@@ -330,6 +522,11 @@ public class Propagator {
   //
   void setValue(CircuitState state, Location pt, Value val, Component cause, int delay) {
     if (cause instanceof Wire || cause instanceof Splitter) return;
+    final var deferred = deferredValues.get();
+    if (deferred != null) {
+      deferred.add(new DeferredValue(state, pt, val, cause, delay));
+      return;
+    }
     if (delay <= 0) {
       delay = 1;
     }
@@ -347,7 +544,7 @@ public class Propagator {
         }
       }
     }
-    toProcess.add(new SetData(clock + delay, setDataSerialNumber, state, pt, cause, val));
+    toProcess.add(obtainSetData(clock + delay, state, pt, cause, val));
     /*
      * DEBUGGING - comment out Simulator.log(clock + ": set " + pt + " in "
      * + state + " to " + val + " by " + cause + " after " + delay); //
@@ -358,8 +555,7 @@ public class Propagator {
 
   boolean step(PropagationPoints changedPoints) {
     oscPoints.clear();
-    root.processDirtyPoints();
-    root.processDirtyComponents();
+    processDirty();
 
     if (toProcess.isEmpty()) return false;
 
@@ -376,25 +572,15 @@ public class Propagator {
     if (toProcess.isEmpty()) return;
 
     // update clock
-    clock = toProcess.peek().time;
+    clock = toProcess.advance();
+    stepCount++;
 
     // propagate all values for this clock tick
-    final var visited = new HashMap<CircuitState, HashSet<ComponentPoint>>();
     while (true) {
-      final var data = toProcess.peek();
-      if (data == null || data.time != clock) break;
-      toProcess.remove();
+      final var data = toProcess.pollCurrent();
+      if (data == null) break;
       final var state = data.state;
-
-      // if it's already handled for this clock tick, continue
-      var handled = visited.get(state);
-      if (handled != null) {
-        if (!handled.add(new ComponentPoint(data.cause, data.loc))) continue;
-      } else {
-        handled = new HashSet<>();
-        visited.put(state, handled);
-        handled.add(new ComponentPoint(data.cause, data.loc));
-      }
+      final var loc = data.loc;
 
       /*
        * DEBUGGING - comment out Simulator.log(data.time + ": proc " +
@@ -402,27 +588,112 @@ public class Propagator {
        * data.cause); //
        */
 
-      if (changedPoints != null) changedPoints.add(state, data.loc);
+      // if it's already handled for this clock tick, continue
+      final var oldHead = state.getCause(data.slot);
+      if (isHandled(oldHead, data)) {
+        recycle(data);
+        continue;
+      }
+
+      if (changedPoints != null) changedPoints.add(state, loc);
 
       // change the information about value
-      final var oldHead = state.causes.get(data.loc);
       final var oldVal = computeValue(oldHead);
       final var newHead = addCause(state, oldHead, data);
       final var newVal = computeValue(newHead);
 
       // if the value at point has changed, propagate it
       if (!newVal.equals(oldVal)) {
-        state.markPointAsDirty(data.loc);
+        state.markPointAsDirty(loc);
       }
     }
+    while (removedThisStep != null) {
+      final var data = removedThisStep;
+      removedThisStep = data.queueNext;
+      recycle(data);
+    }
 
-    root.processDirtyPoints();
-    root.processDirtyComponents();
+    processDirty();
   }
 
   public boolean toggleClocks() {
     halfClockCycles++;
-    return root.toggleClocks(halfClockCycles);
+    updateClocks();
+    var ret = false;
+    for (var i = 0; i < clockStates.length; i++) {
+      final var comp = clockComps[i];
+      if (comp == null) ret |= clockStates[i].tickTemporaryClock(halfClockCycles);
+      else ret |= Clock.tick(clockStates[i], halfClockCycles, comp);
+    }
+    return ret;
+  }
+
+  /** Called by the states of this tree when a clock or a substate was added or removed. */
+  void clocksChanged() {
+    clocksChanged = true;
+  }
+
+  private void updateClocks() {
+    if (!clocksChanged) return;
+    // cleared first, so a change made during the walk is picked up next time
+    clocksChanged = false;
+    final var states = new ArrayList<CircuitState>();
+    final var comps = new ArrayList<Component>();
+    root.collectClocks(states, comps);
+    clockStates = states.toArray(new CircuitState[0]);
+    clockComps = comps.toArray(new Component[0]);
+  }
+
+  /**
+   * Moves the tick count past the coming ticks at which no clock would change its value, by at
+   * most max ticks, and returns how many were skipped. As ticking through them would not change
+   * any signal, this is only done once everything has been propagated.
+   */
+  int skipIdleTicks(int max) {
+    if (max <= 0 || !toProcess.isEmpty() || root.hasDirty()) return 0;
+    updateClocks();
+    if (clockStates.length == 0) return 0;
+    var skip = max;
+    for (var i = 0; i < clockStates.length && skip > 0; i++) {
+      final var comp = clockComps[i];
+      // a temporary clock changes on every tick
+      skip = comp == null ? 0 : Math.min(skip, Clock.getIdleTicks(clockStates[i], halfClockCycles, comp));
+    }
+    halfClockCycles += skip;
+    return skip;
+  }
+
+  /** Moves the tick count by whole clock periods, over which the circuit is known to repeat. */
+  void skipPeriods(int ticks) {
+    halfClockCycles += ticks;
+  }
+
+  /**
+   * Returns the number of ticks after which all clocks are back in the same phase, or 0 if there
+   * are no clocks or the period would exceed the given limit.
+   */
+  int getClockPeriod(int limit) {
+    updateClocks();
+    if (clockStates.length == 0) return 0;
+    long period = 1;
+    for (final var comp : clockComps) {
+      final long cycle = comp == null ? 2 : Clock.getCycle(comp.getAttributeSet());
+      var a = period;
+      var b = cycle;
+      while (b != 0) {
+        final var t = a % b;
+        a = b;
+        b = t;
+      }
+      period = period / a * cycle;
+      if (period > limit) return 0;
+    }
+    return (int) period;
+  }
+
+  /** Returns whether random delays make propagation differ from one run to the next. */
+  boolean isRandomized() {
+    return simRandomShift > 0;
   }
 
   @Override
@@ -438,4 +709,19 @@ public class Propagator {
     while ((1 << logVal) < val) logVal++;
     simRandomShift = logVal;
   }
+
+  private void updateThreads() {
+    final var opts = root.getProject().getOptions();
+    final var threads = opts.getAttributeSet().getValue(Options.ATTR_SIM_THREADS);
+    final var count = threads == null ? 1 : threads;
+    synchronized (workerPools) {
+      final var old = workers;
+      if (old != null && old.pool.getParallelism() == count) return;
+      workers = count <= 1 ? null : workerPools.computeIfAbsent(count, WorkerPool::new);
+      if (workers != null) workers.users++;
+      // not shut down, as the simulation thread may still be using it; its
+      // workers exit once idle
+      if (old != null && --old.users == 0) workerPools.remove(old.pool.getParallelism());
+    }
+  }
 }
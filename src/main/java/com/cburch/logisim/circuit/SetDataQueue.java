@@ -0,0 +1,97 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.circuit;
+
+import java.util.PriorityQueue;
+
+/**
+ * Timing wheel holding the pending {@link Propagator.SetData} events of a propagator.
+ *
+ * <p>Propagation delays are small integers, so every event scheduled less than {@link #WHEEL_SIZE}
+ * ticks ahead of the current time goes into the bucket of its tick, where events are chained
+ * through {@link Propagator.SetData#queueNext} in the order they were scheduled. Only events that
+ * lie further in the future are parked in an overflow heap, and they are moved onto the wheel as
+ * soon as the clock comes close enough. Events therefore come out ordered by time and then by
+ * serial number, exactly like the heap this replaces, without allocating anything per event.
+ */
+class SetDataQueue {
+  private static final int WHEEL_SIZE = 1024;
+  private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+  private final Propagator.SetData[] heads = new Propagator.SetData[WHEEL_SIZE];
+  private final Propagator.SetData[] tails = new Propagator.SetData[WHEEL_SIZE];
+  private final PriorityQueue<Propagator.SetData> overflow = new PriorityQueue<>();
+  private int wheelCount = 0;
+  private int now = 0;
+
+  void add(Propagator.SetData data) {
+    // Yes, these subtractions may overflow. This is intentional, as it
+    // avoids potential wraparound problems as the counters increment.
+    if (data.time - now >= WHEEL_SIZE) {
+      overflow.add(data);
+      return;
+    }
+    final var slot = data.time & WHEEL_MASK;
+    data.queueNext = null;
+    if (heads[slot] == null) {
+      heads[slot] = data;
+    } else {
+      tails[slot].queueNext = data;
+    }
+    tails[slot] = data;
+    wheelCount++;
+  }
+
+  /**
+   * Moves the current time to the time of the earliest pending event and returns it. Must only be
+   * called when the queue is not empty.
+   */
+  int advance() {
+    if (wheelCount > 0) {
+      var t = now;
+      while (heads[t & WHEEL_MASK] == null) t++;
+      now = t;
+    } else {
+      now = overflow.peek().time;
+    }
+    // bring events that now fall within the wheel's horizon onto it; this
+    // happens before anything else is scheduled at the new time, so they
+    // end up ahead of any later event for the same tick.
+    while (!overflow.isEmpty() && overflow.peek().time - now < WHEEL_SIZE) {
+      add(overflow.poll());
+    }
+    return now;
+  }
+
+  /** Removes and returns the next event of the current time, or null when there is none left. */
+  Propagator.SetData pollCurrent() {
+    final var slot = now & WHEEL_MASK;
+    final var ret = heads[slot];
+    if (ret == null) return null;
+    heads[slot] = ret.queueNext;
+    if (ret.queueNext == null) tails[slot] = null;
+    ret.queueNext = null;
+    wheelCount--;
+    return ret;
+  }
+
+  boolean isEmpty() {
+    return wheelCount == 0 && overflow.isEmpty();
+  }
+
+  void clear() {
+    for (var i = 0; i < WHEEL_SIZE; i++) {
+      heads[i] = null;
+      tails[i] = null;
+    }
+    overflow.clear();
+    wheelCount = 0;
+  }
+}
@@ -18,6 +18,7 @@ import com.cburch.logisim.prefs.AppPreferences;
 import com.cburch.logisim.util.CollectionUtil;
 import com.cburch.logisim.util.UniquelyNamedThread;
 import java.util.ArrayList;
+import java.util.concurrent.locks.LockSupport;
 import javax.swing.SwingUtilities;
 
 public class Simulator {
@@ -27,12 +28,18 @@ public class Simulator {
     private final boolean didTick;
     private final boolean didSingleStep;
     private final boolean didPropagate;
+    private final int tickCount;
 
     public Event(Simulator src, boolean t, boolean s, boolean p) {
+      this(src, t, s, p, t ? 1 : 0);
+    }
+
+    public Event(Simulator src, boolean t, boolean s, boolean p, int ticks) {
       source = src;
       didTick = t;
       didSingleStep = s;
       didPropagate = p;
+      tickCount = ticks;
     }
 
     public Simulator getSource() {
@@ -50,6 +57,14 @@ public class Simulator {
     public boolean didPropagate() {
       return didPropagate;
     }
+
+    /**
+     * Returns the number of ticks this event covers. When auto-ticking fast, the simulator runs
+     * many ticks back-to-back and reports them together in one event.
+     */
+    public int getTickCount() {
+      return tickCount;
+    }
   }
 
   public interface Listener {
@@ -59,6 +74,15 @@ public class Simulator {
       return false;
     }
 
+    /**
+     * Listeners that must see the signals after each single tick, like the chronogram, return true
+     * here. They get one propagationCompleted per tick even while other listeners get the ticks of
+     * a batch in one event.
+     */
+    default boolean wantEveryTick() {
+      return false;
+    }
+
     default void propagationStarted(Event e) {
       // do nothing
     }
@@ -87,7 +111,11 @@ public class Simulator {
   //
   // [auto-tick]   If autoTicking is on and autoPropagation is on, the thread
   //               periodically wakes up and invokes toggleClocks() then
-  //               propagate().
+  //               propagate(). When ticks fall due faster than listeners can
+  //               sensibly be told about them, or when running at maximum
+  //               speed, the thread runs tick+propagate cycles back-to-back and
+  //               reports the whole batch in one event, at most NOTIFY_RATE
+  //               times a second.
   //
   // [manual-tick] If the User/GUI requests a tick happen and autoPropagation is
   //               on, the thread wakes up and invokes toggleClocks() then
@@ -106,6 +134,11 @@ public class Simulator {
   //               stable, then toggleClocks() is also called before step().
   private static class SimThread extends UniquelyNamedThread {
 
+    // the longest a batch of auto-ticks may run before listeners are told
+    private static final long BATCH_NANOS = 1000000000L / NOTIFY_RATE;
+    // waits shorter than this are spun rather than parked
+    private static final long SPIN_NANOS = 100000;
+
     private final Simulator sim;
     private long lastTick = System.nanoTime();
 
@@ -115,6 +148,7 @@ public class Simulator {
     private boolean autoTicking = false;
     private double autoTickFreq = 1.0; // Hz
     private long autoTickNanos = Math.round(1.0e9 / autoTickFreq);
+    private boolean maxSpeed = false;
     private int manualTicksRequested = 0;
     private int manualStepsRequested = 0;
     private boolean nudgeRequested = false;
@@ -150,6 +184,10 @@ public class Simulator {
       return autoTickFreq;
     }
 
+    synchronized boolean isMaxSpeed() {
+      return maxSpeed;
+    }
+
     synchronized void drawStepPoints(ComponentDrawContext context) {
       if (!autoPropagating) stepPoints.draw(context);
     }
@@ -193,13 +231,38 @@ public class Simulator {
     }
 
     synchronized boolean setTickFrequency(double freq) {
-      if (autoTickFreq == freq) return false;
+      if (autoTickFreq == freq && !maxSpeed) return false;
       autoTickFreq = freq;
       autoTickNanos = freq <= 0 ? 0 : Math.round(1.0e9 / autoTickFreq);
+      maxSpeed = false;
       notifyAll();
       return true;
     }
 
+    synchronized boolean setMaxSpeed(boolean value) {
+      if (maxSpeed == value) return false;
+      maxSpeed = value;
+      notifyAll();
+      return true;
+    }
+
+    // Called from the batch between ticks. A batch ends as soon as anything
+    // else asks for the thread's attention.
+    private synchronized boolean isBatchInterrupted(Propagator prop) {
+      return complete
+          || resetRequested
+          || nudgeRequested
+          || manualStepsRequested > 0
+          || manualTicksRequested > 0
+          || !autoTicking
+          || !autoPropagating
+          || propagator != prop;
+    }
+
+    private synchronized long getBatchTickNanos() {
+      return maxSpeed ? 0 : autoTickNanos;
+    }
+
     synchronized void requestStep() {
       manualStepsRequested++;
       autoPropagating = false;
@@ -239,6 +302,7 @@ public class Simulator {
       boolean doTickIfStable = false;
       boolean doStep = false;
       boolean doProp = false;
+      boolean doAutoTick = false;
       long now = 0;
 
       synchronized (this) {
@@ -276,13 +340,14 @@ public class Simulator {
           }
 
           long delta = 0;
-          if (autoTicking && autoPropagating && autoTickNanos > 0) {
+          if (autoTicking && autoPropagating && (maxSpeed || autoTickNanos > 0)) {
             // see if it is time to do an auto-tick
-            long deadline = lastTick + autoTickNanos;
+            long deadline = maxSpeed ? now : lastTick + autoTickNanos;
             delta = deadline - now;
             if (delta <= 0) {
               doTick = true;
               doProp = true;
+              doAutoTick = !doStep && !doReset && manualTicksRequested == 0;
               ready = true;
             }
           }
@@ -305,6 +370,7 @@ public class Simulator {
 
       var oops = false;
       var osc = false;
+      var ticks = 0;
       var ticked = false;
       var stepped = false;
       var propagated = false;
@@ -323,6 +389,7 @@ public class Simulator {
       if (doTick || (doTickIfStable && prop != null && !prop.isPending())) {
         lastTick = now;
         ticked = true;
+        ticks = 1;
         if (prop != null) hasClocks = prop.toggleClocks();
       }
 
@@ -350,6 +417,14 @@ public class Simulator {
           err.printStackTrace();
         }
 
+      if (doAutoTick && !oops && hasClocks && prop != null && !prop.isOscillating())
+        try {
+          ticks += tickBatch(prop, now + BATCH_NANOS);
+        } catch (Exception err) {
+          oops = true;
+          err.printStackTrace();
+        }
+
       osc = prop != null && prop.isOscillating();
 
       var clockDied = false;
@@ -371,11 +446,56 @@ public class Simulator {
       // some components.
       if (ticked || stepped || propagated || doNudge)
         sim.firePropagationCompleted(
-            ticked, stepped && !propagated, propagated); // FIXME: ack, wrong thread!
+            ticked, stepped && !propagated, propagated, ticks); // FIXME: ack, wrong thread!
       if (clockDied) sim.fireSimulatorStateChanged(); // FIXME: ack, wrong thread!
       return true;
     }
 
+    // Runs further auto-ticks after the one just done, for as long as they fall
+    // due before the batch end, and returns how many ran. Listeners wanting
+    // every tick hear about each tick but the last here; the caller reports the
+    // last one together with the batch.
+    private int tickBatch(Propagator prop, long batchEnd) {
+      final var everyTick = sim.getEveryTickListeners();
+      final var p = sim.getPropagationListener();
+      final var evt = p == null ? null : new Event(sim, false, false, false);
+      final var tickEvt = new Event(sim, true, false, true);
+      var ticks = 0;
+      while (true) {
+        final var tickNanos = getBatchTickNanos();
+        var now = System.nanoTime();
+        if (now - batchEnd >= 0) break;
+        if (tickNanos > 0) {
+          final var deadline = lastTick + tickNanos;
+          final var delta = deadline - now;
+          if (delta > 0) {
+            // the next tick is not due yet: wait for it if it still falls in
+            // this batch, leave it to the next loop otherwise
+            if (deadline - batchEnd >= 0) break;
+            if (delta > SPIN_NANOS) LockSupport.parkNanos(delta - SPIN_NANOS);
+            else Thread.onSpinWait();
+            continue;
+          }
+          // catch up on ticks missed by a little, but not on those missed
+          // while the thread was held up for a whole batch
+          lastTick = -delta > BATCH_NANOS ? now : deadline;
+        } else {
+          lastTick = now;
+        }
+        if (isBatchInterrupted(prop)) break;
+        // the previous tick is reported here only once another one follows, or
+        // the caller would report it again; toggling the clocks changes no value
+        // before the propagation, so listeners still see that tick's values
+        if (!prop.toggleClocks()) break;
+        for (final var l : everyTick) l.propagationCompleted(tickEvt);
+        ticks++;
+        stepPoints.clear();
+        prop.propagate(p, evt);
+        if (prop.isOscillating()) break;
+      }
+      return ticks;
+    }
+
     @Override
     public void run() {
       while (true) {
@@ -400,6 +520,9 @@ public class Simulator {
     }
   }
 
+  /** The most times per second listeners hear about a batch of auto-ticks. */
+  public static final int NOTIFY_RATE = 60;
+
   //
   // Everything below here is invoked and accessed only by the User/GUI thread.
   //
@@ -476,11 +599,21 @@ public class Simulator {
   }
 
   // called from simThread, but probably should not be
-  private void firePropagationCompleted(boolean t, boolean s, boolean p) {
-    final var event = new Event(this, t, s, p);
+  private void firePropagationCompleted(boolean t, boolean s, boolean p, int ticks) {
+    final var event = new Event(this, t, s, p, ticks);
+    final var single = ticks > 1 ? new Event(this, t, s, p) : event;
+    for (final var listener : copyListeners()) {
+      listener.propagationCompleted(listener.wantEveryTick() ? single : event);
+    }
+  }
+
+  // called from simThread, but probably should not be
+  private ArrayList<Listener> getEveryTickListeners() {
+    final var everyTick = new ArrayList<Listener>();
     for (final var listener : copyListeners()) {
-      listener.propagationCompleted(event);
+      if (listener.wantEveryTick()) everyTick.add(listener);
     }
+    return everyTick;
   }
 
   // called from simThread, but probably should not be
@@ -507,6 +640,14 @@ public class Simulator {
     return simThread.getTickFrequency();
   }
 
+  /**
+   * Returns whether auto-ticking runs as fast as the circuit can be simulated, regardless of the
+   * tick frequency.
+   */
+  public boolean isMaxSpeed() {
+    return simThread.isMaxSpeed();
+  }
+
   public boolean isExceptionEncountered() {
     return simThread.isExceptionEncountered();
   }
@@ -549,6 +690,14 @@ public class Simulator {
     if (simThread.setTickFrequency(freq)) fireSimulatorStateChanged();
   }
 
+  /**
+   * Lets auto-ticking run as fast as the circuit can be simulated. Setting a tick frequency leaves
+   * this mode again.
+   */
+  public void setMaxSpeed(boolean value) {
+    if (simThread.setMaxSpeed(value)) fireSimulatorStateChanged();
+  }
+
   public void step() {
     simThread.requestStep();
   }
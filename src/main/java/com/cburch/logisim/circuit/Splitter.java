@@ -66,9 +66,6 @@ public class Splitter extends ManagedComponent
   // basic data
   byte[] bitThread; // how each bit maps to thread within end
 
-  // derived data
-  CircuitWires.SplitterData wireData;
-
   public Splitter(Location loc, AttributeSet attrs) {
     super(loc, attrs, 3);
     configureComponent();
@@ -120,7 +117,6 @@ public class Splitter extends ManagedComponent
       x += dx;
       y += dy;
     }
-    wireData = new CircuitWires.SplitterData(fanout);
     setEnds(ends);
     recomputeBounds();
     fireComponentInvalidated(new ComponentEvent(this));
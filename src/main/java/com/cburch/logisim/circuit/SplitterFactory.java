@@ -131,4 +131,8 @@ public class SplitterFactory extends AbstractComponentFactory {
     }
   }
 
+  @Override
+  public boolean isReentrant() {
+    return true;
+  }
 }
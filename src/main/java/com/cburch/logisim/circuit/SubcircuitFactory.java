@@ -291,6 +291,11 @@ public class SubcircuitFactory extends InstanceFactory {
     return source;
   }
 
+  @Override
+  public boolean isReentrant() {
+    return source.isReentrant();
+  }
+
   public void setSubcircuit(Circuit sub) {
     source = sub;
   }
@@ -0,0 +1,96 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.circuit;
+
+import com.cburch.logisim.comp.StateKey;
+
+/**
+ * Runs a clocked simulation forward with the same outcome as calling {@link
+ * Propagator#toggleClocks()} and {@link Propagator#propagate()} once per tick, but without spending
+ * time where nothing can happen.
+ *
+ * <ul>
+ *   <li>Once the circuit has settled, the ticks up to the next one at which some clock changes its
+ *       value are skipped: with high and low durations above one, most ticks change nothing.
+ *   <li>At the start of every clock period, when all clocks are back in the same phase, the full
+ *       state of the circuit is taken down. When it equals the state taken one period earlier the
+ *       circuit only repeats itself from there on, and whole periods are skipped. The caller
+ *       decides whether that is allowed, as it also skips whatever the outputs do within those
+ *       periods.
+ * </ul>
+ *
+ * <p>The repetition is only detected for circuits whose component data can all tell their state
+ * (see {@link com.cburch.logisim.comp.ComponentState#addStateTo(StateKey)}) and without random
+ * propagation delays. The states are compared word for word, not just by their hashes.
+ */
+public class TimeWarp {
+  // longer clock periods are not checked for repetition
+  private static final int MAX_PERIOD = 1 << 16;
+
+  private final Propagator prop;
+  private final int period;
+  private int lastEdge;
+  /* the state at the start of the last period, or null if it could not be taken */
+  private StateKey lastState = null;
+
+  /**
+   * Creates a time warp for the given propagator, whose circuit must have been propagated. Taking
+   * down the state once per period costs about as much as a propagation, so it is only done if
+   * detectRepeats is true.
+   */
+  public TimeWarp(Propagator prop, boolean detectRepeats) {
+    this.prop = prop;
+    this.period =
+        detectRepeats && !prop.isRandomized() ? prop.getClockPeriod(MAX_PERIOD) : 0;
+    this.lastEdge = prop.getTickCount();
+  }
+
+  /**
+   * Returns the number of ticks after which all clocks are in the same phase again, or 0 if
+   * repetitions are not looked for.
+   */
+  public int getPeriod() {
+    return period;
+  }
+
+  /**
+   * Advances the simulation by at least one and at most maxTicks ticks and returns by how many, or
+   * 0 if there is no clock to tick. The circuit is propagated after the last tick. Periods in
+   * which the circuit repeats itself are only skipped if repeats is true.
+   */
+  public long advance(long maxTicks, boolean repeats) {
+    // the tick count of the propagator is an int
+    final var limit = (int) Math.min(maxTicks, Integer.MAX_VALUE - (long) prop.getTickCount() - 1);
+    if (limit <= 0) return 0;
+    var ticks = prop.skipIdleTicks(limit - 1);
+    if (period > 0) ticks += skipRepeats(limit - ticks - 1, repeats);
+    if (!prop.toggleClocks()) return 0;
+    prop.propagate();
+    lastEdge = prop.getTickCount();
+    return ticks + 1L;
+  }
+
+  // Called before the tick that is about to change some clock. If that tick
+  // starts a new period, the state now is the one at the end of the last.
+  private int skipRepeats(int max, boolean repeats) {
+    final var next = prop.getTickCount() + 1;
+    final var index = next / period;
+    if (index == lastEdge / period) return 0;
+    // no use taking the state down while the caller would not skip anyway
+    var state = repeats && index == lastEdge / period + 1 ? new StateKey() : null;
+    if (state != null && !prop.getRootState().addStateTo(state)) state = null;
+    final var same = state != null && lastState != null && state.isSame(lastState);
+    lastState = state;
+    if (!same || prop.isOscillating()) return 0;
+    final var skip = max / period * period;
+    prop.skipPeriods(skip);
+    return skip;
+  }
+}
@@ -12,7 +12,7 @@ package com.cburch.logisim.circuit;
 import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.data.Location;
 import com.cburch.logisim.data.Value;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.LinkedHashSet;
 
 class WireBundle {
   private BitWidth width = BitWidth.UNKNOWN;
@@ -21,9 +21,10 @@ class WireBundle {
   private Location widthDeterminant = null;
   private boolean isBus_ = false;
   WireThread[] threads = null;
-  final CopyOnWriteArraySet<Location> points = new CopyOnWriteArraySet<>(); // points
+  final LinkedHashSet<Location> points = new LinkedHashSet<>(); // points
   // bundle
   // hits
+  private int[] pointSlots = null; // slots of the points, once the bundle is in use
   private WidthIncompatibilityData incompatibilityData = null;
 
   WireBundle() {
@@ -44,6 +45,22 @@ class WireBundle {
     return ret;
   }
 
+  /**
+   * Returns the slots of the bundle's points in the circuit of the given state. The bundle belongs
+   * to a single circuit and is no longer changed once it is simulated, so they are only looked up
+   * once.
+   */
+  int[] getPointSlots(CircuitState state) {
+    var ret = pointSlots;
+    if (ret == null) {
+      final var locs = points.toArray(new Location[0]);
+      ret = new int[locs.length];
+      for (var i = 0; i < locs.length; i++) ret[i] = state.getSlot(locs[i]);
+      pointSlots = ret;
+    }
+    return ret;
+  }
+
   Value getPullValue() {
     return pullValue;
   }
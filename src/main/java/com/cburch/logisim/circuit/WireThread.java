@@ -9,12 +9,12 @@
 
 package com.cburch.logisim.circuit;
 
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.ArrayList;
+import java.util.List;
 
 class WireThread {
   private WireThread parent;
-  private final CopyOnWriteArraySet<CircuitWires.ThreadBundle> bundles =
-      new CopyOnWriteArraySet<>();
+  private final ArrayList<CircuitWires.ThreadBundle> bundles = new ArrayList<>();
 
   WireThread() {
     parent = this;
@@ -30,7 +30,7 @@ class WireThread {
     return ret;
   }
 
-  CopyOnWriteArraySet<CircuitWires.ThreadBundle> getBundles() {
+  List<CircuitWires.ThreadBundle> getBundles() {
     return bundles;
   }
 
@@ -169,6 +169,11 @@ public abstract class AbstractComponentFactory implements ComponentFactory {
     return false;
   }
 
+  @Override
+  public boolean isReentrant() {
+    return false;
+  }
+
   /* HDL Methods */
   @Override
   public boolean requiresNonZeroLabel() {
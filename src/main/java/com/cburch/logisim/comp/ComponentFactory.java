@@ -97,4 +97,10 @@ public interface ComponentFactory extends AttributeDefaultProvider {
 
   /* Added for Soc simulation core */
   boolean isSocComponent();
+
+  /**
+   * Returns true if the components keep all of their simulation state in their own component
+   * data, so that their copies in different circuit states may be propagated concurrently.
+   */
+  boolean isReentrant();
 }
@@ -21,4 +21,9 @@ public interface ComponentListener {
   default void labelChanged(ComponentEvent e) {
     // no-op implementation
   }
+
+  /** Called when the bounds of the component change while its ends stay where they are. */
+  default void boundsChanged(ComponentEvent e) {
+    // no-op implementation
+  }
 }
@@ -11,4 +11,13 @@ package com.cburch.logisim.comp;
 
 public interface ComponentState {
   Object clone();
+
+  /**
+   * Adds everything in this state that affects how the simulation goes on to the given key, used
+   * to notice that a clocked circuit has started repeating itself. Returns false if the state
+   * cannot tell, as by default, in which case a circuit holding it is never taken to repeat.
+   */
+  default boolean addStateTo(StateKey key) {
+    return false;
+  }
 }
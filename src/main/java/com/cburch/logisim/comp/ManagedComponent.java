@@ -139,6 +139,10 @@ public abstract class ManagedComponent extends AbstractComponent {
 
   protected void recomputeBounds() {
     bounds = null;
+    final var e = new ComponentEvent(this);
+    for (final var l : listeners) {
+      l.boundsChanged(e);
+    }
   }
 
   @Override
@@ -0,0 +1,65 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.comp;
+
+import com.cburch.logisim.data.Value;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The state of a circuit as a sequence of words, filled in by {@link
+ * ComponentState#addStateTo(StateKey)}. The words are hashed as they are added, so that keys of
+ * different states are mostly told apart at a glance, and kept to compare the others for certain.
+ */
+public final class StateKey {
+  private long hash = 1;
+  private long[] words = new long[64];
+  private int size = 0;
+  private final ArrayList<Object> identities = new ArrayList<>();
+
+  public StateKey add(long word) {
+    hash = Long.rotateLeft((hash ^ word) * 0x9E3779B97F4A7C15L, 29);
+    if (size == words.length) words = Arrays.copyOf(words, 2 * size);
+    words[size++] = word;
+    return this;
+  }
+
+  /** Adds a value, which may be null. */
+  public StateKey add(Value value) {
+    if (value == null) return add(-1L);
+    return add(value.getWidth())
+        .add(value.getValueBits())
+        .add(value.getUnknownBits())
+        .add(value.getErrorBits());
+  }
+
+  /** Adds an object, told apart from others by its identity only. */
+  public StateKey addIdentity(Object object) {
+    identities.add(object);
+    return add(System.identityHashCode(object));
+  }
+
+  /** Returns the hash of the words added so far. */
+  public long getHash() {
+    return hash;
+  }
+
+  /** Returns whether both keys were given the same words and objects. */
+  public boolean isSame(StateKey other) {
+    if (hash != other.hash || size != other.size || identities.size() != other.identities.size()) {
+      return false;
+    }
+    if (!Arrays.equals(words, 0, size, other.words, 0, size)) return false;
+    for (var i = 0; i < identities.size(); i++) {
+      if (identities.get(i) != other.identities.get(i)) return false;
+    }
+    return true;
+  }
+}
@@ -16,7 +16,14 @@ import java.util.Arrays;
 
 public class Value {
 
-  private static Value create(int width, long error, long unknown, long value) {
+  /**
+   * Returns the value of the given width whose bits are errors where <code>error</code> is set,
+   * unknown where <code>unknown</code> is set and taken from <code>value</code> elsewhere. Bits
+   * beyond the width are ignored. Together with {@link #getErrorBits()}, {@link #getUnknownBits()}
+   * and {@link #getValueBits()} this lets components compute on the three bit masks directly and
+   * only materialize their final result.
+   */
+  public static Value create(int width, long error, long unknown, long value) {
     if (width == 0) {
       return Value.NIL;
     } else if (width == 1) {
@@ -30,6 +37,15 @@ public class Value {
       unknown = unknown & mask & ~error;
       value = value & mask & ~unknown & ~error;
 
+      if (error == 0 && unknown == 0) {
+        if (width <= INTERN_WIDTH) return KNOWN[width][(int) value];
+        if (value == 0) return ZEROS[width];
+      } else if (error == mask) {
+        return ERRORS[width];
+      } else if (unknown == mask) {
+        return UNKNOWNS[width];
+      }
+
       var hashCode = width;
       hashCode = 31 * hashCode + (int) (error ^ (error >>> 32));
       hashCode = 31 * hashCode + (int) (unknown ^ (unknown >>> 32));
@@ -201,7 +217,36 @@ public class Value {
   public static Color widthErrorCaptionBgcolor = new Color(AppPreferences.WIDTH_ERROR_BACKGROUND_COLOR.get());
   public static Color clockFrequencyColor = new Color(AppPreferences.CLOCK_FREQUENCY_COLOR.get());
 
-  private static final Cache cache = new Cache();
+  /**
+   * Widest bus for which every fully defined value is interned. All values of a width up to this
+   * one are created once, so that simulating narrow buses does not allocate; wider values go
+   * through the cache below, except for the all-zero, all-unknown and all-error values of every
+   * width, which are interned as well.
+   */
+  public static final int INTERN_WIDTH = 8;
+
+  private static final Value[][] KNOWN = new Value[INTERN_WIDTH + 1][];
+  private static final Value[] ZEROS = new Value[MAX_WIDTH + 1];
+  private static final Value[] UNKNOWNS = new Value[MAX_WIDTH + 1];
+  private static final Value[] ERRORS = new Value[MAX_WIDTH + 1];
+
+  static {
+    for (var width = 2; width <= MAX_WIDTH; width++) {
+      final var mask = (width == 64 ? -1L : ~(-1L << width));
+      ZEROS[width] = new Value(width, 0, 0, 0);
+      UNKNOWNS[width] = new Value(width, 0, mask, 0);
+      ERRORS[width] = new Value(width, mask, 0, 0);
+      if (width <= INTERN_WIDTH) {
+        KNOWN[width] = new Value[1 << width];
+        KNOWN[width][0] = ZEROS[width];
+        for (var value = 1; value < (1 << width); value++) {
+          KNOWN[width][value] = new Value(width, 0, 0, value);
+        }
+      }
+    }
+  }
+
+  private static final Cache cache = new Cache(12);
 
   private final int width;
 
@@ -277,6 +322,79 @@ public class Value {
     }
   }
 
+  /**
+   * Returns the AND of the first <code>count</code> values, like folding them with {@link
+   * #and(Value)} but without creating the intermediate values.
+   */
+  public static Value and(Value[] values, int count) {
+    if (count == 1) return values[0];
+    var width = 0;
+    var bad = 0L;
+    var falses = 0L;
+    var value = -1L;
+    for (var i = 0; i < count; i++) {
+      final var v = values[i];
+      width = Math.max(width, v.width);
+      bad |= v.error | v.unknown;
+      falses |= ~v.value & ~v.error & ~v.unknown;
+      value &= v.value;
+    }
+    if (width <= 1) return foldSingleBits(values, count, 0);
+    return Value.create(width, bad & ~falses, 0, value);
+  }
+
+  /**
+   * Returns the OR of the first <code>count</code> values, like folding them with {@link
+   * #or(Value)} but without creating the intermediate values.
+   */
+  public static Value or(Value[] values, int count) {
+    if (count == 1) return values[0];
+    var width = 0;
+    var bad = 0L;
+    var trues = 0L;
+    var value = 0L;
+    for (var i = 0; i < count; i++) {
+      final var v = values[i];
+      width = Math.max(width, v.width);
+      bad |= v.error | v.unknown;
+      trues |= v.value & ~v.error & ~v.unknown;
+      value |= v.value;
+    }
+    if (width <= 1) return foldSingleBits(values, count, 1);
+    return Value.create(width, bad & ~trues, 0, value);
+  }
+
+  /**
+   * Returns the XOR of the first <code>count</code> values, like folding them with {@link
+   * #xor(Value)} but without creating the intermediate values.
+   */
+  public static Value xor(Value[] values, int count) {
+    if (count == 1) return values[0];
+    var width = 0;
+    var bad = 0L;
+    var value = 0L;
+    for (var i = 0; i < count; i++) {
+      final var v = values[i];
+      width = Math.max(width, v.width);
+      bad |= v.error | v.unknown;
+      value ^= v.value;
+    }
+    if (width <= 1) return foldSingleBits(values, count, 2);
+    return Value.create(width, bad, 0, value);
+  }
+
+  private static Value foldSingleBits(Value[] values, int count, int op) {
+    // single bit values are all shared, so the pairwise operations do not
+    // allocate; going through them keeps their handling of NIL
+    var ret = values[0];
+    for (var i = 1; i < count; i++) {
+      if (op == 0) ret = ret.and(values[i]);
+      else if (op == 1) ret = ret.or(values[i]);
+      else ret = ret.xor(values[i]);
+    }
+    return ret;
+  }
+
   /**
    * Code taken from Cornell's version of Logisim: http://www.cs.cornell.edu/courses/cs3410/2015sp/
    */
@@ -353,6 +471,21 @@ public class Value {
     return width;
   }
 
+  /** Returns the mask of the bits that are errors. */
+  public long getErrorBits() {
+    return error;
+  }
+
+  /** Returns the mask of the bits that are unknown (and not errors). */
+  public long getUnknownBits() {
+    return unknown;
+  }
+
+  /** Returns the bits that are 1; bits that are unknown or errors are always 0. */
+  public long getValueBits() {
+    return value;
+  }
+
   @Override
   public int hashCode() {
     var ret = width;
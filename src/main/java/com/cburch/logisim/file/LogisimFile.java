@@ -280,8 +280,25 @@ public class LogisimFile extends Library implements LibraryEventSource, CircuitL
     messages.addLast(msg);
   }
 
-  @SuppressWarnings("resource")
+  /**
+   * Returns a deep copy of this file that resolves its libraries through the given loader. The
+   * copy is built directly from the circuits, components and options of this file.
+   */
   public LogisimFile cloneLogisimFile(Loader newloader) {
+    try {
+      return LogisimFileCloner.cloneFile(this, newloader);
+    } catch (ParserConfigurationException e) {
+      newloader.showError(S.get("fileDuplicateError", e.toString()));
+      return null;
+    }
+  }
+
+  /**
+   * Returns a copy of this file made by writing it to XML and reading it back. This is slow and
+   * needs twice the memory; it is kept to check {@link #cloneLogisimFile} against.
+   */
+  @SuppressWarnings("resource")
+  LogisimFile cloneLogisimFileThroughXml(Loader newloader) {
     final var reader = new PipedInputStream();
     final var writer = new PipedOutputStream();
     try {
@@ -0,0 +1,278 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.file;
+
+import static com.cburch.logisim.file.Strings.S;
+
+import com.cburch.draw.model.AbstractCanvasObject;
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitAttributes;
+import com.cburch.logisim.circuit.CircuitMutator;
+import com.cburch.logisim.circuit.CircuitTransaction;
+import com.cburch.logisim.circuit.SubcircuitFactory;
+import com.cburch.logisim.circuit.Wire;
+import com.cburch.logisim.circuit.appear.AppearanceSvgReader;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.tools.AddTool;
+import com.cburch.logisim.tools.Library;
+import com.cburch.logisim.tools.Tool;
+import com.cburch.logisim.vhdl.base.VhdlContent;
+import com.cburch.logisim.vhdl.base.VhdlEntity;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Builds a deep copy of a {@link LogisimFile} directly from its objects, instead of writing the
+ * file to XML and reading it back.
+ *
+ * <p>Libraries are looked up again through the loader of the copy, so built-in and loaded
+ * libraries end up shared exactly as when the file is read. Circuits, VHDL entities, components,
+ * options, toolbar and mouse mappings are copied, with every reference to a circuit or entity of
+ * the original redirected to its copy. Custom appearance shapes and board maps refer to pins and
+ * components that have to be resolved in the copy, so each of them still goes through its own
+ * XML element, the same way it is saved and loaded.
+ */
+class LogisimFileCloner extends CircuitTransaction {
+
+  private final LogisimFile source;
+  private final Loader loader;
+  private final LogisimFile dest;
+  private final Document doc;
+  private final Map<Circuit, Circuit> circuits = new LinkedHashMap<>();
+  /* the copy of each factory defined by the source file itself */
+  private final Map<ComponentFactory, ComponentFactory> factories = new HashMap<>();
+
+  private LogisimFileCloner(LogisimFile source, Loader loader) throws ParserConfigurationException {
+    this.source = source;
+    this.loader = loader;
+    dest = new LogisimFile(loader);
+    doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+  }
+
+  static LogisimFile cloneFile(LogisimFile source, Loader loader)
+      throws ParserConfigurationException {
+    final var cloner = new LogisimFileCloner(source, loader);
+    cloner.copyLibraries();
+    cloner.copyCircuitsAndEntities();
+    cloner.execute();
+    cloner.copyOptions();
+    final var main = cloner.circuits.get(source.getMainCircuit());
+    if (main != null) cloner.dest.setMainCircuit(main);
+    return cloner.dest;
+  }
+
+  /**
+   * Copies the values of the attributes in the destination set that have an attribute of the
+   * same name in the source set. Read-only attributes and values that are already equal are left
+   * alone.
+   */
+  private static void copyAttributes(AttributeSet src, AttributeSet dst) {
+    if (src == null || dst == null) return;
+    // The list is fetched again each time as it may change while values are set (as it will for
+    // a splitter).
+    for (var i = 0; i < dst.getAttributes().size(); i++) {
+      @SuppressWarnings("unchecked")
+      final var attr = (Attribute<Object>) dst.getAttributes().get(i);
+      final var srcAttr = src.getAttribute(attr.getName());
+      if (srcAttr == null || dst.isReadOnly(attr)) continue;
+      final var value = src.getValue(srcAttr);
+      if (value != null && !value.equals(dst.getValue(attr))) dst.setValue(attr, value);
+    }
+  }
+
+  private void copyLibraries() {
+    for (final var lib : source.getLibraries()) {
+      Library copy;
+      try {
+        copy = loader.loadLibrary(source.getLoader().getDescriptor(lib));
+      } catch (LoaderException e) {
+        loader.showError(e.getMessage());
+        continue;
+      }
+      if (copy == null) continue;
+      if (copy != lib) {
+        for (final var tool : lib.getTools()) {
+          final var copyTool = copy.getTool(tool.getName());
+          if (copyTool != null) copyAttributes(tool.getAttributeSet(), copyTool.getAttributeSet());
+        }
+      }
+      dest.addLibrary(copy);
+    }
+  }
+
+  private void copyCircuitsAndEntities() {
+    for (final var tool : source.getTools()) {
+      if (tool.getFactory() instanceof SubcircuitFactory factory) {
+        final var circ = factory.getSubcircuit();
+        final var copy = new Circuit(circ.getName(), dest, null);
+        copyAttributes(circ.getStaticAttributes(), copy.getStaticAttributes());
+        dest.addCircuit(copy);
+        circuits.put(circ, copy);
+        factories.put(factory, copy.getSubcircuitFactory());
+      } else if (tool.getFactory() instanceof VhdlEntity factory) {
+        final var content = factory.getContent();
+        content.aboutToSave();
+        final var copy = VhdlContent.parse(content.getName(), content.getContent(), dest);
+        if (copy == null) continue;
+        dest.addVhdlContent(copy);
+        for (final var copyTool : dest.getTools()) {
+          if (copyTool.getFactory() instanceof VhdlEntity entity && entity.getContent() == copy) {
+            factories.put(factory, entity);
+          }
+        }
+      }
+    }
+  }
+
+  private Component copyComponent(Component comp) {
+    final var factory = comp.getFactory();
+    final var copyFactory = factories.get(factory);
+    if (copyFactory == null) {
+      return factory.createComponent(
+          comp.getLocation(), (AttributeSet) comp.getAttributeSet().clone());
+    }
+    final var attrs = copyFactory.createAttributeSet();
+    if (factory instanceof SubcircuitFactory) {
+      CircuitAttributes.copyInto(comp.getAttributeSet(), attrs);
+    } else {
+      copyAttributes(comp.getAttributeSet(), attrs);
+    }
+    return copyFactory.createComponent(comp.getLocation(), attrs);
+  }
+
+  @Override
+  protected Map<Circuit, Integer> getAccessedCircuits() {
+    final var access = new HashMap<Circuit, Integer>();
+    for (final var copy : circuits.values()) {
+      access.put(copy, READ_WRITE);
+    }
+    return access;
+  }
+
+  @Override
+  protected void run(CircuitMutator mutator) {
+    // The shapes of each appearance, with the dynamic ones left as their XML element until all
+    // circuits are filled, as they may point into other circuits.
+    final var appearances = new HashMap<Circuit, List<Object>>();
+    for (final var entry : circuits.entrySet()) {
+      final var circ = entry.getKey();
+      final var copy = entry.getValue();
+      final var pins = new ArrayList<AppearanceSvgReader.PinInfo>();
+      for (final var wire : circ.getWires()) {
+        mutator.add(copy, Wire.create(wire.getEnd0(), wire.getEnd1()));
+      }
+      for (final var comp : circ.getNonWires()) {
+        final var compCopy = copyComponent(comp);
+        if (compCopy.getFactory() == Pin.FACTORY) {
+          pins.add(
+              AppearanceSvgReader.getPinInfo(
+                  compCopy.getLocation(), Instance.getInstanceFor(compCopy)));
+        }
+        mutator.add(copy, compCopy);
+      }
+      if (circ.getAppearance().hasCustomAppearance()) {
+        final var shapes = new ArrayList<>();
+        for (final var obj : circ.getAppearance().getCustomObjectsFromBottom()) {
+          if (!(obj instanceof AbstractCanvasObject canvasObject)) continue;
+          final var elt = canvasObject.toSvgElement(doc);
+          if (elt == null) continue;
+          if (elt.getTagName().startsWith("visible-")) {
+            shapes.add(elt);
+          } else {
+            final var shape = createShape(elt, pins, null);
+            if (shape != null) shapes.add(shape);
+          }
+        }
+        appearances.put(copy, shapes);
+      }
+      for (final var board : circ.getBoardMapNamestoSave()) {
+        XmlReader.loadMap(XmlWriter.fromMap(doc, circ, board), board, copy);
+      }
+    }
+    for (final var entry : appearances.entrySet()) {
+      final var copy = entry.getKey();
+      final var shapes = new ArrayList<AbstractCanvasObject>();
+      for (final var shape : entry.getValue()) {
+        if (shape instanceof Element elt) {
+          final var dynamic = createShape(elt, null, copy);
+          if (dynamic != null) shapes.add(dynamic);
+        } else {
+          shapes.add((AbstractCanvasObject) shape);
+        }
+      }
+      if (!shapes.isEmpty()) copy.getAppearance().setObjectsForce(shapes);
+    }
+  }
+
+  private AbstractCanvasObject createShape(
+      Element elt, List<AppearanceSvgReader.PinInfo> pins, Circuit circuit) {
+    try {
+      final var shape = AppearanceSvgReader.createShape(elt, pins, circuit);
+      if (shape == null) loader.showError(S.get("fileAppearanceNotFound", elt.getTagName()));
+      return shape;
+    } catch (RuntimeException e) {
+      loader.showError(S.get("fileAppearanceError", elt.getTagName()));
+      return null;
+    }
+  }
+
+  private Tool findTool(Tool query) {
+    if (query instanceof AddTool addTool) {
+      final var copyFactory = factories.get(addTool.getFactory());
+      if (copyFactory != null) {
+        for (final var tool : dest.getTools()) {
+          if (tool.getFactory() == copyFactory) return tool;
+        }
+        return null;
+      }
+    }
+    return dest.findTool(query);
+  }
+
+  private Tool copyTool(Tool tool) {
+    final var found = findTool(tool);
+    if (found == null) return null;
+    final var copy = found.cloneTool();
+    copyAttributes(tool.getAttributeSet(), copy.getAttributeSet());
+    return copy;
+  }
+
+  private void copyOptions() {
+    final var options = source.getOptions();
+    final var copy = dest.getOptions();
+    copyAttributes(options.getAttributeSet(), copy.getAttributeSet());
+    final var toolbar = copy.getToolbarData();
+    for (final var tool : options.getToolbarData().getContents()) {
+      if (tool == null) {
+        toolbar.addSeparator();
+      } else {
+        final var toolCopy = copyTool(tool);
+        if (toolCopy != null) toolbar.addTool(toolCopy);
+      }
+    }
+    final var mappings = copy.getMouseMappings();
+    for (final var entry : options.getMouseMappings().getMappings().entrySet()) {
+      final var toolCopy = copyTool(entry.getValue());
+      if (toolCopy != null) mappings.setToolFor(entry.getKey(), toolCopy);
+    }
+  }
+}
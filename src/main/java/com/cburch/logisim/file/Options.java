@@ -27,6 +27,8 @@ public class Options {
       Attributes.forInteger("simlimit", S.getter("simLimitOption"));
   public static final Attribute<Integer> ATTR_SIM_RAND =
       Attributes.forInteger("simrand", S.getter("simRandomOption"));
+  public static final Attribute<Integer> ATTR_SIM_THREADS =
+      Attributes.forIntegerRange("simthreads", S.getter("simThreadsOption"), 1, 64);
   public static final Attribute<AttributeOption> ATTR_GATE_UNDEFINED =
       Attributes.forOption(
           "gateUndefined",
@@ -36,9 +38,9 @@ public class Options {
   public static final Integer SIM_RAND_DFLT = 32;
 
   private static final Attribute<?>[] ATTRIBUTES = {
-    ATTR_GATE_UNDEFINED, ATTR_SIM_LIMIT, ATTR_SIM_RAND
+    ATTR_GATE_UNDEFINED, ATTR_SIM_LIMIT, ATTR_SIM_RAND, ATTR_SIM_THREADS
   };
-  private static final Object[] DEFAULTS = {GATE_UNDEFINED_IGNORE, 1000, 0};
+  private static final Object[] DEFAULTS = {GATE_UNDEFINED_IGNORE, 1000, 0, 1};
 
   private final AttributeSet attrs;
   private final MouseMappings mmappings;
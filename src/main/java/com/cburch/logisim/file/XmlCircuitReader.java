@@ -30,14 +30,25 @@ import com.cburch.logisim.tools.AddTool;
 import com.cburch.logisim.util.CollectionUtil;
 import com.cburch.logisim.util.StringUtil;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import org.w3c.dom.Element;
 
 public class XmlCircuitReader extends CircuitTransaction {
 
+  /**
+   * A comp or wire element of a circuit, read ahead of the transaction that adds it: the component
+   * or wire it describes, the element of a component still to be made, or the error met reading it.
+   */
+  static class Part {
+    Element element;
+    Component component;
+    XmlReaderException error;
+    String context;
+  }
+
   private static final String contextFmt = "%s.%s";
 
   private final XmlReader.ReadContext reader;
@@ -113,7 +124,12 @@ public class XmlCircuitReader extends CircuitTransaction {
     }
   }
 
-  void addWire(Circuit dest, CircuitMutator mutator, Element elt) throws XmlReaderException {
+  /**
+   * @param elt XML element to parse
+   * @return the wire built from its XML description, or null if its ends are the same
+   * @throws XmlReaderException
+   */
+  static Wire getWire(Element elt) throws XmlReaderException {
     Location pt0;
     try {
       final var str = elt.getAttribute("from");
@@ -136,17 +152,71 @@ public class XmlCircuitReader extends CircuitTransaction {
       throw new XmlReaderException(S.get("wireEndInvalidError"));
     }
 
-    if (!pt0.equals(pt1)) {
-      // Avoid zero length wires
-      mutator.add(dest, Wire.create(pt0, pt1));
+    // Avoid zero length wires
+    return pt0.equals(pt1) ? null : Wire.create(pt0, pt1);
+  }
+
+  /**
+   * Reads the comp and wire elements of a circuit in order, which is done on the worker pool while
+   * the rest of the file is still being read. The elements are taken from the queue as they are
+   * read, so that they can be collected early. The components of the circuits and VHDL entities of
+   * the file itself, and of libraries not loaded yet, are left to {@link #makeParts}.
+   *
+   * @param elts comp and wire elements of the circuit
+   * @param reader XML file reader
+   * @return the parts of the circuit, in file order
+   */
+  static List<Part> readParts(
+      Queue<Element> elts, XmlReader.ReadContext reader, boolean isHolyCross, boolean isEvolution) {
+    final var parts = new ArrayList<Part>(elts.size());
+    for (var elt = elts.poll(); elt != null; elt = elts.poll()) {
+      final var part = new Part();
+      if ("comp".equals(elt.getTagName())) {
+        final var libName = elt.getAttribute("lib");
+        if (StringUtil.isNullOrEmpty(libName) || !reader.libs.containsKey(libName)) {
+          part.element = elt;
+        } else {
+          try {
+            part.component = getComponent(elt, reader, isHolyCross, isEvolution);
+          } catch (XmlReaderException e) {
+            part.error = e;
+            part.context = toComponentString(elt);
+          }
+        }
+      } else {
+        try {
+          part.component = getWire(elt);
+          if (part.component == null) continue;
+        } catch (XmlReaderException e) {
+          part.error = e;
+          part.context = toWireString(elt);
+        }
+      }
+      parts.add(part);
+    }
+    return parts;
+  }
+
+  /**
+   * Makes the components that {@link #readParts} left to the thread loading the file, once all the
+   * circuits of the file exist and before any of them is built.
+   */
+  static void makeParts(
+      List<Part> parts, XmlReader.ReadContext reader, boolean isHolyCross, boolean isEvolution) {
+    for (final var part : parts) {
+      if (part.element == null) continue;
+      try {
+        part.component = getComponent(part.element, reader, isHolyCross, isEvolution);
+      } catch (XmlReaderException e) {
+        part.error = e;
+        part.context = toComponentString(part.element);
+      }
+      part.element = null;
     }
   }
 
   private void buildCircuit(XmlReader.CircuitData circData, CircuitMutator mutator) {
-    final var element = circData.circuitElement;
     final var dest = circData.circuit;
-    var knownComponents = circData.knownComponents;
-    if (knownComponents == null) knownComponents = Collections.emptyMap();
     try {
       /* Here we check the attribute circuitnamedbox for backwards compatibility */
       var hasNamedBox = false;
@@ -162,7 +232,7 @@ public class XmlCircuitReader extends CircuitTransaction {
       }
       reader.initAttributeSet(
           circData.circuitElement, dest.getStaticAttributes(), null, isHolyCross, isEvolution);
-      if (circData.circuitElement.hasChildNodes()) {
+      if (circData.hasChildNodes) {
         if (hasNamedBox) {
           // This situation is clear, it is an older logisim-evolution file
           final var appear =
@@ -189,51 +259,38 @@ public class XmlCircuitReader extends CircuitTransaction {
         }
       }
     } catch (XmlReaderException e) {
-      reader.addErrors(e, circData.circuit.getName() + ".static");
+      circData.addErrors(e, circData.circuit.getName() + ".static");
     }
 
     final var componentsAt = new HashMap<Bounds, Component>();
     final var overlapComponents = new ArrayList<Component>();
-    for (final var subElement : XmlIterator.forChildElements(element)) {
-      final var subEltName = subElement.getTagName();
-      if ("comp".equals(subEltName)) {
-        try {
-          var comp = knownComponents.get(subElement);
-          if (comp == null) comp = getComponent(subElement, reader, isHolyCross, isEvolution);
-          if (comp != null) {
-            /* filter out empty text boxes */
-            if (comp.getFactory() instanceof Text) {
-              if (comp.getAttributeSet().getValue(Text.ATTR_TEXT).isEmpty()) {
-                continue;
-              }
-            }
-            final var bds = comp.getBounds();
-            final var conflict = componentsAt.get(bds);
-            if (conflict != null) {
-              final var msg =
-                  S.get(
-                      "fileComponentOverlapError",
-                      conflict.getFactory().getName() + conflict.getLocation(),
-                      comp.getFactory().getName() + conflict.getLocation());
-              reader.addError(msg, circData.circuit.getName());
-              overlapComponents.add(comp);
-            } else {
-              mutator.add(dest, comp);
-              componentsAt.put(bds, comp);
-            }
+    for (final var part : circData.parts) {
+      final var comp = part.component;
+      if (comp == null) {
+        final var context = String.format(contextFmt, circData.circuit.getName(), part.context);
+        circData.addErrors(part.error, context);
+      } else if (comp instanceof Wire) {
+        mutator.add(dest, comp);
+      } else {
+        /* filter out empty text boxes */
+        if (comp.getFactory() instanceof Text) {
+          if (comp.getAttributeSet().getValue(Text.ATTR_TEXT).isEmpty()) {
+            continue;
           }
-        } catch (XmlReaderException e) {
-          final var context =
-              String.format(contextFmt, circData.circuit.getName(), toComponentString(subElement));
-          reader.addErrors(e, context);
         }
-      } else if ("wire".equals(subEltName)) {
-        try {
-          addWire(dest, mutator, subElement);
-        } catch (XmlReaderException e) {
-          final var context =
-              String.format(contextFmt, circData.circuit.getName(), toWireString(subElement));
-          reader.addErrors(e, context);
+        final var bds = comp.getBounds();
+        final var conflict = componentsAt.get(bds);
+        if (conflict != null) {
+          final var msg =
+              S.get(
+                  "fileComponentOverlapError",
+                  conflict.getFactory().getName() + conflict.getLocation(),
+                  comp.getFactory().getName() + conflict.getLocation());
+          circData.addError(msg, circData.circuit.getName());
+          overlapComponents.add(comp);
+        } else {
+          mutator.add(dest, comp);
+          componentsAt.put(bds, comp);
         }
       }
     }
@@ -267,14 +324,14 @@ public class XmlCircuitReader extends CircuitTransaction {
           if (m == null) {
             final var context =
                 String.format(contextFmt, circData.circuit.getName(), sub.getTagName());
-            reader.addError(S.get("fileAppearanceNotFound", sub.getTagName()), context);
+            circData.addError(S.get("fileAppearanceNotFound", sub.getTagName()), context);
           } else {
             shapes.add(m);
           }
         } catch (RuntimeException e) {
           final var context =
               String.format(contextFmt, circData.circuit.getName(), sub.getTagName());
-          reader.addError(S.get("fileAppearanceError", sub.getTagName()), context);
+          circData.addError(S.get("fileAppearanceError", sub.getTagName()), context);
         }
       }
     }
@@ -309,13 +366,13 @@ public class XmlCircuitReader extends CircuitTransaction {
     }
   }
 
-  private String toComponentString(Element elt) {
+  private static String toComponentString(Element elt) {
     final var name = elt.getAttribute("name");
     final var loc = elt.getAttribute("loc");
     return String.format("%s(%s)", name, loc);
   }
 
-  private String toWireString(Element elt) {
+  private static String toWireString(Element elt) {
     final var from = elt.getAttribute("from");
     final var to = elt.getAttribute("to");
     return String.format("w%s-%s", from, to);
@@ -15,9 +15,9 @@ import com.cburch.draw.model.AbstractCanvasObject;
 import com.cburch.logisim.LogisimVersion;
 import com.cburch.logisim.circuit.Circuit;
 import com.cburch.logisim.circuit.CircuitMapInfo;
+import com.cburch.logisim.circuit.SubcircuitFactory;
 import com.cburch.logisim.circuit.Splitter;
 import com.cburch.logisim.circuit.appear.AppearanceSvgReader;
-import com.cburch.logisim.comp.Component;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeDefaultProvider;
 import com.cburch.logisim.data.AttributeSet;
@@ -54,16 +54,24 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
-import javax.xml.XMLConstants;
-import javax.xml.parsers.DocumentBuilder;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
@@ -75,12 +83,28 @@ class XmlReader {
   static class CircuitData {
     final Element circuitElement;
     final Circuit circuit;
-    Map<Element, Component> knownComponents;
+    final boolean hasChildNodes;
+    /* the comps and wires of the circuit, read on the worker pool while the file is read */
+    ForkJoinTask<List<XmlCircuitReader.Part>> reading;
+    List<XmlCircuitReader.Part> parts;
     List<AbstractCanvasObject> appearance;
+    /* the errors met building the circuit, which may be built on a worker */
+    final ArrayList<String> errors = new ArrayList<>();
 
     public CircuitData(Element circuitElement, Circuit circuit) {
       this.circuitElement = circuitElement;
       this.circuit = circuit;
+      this.hasChildNodes = circuitElement.hasChildNodes();
+    }
+
+    void addError(String message, String context) {
+      errors.add(message + " [" + context + "]");
+    }
+
+    void addErrors(XmlReaderException exception, String context) {
+      for (final var msg : exception.getMessages()) {
+        errors.add(msg + " [" + context + "]");
+      }
     }
   }
 
@@ -161,6 +185,10 @@ class XmlReader {
         final var attrName = attr.getName();
         final var attrVal = attrsDefined.get(attrName);
         if (attrVal == null) {
+          // An attribute that is never saved has no value to restore. This matters for the
+          // attributes a subcircuit instance shares with its circuit: setting those would
+          // recompute the appearance and the ports of every instance of that circuit.
+          if (!attrs.isToSave(attr)) continue;
           if (attr.equals(ProbeAttributes.PROBEAPPEARANCE)) {
             attrs.setValue(ProbeAttributes.PROBEAPPEARANCE, StdAttr.APPEAR_CLASSIC);
           } else if (attr.equals(StdAttr.APPEARANCE)) {
@@ -264,62 +292,11 @@ class XmlReader {
       }
     }
 
-    private Map<Element, Component> loadKnownComponents(Element elt, boolean isHolyCross, boolean isEvolution) {
-      final var known = new HashMap<Element, Component>();
-      for (final var sub : XmlIterator.forChildElements(elt, "comp")) {
-        try {
-          final var comp = XmlCircuitReader.getComponent(sub, this, isHolyCross, isEvolution);
-          if (comp != null) known.put(sub, comp);
-        } catch (XmlReaderException ignored) {
-        }
-      }
-      return known;
-    }
-
-    void loadMap(Element board, String boardName, Circuit circ) {
-      final var map = new HashMap<String, CircuitMapInfo>();
-      for (final var cmap : XmlIterator.forChildElements(board, "mc")) {
-        int x, y, w, h;
-        final var key = cmap.getAttribute("key");
-        if (StringUtil.isNullOrEmpty(key)) continue;
-        if (cmap.hasAttribute("open")) {
-          map.put(key, new CircuitMapInfo());
-        } else if (cmap.hasAttribute("vconst")) {
-          long v;
-          try {
-            v = Long.parseLong(cmap.getAttribute("vconst"));
-          } catch (NumberFormatException e) {
-            continue;
-          }
-          map.put(key, new CircuitMapInfo(v));
-        } else if (cmap.hasAttribute("valx")
-            && cmap.hasAttribute("valy")
-            && cmap.hasAttribute("valw")
-            && cmap.hasAttribute("valh")) {
-          /* Backward compatibility: */
-          try {
-            x = Integer.parseUnsignedInt(cmap.getAttribute("valx"));
-            y = Integer.parseUnsignedInt(cmap.getAttribute("valy"));
-            w = Integer.parseUnsignedInt(cmap.getAttribute("valw"));
-            h = Integer.parseUnsignedInt(cmap.getAttribute("valh"));
-          } catch (NumberFormatException e) {
-            continue;
-          }
-          final var br = new BoardRectangle(x, y, w, h);
-          map.put(key, new CircuitMapInfo(br));
-        } else {
-          final var cmapi = MapComponent.getMapInfo(cmap);
-          if (cmapi != null)
-            map.put(key, cmapi);
-        }
-      }
-      if (!map.isEmpty()) circ.addLoadedMap(boardName, map);
-    }
-
     void loadAppearance(Element appearElt, XmlReader.CircuitData circData, String context) {
       final var pins = new ArrayList<AppearanceSvgReader.PinInfo>();
-      for (final var comp : circData.knownComponents.values()) {
-        if (comp.getFactory() == Pin.FACTORY) {
+      for (final var part : circData.parts) {
+        final var comp = part.component;
+        if (comp != null && comp.getFactory() == Pin.FACTORY) {
           pins.add(AppearanceSvgReader.getPinInfo(comp.getLocation(), Instance.getInstanceFor(comp)));
         }
       }
@@ -382,16 +359,17 @@ class XmlReader {
       return ret;
     }
 
-    private void toLogisimFile(Element elt, Project proj) {
+    private void toLogisimFile(XMLStreamReader in, Project proj)
+        throws XMLStreamException, SAXException {
       // determine the version producing this file
-      final var versionString = elt.getAttribute("source");
-      var isHolyCrossFile = false;
-      var isEvolutionFile = true;
+      var versionString = in.getAttributeValue(null, "source");
+      if (versionString == null) versionString = "";
+      final var isHolyCrossFile = versionString.endsWith("-HC");
+      final var isEvolutionFile = true;
       if ("".equals(versionString)) {
         sourceVersion = BuildInfo.version;
       } else {
         sourceVersion = LogisimVersion.fromString(versionString);
-        isHolyCrossFile = versionString.endsWith("-HC");
       }
 
       // If we are opening a pre-logisim-evolution file, there might be
@@ -402,7 +380,6 @@ class XmlReader {
       // strange in their
       // circuits...
       if (sourceVersion.compareTo(new LogisimVersion(2, 7, 2)) < 0) {
-        isEvolutionFile = true;
         OptionPane.showMessageDialog(
             null,
             // FIXME: hardcoded string
@@ -414,73 +391,64 @@ class XmlReader {
             OptionPane.WARNING_MESSAGE);
       }
 
-      // first, load the sublibraries
-      final var libsToAddAfter = new HashSet<Library>();
-      final var baseLibsToEnable = new HashSet<String>();
-      final var libsLoaded = new HashSet<String>();
-      for (final var o : XmlIterator.forChildElements(elt, "lib")) {
-        final var lib = toLibrary(o, isHolyCrossFile, isEvolutionFile);
-        if (lib instanceof LoadedLibrary loadedLib) {
-          if (loadedLib.getBase() instanceof LogisimFile) {
-            libsToAddAfter.add(lib);
-            continue;
-          }
+      // The child elements are read one at a time, and each one is repaired and handled as soon as
+      // it is complete. The libraries come first: they are loaded once the first other element is
+      // met. The circuits are created empty, and the comps and wires of each one are read on the
+      // worker pool while the rest of the file is read. The other elements refer to the circuits,
+      // so they are handled once all the circuits exist.
+      final var doc = newDocument();
+      final var repairs = new Repairs(doc, LogisimVersion.fromString(versionString));
+      final var libElts = new ArrayList<Element>();
+      final var circuitsData = new ArrayList<CircuitData>();
+      final var otherElts = new ArrayList<Element>();
+      for (var event = in.next(); event != XMLStreamConstants.END_ELEMENT; event = in.next()) {
+        if (event != XMLStreamConstants.START_ELEMENT) continue;
+        final var elt = readElement(in, doc);
+        if ("lib".equals(elt.getTagName())) {
+          repairs.repairLibrary(elt);
+          libElts.add(elt);
+          continue;
         }
-        if (lib != null) {
-          file.addLibrary(lib);
-          libsLoaded.add(lib.getName());
+        if (!libElts.isEmpty()) {
+          loadLibraries(
+              repairs.repairLibraries(libElts), circuitsData, isHolyCrossFile, isEvolutionFile);
+          libElts.clear();
         }
-      }
-      // do a post-processing on the .circ libraries
-      for (final var logiLib : libsToAddAfter) {
-        // first cleanup step: remove unused libraries from loaded library
-        LibraryManager.removeUnusedLibraries(logiLib);
-        // second cleanup step: promote base libraries
-        baseLibsToEnable.addAll(LibraryManager.getUsedBaseLibraries(logiLib));
-      }
-      // promote the none visible base libraries to toplevel
-      final var builtinLibraries = LibraryManager.getBuildinNames((Loader) loader);
-      for (final var lib : libsToAddAfter) {
-        final var libName = lib.getName();
-        if (baseLibsToEnable.contains(libName) || !builtinLibraries.contains(libName)) {
-          baseLibsToEnable.remove(libName);
-        }
-      }
-      // remove the promoted base libraries from the loaded library and add them
-      for (final var newLib : libsToAddAfter) {
-        LibraryManager.removeBaseLibraries(newLib, baseLibsToEnable);
-        file.addLibrary(newLib);
-      }
-
-      // second, create the circuits - empty for now - and the vhdl entities
-      final var circuitsData = new ArrayList<CircuitData>();
-      for (final var circElt : XmlIterator.forChildElements(elt)) {
+        repairs.repair(elt);
         String name;
-        switch (circElt.getTagName()) {
+        switch (elt.getTagName()) {
           case "vhdl" -> {
-            name = circElt.getAttribute("name");
+            name = elt.getAttribute("name");
             if (name == null || "".equals(name)) {
               addError(S.get("circNameMissingError"), "C??");
             }
-            final var vhdl = circElt.getTextContent();
+            final var vhdl = elt.getTextContent();
             final var contents = VhdlContent.parse(name, vhdl, file);
             if (contents != null) {
               file.addVhdlContent(contents);
             }
           }
           case "circuit" -> {
-            name = circElt.getAttribute("name");
+            name = elt.getAttribute("name");
             if (name == null || "".equals(name)) {
               addError(S.get("circNameMissingError"), "C??");
             }
-            final var circData = new CircuitData(circElt, new Circuit(name, file, proj));
+            final var circData = new CircuitData(elt, new Circuit(name, file, proj));
             file.addCircuit(circData.circuit);
-            circData.knownComponents = loadKnownComponents(circElt, isHolyCrossFile,
-                isEvolutionFile);
-            for (Element appearElt : XmlIterator.forChildElements(circElt, "appear")) {
-              loadAppearance(appearElt, circData, name + ".appear");
+            final var partElts = new ArrayDeque<Element>();
+            for (final var sub : XmlIterator.forChildElements(elt)) {
+              if ("comp".equals(sub.getTagName()) || "wire".equals(sub.getTagName())) {
+                elt.removeChild(sub);
+                partElts.add(sub);
+              }
             }
-            for (final var boardMap : XmlIterator.forChildElements(circElt, "boardmap")) {
+            circData.reading =
+                ForkJoinPool.commonPool()
+                    .submit(
+                        () ->
+                            XmlCircuitReader.readParts(
+                                partElts, this, isHolyCrossFile, isEvolutionFile));
+            for (final var boardMap : XmlIterator.forChildElements(elt, "boardmap")) {
               final var boardName = boardMap.getAttribute("boardname");
               if (StringUtil.isNullOrEmpty(boardName))
                 continue;
@@ -488,22 +456,33 @@ class XmlReader {
             }
             circuitsData.add(circData);
           }
-          default -> {
-            // do nothing
-          }
+          default -> otherElts.add(elt);
+        }
+      }
+      if (!libElts.isEmpty()) {
+        loadLibraries(
+            repairs.repairLibraries(libElts), circuitsData, isHolyCrossFile, isEvolutionFile);
+      }
+      final var message = repairs.getMessage();
+      if (message != null) otherElts.add(message);
+
+      // second, now that all the circuits exist, make the components that refer to them and the
+      // static shapes of the appearances
+      for (final var circData : circuitsData) {
+        circData.parts = circData.reading.join();
+        circData.reading = null;
+        XmlCircuitReader.makeParts(circData.parts, this, isHolyCrossFile, isEvolutionFile);
+        final var circElt = circData.circuitElement;
+        for (final var appearElt : XmlIterator.forChildElements(circElt, "appear")) {
+          loadAppearance(appearElt, circData, circData.circuit.getName() + ".appear");
         }
       }
 
       // third, process the other child elements
-      for (Element sub_elt : XmlIterator.forChildElements(elt)) {
+      for (Element sub_elt : otherElts) {
         final var name = sub_elt.getTagName();
 
         switch (name) {
-          case "circuit":
-          case "vhdl":
-          case "lib":
-            // Nothing to do: Done earlier.
-            break;
           case "options":
             try {
               initAttributeSet(
@@ -537,10 +516,111 @@ class XmlReader {
         }
       }
 
-      // fourth, execute a transaction that initializes all the circuits
-      XmlCircuitReader builder;
-      builder = new XmlCircuitReader(this, circuitsData, isHolyCrossFile, isEvolutionFile);
-      builder.execute();
+      // fourth, build the circuits
+      buildCircuits(circuitsData, isHolyCrossFile, isEvolutionFile);
+      for (final var circData : circuitsData) {
+        messages.addAll(circData.errors);
+      }
+    }
+
+    /**
+     * Loads libraries, as the first ones are before the circuits in the file. Libraries met after
+     * circuits are only loaded once the comps and wires read so far are, as those are read on the
+     * worker pool; the components of such libraries are then made along with those of circuits.
+     */
+    private void loadLibraries(
+        List<Element> libElts,
+        List<CircuitData> circuitsData,
+        boolean isHolyCrossFile,
+        boolean isEvolutionFile) {
+      for (final var circData : circuitsData) {
+        circData.reading.join();
+      }
+
+      final var libsToAddAfter = new HashSet<Library>();
+      final var baseLibsToEnable = new HashSet<String>();
+      final var libsLoaded = new HashSet<String>();
+      for (final var o : libElts) {
+        final var lib = toLibrary(o, isHolyCrossFile, isEvolutionFile);
+        if (lib instanceof LoadedLibrary loadedLib) {
+          if (loadedLib.getBase() instanceof LogisimFile) {
+            libsToAddAfter.add(lib);
+            continue;
+          }
+        }
+        if (lib != null) {
+          file.addLibrary(lib);
+          libsLoaded.add(lib.getName());
+        }
+      }
+      // do a post-processing on the .circ libraries
+      for (final var logiLib : libsToAddAfter) {
+        // first cleanup step: remove unused libraries from loaded library
+        LibraryManager.removeUnusedLibraries(logiLib);
+        // second cleanup step: promote base libraries
+        baseLibsToEnable.addAll(LibraryManager.getUsedBaseLibraries(logiLib));
+      }
+      // promote the none visible base libraries to toplevel
+      final var builtinLibraries = LibraryManager.getBuildinNames((Loader) loader);
+      for (final var lib : libsToAddAfter) {
+        final var libName = lib.getName();
+        if (baseLibsToEnable.contains(libName) || !builtinLibraries.contains(libName)) {
+          baseLibsToEnable.remove(libName);
+        }
+      }
+      // remove the promoted base libraries from the loaded library and add them
+      for (final var newLib : libsToAddAfter) {
+        LibraryManager.removeBaseLibraries(newLib, baseLibsToEnable);
+        file.addLibrary(newLib);
+      }
+    }
+
+    /**
+     * Builds the circuits, each one in a transaction of its own once the circuits it uses are
+     * built, so that the circuits that do not use each other are built side by side on the worker
+     * pool. Circuits that use each other, which cannot be ordered, are built together at the end.
+     */
+    private void buildCircuits(
+        List<CircuitData> circuitsData, boolean isHolyCrossFile, boolean isEvolutionFile) {
+      final var pending = new LinkedHashMap<Circuit, CircuitData>();
+      final var uses = new HashMap<CircuitData, Set<Circuit>>();
+      for (final var circData : circuitsData) {
+        pending.put(circData.circuit, circData);
+        final var used = new HashSet<Circuit>();
+        for (final var part : circData.parts) {
+          if (part.component != null
+              && part.component.getFactory() instanceof SubcircuitFactory factory) {
+            used.add(factory.getSubcircuit());
+          }
+        }
+        uses.put(circData, used);
+      }
+      while (!pending.isEmpty()) {
+        final var ready = new ArrayList<CircuitData>();
+        for (final var circData : pending.values()) {
+          if (Collections.disjoint(uses.get(circData), pending.keySet())) ready.add(circData);
+        }
+        if (ready.isEmpty()) {
+          new XmlCircuitReader(
+                  this, new ArrayList<>(pending.values()), isHolyCrossFile, isEvolutionFile)
+              .execute();
+          return;
+        }
+        final var tasks = new ArrayList<ForkJoinTask<?>>();
+        for (final var circData : ready.subList(1, ready.size())) {
+          tasks.add(
+              ForkJoinPool.commonPool()
+                  .submit(
+                      () ->
+                          new XmlCircuitReader(
+                                  this, List.of(circData), isHolyCrossFile, isEvolutionFile)
+                              .execute()));
+        }
+        new XmlCircuitReader(this, List.of(ready.get(0)), isHolyCrossFile, isEvolutionFile)
+            .execute();
+        for (final var task : tasks) task.join();
+        for (final var circData : ready) pending.remove(circData.circuit);
+      }
     }
 
     Tool toTool(Element elt) throws XmlReaderException {
@@ -557,6 +637,94 @@ class XmlReader {
     }
   }
 
+  /**
+   * Applies the repairs of {@link #ensureLogisimCompatibility} and those of older file versions to
+   * one child element of the project at a time, as the file is read. The labels already replaced
+   * are kept, as a label has to be replaced the same way wherever it is met, and so are the repairs
+   * of the libraries, which come before the other elements.
+   */
+  private class Repairs {
+    private final Document doc;
+    private final LogisimVersion version;
+    // stands in for the project element, holding the elements being repaired
+    private final Element holder;
+    private final HashMap<String, String> circuitNames = new HashMap<>();
+    private final HashMap<String, String> circuitLabels = new HashMap<>();
+    private final HashMap<String, String> compLabels = new HashMap<>();
+    private boolean started;
+    private HashMap<String, String> labelMap;
+    private String legacyLabel;
+    private boolean componentsRemoved;
+
+    Repairs(Document doc, LogisimVersion version) {
+      this.doc = doc;
+      this.version = version;
+      this.holder = doc.createElement("project");
+    }
+
+    void repairLibrary(Element libElt) {
+      holder.appendChild(libElt);
+      fixInvalidToolbarLib(holder);
+      holder.removeChild(libElt);
+    }
+
+    /** Repairs the libraries of an older file, when they come before the other elements. */
+    List<Element> repairLibraries(List<Element> libElts) {
+      if (started || version.compareTo(new LogisimVersion(2, 6, 3)) >= 0) return libElts;
+      for (final var libElt : libElts) {
+        holder.appendChild(libElt);
+      }
+      labelMap = repairForWiringLibrary(doc, holder);
+      legacyLabel = repairForLegacyLibrary(holder);
+      final var repaired = new ArrayList<Element>();
+      for (final var libElt : XmlIterator.forChildElements(holder)) {
+        holder.removeChild(libElt);
+        repaired.add(libElt);
+      }
+      return repaired;
+    }
+
+    void repair(Element elt) {
+      started = true;
+      holder.appendChild(elt);
+      // The circuits used are renamed along with the circuits, which may come later in the file.
+      final var names = getXMLLabels(holder, "circuit", "name");
+      for (final var circElt : XmlIterator.forChildElements(holder, "circuit")) {
+        for (final var compElt : XmlIterator.forChildElements(circElt, "comp")) {
+          if (!compElt.hasAttribute("lib") && compElt.hasAttribute("name")) {
+            names.add(compElt.getAttribute("name"));
+          }
+        }
+      }
+      addValidLabels(circuitNames, names);
+      applyValidLabels(holder, "circuit", "name", circuitNames);
+      addValidLabels(circuitLabels, getXMLLabels(holder, "circuit", "label"));
+      applyValidLabels(holder, "circuit", "label", circuitLabels);
+      addValidLabels(compLabels, getXMLLabels(holder, "comp", "label"));
+      applyValidLabels(holder, "comp", "label", compLabels);
+      fixInvalidToolbarLib(holder);
+
+      considerRepairs(holder, version);
+      if (labelMap != null) {
+        updateFromLabelMap(XmlIterator.forDescendantElements(holder, "comp"), labelMap);
+        updateFromLabelMap(XmlIterator.forDescendantElements(holder, "tool"), labelMap);
+      }
+      if (legacyLabel != null) {
+        componentsRemoved |= removeLibraryUses(holder, legacyLabel);
+      }
+      holder.removeChild(elt);
+    }
+
+    /** Returns the message element telling that components had to be deleted, if any. */
+    Element getMessage() {
+      if (!componentsRemoved) return null;
+      final var error = "Some components have been deleted. The Legacy library is not supported.";
+      final var elt = doc.createElement("message");
+      elt.setAttribute("value", error);
+      return elt;
+    }
+  }
+
   public static final Logger logger = LoggerFactory.getLogger(XmlReader.class);
   private final LibraryLoader loader;
 
@@ -665,10 +833,20 @@ class XmlReader {
     if (attrType.length() == 0) throw new RuntimeException("Empty string is not a valid value of 'attrType'.");
 
     final var validLabels = new HashMap<String, String>();
+    addValidLabels(validLabels, getXMLLabels(root, nodeType, attrType));
+    return validLabels;
+  }
 
-    final var initialLabels = getXMLLabels(root, nodeType, attrType);
-
-    for (var label : initialLabels) {
+  /**
+   * Adds to a map of valid labels a valid version of each of the given labels that is not valid
+   * and not in the map yet.
+   *
+   * @param validLabels map containing the original attribute values as keys, and the corresponding
+   *     valid attribute values as the values
+   * @param labels attribute values found
+   */
+  private static void addValidLabels(Map<String, String> validLabels, List<String> labels) {
+    for (var label : labels) {
       if (!validLabels.containsKey(label)) {
         // Check if the name is invalid, in which case create
         // a valid version and put it in the map
@@ -679,8 +857,6 @@ class XmlReader {
         }
       }
     }
-
-    return validLabels;
   }
 
   /**
@@ -995,8 +1171,7 @@ class XmlReader {
     }
   }
 
-  private void considerRepairs(Document doc, Element root) {
-    final var version = LogisimVersion.fromString(root.getAttribute("source"));
+  private void considerRepairs(Element root, LogisimVersion version) {
     if (version.compareTo(new LogisimVersion(2, 3, 0)) < 0) {
       // This file was saved before an Edit tool existed. Most likely
       // we should replace the Select and Wiring tools in the toolbar
@@ -1028,38 +1203,107 @@ class XmlReader {
           }
         }
       }
+    }
+  }
 
-      repairForWiringLibrary(doc, root);
-      repairForLegacyLibrary(doc, root);
+  /**
+   * Reads the element the reader is at, with all of its contents, into an element of the given
+   * document. The reader is left at the end of the element.
+   */
+  private static Element readElement(XMLStreamReader in, Document doc) throws XMLStreamException {
+    final var root = createElement(in, doc);
+    var elt = root;
+    while (elt != null) {
+      switch (in.next()) {
+        case XMLStreamConstants.START_ELEMENT -> {
+          final var sub = createElement(in, doc);
+          elt.appendChild(sub);
+          elt = sub;
+        }
+        case XMLStreamConstants.END_ELEMENT -> elt = (Element) elt.getParentNode();
+        case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA, XMLStreamConstants.SPACE ->
+            elt.appendChild(doc.createTextNode(in.getText()));
+        default -> {
+          // comments and processing instructions, which are no part of the text content
+        }
+      }
     }
+    return root;
   }
 
-  private Document loadXmlFrom(InputStream is) throws SAXException, IOException {
-    final var factory = XmlUtil.getHardenedBuilderFactory();
-    factory.setNamespaceAware(true);
-    try {
-      factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-    } catch (ParserConfigurationException ex) {
-      // All implementations are required to support FEATURE_SECURE_PROCESSING.
+  private static Element createElement(XMLStreamReader in, Document doc) {
+    final var elt = doc.createElement(in.getLocalName());
+    for (var i = 0; i < in.getAttributeCount(); i++) {
+      elt.setAttribute(in.getAttributeLocalName(i), in.getAttributeValue(i));
     }
-    DocumentBuilder builder = null;
+    return elt;
+  }
+
+  private static Document newDocument() throws SAXException {
     try {
-      builder = factory.newDocumentBuilder();
-    } catch (ParserConfigurationException ignored) {
+      return XmlUtil.getHardenedBuilderFactory().newDocumentBuilder().newDocument();
+    } catch (ParserConfigurationException e) {
+      throw new SAXException(e);
     }
-    return builder.parse(is);
   }
 
-  LogisimFile readLibrary(InputStream is, Project proj) throws IOException, SAXException {
-    final var doc = loadXmlFrom(is);
-    var elt = doc.getDocumentElement();
-    elt = ensureLogisimCompatibility(elt);
+  static void loadMap(Element board, String boardName, Circuit circ) {
+    final var map = new HashMap<String, CircuitMapInfo>();
+    for (final var cmap : XmlIterator.forChildElements(board, "mc")) {
+      int x, y, w, h;
+      final var key = cmap.getAttribute("key");
+      if (StringUtil.isNullOrEmpty(key)) continue;
+      if (cmap.hasAttribute("open")) {
+        map.put(key, new CircuitMapInfo());
+      } else if (cmap.hasAttribute("vconst")) {
+        long v;
+        try {
+          v = Long.parseLong(cmap.getAttribute("vconst"));
+        } catch (NumberFormatException e) {
+          continue;
+        }
+        map.put(key, new CircuitMapInfo(v));
+      } else if (cmap.hasAttribute("valx")
+          && cmap.hasAttribute("valy")
+          && cmap.hasAttribute("valw")
+          && cmap.hasAttribute("valh")) {
+        /* Backward compatibility: */
+        try {
+          x = Integer.parseUnsignedInt(cmap.getAttribute("valx"));
+          y = Integer.parseUnsignedInt(cmap.getAttribute("valy"));
+          w = Integer.parseUnsignedInt(cmap.getAttribute("valw"));
+          h = Integer.parseUnsignedInt(cmap.getAttribute("valh"));
+        } catch (NumberFormatException e) {
+          continue;
+        }
+        final var br = new BoardRectangle(x, y, w, h);
+        map.put(key, new CircuitMapInfo(br));
+      } else {
+        final var cmapi = MapComponent.getMapInfo(cmap);
+        if (cmapi != null)
+          map.put(key, cmapi);
+      }
+    }
+    if (!map.isEmpty()) circ.addLoadedMap(boardName, map);
+  }
 
-    considerRepairs(doc, elt);
+  LogisimFile readLibrary(InputStream is, Project proj) throws IOException, SAXException {
     final var file = new LogisimFile((Loader) loader);
     final var context = new ReadContext(file);
-
-    context.toLogisimFile(elt, proj);
+    try {
+      final var factory = XmlUtil.getHardenedInputFactory();
+      factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+      final var in = factory.createXMLStreamReader(is);
+      try {
+        in.nextTag();
+        context.toLogisimFile(in, proj);
+      } finally {
+        in.close();
+      }
+    } catch (XMLStreamException e) {
+      if (e.getCause() instanceof IOException ioException) throw ioException;
+      throw new SAXException(e);
+    }
 
     if (file.getCircuitCount() == 0) {
       file.addCircuit(new Circuit("main", file, proj));
@@ -1094,7 +1338,13 @@ class XmlReader {
     }
   }
 
-  private void repairForLegacyLibrary(Document doc, Element root) {
+  /**
+   * Removes the Legacy library from the libraries of an older file.
+   *
+   * @param root element holding the libraries
+   * @return the name the file gives the Legacy library, or null if it has none
+   */
+  private String repairForLegacyLibrary(Element root) {
     Element legacyElt = null;
     String legacyLabel = null;
     for (final var libElt : XmlIterator.forChildElements(root, "lib")) {
@@ -1108,24 +1358,34 @@ class XmlReader {
 
     if (legacyElt != null) {
       root.removeChild(legacyElt);
+    }
+    return legacyLabel;
+  }
 
-      final var toRemove = new ArrayList<Element>();
-      findLibraryUses(toRemove, legacyLabel, XmlIterator.forDescendantElements(root, "comp"));
-      var componentsRemoved = !toRemove.isEmpty();
-      findLibraryUses(toRemove, legacyLabel, XmlIterator.forDescendantElements(root, "tool"));
-      for (final var elt : toRemove) {
-        elt.getParentNode().removeChild(elt);
-      }
-      if (componentsRemoved) {
-        final var error = "Some components have been deleted. The Legacy library is not supported.";
-        final var elt = doc.createElement("message");
-        elt.setAttribute("value", error);
-        root.appendChild(elt);
-      }
+  /**
+   * Removes the comps and tools of a library from an XML tree.
+   *
+   * @return true if any comp was removed
+   */
+  private static boolean removeLibraryUses(Element root, String label) {
+    final var toRemove = new ArrayList<Element>();
+    findLibraryUses(toRemove, label, XmlIterator.forDescendantElements(root, "comp"));
+    var componentsRemoved = !toRemove.isEmpty();
+    findLibraryUses(toRemove, label, XmlIterator.forDescendantElements(root, "tool"));
+    for (final var elt : toRemove) {
+      elt.getParentNode().removeChild(elt);
     }
+    return componentsRemoved;
   }
 
-  private void repairForWiringLibrary(Document doc, Element root) {
+  /**
+   * Moves the tools of the Base library of an older file to the Wiring library.
+   *
+   * @param root element holding the libraries
+   * @return the new library of each moved tool, keyed by old library and tool name, to update the
+   *     comps and tools with; or null if the file already has a Wiring library
+   */
+  private HashMap<String, String> repairForWiringLibrary(Document doc, Element root) {
     Element oldBaseElt = null;
     String oldBaseLabel = null;
     Element gatesElt = null;
@@ -1146,7 +1406,7 @@ class XmlReader {
           case "#Wiring":
             // Wiring library already in file. This shouldn't happen, but if
             // somehow it does, we don't want to add it again.
-            return;
+            return null;
           case "#Gates":
             gatesElt = libElt;
             gatesLabel = label;
@@ -1223,8 +1483,7 @@ class XmlReader {
     relocateTools(oldBaseElt, newBaseElt, labelMap);
     relocateTools(oldBaseElt, wiringElt, labelMap);
     relocateTools(gatesElt, wiringElt, labelMap);
-    updateFromLabelMap(XmlIterator.forDescendantElements(root, "comp"), labelMap);
-    updateFromLabelMap(XmlIterator.forDescendantElements(root, "tool"), labelMap);
+    return labelMap;
   }
 
   private void updateFromLabelMap(Iterable<Element> elts, HashMap<String, String> labelMap) {
@@ -290,7 +290,7 @@ final class XmlWriter {
       if (elt != null) ret.appendChild(elt);
     }
     for (final var board : circuit.getBoardMapNamestoSave()) {
-      final var elt = fromMap(circuit, board);
+      final var elt = fromMap(doc, circuit, board);
       if (elt != null) ret.appendChild(elt);
     }
     return ret;
@@ -304,7 +304,7 @@ final class XmlWriter {
     return ret;
   }
 
-  Element fromMap(Circuit circ, String boardName) {
+  static Element fromMap(Document doc, Circuit circ, String boardName) {
     final var ret = doc.createElement("boardmap");
     ret.setAttribute("boardname", boardName);
     for (String key : circ.getMapInfo(boardName).keySet()) {
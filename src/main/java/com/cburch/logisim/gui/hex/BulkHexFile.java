@@ -0,0 +1,766 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.gui.hex;
+
+import static com.cburch.logisim.gui.Strings.S;
+
+import com.cburch.logisim.prefs.AppPreferences;
+import com.cburch.logisim.std.memory.MemContents;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Loads and saves the memory image formats that can be moved in bulk between a file channel and
+ * the pages of a MemContents: raw binary images of 8, 16, 32 or 64-bit words, Intel HEX, and the
+ * "v3.0 hex words" formats. Text files are cut at line boundaries and the pieces parsed in
+ * parallel.
+ *
+ * <p>Anything out of the ordinary for the HexFile formats, like a stray character or more words
+ * than the memory holds, is left to HexReader, so that it gets reported the same way as before.
+ * Intel HEX is only read here, and errors in it are thrown as IOExceptions.
+ */
+final class BulkHexFile {
+  static final String INTEL_HEX = "Intel HEX";
+
+  private static final String WORDS_PLAIN = "v3.0 hex words plain";
+  private static final String WORDS_ADDRESSED = "v3.0 hex words addressed";
+
+  private static final int PLAIN = 0;
+  private static final int ADDRESSED = 1;
+  private static final int INTEL = 2;
+
+  // binary images at least this large are mapped rather than read, if the preference allows it
+  private static final long MAP_THRESHOLD = 1 << 22;
+  // text is parsed in pieces of about this many bytes
+  private static final int CHUNK_SIZE = 1 << 18;
+  // words handed to MemContents at once
+  private static final int RUN_LENGTH = 4096;
+
+  private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes();
+  private static final byte[] HEX_DIGITS_UPPER = "0123456789ABCDEF".getBytes();
+  private static final byte[] HEX_VALUES = new byte[256];
+
+  static {
+    Arrays.fill(HEX_VALUES, (byte) -1);
+    for (var i = 0; i < 16; i++) {
+      HEX_VALUES[HEX_DIGITS[i]] = (byte) i;
+      HEX_VALUES[HEX_DIGITS_UPPER[i]] = (byte) i;
+    }
+  }
+
+  private BulkHexFile() {}
+
+  /**
+   * Loads src into dst if its format, given by desc or detected if desc is null, is one handled
+   * here. Returns false if the file has to go through HexReader instead.
+   */
+  static boolean open(MemContents dst, File src, String desc) throws IOException {
+    try (final var channel = FileChannel.open(src.toPath(), StandardOpenOption.READ)) {
+      final var size = channel.size();
+      if (desc != null && desc.startsWith("Binary")) {
+        return openBinary(dst, src, channel, !desc.endsWith("little-endian"));
+      }
+      if (size == 0 || size > Integer.MAX_VALUE) return false;
+      var format = -1;
+      var bigEndian = true;
+      if (desc == null) {
+        final var head = read(channel, (int) Math.min(size, 1024));
+        format = detect(head.array(), head.limit(), head.limit() == size);
+        channel.position(0);
+      } else if (desc.startsWith(INTEL_HEX)) {
+        format = INTEL;
+        bigEndian = !desc.endsWith("little-endian");
+      } else if (desc.equals(WORDS_PLAIN)) {
+        format = PLAIN;
+      } else if (desc.equals(WORDS_ADDRESSED)) {
+        format = ADDRESSED;
+      }
+      if (format < 0) return false;
+
+      final var data = read(channel, (int) size).array();
+      final var loaded = MemContents.create(dst.getLogLength(), dst.getValueWidth(), false);
+      final var ok =
+          format == INTEL ? loadIntelHex(loaded, data, bigEndian) : loadWords(loaded, data, format);
+      if (!ok) return false;
+      dst.copyFrom(0, loaded, 0, (int) (loaded.getLastOffset() + 1));
+      return true;
+    }
+  }
+
+  /**
+   * Saves src to f if desc is a format handled here. Returns false, without touching the file, if
+   * it is not.
+   */
+  static boolean save(File f, MemContents src, String desc) throws IOException {
+    final var width = src.getWidth();
+    final var handled =
+        desc.startsWith(INTEL_HEX)
+            || desc.equals(WORDS_PLAIN)
+            || desc.equals(WORDS_ADDRESSED)
+            || desc.startsWith("Binary")
+                && (width == 8 || width == 16 || width == 32 || width == 64);
+    if (!handled) return false;
+    FileChannel channel;
+    try {
+      channel =
+          FileChannel.open(
+              f.toPath(),
+              StandardOpenOption.CREATE,
+              StandardOpenOption.WRITE,
+              StandardOpenOption.TRUNCATE_EXISTING);
+    } catch (IOException e) {
+      throw new IOException(S.get("hexFileOpenError", e.getMessage()));
+    }
+    try (channel) {
+      write(channel, src, desc, src.getLastOffset());
+    } catch (IOException e) {
+      throw new IOException(S.get("hexFileWriteError", e.getMessage()));
+    }
+    return true;
+  }
+
+  /** Writes the words of src up to memEnd in one of the formats handled by save. */
+  static void write(WritableByteChannel channel, MemContents src, String desc, long memEnd)
+      throws IOException {
+    final var out = new Output(channel);
+    if (desc.startsWith(INTEL_HEX)) {
+      writeIntelHex(out, src, memEnd, !desc.endsWith("little-endian"));
+    } else if (desc.startsWith("Binary")) {
+      writeBinary(out, src, memEnd, !desc.endsWith("little-endian"));
+    } else {
+      out.put(desc);
+      out.put('\n');
+      writeWords(out, src, memEnd, desc.equals(WORDS_ADDRESSED));
+    }
+    out.flush();
+  }
+
+  private static ByteBuffer read(FileChannel channel, int size) throws IOException {
+    final var buf = ByteBuffer.allocate(size);
+    while (buf.hasRemaining() && channel.read(buf) >= 0) {
+      // keep reading
+    }
+    return buf.flip();
+  }
+
+  // Only a file starting with one of the "v3.0 hex words" headers or with an Intel HEX record is
+  // recognized, anything else goes through HexReader.detectFormatAndDecode.
+  private static int detect(byte[] head, int len, boolean whole) {
+    var pos = 0;
+    while (pos < len && isSpace(head[pos])) pos++;
+    var end = pos;
+    while (end < len && head[end] != '\n' && head[end] != '\r') end++;
+    if (pos < end && head[pos] == ':') {
+      // a record has an odd number of characters, all hex digits after the colon
+      if (end == len && !whole || (end - pos) % 2 == 0 || end - pos < 11) return -1;
+      for (var i = pos + 1; i < end; i++) {
+        if (hexValue(head[i]) < 0) return -1;
+      }
+      return INTEL;
+    }
+    final var line = new String(head, pos, end - pos).trim();
+    if (line.equals(WORDS_PLAIN)) return PLAIN;
+    if (line.equals(WORDS_ADDRESSED)) return ADDRESSED;
+    return -1;
+  }
+
+  //
+  // Binary images
+  //
+  private static boolean openBinary(
+      MemContents dst, File src, FileChannel channel, boolean bigEndian) throws IOException {
+    final var width = dst.getValueWidth();
+    if (width != 8 && width != 16 && width != 32 && width != 64) return false;
+    final var bytes = width / 8;
+    final var size = channel.size();
+    // a partial word or words past the end are for HexReader to warn about
+    if (size % bytes != 0 || size / bytes > dst.getLastOffset() + 1) return false;
+    if (size >= MAP_THRESHOLD && AppPreferences.Memory_Map_Images.getBoolean()) {
+      return dst.mapImage(src, bigEndian);
+    }
+    final var buf = read(channel, (int) size);
+    buf.order(bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+    final var loaded = MemContents.create(dst.getLogLength(), width, false);
+    final var words = new long[RUN_LENGTH];
+    for (long addr = 0; buf.hasRemaining(); ) {
+      var n = 0;
+      while (n < words.length && buf.hasRemaining()) {
+        words[n++] =
+            switch (bytes) {
+              case 1 -> buf.get() & 0xffL;
+              case 2 -> buf.getShort() & 0xffffL;
+              case 4 -> buf.getInt() & 0xffffffffL;
+              default -> buf.getLong();
+            };
+      }
+      loaded.set(addr, n == words.length ? words : Arrays.copyOf(words, n));
+      addr += n;
+    }
+    dst.copyFrom(0, loaded, 0, (int) (loaded.getLastOffset() + 1));
+    return true;
+  }
+
+  private static void writeBinary(Output out, MemContents src, long memEnd, boolean bigEndian)
+      throws IOException {
+    final var bytes = src.getWidth() / 8;
+    for (long addr = 0; addr <= memEnd; addr++) {
+      final var value = src.get(addr);
+      for (var i = 0; i < bytes; i++) {
+        out.put((int) (value >>> (8 * (bigEndian ? bytes - 1 - i : i))));
+      }
+    }
+  }
+
+  //
+  // "v3.0 hex words" formats
+  //
+  private static boolean loadWords(MemContents dst, byte[] data, int format) {
+    final var addressed = format == ADDRESSED;
+    final var chunks = parse(data, skipHeader(data), (from, to, first) -> {
+      final var chunk = new WordChunk(data, addressed);
+      return chunk.parse(from, to, first) ? chunk : null;
+    });
+    final var memEnd = dst.getLastOffset();
+    if (!addressed) {
+      long offs = 0;
+      for (final var chunk : chunks) {
+        if (chunk == null) return false;
+        offs += chunk.words.size;
+      }
+      if (offs - 1 > memEnd) return false;
+      offs = 0;
+      for (final var chunk : chunks) {
+        if (chunk.words.size == 0) continue;
+        dst.set(offs, chunk.words.toArray());
+        offs += chunk.words.size;
+      }
+      return true;
+    }
+    final var run = new WordRun(dst);
+    for (final var chunk : chunks) {
+      if (chunk == null) return false;
+      final var words = chunk.words;
+      for (var i = 0; i < words.size; ) {
+        final var addr = words.data[i++];
+        final var n = (int) words.data[i++];
+        if (addr < 0 || addr + n - 1 > memEnd) return false;
+        for (var j = 0; j < n; j++) run.add(addr + j, words.data[i++]);
+      }
+    }
+    run.flush();
+    return true;
+  }
+
+  private static void writeWords(Output out, MemContents src, long memEnd, boolean addressed)
+      throws IOException {
+    // the same layout as HexWriter.saveHexWords
+    final var digits = (src.getWidth() + 3) / 4;
+    final var addrDigits = Long.toHexString(memEnd).length();
+    final var ncol = digits == 1 ? 32 : digits <= 4 ? 16 : 8;
+    var col = 0;
+    for (long offs = 0; offs <= memEnd; offs++) {
+      if (col == 0 && addressed) {
+        out.putHex(offs, addrDigits, HEX_DIGITS);
+        out.put(':');
+        out.put(' ');
+      } else if (col != 0) {
+        out.put(' ');
+      }
+      out.putHex(src.get(offs), digits, HEX_DIGITS);
+      if (++col >= ncol) {
+        out.put('\n');
+        col = 0;
+      }
+    }
+    if (col != 0) out.put('\n');
+  }
+
+  // Returns where the data starts: after the first non-empty line if that is a header, just as
+  // HexReader.findNonemptyLine skips it.
+  private static int skipHeader(byte[] data) {
+    var pos = 0;
+    while (pos < data.length) {
+      var end = pos;
+      while (end < data.length && data[end] != '\n' && data[end] != '\r') end++;
+      for (var i = pos; i < end && data[i] != '#'; i++) {
+        if ((data[i] & 0xff) > ' ') return data[i] == 'v' ? end : pos;
+      }
+      pos = end + 1;
+    }
+    return data.length;
+  }
+
+  // The words of a piece of a file in one of the "v3.0 hex words" formats. For the plain format
+  // these are just the values, for the addressed one each line adds its address, the number of
+  // values and the values.
+  private static class WordChunk {
+    final byte[] data;
+    final boolean addressed;
+    final LongList words = new LongList();
+
+    WordChunk(byte[] data, boolean addressed) {
+      this.data = data;
+      this.addressed = addressed;
+    }
+
+    // Returns false if something in the text needs a warning from HexReader.
+    boolean parse(int from, int to, boolean first) {
+      return addressed ? parseLines(from, to, first) : parsePlain(from, to);
+    }
+
+    // The plain format does not care about lines, except that they end comments.
+    private boolean parsePlain(int from, int to) {
+      var value = 0L;
+      var length = 0;
+      for (var i = from; i < to; i++) {
+        final var c = data[i];
+        final var d = hexValue(c);
+        if (d >= 0) {
+          value = (value << 4) | d;
+          length++;
+        } else if (isSpace(c) || c == '#') {
+          if (length > 0) words.add(value);
+          value = 0;
+          length = 0;
+          if (c == '#') {
+            while (i + 1 < to && data[i + 1] != '\n' && data[i + 1] != '\r') i++;
+          }
+        } else if ((c | 0x20) == 'x' && length == 1 && value == 0) {
+          // a 0x prefix
+          length = 2;
+        } else {
+          return false;
+        }
+      }
+      if (length > 0) words.add(value);
+      return true;
+    }
+
+    private boolean parseLines(int from, int to, boolean first) {
+      var pos = from;
+      while (pos < to) {
+        var end = pos;
+        while (end < to && data[end] != '\n' && data[end] != '\r') end++;
+        var stop = pos;
+        while (stop < end && data[stop] != '#') stop++;
+        // HexReader ignores everything after two spaces, except on the first line
+        if (addressed && !first) {
+          for (var i = pos; i + 1 < stop; i++) {
+            if (data[i] == ' ' && data[i + 1] == ' ') {
+              stop = i;
+              break;
+            }
+          }
+        }
+        final var mark = words.size;
+        if (addressed) words.add(0L, 0L);
+        var count = 0;
+        var i = pos;
+        while (true) {
+          while (i < stop && isSpace(data[i])) i++;
+          if (i >= stop) break;
+          final var start = i;
+          while (i < stop && !isSpace(data[i])) i++;
+          if (addressed && count == 0) {
+            if (!parseAddress(start, i, mark)) return false;
+          } else if (addressed && count == 1 && isSeparateColon(start, i)) {
+            // a separate colon after the address
+          } else {
+            final var value = parseWord(start, i);
+            if (bad) return false;
+            words.add(value);
+          }
+          count++;
+        }
+        if (count > 0) {
+          first = false;
+          if (addressed) words.data[mark + 1] = words.size - mark - 2;
+        } else {
+          words.size = mark;
+        }
+        pos = end + 1;
+      }
+      return true;
+    }
+
+    private boolean colonAfterAddress;
+
+    private boolean parseAddress(int start, int end, int mark) {
+      colonAfterAddress = data[end - 1] == ':';
+      if (colonAfterAddress) end--;
+      if (end - start >= 2 && data[start] == '0' && (data[start + 1] | 0x20) == 'x') start += 2;
+      var addr = 0L;
+      for (var i = start; i < end; i++) {
+        final var d = hexValue(data[i]);
+        if (d < 0) return false;
+        addr = (addr << 4) + d;
+      }
+      words.data[mark] = addr;
+      return true;
+    }
+
+    private boolean isSeparateColon(int start, int end) {
+      return !colonAfterAddress && end - start == 1 && data[start] == ':';
+    }
+
+    private boolean bad;
+
+    // Sets bad if the word is not a hex number.
+    private long parseWord(int start, int end) {
+      if (end - start >= 2 && data[start] == '0' && (data[start + 1] | 0x20) == 'x') start += 2;
+      var value = 0L;
+      for (var i = start; i < end; i++) {
+        final var d = hexValue(data[i]);
+        bad |= d < 0;
+        value = (value << 4) | d;
+      }
+      return value;
+    }
+  }
+
+  //
+  // Intel HEX
+  //
+  private static boolean loadIntelHex(MemContents dst, byte[] data, boolean bigEndian)
+      throws IOException {
+    final var chunks = parse(data, 0, (from, to, first) -> new IntelChunk(data).parse(from, to));
+    final var run = new ByteRun(dst, bigEndian);
+    var base = 0L;
+    for (final var chunk : chunks) {
+      if (chunk.error != null) {
+        var line = 1;
+        for (var i = 0; i < chunk.errorPos; i++) {
+          if (data[i] == '\n') line++;
+        }
+        throw new IOException(String.format("Intel HEX line %d: %s", line, chunk.error));
+      }
+      for (var r = 0; r < chunk.records.size; r += 4) {
+        final var baseIndex = (int) chunk.records.data[r];
+        final var recordBase = baseIndex == 0 ? base : chunk.bases.data[baseIndex - 1];
+        final var addr = recordBase + chunk.records.data[r + 1];
+        final var offs = (int) chunk.records.data[r + 2];
+        final var len = (int) chunk.records.data[r + 3];
+        for (var i = 0; i < len; i++) run.add(addr + i, chunk.bytes.data[offs + i]);
+      }
+      if (chunk.bases.size > 0) base = chunk.bases.data[chunk.bases.size - 1];
+      if (chunk.eof) break;
+    }
+    run.flush();
+    return true;
+  }
+
+  private static void writeIntelHex(Output out, MemContents src, long memEnd, boolean bigEndian)
+      throws IOException {
+    final var bytes = (src.getWidth() + 7) / 8;
+    final var record = new byte[16];
+    var upper = 0L;
+    var pos = 0L;
+    var n = 0;
+    var nonZero = false;
+    for (long addr = 0; addr <= memEnd; addr++) {
+      final var value = src.get(addr);
+      for (var i = 0; i < bytes; i++) {
+        final var b = (byte) (value >>> (8 * (bigEndian ? bytes - 1 - i : i)));
+        nonZero |= b != 0;
+        record[n++] = b;
+        if (n == record.length || addr == memEnd && i == bytes - 1) {
+          // all-zero records are left out, memory is cleared before loading anyway
+          if (nonZero) {
+            if (pos >>> 16 != upper) {
+              upper = pos >>> 16;
+              writeIntelRecord(out, 4, 0, new byte[] {(byte) (upper >>> 8), (byte) upper}, 2);
+            }
+            writeIntelRecord(out, 0, (int) pos & 0xffff, record, n);
+          }
+          pos += n;
+          n = 0;
+          nonZero = false;
+        }
+      }
+    }
+    writeIntelRecord(out, 1, 0, record, 0);
+  }
+
+  private static void writeIntelRecord(Output out, int type, int addr, byte[] data, int len)
+      throws IOException {
+    var sum = len + (addr >>> 8) + addr + type;
+    out.put(':');
+    out.putHex(len, 2, HEX_DIGITS_UPPER);
+    out.putHex(addr, 4, HEX_DIGITS_UPPER);
+    out.putHex(type, 2, HEX_DIGITS_UPPER);
+    for (var i = 0; i < len; i++) {
+      out.putHex(data[i], 2, HEX_DIGITS_UPPER);
+      sum += data[i];
+    }
+    out.putHex(-sum, 2, HEX_DIGITS_UPPER);
+    out.put('\n');
+  }
+
+  // The records of a piece of an Intel HEX file. Each data record is kept as four numbers: the
+  // base address it uses (0 for the one in effect at the start of the piece, else the index of
+  // the extended address record in bases plus one), its offset to that base, and where and how
+  // many of its bytes are in bytes.
+  private static class IntelChunk {
+    final byte[] data;
+    final LongList records = new LongList();
+    final LongList bases = new LongList();
+    final ByteList bytes = new ByteList();
+    boolean eof;
+    String error;
+    int errorPos;
+
+    IntelChunk(byte[] data) {
+      this.data = data;
+    }
+
+    IntelChunk parse(int from, int to) {
+      var pos = from;
+      while (pos < to && !eof && error == null) {
+        var end = pos;
+        while (end < to && data[end] != '\n' && data[end] != '\r') end++;
+        var start = pos;
+        var stop = end;
+        while (start < stop && (data[start] & 0xff) <= ' ') start++;
+        while (stop > start && (data[stop - 1] & 0xff) <= ' ') stop--;
+        if (start < stop) parseRecord(start, stop);
+        pos = end + 1;
+      }
+      return this;
+    }
+
+    private void fail(int pos, String msg) {
+      error = msg;
+      errorPos = pos;
+    }
+
+    private void parseRecord(int start, int stop) {
+      if (data[start] != ':') {
+        fail(start, "record does not start with ':'.");
+        return;
+      }
+      if ((stop - start) % 2 == 0 || stop - start < 11) {
+        fail(start, "record has an invalid length.");
+        return;
+      }
+      final var offs = bytes.size;
+      var sum = 0;
+      for (var i = start + 1; i < stop; i += 2) {
+        final var hi = hexValue(data[i]);
+        final var lo = hexValue(data[i + 1]);
+        if (hi < 0 || lo < 0) {
+          fail(start, "record contains non-hex characters.");
+          bytes.size = offs;
+          return;
+        }
+        bytes.add((byte) (hi << 4 | lo));
+        sum += hi << 4 | lo;
+      }
+      final var b = bytes.data;
+      final var len = b[offs] & 0xff;
+      final var addr = (b[offs + 1] & 0xff) << 8 | b[offs + 2] & 0xff;
+      final var type = b[offs + 3] & 0xff;
+      bytes.size = offs;
+      if (len != (stop - start - 11) / 2) {
+        fail(start, "record length does not match its byte count.");
+      } else if ((sum & 0xff) != 0) {
+        fail(start, "record checksum mismatch.");
+      } else if (type == 0) {
+        // keep just the data bytes
+        System.arraycopy(b, offs + 4, b, offs, len);
+        bytes.size = offs + len;
+        records.add(bases.size, addr);
+        records.add(offs, len);
+      } else if (type == 1) {
+        eof = true;
+      } else if (type == 2 || type == 4) {
+        if (len != 2) {
+          fail(start, "extended address record must hold two bytes.");
+          return;
+        }
+        final var value = (b[offs + 4] & 0xffL) << 8 | b[offs + 5] & 0xffL;
+        bases.add(type == 2 ? value << 4 : value << 16);
+      } else if (type != 3 && type != 5) {
+        fail(start, "unsupported record type " + type + ".");
+      }
+    }
+  }
+
+  //
+  // helpers
+  //
+  private interface ChunkParser<T> {
+    T parse(int from, int to, boolean first);
+  }
+
+  // Cuts data from the given position into pieces at line ends and parses them on the common pool.
+  private static <T> ArrayList<T> parse(byte[] data, int from, ChunkParser<T> parser) {
+    final var tasks = new ArrayList<ForkJoinTask<T>>();
+    var start = from;
+    while (start < data.length) {
+      var end = Math.min(data.length, start + CHUNK_SIZE);
+      while (end < data.length && data[end - 1] != '\n' && data[end - 1] != '\r') end++;
+      final var a = start;
+      final var b = end;
+      final var first = start == from;
+      tasks.add(ForkJoinPool.commonPool().submit(() -> parser.parse(a, b, first)));
+      start = end;
+    }
+    final var results = new ArrayList<T>();
+    for (final var task : tasks) results.add(task.join());
+    return results;
+  }
+
+  private static boolean isSpace(byte c) {
+    // the characters matched by \s, as used by HexReader to split words
+    return c == ' ' || c == '\t' || c == '\n' || c == 0x0b || c == '\f' || c == '\r';
+  }
+
+  private static int hexValue(byte c) {
+    return HEX_VALUES[c & 0xff];
+  }
+
+  private static class LongList {
+    long[] data = new long[1024];
+    int size;
+
+    void add(long value) {
+      if (size == data.length) data = Arrays.copyOf(data, 2 * size);
+      data[size++] = value;
+    }
+
+    void add(long a, long b) {
+      add(a);
+      add(b);
+    }
+
+    long[] toArray() {
+      return Arrays.copyOf(data, size);
+    }
+  }
+
+  private static class ByteList {
+    byte[] data = new byte[4096];
+    int size;
+
+    void add(byte value) {
+      if (size == data.length) data = Arrays.copyOf(data, 2 * size);
+      data[size++] = value;
+    }
+  }
+
+  // Collects consecutive words so they are stored a page at a time.
+  private static class WordRun {
+    final MemContents dst;
+    final long[] words = new long[RUN_LENGTH];
+    long start;
+    int size;
+
+    WordRun(MemContents dst) {
+      this.dst = dst;
+    }
+
+    void add(long addr, long value) {
+      if (size > 0 && (addr != start + size || size == words.length)) flush();
+      if (size == 0) start = addr;
+      words[size++] = value;
+    }
+
+    void flush() {
+      if (size > 0) dst.set(start, Arrays.copyOf(words, size));
+      size = 0;
+    }
+  }
+
+  // Collects consecutive bytes and stores them as words of (width + 7) / 8 bytes each.
+  private static class ByteRun {
+    final MemContents dst;
+    final int wordBytes;
+    final boolean bigEndian;
+    final byte[] bytes;
+    long start;
+    int size;
+
+    ByteRun(MemContents dst, boolean bigEndian) {
+      this.dst = dst;
+      this.wordBytes = (dst.getWidth() + 7) / 8;
+      this.bigEndian = bigEndian;
+      this.bytes = new byte[RUN_LENGTH * wordBytes];
+    }
+
+    void add(long addr, byte value) throws IOException {
+      if (size > 0 && (addr != start + size || size == bytes.length)) flush();
+      if (size == 0) start = addr;
+      bytes[size++] = value;
+    }
+
+    void flush() throws IOException {
+      if (size == 0) return;
+      final var first = start / wordBytes;
+      final var last = (start + size - 1) / wordBytes;
+      if (last > dst.getLastOffset()) {
+        throw new IOException(
+            String.format(
+                "Intel HEX data at byte address 0x%x is beyond the end of memory.",
+                start + size - 1));
+      }
+      final var words = new long[(int) (last - first + 1)];
+      // words only partly covered keep their other bytes
+      if (start % wordBytes != 0) words[0] = dst.get(first);
+      if ((start + size) % wordBytes != 0) words[words.length - 1] = dst.get(last);
+      for (var i = 0; i < size; i++) {
+        final var pos = start + i;
+        final var k = (int) (pos / wordBytes - first);
+        final var index = (int) (pos % wordBytes);
+        final var shift = 8 * (bigEndian ? wordBytes - 1 - index : index);
+        words[k] = words[k] & ~(0xffL << shift) | (bytes[i] & 0xffL) << shift;
+      }
+      dst.set(first, words);
+      size = 0;
+    }
+  }
+
+  // Buffers output for a channel.
+  private static class Output {
+    final WritableByteChannel channel;
+    final ByteBuffer buf = ByteBuffer.allocate(1 << 16);
+
+    Output(WritableByteChannel channel) {
+      this.channel = channel;
+    }
+
+    void put(int c) throws IOException {
+      if (!buf.hasRemaining()) flush();
+      buf.put((byte) c);
+    }
+
+    void put(String s) throws IOException {
+      for (var i = 0; i < s.length(); i++) put(s.charAt(i));
+    }
+
+    void putHex(long value, int digits, byte[] hex) throws IOException {
+      for (var i = digits - 1; i >= 0; i--) put(hex[(int) (value >>> (4 * i)) & 0xf]);
+    }
+
+    void flush() throws IOException {
+      buf.flip();
+      while (buf.hasRemaining()) channel.write(buf);
+      buf.clear();
+    }
+  }
+}
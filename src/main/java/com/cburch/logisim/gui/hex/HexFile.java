@@ -34,6 +34,7 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -43,6 +44,7 @@ import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.math.BigInteger;
+import java.nio.channels.Channels;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -154,6 +156,15 @@ public class HexFile {
   // guess you could make weird emoji comments if you want, since they will be
   // ignored like all other non-ascii printable bytes.
 
+  // Intel HEX [big-endian|little-endian] -- The records produced by most
+  // toolchains (objcopy -O ihex), with byte addresses. Each memory word takes
+  // (width + 7) / 8 bytes, with the first byte in the most significant bits of
+  // the word for big-endian and in the least significant ones for
+  // little-endian. Records with types 00, 01, 02 and 04 are used, 03 and 05 are
+  // ignored. Files starting with a record are detected, as big-endian. See
+  // BulkHexFile, which also handles "Binary" images of 8, 16, 32 or 64-bit
+  // words and the "v3.0 hex words" styles without going through HexReader.
+
   // Big-endian conversion works like this.
   // If we have 3-bit words, then the first 7 bytes
   // corresponds to around 7*8/3 = 18.6 words like so:
@@ -225,7 +236,9 @@ public class HexFile {
     "Binary data big-endian", // no header
     "Binary data little-endian", // no header
     "ASCII bytes, with escapes, big-endian", // no header
-    "ASCII bytes, with escapes, little-endian" // no header
+    "ASCII bytes, with escapes, little-endian", // no header
+    "Intel HEX big-endian", // no header
+    "Intel HEX little-endian" // no header
   };
 
   private HexFile() {}
@@ -257,6 +270,7 @@ public class HexFile {
   }
 
   protected static boolean open(MemContents dst, File src, String desc) throws IOException {
+    if (BulkHexFile.open(dst, src, desc)) return true;
     final var in = BufferedLineReader.forFile(src);
     try {
       final var r = new HexReader(in, dst.getLogLength(), dst.getValueWidth());
@@ -337,6 +351,9 @@ public class HexFile {
   }
 
   public static void save(File f, MemContents src, String desc) throws IOException {
+    // src, or another memory, may still be reading the image from the file about to be truncated
+    MemContents.releaseImage(f);
+    if (BulkHexFile.save(f, src, desc)) return;
     OutputStream out;
     try {
       out = new FileOutputStream(f);
@@ -360,6 +377,13 @@ public class HexFile {
       final var out = new StringWriter();
       OutputStream stream;
       if (desc == null) desc = "v2.0 raw";
+      if (desc.startsWith(BulkHexFile.INTEL_HEX)) {
+        final var bytes = new ByteArrayOutputStream();
+        final var end = src.getLastOffset();
+        final var memEnd = limit > 0 ? Math.min(limit - 1, end) : end;
+        BulkHexFile.write(Channels.newChannel(bytes), src, desc, memEnd);
+        return bytes.toString(StandardCharsets.US_ASCII);
+      }
       if (desc.startsWith("Binary")) stream = new OutputStreamBinarySanitizer(out);
       else stream = new OutputStreamEscaper(out, true, 0);
       final var w = new HexWriter(stream, src, desc);
@@ -389,6 +413,7 @@ public class HexFile {
 
   private static String headerForFormat(String desc) {
     if (desc.startsWith("Binary") || desc.startsWith("ASCII")) return "";
+    else if (desc.startsWith(BulkHexFile.INTEL_HEX)) return "";
     else if (desc.startsWith("v2.0 raw")) return "v2.0 raw\n";
     else return desc + "\n";
   }
@@ -91,6 +91,11 @@ public class LogFrame extends LFrame.SubWindowWithSimulation {
       return curModel.isFine();
     }
 
+    @Override
+    public boolean wantEveryTick() {
+      return true;
+    }
+
     @Override
     public void propagationInProgress(Simulator.Event e) {
       curModel.propagationCompleted(false, true, false); // treat as a single-step
@@ -20,18 +20,55 @@ public class Signal {
 
   private static final int CHUNK = 512;
 
+  /**
+   * A block of consecutive values, kept in primitive arrays. Instead of its duration, each value
+   * has the time at which it ends, so that these times are sorted and can be searched. The
+   * unknown and error bits are only allocated once a value in the block has some.
+   */
+  private static final class Chunk {
+    final byte[] width = new byte[CHUNK];
+    final long[] bits = new long[CHUNK];
+    final long[] end = new long[CHUNK];
+    long[] unknown;
+    long[] error;
+    int start; // the first value still in use
+    int size; // the number of values filled in
+
+    void set(int i, Value v, long end) {
+      width[i] = (byte) v.getWidth();
+      bits[i] = v.getValueBits();
+      this.end[i] = end;
+      final var u = v.getUnknownBits();
+      final var e = v.getErrorBits();
+      if (u != 0 && unknown == null) unknown = new long[CHUNK];
+      if (e != 0 && error == null) error = new long[CHUNK];
+      if (unknown != null) unknown[i] = u;
+      if (error != null) error[i] = e;
+    }
+
+    boolean equals(int i, Value v) {
+      return width[i] == v.getWidth()
+          && bits[i] == v.getValueBits()
+          && (unknown == null ? 0 : unknown[i]) == v.getUnknownBits()
+          && (error == null ? 0 : error[i]) == v.getErrorBits();
+    }
+
+    Value get(int i, int newWidth) { // extended or cut to newWidth, as by Value.extendWidth
+      return Value.create(
+          newWidth, error == null ? 0 : error[i], unknown == null ? 0 : unknown[i], bits[i]);
+    }
+  }
+
   // Signal position in list, name, etc.
   public int idx;
   public final SignalInfo info;
 
   // Signal data
   private long timeStart;
-  private Value[][] val; // values, in blocks no larger than CHUNK
-  private Value last;
-  private long[][] dur; // duration of each value
+  private final ArrayList<Chunk> chunks = new ArrayList<>(); // only the first and last are partly used
   private int curSize;
   private int maxSize; // limit, or zero for unlimited
-  private short firstIndex; // for wrapping, only when limited
+  private long firstSeq; // number of the oldest value kept, counting all values ever added
 
   public Signal(
       int idx, SignalInfo info, Value initialValue, long duration, long timeStart, int maxSize) {
@@ -39,10 +76,7 @@ public class Signal {
     this.info = info;
     this.timeStart = timeStart;
     this.maxSize = maxSize;
-    this.val = new Value[1][maxSize == 0 || maxSize > CHUNK ? CHUNK : maxSize];
-    this.dur = new long[1][maxSize == 0 || maxSize > CHUNK ? CHUNK : maxSize];
     this.curSize = 0;
-    this.firstIndex = 0;
     extend(initialValue, duration);
   }
 
@@ -51,20 +85,78 @@ public class Signal {
   }
 
   public long getEndTime() {
-    var t = timeStart;
-    for (var p = 0; p < curSize; p++) {
-      var i = (firstIndex + p) % curSize;
-      t += dur[i / CHUNK][i % CHUNK];
+    if (curSize == 0) return timeStart;
+    final var c = chunks.get(chunks.size() - 1);
+    return c.end[c.size - 1];
+  }
+
+  // the chunk holding the value at position p, counted from the oldest value kept
+  private int chunkIndex(int p) {
+    final var first = chunks.get(0);
+    final var n = first.size - first.start;
+    return p < n ? 0 : 1 + (p - n) / CHUNK;
+  }
+
+  private int slot(int p) {
+    final var first = chunks.get(0);
+    final var n = first.size - first.start;
+    return p < n ? first.start + p : (p - n) % CHUNK;
+  }
+
+  private long endAt(int p) {
+    return chunks.get(chunkIndex(p)).end[slot(p)];
+  }
+
+  private long startAt(int p) {
+    return p == 0 ? timeStart : endAt(p - 1);
+  }
+
+  private Value valueAt(int p) { // always current width, even when width changes
+    return chunks.get(chunkIndex(p)).get(slot(p), info.getWidth());
+  }
+
+  /** Returns the position of the first value ending after t, which must be before the end time. */
+  private int search(long t) {
+    var lo = 0;
+    var hi = chunks.size() - 1;
+    while (lo < hi) {
+      final var mid = (lo + hi) >>> 1;
+      final var c = chunks.get(mid);
+      if (c.end[c.size - 1] > t) hi = mid;
+      else lo = mid + 1;
+    }
+    final var c = chunks.get(lo);
+    var i = c.start;
+    var j = c.size - 1;
+    while (i < j) {
+      final var mid = (i + j) >>> 1;
+      if (c.end[mid] > t) j = mid;
+      else i = mid + 1;
+    }
+    final var first = chunks.get(0);
+    return lo == 0 ? i - first.start : first.size - first.start + (lo - 1) * CHUNK + i;
+  }
+
+  // drops the oldest values, moving the start time to the end of the last one dropped
+  private void discard(int amt) {
+    curSize -= amt;
+    firstSeq += amt;
+    while (amt > 0) {
+      final var c = chunks.get(0);
+      final var n = Math.min(amt, c.size - c.start);
+      c.start += n;
+      amt -= n;
+      timeStart = c.end[c.start - 1];
+      if (c.start == c.size) chunks.remove(0);
     }
-    return t;
   }
 
   public void extend(long duration) {
-    if (last == null) {
+    if (curSize == 0) {
       timeStart += duration;
     } else {
-      final var i = (firstIndex + curSize - 1) % curSize;
-      dur[i / CHUNK][i % CHUNK] += duration;
+      final var c = chunks.get(chunks.size() - 1);
+      c.end[c.size - 1] += duration;
     }
   }
 
@@ -73,168 +165,71 @@ public class Signal {
       System.out.printf(
           "*** notice: value width mismatch for %s: width=%d bits, newVal=%s (%d bits)\n",
           info, info.getWidth(), v, v.getWidth());
-    if (last != null && last.equals(v)) {
-      final var i = (firstIndex + curSize - 1) % curSize;
-      dur[i / CHUNK][i % CHUNK] += duration;
-      return;
+    if (curSize > 0) {
+      final var c = chunks.get(chunks.size() - 1);
+      if (c.equals(c.size - 1, v)) {
+        c.end[c.size - 1] += duration;
+        return;
+      }
     }
-    last = v;
-    final var c = val.length;
-    final var cap = CHUNK * (c - 1) + val[c - 1].length;
-    if (curSize < cap) {
-      // fits in an existing chunk
-      val[curSize / CHUNK][curSize % CHUNK] = v;
-      dur[curSize / CHUNK][curSize % CHUNK] = duration;
-      curSize++;
-    } else if (curSize < maxSize || maxSize <= 0) {
-      // allocate another chunk
-      final var val2 = new Value[c + 1][];
-      final var dur2 = new long[c + 1][];
-      System.arraycopy(val, 0, val2, 0, c);
-      System.arraycopy(dur, 0, dur2, 0, c);
-      val2[c + 1] = new Value[maxSize == 0 || (maxSize - cap) > CHUNK ? CHUNK : (maxSize - cap)];
-      dur2[c + 1] = new long[maxSize == 0 || (maxSize - cap) > CHUNK ? CHUNK : (maxSize - cap)];
-      val = val2;
-      dur = dur2;
-      val[curSize / CHUNK][curSize % CHUNK] = v;
-      dur[curSize / CHUNK][curSize % CHUNK] = duration;
-      curSize++;
-    } else {
-      // limited size is filled, wrap around, and adjust start offset
-      timeStart += dur[firstIndex / CHUNK][firstIndex % CHUNK];
-      val[firstIndex / CHUNK][firstIndex % CHUNK] = v;
-      dur[firstIndex / CHUNK][firstIndex % CHUNK] = duration;
-      firstIndex++;
-      if (firstIndex >= maxSize) firstIndex = 0;
+    // limited size is filled: drop the oldest value, which adjusts the start time
+    if (maxSize > 0 && curSize >= maxSize) discard(curSize - maxSize + 1);
+    final var end = getEndTime() + duration;
+    var c = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+    if (c == null || c.size == CHUNK) {
+      c = new Chunk();
+      chunks.add(c);
     }
+    c.set(c.size++, v, end);
+    curSize++;
   }
 
   public void replaceRecent(Value v, long duration) {
-    if (last == null || curSize == 0)
+    if (curSize == 0)
       throw new IllegalStateException("signal should have at least " + duration + " ns of data");
-    final var i = (firstIndex + curSize - 1) % curSize;
-    if (dur[i / CHUNK][i % CHUNK] == duration) {
-      val[i / CHUNK][i % CHUNK] = v;
-      last = v;
-      final var j = (i + curSize - 1) % curSize;
-      if (curSize > 1 && val[j / CHUNK][j % CHUNK].equals(v)) {
-        dur[j / CHUNK][j % CHUNK] += duration;
+    final var c = chunks.get(chunks.size() - 1);
+    final var i = c.size - 1;
+    final var end = c.end[i];
+    final var d = end - startAt(curSize - 1);
+    if (d == duration) {
+      if (curSize > 1 && chunks.get(chunkIndex(curSize - 2)).equals(slot(curSize - 2), v)) {
+        // same as the value before it: merge them
+        c.size--;
+        if (c.size == c.start) chunks.remove(chunks.size() - 1);
         curSize--;
-        // special case: last chunk is now entirely empty, must be removed
-        if (i % CHUNK == 0) {
-          int c = val.length - 1;
-          final var valueNew = new Value[c][];
-          final var durNew = new long[c][];
-          System.arraycopy(val, 0, valueNew, 0, c);
-          System.arraycopy(dur, 0, durNew, 0, c);
-          val = valueNew;
-          dur = durNew;
-        }
+        final var prev = chunks.get(chunks.size() - 1);
+        prev.end[prev.size - 1] = end;
+      } else {
+        c.set(i, v, end);
       }
-    } else if (dur[i / CHUNK][i % CHUNK] > duration) {
-      dur[i / CHUNK][i % CHUNK] -= duration;
+    } else if (d > duration) {
+      c.end[i] -= duration;
       extend(v, duration);
-    } else if (curSize == 1 && dur[i / CHUNK][i % CHUNK] + timeStart >= duration) {
-      timeStart -= (duration - dur[i / CHUNK][i % CHUNK]);
-      val[i / CHUNK][i % CHUNK] = v;
-      dur[i / CHUNK][i % CHUNK] = duration;
-      last = v;
+    } else if (curSize == 1 && end >= duration) {
+      timeStart = end - duration;
+      c.set(i, v, end);
     } else {
       throw new IllegalStateException(
           "signal data should be at least "
               + duration
               + " ns in duration,"
               + " but only "
-              + dur[i / CHUNK][i % CHUNK]
+              + d
               + " in last signal");
     }
   }
 
-  private void retainOnly(int offset, int amt, int cap) {
-    // shift all values [from offset to offset+amt] left into new arrays
-    // of size appropriate for eventual capacity cap
-    final var c = (amt + CHUNK - 1) / CHUNK;
-    final var last = cap == 0 ? CHUNK : Math.min(CHUNK, cap - (c - 1) * CHUNK);
-    final var v = new Value[c][];
-    final var d = new long[c][];
-    for (var i = 0; i < c; i++) {
-      v[i] = new Value[i < c - 1 ? CHUNK : last];
-      d[i] = new long[i < c - 1 ? CHUNK : last];
-    }
-    for (var p = 0; p < amt; p++) {
-      int i = (firstIndex + offset + p) % curSize;
-      v[p / CHUNK][p % CHUNK] = val[i / CHUNK][i % CHUNK];
-      d[p / CHUNK][p % CHUNK] = dur[i / CHUNK][i % CHUNK];
-    }
-    val = v;
-    dur = d;
-    firstIndex = 0;
-    curSize = amt;
-  }
-
   public void resize(int newMaxSize) {
     if (newMaxSize == maxSize) return;
-    if (newMaxSize == 0 || newMaxSize > maxSize) {
-      // growing
-      if (firstIndex != 0) retainOnly(0, curSize, newMaxSize); // keeps all data, but shifts it left
-    } else {
-      // shrinking: newMaxSize < maxSize
-      if (curSize <= newMaxSize) {
-        // Mostly empty, keep all data, but maybe truncate last chunk if needed
-        // to get capacity below new max size.
-        // Note: firstIndex must be 0, since otherwize curSize==maxSize,
-        // and that would mean curSize > newMaxSize.
-        // There are two cases:
-        //  very unfull:
-        //    cap -----------------------------------------------|
-        //    curSize --------------------------|
-        //    [ 0+ full large-chunks ] [ partly full large-chunk ] [ not yet allocated... ]
-        //  nearly full:
-        //    cap ---------------------------------------------|
-        //    curSize -------------------------|
-        //    [ 0+ full large-chunks ] [ partly full end-chunk ]
-        // In the very unfull case, we may be able to do nothing at all
-        // (if cap <= newMaxSize), or we may have to shrink that last allocated
-        // chunk (if cap > newMaxSize).
-        // In the nearly full case, cap > newMaxSize and we need to shrink the
-        // last allocated chunk.
-        final var c = val.length;
-        final var cap = CHUNK * (c - 1) + val[c - 1].length;
-        if (cap > newMaxSize) {
-          // Note: # of existing chunks (c) must be equal to # of new chunks
-          final var last = Math.min(CHUNK, newMaxSize - (c - 1) * CHUNK);
-          final var v = new Value[last];
-          final var d = new long[last];
-          System.arraycopy(val[c - 1], 0, v, 0, last);
-          System.arraycopy(dur[c - 1], 0, d, 0, last);
-          val[c - 1] = v;
-          dur[c - 1] = d;
-        }
-      } else { // curSize > newMaxSize
-        // too much data, keep only most recent data and shift it left
-        final var discard = (maxSize - newMaxSize);
-        for (var p = 0; p < discard; p++) {
-          final var i = (firstIndex + p) % curSize;
-          timeStart += dur[i / CHUNK][i % CHUNK];
-        }
-        retainOnly(discard, newMaxSize, newMaxSize);
-      }
-    }
+    // growing keeps all data; when shrinking only the most recent data is kept
+    if (newMaxSize > 0 && curSize > newMaxSize) discard(curSize - newMaxSize);
     maxSize = newMaxSize;
   }
 
   public void reset(Value v, long duration) {
-    if (val.length > 1) {
-      final var val2 = new Value[1][];
-      final var dur2 = new long[1][];
-      val2[0] = val[0];
-      dur2[0] = dur[0];
-      val = val2;
-      dur = dur2;
-    }
-    last = null;
+    chunks.clear();
+    firstSeq += curSize;
     curSize = 0;
-    firstIndex = 0;
     extend(v, duration);
   }
 
@@ -244,14 +239,10 @@ public class Signal {
     public long time;
     public long duration;
     public Value value;
+    private long seq; // number of the current value, see firstSeq
 
     public Iterator() {
-      position = 0;
-      time = timeStart;
-      final var i = firstIndex;
-      final var width = info.getWidth();
-      value = val[i / CHUNK][i % CHUNK].extendWidth(width, Value.FALSE);
-      duration = dur[i / CHUNK][i % CHUNK];
+      moveTo(0, timeStart);
     }
 
     public Iterator(long t) {
@@ -259,22 +250,32 @@ public class Signal {
       if (t > time) advance(t - time);
     }
 
+    private void moveTo(int p, long t) {
+      position = p;
+      seq = firstSeq + p;
+      time = t;
+      value = valueAt(p);
+      duration = endAt(p) - t;
+    }
+
+    // the state after running past the last value
+    private boolean moveToEnd() {
+      position = curSize - 1;
+      seq = firstSeq + position;
+      time = startAt(position);
+      value = null;
+      duration = 0;
+      return false;
+    }
+
     public String getFormattedValue() {
       return value == null ? "-" : info.format(value);
     }
 
     public boolean advance() {
-      if (position == curSize - 1) {
-        value = null;
-        duration = 0;
-        return false;
-      }
-      position++;
-      time += duration;
-      final var i = (firstIndex + position) % curSize;
-      final var width = info.getWidth();
-      value = val[i / CHUNK][i % CHUNK].extendWidth(width, Value.FALSE);
-      duration = dur[i / CHUNK][i % CHUNK];
+      final var p = (int) Math.max(seq - firstSeq + 1, 0);
+      if (p >= curSize) return moveToEnd();
+      moveTo(p, startAt(p));
       return true;
     }
 
@@ -282,29 +283,26 @@ public class Signal {
       if (value == null) return false;
       if (timeFwd <= 0) return true;
       final var t = time + timeFwd;
-      while (t >= time + duration) {
-        if (!advance()) return false;
+      // the current value may have been extended since it was reached
+      final var p = (int) (seq - firstSeq);
+      if (p >= 0 && p < curSize) duration = endAt(p) - time;
+      if (t < time + duration) {
+        duration -= timeFwd;
+        time = t;
+      } else if (t < getEndTime()) {
+        // values dropped meanwhile are skipped
+        final var tt = Math.max(t, timeStart);
+        moveTo(search(tt), tt);
+      } else {
+        return moveToEnd();
       }
-      // postcondition: t < time + duration
-      //                t - time < duration
-      duration -= (t - time);
-      time = t;
       return true;
     }
   }
 
-  // TODO: easily optimized
   public Value getValue(long t) { // always current width, even when width changes
-    if (t < timeStart) return null;
-    final var width = info.getWidth();
-    var tt = timeStart;
-    for (int p = 0; p < curSize; p++) {
-      final var i = (firstIndex + p) % curSize;
-      final var d = dur[i / CHUNK][i % CHUNK];
-      if (t < tt + d) return val[i / CHUNK][i % CHUNK].extendWidth(width, Value.FALSE);
-      tt += d;
-    }
-    return null;
+    if (t < timeStart || t >= getEndTime()) return null;
+    return valueAt(search(t));
   }
 
   public String getFormattedValue(long t) {
@@ -27,7 +27,6 @@ public class TickCounter implements Simulator.Listener {
   static final int NANOSECONDS_PER_SECONDS = 1_000_000_000;
   static final int UNIT_UPDATE_THRESHOLD_NANOSECONDS = NANOSECONDS_PER_SECONDS / 2;
   static final int TICKS_THRESHOLD_BEFORE_HISTORY_WEIGHT_REDUCTION = 1000;
-  static final int WEIGHT_REDUCTION_TICKS_COUNT = TICKS_THRESHOLD_BEFORE_HISTORY_WEIGHT_REDUCTION / 2;
 
   public TickCounter() {
     clear();
@@ -38,7 +37,7 @@ public class TickCounter implements Simulator.Listener {
   public void clear() {
     // If we know the requested frequency, let's initialize the counts to this frequency.
     // It provides a nicer effect at low frequencies, and doesn't hurt at high frequencies.
-    if (simulator != null) {
+    if (simulator != null && !simulator.isMaxSpeed()) {
       final var tickPeriodNanoseconds = NANOSECONDS_PER_SECONDS / simulator.getTickFrequency();
       tickCount = 12; // We'll set the frequency as if it happened during 12 ticks already.
       startTime = System.nanoTime() - (long) (tickCount * tickPeriodNanoseconds);
@@ -54,7 +53,7 @@ public class TickCounter implements Simulator.Listener {
       return "";
     }
 
-    final var currentFrequency = simulator.getTickFrequency();
+    final var currentFrequency = simulator.isMaxSpeed() ? 0.0 : simulator.getTickFrequency();
 
     // Reset history when the user changes the desired simulation frequency.
     if (previousFrequency != currentFrequency) {
@@ -84,10 +83,12 @@ public class TickCounter implements Simulator.Listener {
       elapsedTimeSinceLastUnitUpdate = 0;
     }
 
-    // If we accumulated a lot of ticks then lets reduce the weight of the past.
+    // If we accumulated a lot of ticks then lets reduce the weight of the past. Ticks arrive in
+    // batches of thousands at high speed, so we drop half of the history rather than a fixed count.
     if (tickCount > TICKS_THRESHOLD_BEFORE_HISTORY_WEIGHT_REDUCTION) {
-      tickCount -= WEIGHT_REDUCTION_TICKS_COUNT;
-      final var nanoseconds = WEIGHT_REDUCTION_TICKS_COUNT / ticksPerNanoseconds;
+      final var dropped = tickCount / 2;
+      tickCount -= dropped;
+      final var nanoseconds = dropped / ticksPerNanoseconds;
       startTime += nanoseconds;
     }
 
@@ -113,7 +114,7 @@ public class TickCounter implements Simulator.Listener {
   public void propagationCompleted(Simulator.Event e) {
     if (e.didTick()) {
       simulator = e.getSource();
-      tickCount++;
+      tickCount += e.getTickCount();
     }
   }
 }
@@ -48,6 +48,7 @@ public class MenuSimulate extends Menu {
   private final JMenu tickFreq = new JMenu();
   private final TickFrequencyChoice[] tickFreqs =
       new TickFrequencyChoice[SUPPORTED_TICK_FREQUENCIES.length];
+  private final JRadioButtonMenuItem tickMaxSpeed = new JRadioButtonMenuItem();
   private final JMenu downStateMenu = new JMenu();
   private final ArrayList<CircuitStateMenuItem> downStateItems = new ArrayList<>();
   private final JMenu upStateMenu = new JMenu();
@@ -87,6 +88,9 @@ public class MenuSimulate extends Menu {
     ticksEnabled.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_K, menuMask));
 
     final var bgroup = new ButtonGroup();
+    bgroup.add(tickMaxSpeed);
+    tickFreq.add(tickMaxSpeed);
+    tickFreq.addSeparator();
     for (var i = 0; i < SUPPORTED_TICK_FREQUENCIES.length; i++) {
       tickFreqs[i] = new TickFrequencyChoice(SUPPORTED_TICK_FREQUENCIES[i]);
       bgroup.add(tickFreqs[i]);
@@ -142,6 +146,7 @@ public class MenuSimulate extends Menu {
     log.addActionListener(myListener);
     test.addActionListener(myListener);
     assemblyWindow.addActionListener(myListener);
+    tickMaxSpeed.addActionListener(myListener);
 
     computeEnabled();
   }
@@ -200,6 +205,7 @@ public class MenuSimulate extends Menu {
     tickFull.setText(S.get("simulateTickFullItem"));
     ticksEnabled.setText(S.get("simulateTickItem"));
     tickFreq.setText(S.get("simulateTickFreqMenu"));
+    tickMaxSpeed.setText(S.get("simulateTickMaxSpeedItem"));
 
     for (final var freq : tickFreqs) {
       freq.localeChanged();
@@ -264,9 +270,12 @@ public class MenuSimulate extends Menu {
 
     if (currentSim != oldSim) {
       final var freq = currentSim == null ? 1.0 : currentSim.getTickFrequency();
+      final var maxSpeed = currentSim != null && currentSim.isMaxSpeed();
       for (final var tickFrequencyChoice : tickFreqs) {
-        tickFrequencyChoice.setSelected(Math.abs(tickFrequencyChoice.freq - freq) < 0.001);
+        tickFrequencyChoice.setSelected(
+            !maxSpeed && Math.abs(tickFrequencyChoice.freq - freq) < 0.001);
       }
+      tickMaxSpeed.setSelected(maxSpeed);
 
       if (oldSim != null) {
         oldSim.removeSimulatorListener(myListener);
@@ -354,6 +363,8 @@ public class MenuSimulate extends Menu {
       } else if (src == LogisimMenuBar.SIMULATE_RUN) {
         sim.setAutoPropagation(true);
         proj.repaintCanvas();
+      } else if (src == tickMaxSpeed) {
+        sim.setMaxSpeed(true);
       } else if (src == runToggle || src == LogisimMenuBar.SIMULATE_RUN_TOGGLE) {
         sim.setAutoPropagation(!sim.isAutoPropagating());
         proj.repaintCanvas();
@@ -411,9 +422,11 @@ public class MenuSimulate extends Menu {
       runToggle.setSelected(sim.isAutoPropagating());
       ticksEnabled.setSelected(sim.isAutoTicking());
       final var freq = sim.getTickFrequency();
+      final var maxSpeed = sim.isMaxSpeed();
       for (final var item : tickFreqs) {
-        item.setSelected(freq == item.freq);
+        item.setSelected(!maxSpeed && freq == item.freq);
       }
+      tickMaxSpeed.setSelected(maxSpeed);
     }
 
     @Override
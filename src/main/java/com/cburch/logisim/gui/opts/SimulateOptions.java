@@ -37,7 +37,13 @@ class SimulateOptions extends OptionsPanel {
           });
 
   private final JCheckBox simRandomness = new JCheckBox();
+  private final JLabel simThreadsLabel = new JLabel();
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private final JComboBox simThreads = new JComboBox(new Integer[] {1, 2, 4, 8, 16, 32, 64});
+
   private final JCheckBox memUnknown = new JCheckBox();
+  private final JCheckBox memMap = new JCheckBox();
   private final JLabel gateUndefinedLabel = new JLabel();
 
   @SuppressWarnings({"rawtypes", "unchecked"})
@@ -63,20 +69,30 @@ class SimulateOptions extends OptionsPanel {
 
     simRandomness.addActionListener(myListener);
 
+    final var simThreadsPanel = new JPanel();
+    simThreadsPanel.add(simThreadsLabel);
+    simThreadsPanel.add(simThreads);
+    simThreads.addActionListener(myListener);
+
     memUnknown.addActionListener(myListener);
     memUnknown.setSelected(AppPreferences.Memory_Startup_Unknown.get());
+    memMap.addActionListener(myListener);
+    memMap.setSelected(AppPreferences.Memory_Map_Images.get());
 
     setLayout(new TableLayout(1));
     add(memUnknown);
+    add(memMap);
     add(simLimitPanel);
     add(gateUndefinedPanel);
     add(simRandomness);
+    add(simThreadsPanel);
 
     window.getOptions().getAttributeSet().addAttributeListener(myListener);
     final var attrs = getOptions().getAttributeSet();
     myListener.loadSimLimit(attrs.getValue(Options.ATTR_SIM_LIMIT));
     myListener.loadGateUndefined(attrs.getValue(Options.ATTR_GATE_UNDEFINED));
     myListener.loadSimRandomness(attrs.getValue(Options.ATTR_SIM_RAND));
+    myListener.loadSimThreads(attrs.getValue(Options.ATTR_SIM_THREADS));
   }
 
   @Override
@@ -94,7 +110,9 @@ class SimulateOptions extends OptionsPanel {
     simLimitLabel.setText(S.get("simulateLimit"));
     gateUndefinedLabel.setText(S.get("gateUndefined"));
     simRandomness.setText(S.get("simulateRandomness"));
+    simThreadsLabel.setText(S.get("simulateThreads"));
     memUnknown.setText(S.get("MemoriesStartupUnknown"));
+    memMap.setText(S.get("MemoriesMapImages"));
   }
 
   private class MyListener implements ActionListener, AttributeListener {
@@ -111,6 +129,12 @@ class SimulateOptions extends OptionsPanel {
         final var attrs = getOptions().getAttributeSet();
         Object val = simRandomness.isSelected() ? Options.SIM_RAND_DFLT : Integer.valueOf(0);
         getProject().doAction(OptionsActions.setAttribute(attrs, Options.ATTR_SIM_RAND, val));
+      } else if (source == simThreads) {
+        final var opt = (Integer) simThreads.getSelectedItem();
+        if (opt != null) {
+          final var attrs = getOptions().getAttributeSet();
+          getProject().doAction(OptionsActions.setAttribute(attrs, Options.ATTR_SIM_THREADS, opt));
+        }
       } else if (source == gateUndefined) {
         final var opt = (ComboOption) gateUndefined.getSelectedItem();
         if (opt != null) {
@@ -123,6 +147,8 @@ class SimulateOptions extends OptionsPanel {
         AppPreferences.Memory_Startup_Unknown.set(memUnknown.isSelected());
         final var sim = getProject().getSimulator();
         if (sim != null) sim.reset();
+      } else if (source == memMap) {
+        AppPreferences.Memory_Map_Images.set(memMap.isSelected());
       }
     }
 
@@ -134,6 +160,8 @@ class SimulateOptions extends OptionsPanel {
         loadSimLimit((Integer) val);
       } else if (attr == Options.ATTR_SIM_RAND) {
         loadSimRandomness((Integer) val);
+      } else if (attr == Options.ATTR_SIM_THREADS) {
+        loadSimThreads((Integer) val);
       } else if (attr == Options.ATTR_GATE_UNDEFINED) {
         loadGateUndefined(val);
       }
@@ -155,6 +183,10 @@ class SimulateOptions extends OptionsPanel {
       }
     }
 
+    private void loadSimThreads(Integer val) {
+      simThreads.setSelectedItem(val);
+    }
+
     private void loadSimRandomness(Integer val) {
       simRandomness.setSelected(val > 0);
     }
@@ -0,0 +1,464 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.gui.start;
+
+import static com.cburch.logisim.gui.Strings.S;
+
+import com.cburch.logisim.circuit.Analyze;
+import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.circuit.CompileException;
+import com.cburch.logisim.circuit.LevelizedSimulator;
+import com.cburch.logisim.circuit.TimeWarp;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.file.LoadFailedException;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.InstanceState;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Pin;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the simulations of the "batch" tty format: each circuit file given on the command line,
+ * once for every image given with "--load", as independent simulations spread over the
+ * processors. The circuit files are loaded one at a time, as the library manager they register
+ * with is not thread safe. A simulation runs until its "halt" pin rises, it oscillates or "--ticks" ticks
+ * passed, and writes the outputs every tick at which one of them changed.
+ *
+ * <p>The outputs are written as CSV, or with the "stream" format as a binary stream: a header
+ * with the int {@link #STREAM_MAGIC}, the name of the simulation and a short count of pins, each
+ * with its name and byte width, followed by records of a long tick and a short count of changed
+ * pins, each given by a short index, a byte of flags (1 when unknown bits follow, 2 when error
+ * bits follow) and the long value bits. The last record has the count -1 followed by a byte
+ * result code. Names are written as with {@link DataOutputStream#writeUTF}.
+ *
+ * <p>Without "--output-dir" the output of all simulations goes to the standard output, one
+ * simulation after the other in the order of the command line. The first unfinished simulation
+ * writes straight through, while the ones after it keep at most {@link #BUFFER_LIMIT} bytes each
+ * and then wait for their turn.
+ */
+final class BatchRunner {
+  static final int STREAM_MAGIC = 0x4C534231; // "LSB1"
+
+  static final int RESULT_HALTED = 0;
+  static final int RESULT_OSCILLATING = 1;
+  static final int RESULT_TICK_LIMIT = 2;
+  static final int RESULT_FAILED = -1;
+
+  /* bytes of output a simulation keeps while an earlier one is still writing */
+  private static final int BUFFER_LIMIT = 1 << 20;
+
+  /* held while loading a circuit file */
+  private static final Object LOAD_LOCK = new Object();
+
+  private BatchRunner() {
+    throw new IllegalStateException("Utility class. No instantiation allowed.");
+  }
+
+  private record Job(String name, File circuitFile, File loadFile) {}
+
+  private record Result(int code, long ticks) {}
+
+  /** Runs all simulations and returns the exit code: 0 when all of them ended normally. */
+  static int run(Startup args) {
+    final var loadFiles = args.getLoadFiles();
+    final var jobs = new ArrayList<Job>();
+    final var names = new HashSet<String>();
+    for (final var file : args.getFilesToOpen()) {
+      for (final var load : loadFiles.isEmpty() ? Collections.<File>singletonList(null) : loadFiles) {
+        final var base = loadFiles.size() <= 1 ? file.getPath() : file.getPath() + ":" + load.getPath();
+        // the same simulation may be asked for twice, but the outputs must not share a file
+        var name = base;
+        for (var n = 2; !names.add(name); n++) name = base + "#" + n;
+        jobs.add(new Job(name, file, load));
+      }
+    }
+    final var format = args.getTtyFormat();
+    final var outputDir = args.getOutputDir();
+    final var threads = Math.max(1, Math.min(jobs.size(), Runtime.getRuntime().availableProcessors()));
+    // the jobs start in the order given, so the one whose turn it is to write is always running
+    final var pool = Executors.newFixedThreadPool(threads);
+    final var output = new OrderedOutput(System.out);
+    final var tasks = new ArrayList<Future<Result>>();
+    final var start = System.currentTimeMillis();
+    for (var i = 0; i < jobs.size(); i++) {
+      final var job = jobs.get(i);
+      final var index = i;
+      tasks.add(
+          pool.submit(
+              () -> {
+                if (outputDir != null) {
+                  final var ext = (format & TtyInterface.FORMAT_STREAM) != 0 ? ".bin" : ".csv";
+                  final var file = new File(outputDir, job.name().replaceAll("[^\\w.-]", "_") + ext);
+                  try (final var out = new BufferedOutputStream(new FileOutputStream(file))) {
+                    return runJob(args, job, out);
+                  }
+                }
+                try (final var out = output.open(index)) {
+                  return runJob(args, job, out);
+                }
+              }));
+    }
+
+    var retCode = 0;
+    long totalTicks = 0;
+    for (var i = 0; i < jobs.size(); i++) {
+      Result result;
+      try {
+        result = tasks.get(i).get();
+      } catch (ExecutionException e) {
+        TtyInterface.logger.error("{}: {}", jobs.get(i).name(), e.getCause().toString());
+        result = new Result(RESULT_FAILED, 0);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        TtyInterface.logger.error("{}: {}", jobs.get(i).name(), e.toString());
+        result = new Result(RESULT_FAILED, 0);
+      }
+      totalTicks += result.ticks();
+      if (result.code() != RESULT_TICK_LIMIT && result.code() != RESULT_HALTED && retCode == 0) {
+        retCode = result.code();
+      }
+      if ((format & TtyInterface.FORMAT_HALT) != 0 || result.code() == RESULT_OSCILLATING) {
+        final var reason = switch (result.code()) {
+          case RESULT_HALTED -> S.get("ttyHaltReasonPin");
+          case RESULT_OSCILLATING -> S.get("ttyHaltReasonOscillation");
+          case RESULT_TICK_LIMIT -> S.get("ttyHaltReasonTicks");
+          default -> null;
+        };
+        if (reason != null) {
+          TtyInterface.logger.error("{}", S.get("ttyBatchResult", jobs.get(i).name(), reason, result.ticks()));
+        }
+      }
+    }
+    pool.shutdown();
+    System.out.flush();
+    if ((format & TtyInterface.FORMAT_SPEED) != 0) {
+      TtyInterface.displaySpeed(totalTicks, System.currentTimeMillis() - start);
+    }
+    return retCode;
+  }
+
+  private static Result runJob(Startup args, Job job, OutputStream out) throws IOException {
+    final var loader = new Loader(null);
+    final Project proj;
+    try {
+      synchronized (LOAD_LOCK) {
+        proj = new Project(loader.openLogisimFile(job.circuitFile(), args.getSubstitutions()));
+      }
+    } catch (LoadFailedException e) {
+      TtyInterface.logger.error("{}", S.get("ttyLoadError", job.circuitFile().getName()));
+      return new Result(RESULT_FAILED, 0);
+    }
+    final var file = proj.getLogisimFile();
+    final var circuitToTest = args.getCircuitToTest();
+    final var circuit = (circuitToTest == null || circuitToTest.length() == 0)
+        ? file.getMainCircuit()
+        : file.getCircuit(circuitToTest);
+    if (circuit == null) {
+      TtyInterface.logger.error("{}", S.get("ttyLoadError", job.circuitFile().getName()));
+      return new Result(RESULT_FAILED, 0);
+    }
+
+    final var outputPins = new ArrayList<Instance>();
+    final var outputNames = new ArrayList<String>();
+    Instance haltPin = null;
+    for (final var entry : Analyze.getPinLabels(circuit).entrySet()) {
+      final var pin = entry.getKey();
+      if (Pin.FACTORY.isInputPin(pin)) continue;
+      if (entry.getValue().equals("halt")) {
+        haltPin = pin;
+      } else {
+        outputPins.add(pin);
+        outputNames.add(entry.getValue());
+      }
+    }
+    final var tickLimit = args.getTickLimit();
+    if (haltPin == null && tickLimit == 0) {
+      TtyInterface.logger.error("{}", S.get("ttyBatchNoStopError", job.name()));
+      return new Result(RESULT_FAILED, 0);
+    }
+
+    final var circState = new CircuitState(proj, circuit);
+    // the initial propagation populates the circuit with substates
+    final var prop = circState.getPropagator();
+    prop.propagate();
+    if (job.loadFile() != null) {
+      if (!TtyInterface.loadRam(circState, job.loadFile())) {
+        TtyInterface.logger.error("{}", S.get("loadNoRamError"));
+        return new Result(RESULT_FAILED, 0);
+      }
+    }
+    LevelizedSimulator compiled = null;
+    if ((args.getTtyFormat() & TtyInterface.FORMAT_COMPILED) != 0) {
+      try {
+        compiled = LevelizedSimulator.compile(circState);
+      } catch (CompileException e) {
+        TtyInterface.logger.warn("{}", S.get("ttyCompiledFallback", e.getMessage()));
+      }
+    }
+
+    // everything looked up per tick is resolved once
+    final var pins = outputPins.toArray(new Instance[0]);
+    final var pinStates = new InstanceState[pins.length];
+    for (var i = 0; i < pins.length; i++) pinStates[i] = circState.getInstanceState(pins[i]);
+    final var haltState = haltPin == null ? null : circState.getInstanceState(haltPin);
+    final var values = new Value[pins.length];
+    final var changed = new boolean[pins.length];
+    final var writer = (args.getTtyFormat() & TtyInterface.FORMAT_STREAM) != 0
+        ? new StreamWriter(out)
+        : new CsvWriter(out, args.getTtyFormat());
+    writer.writeHeader(job.name(), outputNames, pins);
+
+    final var warp = compiled == null && (args.getTtyFormat() & TtyInterface.FORMAT_WARP) != 0
+        ? new TimeWarp(prop, true)
+        : null;
+    long lastChange = 0;
+    long tick = 0;
+    int code;
+    while (true) {
+      var anyChanged = false;
+      for (var i = 0; i < pins.length; i++) {
+        final var value = compiled != null ? compiled.getValue(pins[i]) : Pin.FACTORY.getValue(pinStates[i]);
+        changed[i] = !value.equals(values[i]);
+        anyChanged |= changed[i];
+        values[i] = value;
+      }
+      if (anyChanged) {
+        writer.writeChanges(tick, values, changed);
+        lastChange = tick;
+      }
+      if (haltPin != null) {
+        final var halt = compiled != null ? compiled.getValue(haltPin) : Pin.FACTORY.getValue(haltState);
+        if (halt.equals(Value.TRUE)) {
+          code = RESULT_HALTED;
+          break;
+        }
+      }
+      if (compiled == null && prop.isOscillating()) {
+        code = RESULT_OSCILLATING;
+        break;
+      }
+      if (tickLimit > 0 && tick >= tickLimit) {
+        code = RESULT_TICK_LIMIT;
+        break;
+      }
+      tick++;
+      if (compiled != null) {
+        compiled.toggleClocks();
+      } else if (warp != null) {
+        // outputs that stayed the same for a whole period stay so while it repeats
+        final var quiet = tick - 1 - lastChange >= warp.getPeriod();
+        final var ticks = warp.advance(tickLimit > 0 ? tickLimit - tick + 1 : Long.MAX_VALUE, quiet);
+        if (ticks > 0) tick += ticks - 1;
+        else if (tickLimit > 0) tick = tickLimit;
+      } else if (prop.toggleClocks()) {
+        prop.propagate();
+      } else if (tickLimit > 0) {
+        // without clocks nothing changes anymore, so the outcome is already known
+        tick = tickLimit;
+      }
+    }
+    writer.writeEnd(tick, code);
+    out.flush();
+    return new Result(code, tick);
+  }
+
+  private interface Writer {
+    void writeHeader(String name, ArrayList<String> names, Instance[] pins) throws IOException;
+
+    void writeChanges(long tick, Value[] values, boolean[] changed) throws IOException;
+
+    void writeEnd(long tick, int code) throws IOException;
+  }
+
+  /** Writes a row with all outputs each time one of them changed. */
+  private static class CsvWriter implements Writer {
+    private final OutputStream out;
+    private final int format;
+    private final StringBuilder line = new StringBuilder();
+    private String name;
+
+    CsvWriter(OutputStream out, int format) {
+      this.out = out;
+      this.format = format;
+    }
+
+    @Override
+    public void writeHeader(String name, ArrayList<String> names, Instance[] pins) throws IOException {
+      this.name = name;
+      line.append("circuit,tick");
+      for (final var pinName : names) line.append(',').append(pinName);
+      flushLine();
+    }
+
+    @Override
+    public void writeChanges(long tick, Value[] values, boolean[] changed) throws IOException {
+      line.append(name).append(',').append(tick);
+      for (final var value : values) line.append(',').append(TtyInterface.valueFormat(value, format));
+      flushLine();
+    }
+
+    @Override
+    public void writeEnd(long tick, int code) {
+      // the last row already holds the final outputs
+    }
+
+    private void flushLine() throws IOException {
+      line.append('\n');
+      out.write(line.toString().getBytes(StandardCharsets.UTF_8));
+      line.setLength(0);
+    }
+  }
+
+  /** Writes only the outputs that changed, in the binary format described above. */
+  private static class StreamWriter implements Writer {
+    private final DataOutputStream out;
+
+    StreamWriter(OutputStream out) {
+      this.out = new DataOutputStream(out);
+    }
+
+    @Override
+    public void writeHeader(String name, ArrayList<String> names, Instance[] pins) throws IOException {
+      out.writeInt(STREAM_MAGIC);
+      out.writeUTF(name);
+      out.writeShort(pins.length);
+      for (var i = 0; i < pins.length; i++) {
+        out.writeUTF(names.get(i));
+        out.writeByte(Pin.FACTORY.getWidth(pins[i]).getWidth());
+      }
+    }
+
+    @Override
+    public void writeChanges(long tick, Value[] values, boolean[] changed) throws IOException {
+      var count = 0;
+      for (final var c : changed) if (c) count++;
+      out.writeLong(tick);
+      out.writeShort(count);
+      for (var i = 0; i < values.length; i++) {
+        if (!changed[i]) continue;
+        final var value = values[i];
+        final var unknown = value.getUnknownBits();
+        final var error = value.getErrorBits();
+        out.writeShort(i);
+        out.writeByte((unknown != 0 ? 1 : 0) | (error != 0 ? 2 : 0));
+        out.writeLong(value.getValueBits());
+        if (unknown != 0) out.writeLong(unknown);
+        if (error != 0) out.writeLong(error);
+      }
+    }
+
+    @Override
+    public void writeEnd(long tick, int code) throws IOException {
+      out.writeLong(tick);
+      out.writeShort(-1);
+      out.writeByte(code);
+      out.flush();
+    }
+  }
+
+  /** Hands out the outputs of the jobs writing to a common stream, see the class comment. */
+  private static final class OrderedOutput {
+    private final OutputStream target;
+    /* the index of the job whose turn it is to write */
+    private int turn = 0;
+
+    OrderedOutput(OutputStream target) {
+      this.target = target;
+    }
+
+    /** Returns the output of a job, which must be closed when it is done. */
+    OutputStream open(int index) {
+      return new JobOutput(index);
+    }
+
+    private synchronized boolean hasTurn(int index) {
+      return turn == index;
+    }
+
+    private synchronized void awaitTurn(int index) throws InterruptedIOException {
+      while (turn != index) {
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException();
+        }
+      }
+    }
+
+    private synchronized void endTurn() {
+      turn++;
+      notifyAll();
+    }
+
+    private final class JobOutput extends OutputStream {
+      private final int index;
+      /* what was written before it was this job's turn, null once it has been passed on */
+      private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+
+      JobOutput(int index) {
+        this.index = index;
+      }
+
+      @Override
+      public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) throws IOException {
+        if (pending != null) {
+          if (!hasTurn(index) && pending.size() + len <= BUFFER_LIMIT) {
+            pending.write(b, off, len);
+            return;
+          }
+          passOn();
+        }
+        target.write(b, off, len);
+      }
+
+      @Override
+      public void flush() throws IOException {
+        if (pending == null) target.flush();
+      }
+
+      @Override
+      public void close() throws IOException {
+        try {
+          if (pending != null) passOn();
+          target.flush();
+        } finally {
+          endTurn();
+        }
+      }
+
+      private void passOn() throws IOException {
+        awaitTurn(index);
+        pending.writeTo(target);
+        pending = null;
+      }
+    }
+  }
+}
@@ -95,9 +95,11 @@ public class Startup implements AWTEventListener {
   private String circuitToTest = null;
   private boolean exitAfterStartup = false;
   private boolean showSplash;
-  private File loadFile;
+  private final ArrayList<File> loadFiles = new ArrayList<>();
   private File saveFile;
   private int ttyFormat = 0;
+  private long tickLimit = 0;
+  private File outputDir = null;
   // from other sources
   private boolean initialized = false;
   private SplashScreen monitor = null;
@@ -147,6 +149,8 @@ public class Startup implements AWTEventListener {
   private static final String ARG_LOAD_SHORT = "l";
   private static final String ARG_LOAD_LONG = "load";
   private static final String ARG_SAVE_LONG = "save";
+  private static final String ARG_TICKS_LONG = "ticks";
+  private static final String ARG_OUTPUT_DIR_LONG = "output-dir";
   private static final String ARG_GEOMETRY_SHORT = "m";
   private static final String ARG_GEOMETRY_LONG = "geometry";
   private static final String ARG_TEST_CIRC_GEN_SHORT = "n";
@@ -317,6 +321,8 @@ public class Startup implements AWTEventListener {
     addOption(opts, "argSubOption", ARG_SUBSTITUTE_LONG, ARG_SUBSTITUTE_SHORT, 2);
     addOption(opts, "argLoadOption", ARG_LOAD_LONG, ARG_LOAD_SHORT, 1);
     addOption(opts, "argSaveOption", ARG_SAVE_LONG, 1);
+    addOption(opts, "argTicksOption", ARG_TICKS_LONG, 1);
+    addOption(opts, "argOutputDirOption", ARG_OUTPUT_DIR_LONG, 1);
     addOption(opts, "argGatesOption", ARG_GATES_LONG, ARG_GATES_SHORT, 1);
     addOption(opts, "argGeometryOption", ARG_GEOMETRY_LONG, ARG_GEOMETRY_SHORT, 1);
     addOption(opts, "argLocaleOption", ARG_LOCALE_LONG, ARG_LOCALE_SHORT, 1);
@@ -383,6 +389,8 @@ public class Startup implements AWTEventListener {
         case ARG_SUBSTITUTE_LONG -> handleArgSubstitute(startup, opt);
         case ARG_LOAD_LONG -> handleArgLoad(startup, opt);
         case ARG_SAVE_LONG -> handleArgSave(startup, opt);
+        case ARG_TICKS_LONG -> handleArgTicks(startup, opt);
+        case ARG_OUTPUT_DIR_LONG -> handleArgOutputDir(startup, opt);
         case ARG_GATES_LONG -> handleArgGates(startup, opt);
         case ARG_GEOMETRY_LONG -> handleArgGeometry(startup, opt);
         case ARG_LOCALE_LONG -> handleArgLocale(startup, opt);
@@ -417,10 +425,14 @@ public class Startup implements AWTEventListener {
       logger.error(S.get("ttyNeedsFileError"));
       return null;
     }
-    if (startup.loadFile != null && !startup.isTty) {
+    if (!startup.loadFiles.isEmpty() && !startup.isTty) {
       logger.error(S.get("loadNeedsTtyError"));
       return null;
     }
+    if (startup.loadFiles.size() > 1 && (startup.ttyFormat & TtyInterface.FORMAT_BATCH) == 0) {
+      logger.error(S.get("loadMultipleError"));
+      // FIXME: shouldn't we quit here? the first one is used
+    }
     if (startup.saveFile != null && !startup.isTty) {
       logger.error(S.get("saveNeedsTtyError"));
       return null;
@@ -466,6 +478,10 @@ public class Startup implements AWTEventListener {
           case "hex" -> TtyInterface.FORMAT_TABLE_HEX;
           case "csv" -> TtyInterface.FORMAT_TABLE_CSV;
           case "tabs" -> TtyInterface.FORMAT_TABLE_TABBED;
+          case "compiled" -> TtyInterface.FORMAT_COMPILED;
+          case "batch" -> TtyInterface.FORMAT_BATCH;
+          case "stream" -> TtyInterface.FORMAT_STREAM;
+          case "warp" -> TtyInterface.FORMAT_WARP;
           default -> 0;
         };
 
@@ -474,8 +490,8 @@ public class Startup implements AWTEventListener {
           return RC.QUIT;
         }
         startup.ttyFormat |= val;
-        return RC.OK;
       }
+      return RC.OK;
     }
     logger.error(S.get("ttyFormatError"));
     return RC.QUIT;
@@ -495,13 +511,10 @@ public class Startup implements AWTEventListener {
   }
 
   private static RC handleArgLoad(Startup startup, Option opt) {
-    if (startup.loadFile != null) {
-      logger.error(S.get("loadMultipleError"));
-      // FIXME: shouldn't we quit here? -> RC.QUIT;
-      return RC.WARN;
-    }
+    // several images are only used by the "batch" tty format, which is checked once all
+    // arguments are known
     final var fileName = opt.getValue();
-    startup.loadFile = new File(fileName);
+    startup.loadFiles.add(new File(fileName));
     return RC.OK;
   }
 
@@ -515,6 +528,24 @@ public class Startup implements AWTEventListener {
     return RC.OK;
   }
 
+  private static RC handleArgTicks(Startup startup, Option opt) {
+    try {
+      startup.tickLimit = Long.parseLong(opt.getValue());
+      if (startup.tickLimit >= 0) return RC.OK;
+    } catch (NumberFormatException ignored) {
+      // reported below
+    }
+    logger.error(S.get("argTicksError"));
+    return RC.QUIT;
+  }
+
+  private static RC handleArgOutputDir(Startup startup, Option opt) {
+    startup.outputDir = new File(opt.getValue());
+    if (startup.outputDir.isDirectory()) return RC.OK;
+    logger.error(S.get("argOutputDirError", opt.getValue()));
+    return RC.QUIT;
+  }
+
   private static RC handleArgGates(Startup startup, Option opt) {
     final var gateShape = opt.getValue().toLowerCase();
     if ("ansi".equals(gateShape)) {
@@ -780,7 +811,20 @@ public class Startup implements AWTEventListener {
   }
 
   File getLoadFile() {
-    return loadFile;
+    return loadFiles.isEmpty() ? null : loadFiles.get(0);
+  }
+
+  List<File> getLoadFiles() {
+    return loadFiles;
+  }
+
+  /** Returns the number of ticks after which a tty simulation stops, or 0 for no limit. */
+  long getTickLimit() {
+    return tickLimit;
+  }
+
+  File getOutputDir() {
+    return outputDir;
   }
 
   File getSaveFile() {
@@ -16,6 +16,9 @@ import com.cburch.logisim.analyze.model.Var;
 import com.cburch.logisim.circuit.Analyze;
 import com.cburch.logisim.circuit.Circuit;
 import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.circuit.CompileException;
+import com.cburch.logisim.circuit.LevelizedSimulator;
+import com.cburch.logisim.circuit.TimeWarp;
 import com.cburch.logisim.data.Value;
 import com.cburch.logisim.file.FileStatistics;
 import com.cburch.logisim.file.LoadFailedException;
@@ -52,6 +55,10 @@ public class TtyInterface {
   public static final int FORMAT_TABLE_CSV = 64;
   public static final int FORMAT_TABLE_BIN = 128;
   public static final int FORMAT_TABLE_HEX = 256;
+  public static final int FORMAT_COMPILED = 512;
+  public static final int FORMAT_BATCH = 1024;
+  public static final int FORMAT_STREAM = 2048;
+  public static final int FORMAT_WARP = 4096;
   static final Logger logger = LoggerFactory.getLogger(TtyInterface.class);
   private static boolean lastIsNewline = true;
 
@@ -65,7 +72,7 @@ public class TtyInterface {
     return digits;
   }
 
-  private static void displaySpeed(long tickCount, long elapse) {
+  static void displaySpeed(long tickCount, long elapse) {
     var hertz = (double) tickCount / elapse * 1000.0;
     double precision;
     if (hertz >= 100) precision = 1.0;
@@ -186,7 +193,7 @@ public class TtyInterface {
     return shouldPrint;
   }
 
-  private static String valueFormat(Value v, int format) {
+  static String valueFormat(Value v, int format) {
     if ((format & FORMAT_TABLE_BIN) != 0) {
       // everything in binary
       return v.toString();
@@ -208,7 +215,7 @@ public class TtyInterface {
     }
   }
 
-  private static boolean loadRam(CircuitState circState, File loadFile) throws IOException {
+  static boolean loadRam(CircuitState circState, File loadFile) throws IOException {
     if (loadFile == null) return false;
 
     var found = false;
@@ -267,6 +274,10 @@ public class TtyInterface {
   }
 
   public static void run(Startup args) {
+    if ((args.getTtyFormat() & FORMAT_BATCH) != 0) {
+      System.exit(BatchRunner.run(args));
+      return;
+    }
     final var fileToOpen = args.getFilesToOpen().get(0);
     final var loader = new Loader(null);
     LogisimFile file;
@@ -334,7 +345,7 @@ public class TtyInterface {
       }
     }
     final var ttyFormat = args.getTtyFormat();
-    final var simCode = runSimulation(circState, outputPins, haltPin, ttyFormat);
+    final var simCode = runSimulation(circState, outputPins, haltPin, ttyFormat, args.getTickLimit());
 
     if (args.getSaveFile() != null) {
       try {
@@ -447,7 +458,7 @@ public class TtyInterface {
     return 0;
   }
 
-  private static int runSimulation(CircuitState circState, ArrayList<Instance> outputPins, Instance haltPin, int format) {
+  private static int runSimulation(CircuitState circState, ArrayList<Instance> outputPins, Instance haltPin, int format, long tickLimit) {
     final var showTable = (format & FORMAT_TABLE) != 0;
     final var showSpeed = (format & FORMAT_SPEED) != 0;
     final var showTty = (format & FORMAT_TTY) != 0;
@@ -470,17 +481,40 @@ public class TtyInterface {
       }
     }
 
+    LevelizedSimulator compiled = null;
+    if ((format & FORMAT_COMPILED) != 0) {
+      try {
+        compiled = LevelizedSimulator.compile(circState);
+      } catch (CompileException e) {
+        logger.warn("{}", S.get("ttyCompiledFallback", e.getMessage()));
+      }
+    }
+
+    // the pin states are looked up once, and the two lists of outputs are swapped every tick
+    final var pinStates = new InstanceState[outputPins.size()];
+    for (var i = 0; i < pinStates.length; i++) {
+      pinStates[i] = circState.getInstanceState(outputPins.get(i));
+    }
     var retCode = 0;
     long tickCount = 0;
     final var start = System.currentTimeMillis();
     var halted = false;
     ArrayList<Value> prevOutputs = null;
+    var curOutputs = new ArrayList<Value>();
     final var prop = circState.getPropagator();
+    // what a tty shows or a keyboard takes in is not part of the state, so
+    // periods in which the circuit repeats itself are only skipped without them
+    final var warp = compiled == null && (format & FORMAT_WARP) != 0
+        ? new TimeWarp(prop, !showTty)
+        : null;
+    long lastChange = 0;
     while (true) {
-      final var curOutputs = new ArrayList<Value>();
-      for (final var pin : outputPins) {
-        final var pinState = circState.getInstanceState(pin);
-        final var val = Pin.FACTORY.getValue(pinState);
+      curOutputs.clear();
+      for (var i = 0; i < pinStates.length; i++) {
+        final var pin = outputPins.get(i);
+        final var val = compiled != null
+            ? compiled.getValue(pin)
+            : Pin.FACTORY.getValue(pinStates[i]);
         if (pin == haltPin) {
           halted |= val.equals(Value.TRUE);
         } else if (showTable) {
@@ -489,12 +523,17 @@ public class TtyInterface {
       }
       if (showTable) {
         displayTableRow(prevOutputs, curOutputs);
+        if (prevOutputs != null && !curOutputs.equals(prevOutputs)) lastChange = tickCount;
       }
 
       if (halted) {
         retCode = 0; // normal exit
         break;
       }
+      if (tickLimit > 0 && tickCount >= tickLimit) {
+        retCode = 2; // tick limit
+        break;
+      }
       if (prop.isOscillating()) {
         retCode = 1; // abnormal exit
         break;
@@ -507,24 +546,38 @@ public class TtyInterface {
           }
         }
       }
+      final var swap = prevOutputs == null ? new ArrayList<Value>() : prevOutputs;
       prevOutputs = curOutputs;
+      curOutputs = swap;
       tickCount++;
-      prop.toggleClocks();
-      prop.propagate();
+      if (compiled != null) {
+        compiled.toggleClocks();
+      } else if (warp != null) {
+        // outputs that stayed the same for a whole period stay so while it repeats
+        final var quiet = tickCount - 1 - lastChange >= warp.getPeriod();
+        final var ticks = warp.advance(tickLimit > 0 ? tickLimit - tickCount + 1 : Long.MAX_VALUE, quiet);
+        if (ticks > 1) tickCount += ticks - 1;
+      } else {
+        prop.toggleClocks();
+        prop.propagate();
+      }
     }
     final var elapse = System.currentTimeMillis() - start;
     if (showTty) ensureLineTerminated();
-    if (showHalt || retCode != 0) {
+    if (showHalt || retCode == 1) {
       if (retCode == 0) {
         logger.error("{}", S.get("ttyHaltReasonPin"));
       } else if (retCode == 1) {
         logger.error("{}", S.get("ttyHaltReasonOscillation"));
+      } else {
+        logger.error("{}", S.get("ttyHaltReasonTicks"));
       }
     }
     if (showSpeed) {
       displaySpeed(tickCount, elapse);
     }
-    return retCode;
+    // reaching the tick limit is a normal exit as well
+    return retCode == 2 ? 0 : retCode;
   }
 
   public static void sendFromTty(char c) {
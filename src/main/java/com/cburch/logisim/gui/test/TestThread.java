@@ -25,9 +25,17 @@ import com.cburch.logisim.instance.StdAttr;
 import com.cburch.logisim.proj.Project;
 import com.cburch.logisim.std.wiring.Pin;
 import com.cburch.logisim.util.UniquelyNamedThread;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 public class TestThread extends UniquelyNamedThread implements CircuitListener {
 
+  /* the least number of lines worth handing to a worker */
+  private static final int LINES_PER_TASK = 64;
+  /* the number of lines tested between two reports of the progress */
+  private static final int LINES_PER_REPORT = 4096;
+
   private final Project project;
   private final Circuit circuit;
   private final TestVector vector;
@@ -35,6 +43,8 @@ public class TestThread extends UniquelyNamedThread implements CircuitListener {
   private Model model;
   private boolean canceled = false;
   private boolean paused = false;
+  /* the circuit state of each worker, created on this thread */
+  private final ArrayList<CircuitState> states = new ArrayList<>();
 
   public TestThread(Model model) throws TestException {
     super("TestThread-Model");
@@ -82,21 +92,25 @@ public class TestThread extends UniquelyNamedThread implements CircuitListener {
 
     int numPass = 0;
     int numFail = 0;
-    for (int i = 0; i < vec.data.size(); i++) {
-      try {
-        System.out.print((i + 1) + " \r");
-        tester.test(i);
-        numPass++;
-      } catch (FailException e) {
-        System.out.println();
-        System.err.println(S.get("testFailed", Integer.toString(i + 1)));
-        for (FailException e1 : e.getAll()) System.out.println("  " + e1.getMessage());
-        numFail++;
-      } catch (TestException e) {
-        System.out.println();
-        System.err.println(S.get("testFailed", (i + 1) + " " + e.getMessage()));
-        numFail++;
+    for (int from = 0; from < vec.data.size(); from += LINES_PER_REPORT) {
+      final var to = Math.min(vec.data.size(), from + LINES_PER_REPORT);
+      final var results = tester.testLines(from, to);
+      for (int i = from; i < to; i++) {
+        final var result = results[i - from];
+        if (result == null) {
+          numPass++;
+        } else if (result instanceof FailException e) {
+          System.out.println();
+          System.err.println(S.get("testFailed", Integer.toString(i + 1)));
+          for (FailException e1 : e.getAll()) System.out.println("  " + e1.getMessage());
+          numFail++;
+        } else {
+          System.out.println();
+          System.err.println(S.get("testFailed", (i + 1) + " " + result.getMessage()));
+          numFail++;
+        }
       }
+      System.out.print(to + " \r");
     }
     System.out.println();
     System.out.println(S.get("testResults", Integer.toString(numPass), Integer.toString(numFail)));
@@ -145,8 +159,10 @@ public class TestThread extends UniquelyNamedThread implements CircuitListener {
 
   @Override
   public void run() {
+    // enough lines to keep every worker busy, while pausing and canceling stay responsive
+    final var linesPerRound = LINES_PER_TASK * ForkJoinPool.getCommonPoolParallelism();
     try {
-      for (int i = 0; i < vector.data.size() && !canceled; i++) {
+      for (int from = 0; from < vector.data.size() && !canceled; from += linesPerRound) {
         while (paused) {
           if (canceled) return;
           try {
@@ -154,13 +170,11 @@ public class TestThread extends UniquelyNamedThread implements CircuitListener {
           } catch (InterruptedException ignored) {
           }
         }
-        try {
-          test(i);
-          canceled = canceled || !model.setResult(vector, i, null);
-        } catch (TestException e) {
-          canceled = canceled || !model.setResult(vector, i, e);
+        final var to = Math.min(vector.data.size(), from + linesPerRound);
+        final var results = testLines(from, to);
+        for (int i = from; i < to && !canceled; i++) {
+          canceled = canceled || !model.setResult(vector, i, results[i - from]);
         }
-        Thread.yield();
       }
     } finally {
       model.stop();
@@ -171,7 +185,58 @@ public class TestThread extends UniquelyNamedThread implements CircuitListener {
     this.paused = paused;
   }
 
-  private void test(int idx) throws TestException {
-    circuit.doTestVector(project, pin, vector.data.get(idx));
+  /**
+   * Tests the lines from up to to of the vector and returns for each of them null when it passed
+   * or the exception telling why it failed. Each line is tested on a reset circuit state, so the
+   * lines are independent: if the circuit is reentrant they are split over the common pool, every
+   * worker testing its share on a state of its own. Otherwise they are tested one after the other
+   * on the state of the project, as components such as SoC, VHDL and TCL ones share state between
+   * all circuit states.
+   */
+  private TestException[] testLines(int from, int to) {
+    final var results = new TestException[to - from];
+    if (!circuit.isReentrant()) {
+      for (int i = from; i < to; i++) {
+        try {
+          circuit.doTestVector(project, pin, vector.data.get(i));
+        } catch (TestException e) {
+          results[i - from] = e;
+        }
+      }
+      return results;
+    }
+    final var workers =
+        Math.max(
+            1,
+            Math.min(
+                ForkJoinPool.getCommonPoolParallelism(),
+                (to - from + LINES_PER_TASK - 1) / LINES_PER_TASK));
+    // creating a state registers listeners and creates the states of the subcircuits, which must
+    // not happen on the workers: they only reset and propagate the states made here
+    while (states.size() < workers) {
+      final var state = new CircuitState(project, circuit);
+      state.getPropagator().propagate();
+      states.add(state);
+    }
+    final var tasks = new ArrayList<ForkJoinTask<?>>();
+    for (var w = 0; w < workers; w++) {
+      final var state = states.get(w);
+      final var first = from + (int) ((long) (to - from) * w / workers);
+      final var last = from + (int) ((long) (to - from) * (w + 1) / workers);
+      tasks.add(
+          ForkJoinPool.commonPool()
+              .submit(
+                  () -> {
+                    for (int i = first; i < last; i++) {
+                      try {
+                        circuit.doTestVector(state, pin, vector.data.get(i));
+                      } catch (TestException e) {
+                        results[i - from] = e;
+                      }
+                    }
+                  }));
+    }
+    for (final var task : tasks) task.join();
+    return results;
   }
 }
@@ -9,6 +9,9 @@
 
 package com.cburch.logisim.instance;
 
+import com.cburch.logisim.comp.StateKey;
+import com.cburch.logisim.data.Value;
+
 public class InstanceDataSingleton implements InstanceData, Cloneable {
   private Object value;
 
@@ -29,6 +32,24 @@ public class InstanceDataSingleton implements InstanceData, Cloneable {
     return value;
   }
 
+  @Override
+  public boolean addStateTo(StateKey key) {
+    if (value instanceof Value v) {
+      key.add(v);
+    } else if (value instanceof Boolean b) {
+      key.add(b ? 1 : 0);
+    } else if (value instanceof Integer || value instanceof Long || value instanceof Short
+        || value instanceof Byte) {
+      key.add(((Number) value).longValue());
+    } else if (value instanceof String s) {
+      key.add(s.length());
+      for (var i = 0; i < s.length(); i++) key.add(s.charAt(i));
+    } else {
+      return false;
+    }
+    return true;
+  }
+
   public void setValue(Object value) {
     this.value = value;
   }
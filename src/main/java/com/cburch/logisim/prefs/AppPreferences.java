@@ -626,6 +626,8 @@ public class AppPreferences {
 
   public static final PrefMonitor<Boolean> Memory_Startup_Unknown =
       create(new PrefMonitorBoolean("MemStartUnknown", false));
+  public static final PrefMonitor<Boolean> Memory_Map_Images =
+      create(new PrefMonitorBoolean("MemMapImages", false));
 
   // Simulation preferences
   public static final PrefMonitor<Integer> TRUE_COLOR =
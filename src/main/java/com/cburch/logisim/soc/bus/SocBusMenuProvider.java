@@ -12,6 +12,7 @@ package com.cburch.logisim.soc.bus;
 import static com.cburch.logisim.soc.Strings.S;
 
 import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.gui.generic.OptionPane;
 import com.cburch.logisim.gui.main.Frame;
 import com.cburch.logisim.instance.Instance;
 import com.cburch.logisim.instance.StdAttr;
@@ -24,12 +25,15 @@ import com.cburch.logisim.soc.gui.ListeningFrame;
 import com.cburch.logisim.soc.gui.TraceWindowTableModel;
 import com.cburch.logisim.tools.CircuitStateHolder;
 import com.cburch.logisim.tools.MenuExtender;
+import com.cburch.logisim.util.JFileChoosers;
 import com.cburch.logisim.util.LineBuffer;
 import com.cburch.logisim.util.StringUtil;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseEvent;
+import java.io.IOException;
 import java.util.HashMap;
+import javax.swing.JFileChooser;
 import javax.swing.JMenuItem;
 import javax.swing.JPopupMenu;
 import javax.swing.JScrollPane;
@@ -43,6 +47,7 @@ public class SocBusMenuProvider implements ActionListener {
   private static final int SHOW_MEMORY_MAP = 1;
   private static final int INSERT_TRANSACTION = 2;
   private static final int SHOW_TRACES = 3;
+  private static final int RECORD_TRACE = 4;
   private final HashMap<Instance, InstanceInformation> myInfo;
 
   public SocBusMenuProvider() {
@@ -71,6 +76,7 @@ public class SocBusMenuProvider implements ActionListener {
               .insertTransaction(inst, info.getCircuitState(), info.getState(), info.getName());
           case SHOW_TRACES ->
               myInfo.get(inst).showTraceWindow(inst, info.getState(), info.getHierInfo());
+          case RECORD_TRACE -> myInfo.get(inst).toggleTraceRecording(info.getState());
           default ->
               throw new IllegalStateException(String.format("Unsupported function: %d", function));
         }
@@ -208,6 +214,14 @@ public class SocBusMenuProvider implements ActionListener {
         traceWin.addActionListener(parent);
         traceWin.setEnabled(true);
         menu.add(traceWin);
+        if (data != null) {
+          name = instanceName + ": "
+              + S.get(data.isRecording() ? "SocBusStopRecordTrace" : "SocBusRecordTrace");
+          final var record = new InstanceMenuItem(instance, name, RECORD_TRACE, data, hierarchy);
+          record.addActionListener(parent);
+          record.setEnabled(true);
+          menu.add(record);
+        }
       }
     }
 
@@ -324,6 +338,26 @@ public class SocBusMenuProvider implements ActionListener {
       myTraceFrame.setExtendedState(fstate);
     }
 
+    public void toggleTraceRecording(SocBusStateInfo.SocBusState state) {
+      if (state == null) return;
+      try {
+        if (state.isRecording()) {
+          state.stopRecording();
+          return;
+        }
+        final var chooser = JFileChoosers.create();
+        chooser.setDialogTitle(S.get("SocBusRecordTrace"));
+        if (chooser.showSaveDialog(parentFrame) != JFileChooser.APPROVE_OPTION) return;
+        state.startRecording(chooser.getSelectedFile());
+      } catch (IOException e) {
+        OptionPane.showMessageDialog(
+            parentFrame,
+            S.get("SocBusRecordTraceError", e.getMessage()),
+            S.get("SocBusRecordTrace"),
+            OptionPane.ERROR_MESSAGE);
+      }
+    }
+
     public void destroyTraceWindow() {
       if (myTraceFrame != null) {
         myTraceFrame.setVisible(false);
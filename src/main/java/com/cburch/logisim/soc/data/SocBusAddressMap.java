@@ -0,0 +1,97 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.soc.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Address decoder of a bus: the address ranges of its slaves as sorted, disjoint segments, so a
+ * transaction finds its responder with a binary search instead of asking every slave. Ranges
+ * claimed by more than one slave are kept as segments of their own, so overlaps are detected once
+ * when the map is built. The map is immutable; the memory map builds a new one whenever a slave
+ * is added, removed or moved.
+ */
+class SocBusAddressMap {
+  private static final long ADDRESS_MASK = 0xFFFFFFFFL;
+
+  private final long[] starts;
+  private final long[] ends;
+  /* the slave of each segment, or null if several slaves claim it */
+  private final SocBusSlaveInterface[] owners;
+
+  SocBusAddressMap(List<SocBusSlaveInterface> slaves) {
+    final var nrOfSlaves = slaves.size();
+    final var low = new long[nrOfSlaves];
+    final var high = new long[nrOfSlaves];
+    final var bounds = new TreeSet<Long>();
+    for (var i = 0; i < nrOfSlaves; i++) {
+      final var slave = slaves.get(i);
+      low[i] = slave.getStartAddress() & ADDRESS_MASK;
+      high[i] = low[i] + (slave.getMemorySize() & ADDRESS_MASK);
+      if (high[i] > ADDRESS_MASK + 1) high[i] = ADDRESS_MASK + 1;
+      if (high[i] <= low[i]) continue;
+      bounds.add(low[i]);
+      bounds.add(high[i]);
+    }
+    final var segStarts = new ArrayList<Long>();
+    final var segEnds = new ArrayList<Long>();
+    final var segOwners = new ArrayList<SocBusSlaveInterface>();
+    Long start = null;
+    for (final var bound : bounds) {
+      if (start != null) {
+        SocBusSlaveInterface owner = null;
+        var count = 0;
+        for (var i = 0; i < nrOfSlaves; i++) {
+          if (low[i] <= start && start < high[i]) {
+            owner = slaves.get(i);
+            count++;
+          }
+        }
+        if (count > 1) owner = null;
+        final var last = segStarts.size() - 1;
+        if (count > 0
+            && last >= 0
+            && segEnds.get(last) == start - 1
+            && segOwners.get(last) == owner) {
+          segEnds.set(last, bound - 1);
+        } else if (count > 0) {
+          segStarts.add(start);
+          segEnds.add(bound - 1);
+          segOwners.add(owner);
+        }
+      }
+      start = bound;
+    }
+    final var nrOfSegments = segStarts.size();
+    starts = new long[nrOfSegments];
+    ends = new long[nrOfSegments];
+    owners = segOwners.toArray(new SocBusSlaveInterface[nrOfSegments]);
+    for (var i = 0; i < nrOfSegments; i++) {
+      starts[i] = segStarts.get(i);
+      ends[i] = segEnds.get(i);
+    }
+  }
+
+  /** Returns the segment holding the given address, or -1 if no slave responds to it. */
+  int find(int address) {
+    final var addr = address & ADDRESS_MASK;
+    var index = Arrays.binarySearch(starts, addr);
+    if (index < 0) index = -index - 2;
+    return (index >= 0 && addr <= ends[index]) ? index : -1;
+  }
+
+  /** Returns the slave responding to the given segment, or null if several slaves claim it. */
+  SocBusSlaveInterface getSlave(int segment) {
+    return owners[segment];
+  }
+}
@@ -11,4 +11,12 @@ package com.cburch.logisim.soc.data;
 
 public interface SocBusSnifferInterface {
   void sniffTransaction(SocBusTransaction trans);
+
+  /**
+   * Returns true if the sniffer also wants to see the hidden transactions, such as the writes of
+   * the program loader and the memory editors.
+   */
+  default boolean sniffsHiddenTransactions() {
+    return false;
+  }
 }
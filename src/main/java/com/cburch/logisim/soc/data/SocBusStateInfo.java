@@ -15,6 +15,7 @@ import com.cburch.contracts.BaseWindowListenerContract;
 import com.cburch.logisim.circuit.ComponentDataGuiProvider;
 import com.cburch.logisim.comp.Component;
 import com.cburch.logisim.data.Bounds;
+import com.cburch.logisim.gui.generic.OptionPane;
 import com.cburch.logisim.instance.Instance;
 import com.cburch.logisim.instance.InstanceComponent;
 import com.cburch.logisim.instance.InstanceData;
@@ -35,8 +36,9 @@ import java.awt.Graphics2D;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.WindowEvent;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 import javax.swing.JButton;
 import javax.swing.JDialog;
@@ -44,6 +46,7 @@ import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTable;
+import javax.swing.SwingUtilities;
 import javax.swing.table.TableCellRenderer;
 
 public class SocBusStateInfo extends JDialog
@@ -95,15 +98,16 @@ public class SocBusStateInfo extends JDialog
     }
 
     private static final int NR_OF_TRACES_TO_KEEP = 10000;
-    private final LinkedList<SocBusTransaction> trace;
-    private long startTraceIndex;
+    private final SocBusTraceBuffer trace;
+    /* set by a new transaction until the trace is shown again, so listeners are told only once */
+    private volatile boolean unseenChanges;
     private final SocBusStateInfo parent;
     private final Instance instance;
     private final ArrayList<SocBusStateListener> listeners;
 
     public SocBusState(SocBusStateInfo parent, Instance instance) {
-      trace = new LinkedList<>();
-      startTraceIndex = 0;
+      trace = new SocBusTraceBuffer(NR_OF_TRACES_TO_KEEP);
+      unseenChanges = false;
       this.parent = parent;
       this.instance = instance;
       SocBus.MENU_PROVIDER.registerBusState(this, instance);
@@ -119,33 +123,68 @@ public class SocBusStateInfo extends JDialog
       }
     }
 
-    public void addTransaction(SocBusTransaction t) {
-      while (trace.size() >= NR_OF_TRACES_TO_KEEP) {
-        startTraceIndex++;
-        trace.removeFirst();
-      }
-      trace.addLast(t);
+    /**
+     * Adds a transaction to the trace. Returns true if it is the first one since the trace was
+     * last shown, in which case the listeners have been told and the caller should repaint.
+     */
+    public boolean addTransaction(SocBusTransaction t) {
+      trace.add(t);
+      final var error = trace.takeRecordingError();
+      if (error != null) reportRecordingError(error);
+      if (unseenChanges) return false;
+      unseenChanges = true;
       for (SocBusStateListener l : listeners) l.fireCanged(this);
+      return true;
     }
 
     public void clear() {
       if (trace.size() == 0) return;
       trace.clear();
-      startTraceIndex = 0;
       for (SocBusStateListener l : listeners) l.fireCanged(this);
     }
 
+    public boolean isRecording() {
+      return trace.isRecording();
+    }
+
+    public void startRecording(File file) throws IOException {
+      trace.startRecording(file);
+    }
+
+    public void stopRecording() throws IOException {
+      trace.stopRecording();
+    }
+
+    private void reportRecordingError(IOException e) {
+      SwingUtilities.invokeLater(
+          () ->
+              OptionPane.showMessageDialog(
+                  null,
+                  S.get("SocBusRecordTraceError", e.getMessage()),
+                  S.get("SocBusRecordTrace"),
+                  OptionPane.ERROR_MESSAGE));
+    }
+
+    /**
+     * Tells the state that its trace has been shown, so that the next transaction tells the
+     * listeners and asks for a repaint again.
+     */
+    public void traceShown() {
+      unseenChanges = false;
+    }
+
     public void paint(Graphics2D g, Bounds b) {
-      if (trace.isEmpty()) {
+      final var size = trace.size();
+      if (size == 0) {
         GraphicsUtil.drawCenteredText(g, S.get("SocBusNoTrace"), b.getCenterX(), b.getCenterY());
         return;
       }
-      long nrOfTraces = b.getHeight() / TRACE_HEIGHT;
-      if (nrOfTraces > trace.size()) nrOfTraces = trace.size();
-      int startIndex = trace.size() - 1;
-      for (int i = 0; i < nrOfTraces; i++) {
-        SocBusTransaction t = trace.get(startIndex - i);
-        t.paint(b.getX() + 1, b.getY() + 1 + i * TRACE_HEIGHT, g, startTraceIndex + startIndex - i);
+      final var nrOfTraces = Math.min(b.getHeight() / TRACE_HEIGHT, size);
+      final var firstIndex = trace.getFirstIndex();
+      final var startIndex = size - 1;
+      for (var i = 0; i < nrOfTraces; i++) {
+        final var t = trace.get(startIndex - i);
+        t.paint(b.getX() + 1, b.getY() + 1 + i * TRACE_HEIGHT, g, firstIndex + startIndex - i);
       }
     }
 
@@ -162,16 +201,22 @@ public class SocBusStateInfo extends JDialog
     }
 
     public SocBusStateTrace getEntry(int index, TraceWindowTableModel model) {
-      if (index < 0 || index >= trace.size()) {
+      final var size = trace.size();
+      if (index < 0 || index >= size) {
         if (index == 0) return new SocBusStateTrace(null, 0, model);
         return null;
       }
-      long indx = startTraceIndex + trace.size() - index - 1;
-      return new SocBusStateTrace(trace.get(trace.size() - index - 1), indx, model);
+      final var position = size - index - 1;
+      return new SocBusStateTrace(trace.get(position), trace.getFirstIndex() + position, model);
     }
 
     @Override
     public void destroy() {
+      try {
+        trace.stopRecording();
+      } catch (IOException e) {
+        reportRecordingError(e);
+      }
       if (parent != null && parent.isVisible()) parent.setVisible(false);
       SocBus.MENU_PROVIDER.deregisterBusState(this, instance);
     }
@@ -239,6 +284,11 @@ public class SocBusStateInfo extends JDialog
     return memMap.getSlaves();
   }
 
+  /** Returns a number that changes whenever a slave is added, removed or moved on the bus. */
+  public int getMemoryMapVersion() {
+    return memMap.getVersion();
+  }
+
   @Override
   public String getName() {
     var name = myComp.getAttributeSet().getValue(StdAttr.LABEL);
@@ -262,34 +312,32 @@ public class SocBusStateInfo extends JDialog
   }
 
   public void initializeTransaction(SocBusTransaction trans, String busId) {
-    int nrOfReponders = 0;
-    int reponder = -1;
-    final var slaves = memMap.getSlaves();
-    if (slaves.isEmpty()) trans.setError(SocBusTransaction.NO_SLAVES_ERROR);
+    if (memMap.getSlaves().isEmpty()) trans.setError(SocBusTransaction.NO_SLAVES_ERROR);
     else if (trans.isReadTransaction()
         && trans.isWriteTransaction()
         && !trans.isAtomicTransaction()) {
       trans.setError(SocBusTransaction.NONE_ATOMIC_READ_WRITE_ERROR);
     } else {
-      for (int i = 0; i < slaves.size(); i++) {
-        if (slaves.get(i).canHandleTransaction(trans)) {
-          nrOfReponders++;
-          reponder = i;
+      final var addressMap = memMap.getAddressMap();
+      final var segment = addressMap.find(trans.getAddress());
+      if (segment < 0) trans.setError(SocBusTransaction.NO_RESPONS_ERROR);
+      else if (addressMap.getSlave(segment) == null)
+        trans.setError(SocBusTransaction.MULTIPLE_SLAVES_ERROR);
+      else addressMap.getSlave(segment).handleTransaction(trans);
+    }
+    if (!trans.hasError()) {
+      for (SocBusSnifferInterface sniffer : sniffers) {
+        if (!trans.isHidden() || sniffer.sniffsHiddenTransactions()) {
+          sniffer.sniffTransaction(trans);
         }
       }
-      if (nrOfReponders == 0) trans.setError(SocBusTransaction.NO_RESPONS_ERROR);
-      else if (nrOfReponders != 1) trans.setError(SocBusTransaction.MULTIPLE_SLAVES_ERROR);
-      else slaves.get(reponder).handleTransaction(trans);
-    }
-    if (!trans.hasError() && !trans.isHidden()) {
-      for (SocBusSnifferInterface sniffer : sniffers) sniffer.sniffTransaction(trans);
     }
     if (!trans.isHidden()) {
       final var data = getRegPropagateState();
-      if (data != null) {
-        data.addTransaction(trans);
-        if (myComp.getAttributeSet().getValue(SocBusAttributes.SOC_TRACE_VISIBLE))
-          ((InstanceComponent) myComp).getInstance().fireInvalidated();
+      if (data != null
+          && data.addTransaction(trans)
+          && myComp.getAttributeSet().getValue(SocBusAttributes.SOC_TRACE_VISIBLE)) {
+        ((InstanceComponent) myComp).getInstance().fireInvalidated();
       }
     }
   }
@@ -306,8 +354,10 @@ public class SocBusStateInfo extends JDialog
     g.drawRect(0, 0, TRACE_WIDTH, height);
     if (!visible)
       GraphicsUtil.drawCenteredText(g, S.get("SocHiddenForFasterSimulation"), 320, height / 2);
-    else {
-      if (info != null) ((SocBusState) info).paint(g, Bounds.create(0, 0, 640, height));
+    else if (info != null) {
+      final var state = (SocBusState) info;
+      state.traceShown();
+      state.paint(g, Bounds.create(0, 0, 640, height));
     }
     g.dispose();
   }
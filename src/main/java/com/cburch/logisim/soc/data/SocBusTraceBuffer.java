@@ -0,0 +1,221 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.soc.data;
+
+import com.cburch.logisim.comp.Component;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * The last transactions seen on a bus, kept in preallocated primitive arrays used as a ring
+ * buffer. Recording a transaction only copies its fields; a {@link SocBusTransaction} for display
+ * is rebuilt when the trace is painted. Initiators and responders are stored as small ids into a
+ * table of their own. The simulator adds while the gui reads, so the accessors are synchronized.
+ *
+ * <p>Optionally every recorded transaction is also streamed to a binary file, which holds the
+ * complete trace rather than only the last entries. The file starts with the magic {@code "LSBT"}
+ * and a version int, followed by big-endian records that each start with a tag byte:
+ *
+ * <ul>
+ *   <li>{@code 0}, a transaction: long index in the file, int address, int write data, int read
+ *       data, byte type, byte access, byte error, short initiator id and short responder id
+ *       ({@code -1} for none).
+ *   <li>{@code 1}, an initiator name, and {@code 2}, a responder name: short id and a UTF string.
+ *       The name of an id is written before the first transaction that uses it.
+ * </ul>
+ */
+class SocBusTraceBuffer {
+  static final int FILE_MAGIC = 0x4C534254; /* "LSBT" */
+  static final int FILE_VERSION = 1;
+  private static final int TRANSACTION_RECORD = 0;
+  private static final int MASTER_RECORD = 1;
+  private static final int SLAVE_RECORD = 2;
+
+  private final int capacity;
+  private final int[] addresses;
+  private final int[] writeData;
+  private final int[] readData;
+  /* type in bits 0-2, access in bits 3-4, error from bit 8 */
+  private final int[] info;
+  private final short[] masterIds;
+  private final short[] slaveIds;
+  private final ArrayList<Object> masters = new ArrayList<>();
+  private final HashMap<Object, Short> masterIndex = new HashMap<>();
+  private final ArrayList<Component> slaves = new ArrayList<>();
+  private final HashMap<Component, Short> slaveIndex = new HashMap<>();
+  private int first = 0;
+  private int size = 0;
+  private long recorded = 0;
+  private DataOutputStream recording;
+  private long recordsWritten;
+  private int masterNamesWritten;
+  private int slaveNamesWritten;
+  private IOException recordingError;
+
+  SocBusTraceBuffer(int capacity) {
+    this.capacity = capacity;
+    addresses = new int[capacity];
+    writeData = new int[capacity];
+    readData = new int[capacity];
+    info = new int[capacity];
+    masterIds = new short[capacity];
+    slaveIds = new short[capacity];
+  }
+
+  synchronized void add(SocBusTransaction trans) {
+    final int slot;
+    if (size < capacity) {
+      slot = (first + size++) % capacity;
+    } else {
+      slot = first;
+      first = (first + 1) % capacity;
+    }
+    addresses[slot] = trans.getAddress();
+    writeData[slot] = trans.getWriteData();
+    readData[slot] = trans.getReadData();
+    info[slot] = trans.getType() | (trans.getAccessType() << 3) | (trans.getError() << 8);
+    masterIds[slot] = getMasterId(trans.getTransactionInitiator());
+    slaveIds[slot] = getSlaveId(trans.getTransactionResponder());
+    recorded++;
+    if (recording != null) record(slot);
+  }
+
+  private short getMasterId(Object master) {
+    var id = masterIndex.get(master);
+    if (id == null) {
+      id = (short) masters.size();
+      masters.add(master);
+      masterIndex.put(master, id);
+    }
+    return id;
+  }
+
+  private short getSlaveId(Component slave) {
+    if (slave == null) return -1;
+    var id = slaveIndex.get(slave);
+    if (id == null) {
+      id = (short) slaves.size();
+      slaves.add(slave);
+      slaveIndex.put(slave, id);
+    }
+    return id;
+  }
+
+  synchronized int size() {
+    return size;
+  }
+
+  /** Returns the index, counted from the last clear, of the oldest transaction kept. */
+  synchronized long getFirstIndex() {
+    return recorded - size;
+  }
+
+  /** Rebuilds the transaction at the given position, 0 being the oldest one kept. */
+  synchronized SocBusTransaction get(int position) {
+    final var slot = (first + position) % capacity;
+    final var trans =
+        new SocBusTransaction(
+            info[slot] & 7,
+            addresses[slot],
+            writeData[slot],
+            (info[slot] >> 3) & 3,
+            masters.get(masterIds[slot]));
+    trans.setReadData(readData[slot]);
+    trans.setError(info[slot] >> 8);
+    if (slaveIds[slot] >= 0) trans.setTransactionResponder(slaves.get(slaveIds[slot]));
+    return trans;
+  }
+
+  synchronized void clear() {
+    first = 0;
+    size = 0;
+    recorded = 0;
+    if (recording == null) {
+      masters.clear();
+      masterIndex.clear();
+      slaves.clear();
+      slaveIndex.clear();
+    }
+  }
+
+  boolean isRecording() {
+    return recording != null;
+  }
+
+  synchronized void startRecording(File file) throws IOException {
+    stopRecording();
+    final var out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+    out.writeInt(FILE_MAGIC);
+    out.writeInt(FILE_VERSION);
+    recording = out;
+    recordsWritten = 0;
+    masterNamesWritten = 0;
+    slaveNamesWritten = 0;
+  }
+
+  synchronized void stopRecording() throws IOException {
+    if (recording == null) return;
+    final var out = recording;
+    recording = null;
+    out.close();
+  }
+
+  private void record(int slot) {
+    try {
+      while (masterNamesWritten < masters.size()) {
+        final var master = masters.get(masterNamesWritten);
+        recording.writeByte(MASTER_RECORD);
+        recording.writeShort(masterNamesWritten++);
+        recording.writeUTF(
+            master instanceof Component comp
+                ? SocSupport.getComponentName(comp)
+                : String.valueOf(master));
+      }
+      while (slaveNamesWritten < slaves.size()) {
+        recording.writeByte(SLAVE_RECORD);
+        recording.writeShort(slaveNamesWritten);
+        recording.writeUTF(SocSupport.getComponentName(slaves.get(slaveNamesWritten++)));
+      }
+      recording.writeByte(TRANSACTION_RECORD);
+      recording.writeLong(recordsWritten++);
+      recording.writeInt(addresses[slot]);
+      recording.writeInt(writeData[slot]);
+      recording.writeInt(readData[slot]);
+      recording.writeByte(info[slot] & 7);
+      recording.writeByte((info[slot] >> 3) & 3);
+      recording.writeByte(info[slot] >> 8);
+      recording.writeShort(masterIds[slot]);
+      recording.writeShort(slaveIds[slot]);
+    } catch (IOException e) {
+      /* a failing file must not stop the simulation, the trace in memory goes on */
+      recordingError = e;
+      try {
+        stopRecording();
+      } catch (IOException ignored) {
+        // the write error is the one to report
+      }
+    }
+  }
+
+  /**
+   * Returns the error that made the recording stop since the last call, or null if there was
+   * none.
+   */
+  IOException takeRecordingError() {
+    final var ret = recordingError;
+    recordingError = null;
+    return ret;
+  }
+}
@@ -200,6 +200,9 @@ public class SocMemMapModel extends AbstractTableModel
 
   private final ArrayList<SocBusSlaveInterface> slaves;
   private final SlaveMap slaveMap;
+  private SocBusAddressMap addressMap;
+  // bumped on every rebuild, so that caches of bus contents can tell the map changed
+  private volatile int version = 0;
   private final SlaveInfoRenderer slaveRenderer;
   private final MemoryMapHeaderRenderer headRenderer;
   private InstanceComponent marked;
@@ -235,6 +238,14 @@ public class SocMemMapModel extends AbstractTableModel
     return slaves;
   }
 
+  SocBusAddressMap getAddressMap() {
+    return addressMap;
+  }
+
+  int getVersion() {
+    return version;
+  }
+
   public SlaveInfoRenderer getCellRender() {
     return slaveRenderer;
   }
@@ -285,6 +296,8 @@ public class SocMemMapModel extends AbstractTableModel
   }
 
   private void rebuild() {
+    addressMap = new SocBusAddressMap(slaves);
+    version++;
     slaveMap.clear();
     if (slaves.isEmpty())
       slaveMap.add(new SlaveInfo(0, -1));
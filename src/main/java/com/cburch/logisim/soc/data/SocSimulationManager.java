@@ -240,6 +240,12 @@ public class SocSimulationManager implements SocBusMasterInterface {
       trans.setError(SocBusTransaction.NO_SOC_BUS_CONNECTED_ERROR);
       return;
     }
+    if (!toBeChecked.isEmpty()) registerPendingComponents();
+    info.initializeTransaction(trans, busId);
+  }
+
+  /* attaches the slaves and sniffers added before their bus, the first time the bus is used */
+  private void registerPendingComponents() {
     final var iter = toBeChecked.iterator();
     while (iter.hasNext()) {
       final var comp = iter.next();
@@ -258,7 +264,6 @@ public class SocSimulationManager implements SocBusMasterInterface {
       }
       iter.remove();
     }
-    info.initializeTransaction(trans, busId);
   }
 
 }
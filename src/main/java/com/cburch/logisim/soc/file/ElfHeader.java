@@ -327,13 +327,13 @@ public class ElfHeader {
     if (v instanceof Integer)
       return (int) v;
     if (v instanceof Long)
-      return Integer.parseUnsignedInt(String.format("%08X", ((Long) v) & LONGINTMASK), 16);
+      return (int) (((Long) v) & LONGINTMASK);
     return 0;
   }
 
   public static long getLongValue(Object v) {
     if (v instanceof Integer)
-      return Long.parseUnsignedLong(String.format("%08X", v), 16);
+      return Integer.toUnsignedLong((Integer) v);
     if (v instanceof Long)
       return (long) v;
     return 0;
@@ -28,6 +28,7 @@ import javax.swing.BorderFactory;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JTable;
+import javax.swing.SwingUtilities;
 import javax.swing.table.AbstractTableModel;
 import javax.swing.table.TableCellRenderer;
 
@@ -164,7 +165,13 @@ public class TraceWindowTableModel extends AbstractTableModel
 
   @Override
   public void fireCanged(SocBusState item) {
-    if (myTraceList.containsKey(item) && myTraceList.get(item) != null) fireTableDataChanged();
+    if (myTraceList.containsKey(item) && myTraceList.get(item) != null) {
+      SwingUtilities.invokeLater(
+          () -> {
+            item.traceShown();
+            fireTableDataChanged();
+          });
+    }
   }
 
   public TableCellRenderer getCellRenderer() {
@@ -10,22 +10,42 @@
 package com.cburch.logisim.soc.rv32im;
 
 import com.cburch.logisim.soc.util.AbstractAssembler;
+import com.cburch.logisim.soc.util.AssemblerExecutionInterface;
 import com.cburch.logisim.soc.util.AssemblerToken;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.function.Supplier;
 
 public class RV32imAssembler extends AbstractAssembler {
 
+  private static final List<Supplier<AssemblerExecutionInterface>> EXECUTION_UNITS =
+      List.of(
+          /* Here we add the RV32I base integer instruction set */
+          RV32imIntegerRegisterImmediateInstructions::new,
+          RV32imIntegerRegisterRegisterOperations::new,
+          RV32imControlTransferInstructions::new,
+          RV32imLoadAndStoreInstructions::new,
+          Rv32imMemoryOrderingInstructions::new,
+          RV32imEnvironmentCallAndBreakpoints::new,
+          /* Here we add the "M" standard extension for integer multiplication and Division */
+          RV32im_M_ExtensionInstructions::new);
+
   public RV32imAssembler() {
     super();
-    /* Here we add the RV32I base integer instruction set */
-    super.addAssemblerExecutionUnit(new RV32imIntegerRegisterImmediateInstructions());
-    super.addAssemblerExecutionUnit(new RV32imIntegerRegisterRegisterOperations());
-    super.addAssemblerExecutionUnit(new RV32imControlTransferInstructions());
-    super.addAssemblerExecutionUnit(new RV32imLoadAndStoreInstructions());
-    super.addAssemblerExecutionUnit(new Rv32imMemoryOrderingInstructions());
-    super.addAssemblerExecutionUnit(new RV32imEnvironmentCallAndBreakpoints());
-    /* Here we add the "M" standard extension for integer multiplication and Division */
-    super.addAssemblerExecutionUnit(new RV32im_M_ExtensionInstructions());
+    for (final var unit : EXECUTION_UNITS) super.addAssemblerExecutionUnit(unit.get());
+  }
+
+  /**
+   * Decodes the instruction into a new execution unit that is not shared with any assembler, so
+   * it can be kept and executed again later. Returns null if no unit accepts the instruction.
+   */
+  static AssemblerExecutionInterface decodeInstance(int instruction) {
+    for (final var unit : EXECUTION_UNITS) {
+      final var exe = unit.get();
+      exe.setBinInstruction(instruction);
+      if (exe.isValid()) return exe;
+    }
+    return null;
   }
 
   public boolean usesRoundedBrackets() {
@@ -46,6 +46,9 @@ public class RV32imAttributes extends AbstractAttributeSet {
       Attributes.forHexInteger("exceptionVector", S.getter("rv32ExceptionVector"));
   public static final Attribute<Boolean> RV32IM_STATE_VISIBLE =
       Attributes.forBoolean("stateVisible", S.getter("rv32StateVisible"));
+  public static final Attribute<Integer> INSTRUCTIONS_PER_CLOCK =
+      Attributes.forIntegerRange(
+          "instructionsPerClock", S.getter("rv32InstructionsPerClock"), 1, 4096);
 
   private Font labelFont = StdAttr.DEFAULT_LABEL_FONT;
   private Boolean labelVisible = true;
@@ -58,6 +61,7 @@ public class RV32imAttributes extends AbstractAttributeSet {
           EXCEPTION_VECTOR,
           NR_OF_IRQS,
           RV32IM_STATE_VISIBLE,
+          INSTRUCTIONS_PER_CLOCK,
           StdAttr.LABEL,
           StdAttr.LABEL_FONT,
           StdAttr.LABEL_VISIBILITY,
@@ -85,6 +89,7 @@ public class RV32imAttributes extends AbstractAttributeSet {
     if (attr == RESET_VECTOR) return (V) upState.getResetVector();
     if (attr == EXCEPTION_VECTOR) return (V) upState.getExceptionVector();
     if (attr == NR_OF_IRQS) return (V) BitWidth.create(upState.getNrOfIrqs());
+    if (attr == INSTRUCTIONS_PER_CLOCK) return (V) upState.getInstructionsPerClock();
     if (attr == StdAttr.LABEL) return (V) upState.getLabel();
     if (attr == StdAttr.LABEL_FONT) return (V) labelFont;
     if (attr == StdAttr.LABEL_VISIBILITY) return (V) labelVisible;
@@ -120,6 +125,11 @@ public class RV32imAttributes extends AbstractAttributeSet {
         fireAttributeValueChanged(attr, value, oldValue);
       return;
     }
+    if (attr == INSTRUCTIONS_PER_CLOCK) {
+      if (upState.setInstructionsPerClock((int) value))
+        fireAttributeValueChanged(attr, value, oldValue);
+      return;
+    }
     if (attr == SocSimulationManager.SOC_BUS_SELECT) {
       if (upState.setAttachedBus((SocBusInfo) value))
         fireAttributeValueChanged(attr, value, oldValue);
@@ -0,0 +1,101 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.soc.rv32im;
+
+import com.cburch.logisim.soc.data.SocBusTransaction;
+import com.cburch.logisim.soc.util.AssemblerExecutionInterface;
+import java.util.Arrays;
+
+/**
+ * Direct mapped cache of decoded instructions of one processor, indexed by program counter.
+ *
+ * <p>Each entry holds an execution unit of its own that has decoded the instruction word, so a
+ * hit needs neither a fetch transaction nor a pass over the shared assembler. The owner must
+ * invalidate the entries covered by every write to memory and clear the cache whenever the
+ * memory is reloaded behind its back.
+ */
+class RV32imInstructionCache {
+
+  static class Entry {
+    private final int pc;
+    private final int instruction;
+    private final AssemblerExecutionInterface exe;
+    private String asm;
+
+    private Entry(int pc, int instruction, AssemblerExecutionInterface exe) {
+      this.pc = pc;
+      this.instruction = instruction;
+      this.exe = exe;
+    }
+
+    int getInstruction() {
+      return instruction;
+    }
+
+    AssemblerExecutionInterface getExeUnit() {
+      return exe;
+    }
+
+    /** Returns the assembly of the instruction, which does not change once decoded. */
+    String getAsmInstruction() {
+      if (asm == null) asm = exe.getAsmInstruction();
+      return asm;
+    }
+  }
+
+  private static final int NR_OF_ENTRIES = 4096;
+
+  private final Entry[] entries = new Entry[NR_OF_ENTRIES];
+
+  private static int index(int address) {
+    return (address >>> 2) & (NR_OF_ENTRIES - 1);
+  }
+
+  /** Returns the entry of the instruction at the given address, or null if it is not cached. */
+  Entry get(int pc) {
+    final var entry = entries[index(pc)];
+    return (entry != null && entry.pc == pc) ? entry : null;
+  }
+
+  /**
+   * Decodes the instruction fetched from the given address and caches it. Returns null, without
+   * caching anything, if the instruction is not valid.
+   */
+  Entry put(int pc, int instruction) {
+    if ((pc & 3) != 0) return null;
+    final var exe = RV32imAssembler.decodeInstance(instruction);
+    if (exe == null) return null;
+    final var entry = new Entry(pc, instruction, exe);
+    entries[index(pc)] = entry;
+    return entry;
+  }
+
+  /** Drops the entries overlapping the data written by the given transaction. */
+  void invalidate(SocBusTransaction trans) {
+    final var first = trans.getAddress() & ~3;
+    final var last =
+        switch (trans.getAccessType()) {
+          case SocBusTransaction.BYTE_ACCESS -> trans.getAddress();
+          case SocBusTransaction.HALF_WORD_ACCESS -> trans.getAddress() + 1;
+          default -> trans.getAddress() + 3;
+        } & ~3;
+    invalidate(first);
+    if (last != first) invalidate(last);
+  }
+
+  private void invalidate(int address) {
+    final var slot = index(address);
+    if (entries[slot] != null && entries[slot].pc == address) entries[slot] = null;
+  }
+
+  void clear() {
+    Arrays.fill(entries, null);
+  }
+}
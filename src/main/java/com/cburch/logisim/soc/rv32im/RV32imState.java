@@ -23,7 +23,10 @@ import com.cburch.logisim.instance.InstanceComponent;
 import com.cburch.logisim.instance.InstanceData;
 import com.cburch.logisim.instance.InstanceStateImpl;
 import com.cburch.logisim.prefs.AppPreferences;
+import com.cburch.logisim.soc.bus.SocBusAttributes;
 import com.cburch.logisim.soc.data.SocBusInfo;
+import com.cburch.logisim.soc.data.SocBusSnifferInterface;
+import com.cburch.logisim.soc.data.SocBusStateInfo;
 import com.cburch.logisim.soc.data.SocBusTransaction;
 import com.cburch.logisim.soc.data.SocProcessorInterface;
 import com.cburch.logisim.soc.data.SocSupport;
@@ -37,6 +40,8 @@ import com.cburch.logisim.soc.file.ElfProgramHeader;
 import com.cburch.logisim.soc.file.ElfSectionHeader;
 import com.cburch.logisim.soc.gui.BreakpointPanel;
 import com.cburch.logisim.soc.gui.CpuDrawSupport;
+import com.cburch.logisim.soc.memory.SocMemory;
+import com.cburch.logisim.soc.util.AssemblerExecutionInterface;
 import com.cburch.logisim.soc.util.AssemblerInterface;
 import com.cburch.logisim.util.GraphicsUtil;
 import com.cburch.logisim.util.StringUtil;
@@ -46,6 +51,7 @@ import java.awt.Graphics2D;
 import java.awt.event.WindowEvent;
 import java.awt.event.WindowListener;
 import java.util.LinkedList;
+import java.util.Map;
 import javax.swing.JPanel;
 import org.fife.ui.rsyntaxtextarea.AbstractTokenMakerFactory;
 import org.fife.ui.rsyntaxtextarea.TokenMakerFactory;
@@ -57,7 +63,8 @@ public class RV32imState implements SocUpSimulationStateListener, SocProcessorIn
           Cloneable,
           ComponentDataGuiProvider,
           BaseWindowListenerContract,
-          SocUpStateInterface {
+          SocUpStateInterface,
+          SocBusSnifferInterface {
     private static final long serialVersionUID = 1L;
     private final int[] registers;
     private final Boolean[] registers_valid;
@@ -71,6 +78,9 @@ public class RV32imState implements SocUpSimulationStateListener, SocProcessorIn
     private Integer entryPoint;
     private boolean programLoaded;
     private final BreakpointPanel bPanel;
+    private final RV32imInstructionCache instructionCache = new RV32imInstructionCache();
+    private SocBusStateInfo watchedBus;
+    private int watchedMapVersion;
 
     public ProcessorState(Instance inst) {
       registers = new int[32];
@@ -121,6 +131,8 @@ public class RV32imState implements SocUpSimulationStateListener, SocProcessorIn
       }
       lastRegisterWritten = -1;
       instrTrace.clear();
+      /* the memory may have been loaded by hidden transactions */
+      instructionCache.clear();
       if (visible) repaint();
       simState.reset();
     }
@@ -201,9 +213,28 @@ public class RV32imState implements SocUpSimulationStateListener, SocProcessorIn
     }
 
     public void execute(CircuitState cState) {
-      /* check the simulation state */
       if (!simState.canExecute()) return;
+      final var canCache = watchBus();
+      final var fetchAlways = !canCache || isBusTraceVisible();
+      /* when no trace is shown, several instructions can be executed on each clock edge */
+      final var count =
+          visible || myInstance.getAttributeValue(RV32imAttributes.RV32IM_STATE_VISIBLE)
+              ? 1
+              : instructionsPerClock;
       final var breakPoints = bPanel.getBreakPoints();
+      for (var i = 0; i < count; i++) {
+        if (!executeInstruction(cState, breakPoints, canCache, fetchAlways)) break;
+      }
+      if (visible) repaint();
+    }
+
+    private boolean executeInstruction(
+        CircuitState cState,
+        Map<Integer, Integer> breakPoints,
+        boolean canCache,
+        boolean fetchAlways) {
+      /* check the simulation state */
+      if (!simState.canExecute()) return false;
       if (breakPoints.containsKey(pc)) {
         if (simState.breakPointReached()) {
           bPanel.gotoLine(breakPoints.get(pc) - 1);
@@ -212,36 +243,55 @@ public class RV32imState implements SocUpSimulationStateListener, SocProcessorIn
               S.get("RV32imBreakPointReached"),
               SocSupport.getMasterName(cState, RV32imState.this.getName()),
               OptionPane.INFORMATION_MESSAGE);
-          return;
+          return false;
         }
       }
       /* TODO: check interrupts */
-      /* fetch an instruction */
-      final var trans =
-          new SocBusTransaction(
-              SocBusTransaction.READ_TRANSACTION,
-              pc,
-              0,
-              SocBusTransaction.WORD_ACCESS,
-              attachedBus.getComponent());
-      attachedBus
-          .getSocSimulationManager()
-          .initializeTransaction(trans, attachedBus.getBusId(), cState);
-      if (trans.hasError()) {
-        OptionPane.showMessageDialog(
-            null,
-            trans.getErrorMessage(),
-            SocSupport.getMasterName(cState, RV32imState.this.getName())
-                + S.get("RV32imFetchTransaction"),
-            OptionPane.ERROR_MESSAGE);
-        simState.errorInExecution();
-        return;
+      /* fetch an instruction, hot code is found in the cache */
+      final int instruction;
+      var cached = instructionCache.get(pc);
+      if (cached != null && !fetchAlways) {
+        instruction = cached.getInstruction();
+      } else {
+        final var trans =
+            new SocBusTransaction(
+                SocBusTransaction.READ_TRANSACTION,
+                pc,
+                0,
+                SocBusTransaction.WORD_ACCESS,
+                attachedBus.getComponent());
+        attachedBus
+            .getSocSimulationManager()
+            .initializeTransaction(trans, attachedBus.getBusId(), cState);
+        if (trans.hasError()) {
+          OptionPane.showMessageDialog(
+              null,
+              trans.getErrorMessage(),
+              SocSupport.getMasterName(cState, RV32imState.this.getName())
+                  + S.get("RV32imFetchTransaction"),
+              OptionPane.ERROR_MESSAGE);
+          simState.errorInExecution();
+          return false;
+        }
+        instruction = trans.getReadData();
+        if (cached == null || cached.getInstruction() != instruction) {
+          /* only instructions fetched from memory are certain to read the same next time */
+          final var responder = trans.getTransactionResponder();
+          cached =
+              canCache && responder != null && responder.getFactory() instanceof SocMemory
+                  ? instructionCache.put(pc, instruction)
+                  : null;
+        }
       }
       /* decode instruction */
-      int instruction = trans.getReadData();
-      ASSEMBLER.decode(instruction);
+      final AssemblerExecutionInterface exe;
+      if (cached != null) {
+        exe = cached.getExeUnit();
+      } else {
+        ASSEMBLER.decode(instruction);
+        exe = ASSEMBLER.getExeUnit();
+      }
       /* execute instruction */
-      final var exe = ASSEMBLER.getExeUnit();
       lastRegisterWritten = -1;
       while (instrTrace.size() >= CpuDrawSupport.NR_OF_TRACES) instrTrace.removeLast();
       if (exe == null) {
@@ -254,10 +304,10 @@ public class RV32imState implements SocUpSimulationStateListener, SocProcessorIn
         simState.errorInExecution();
         instrTrace.addFirst(new TraceInfo(pc, instruction, S.get("RV32imFetchInvInstrAsm"), true));
         pc = pc + 4;
-        if (visible) repaint();
-        return;
+        return false;
       }
-      final var trace = new TraceInfo(pc, instruction, exe.getAsmInstruction(), false);
+      final var asm = cached != null ? cached.getAsmInstruction() : exe.getAsmInstruction();
+      final var trace = new TraceInfo(pc, instruction, asm, false);
       if (!exe.execute(this, cState)) {
         final var s = new StringBuilder();
         s.append(S.get("RV32imFetchExecutionError"));
@@ -271,13 +321,52 @@ public class RV32imState implements SocUpSimulationStateListener, SocProcessorIn
         simState.errorInExecution();
         trace.setError();
         instrTrace.addFirst(trace);
-        if (visible) repaint();
-        return;
+        return false;
       }
       instrTrace.addFirst(trace);
       /* all done increment pc */
       if (!exe.performedJump()) pc = pc + 4;
-      if (visible) repaint();
+      return true;
+    }
+
+    /**
+     * Makes sure this state sniffs the bus it is attached to, so that writes to cached
+     * instructions invalidate them, and drops the cache when the memory map of the bus changed.
+     * Returns false if there is no bus to fetch from.
+     */
+    private boolean watchBus() {
+      final var manager = attachedBus.getSocSimulationManager();
+      final var bus = manager == null ? null : manager.getSocBusState(attachedBus.getBusId());
+      if (bus != watchedBus) {
+        if (watchedBus != null) watchedBus.removeSocBusSniffer(this);
+        if (bus != null) bus.registerSocBusSniffer(this);
+        watchedBus = bus;
+        instructionCache.clear();
+      }
+      if (bus == null) return false;
+      final var version = bus.getMemoryMapVersion();
+      if (version != watchedMapVersion) {
+        watchedMapVersion = version;
+        instructionCache.clear();
+      }
+      return true;
+    }
+
+    private boolean isBusTraceVisible() {
+      final var busComp = watchedBus.getComponent();
+      return busComp != null
+          && busComp.getAttributeSet().getValue(SocBusAttributes.SOC_TRACE_VISIBLE);
+    }
+
+    @Override
+    public void sniffTransaction(SocBusTransaction trans) {
+      if (trans.isWriteTransaction()) instructionCache.invalidate(trans);
+    }
+
+    @Override
+    public boolean sniffsHiddenTransactions() {
+      // the loader and the memory editors write without showing it
+      return true;
     }
 
     @Override
@@ -304,6 +393,7 @@ public class RV32imState implements SocUpSimulationStateListener, SocProcessorIn
 
     @Override
     public void destroy() {
+      if (watchedBus != null) watchedBus.removeSocBusSniffer(this);
       SocUpMenuProvider.SOCUPMENUPROVIDER.deregisterCpuState(this, myInstance);
     }
 
@@ -388,6 +478,7 @@ public class RV32imState implements SocUpSimulationStateListener, SocProcessorIn
   private int resetVector;
   private int exceptionVector;
   private int nrOfIrqs;
+  private int instructionsPerClock;
   private String label;
   private final SocBusInfo attachedBus;
 
@@ -418,6 +509,7 @@ public class RV32imState implements SocUpSimulationStateListener, SocProcessorIn
     resetVector = 0;
     exceptionVector = 0x14;
     nrOfIrqs = 0;
+    instructionsPerClock = 1;
     label = "";
     attachedBus = new SocBusInfo("");
   }
@@ -426,6 +518,7 @@ public class RV32imState implements SocUpSimulationStateListener, SocProcessorIn
     dest.resetVector = resetVector;
     dest.exceptionVector = exceptionVector;
     dest.nrOfIrqs = nrOfIrqs;
+    dest.instructionsPerClock = instructionsPerClock;
     dest.label = label;
     dest.attachedBus.setBusId(attachedBus.getBusId());
   }
@@ -472,6 +565,16 @@ public class RV32imState implements SocUpSimulationStateListener, SocProcessorIn
     return nrOfIrqs;
   }
 
+  public boolean setInstructionsPerClock(int value) {
+    if (instructionsPerClock == value) return false;
+    instructionsPerClock = value;
+    return true;
+  }
+
+  public Integer getInstructionsPerClock() {
+    return instructionsPerClock;
+  }
+
   public boolean setLabel(String value) {
     if (label.equals(value)) return false;
     label = value;
@@ -11,6 +11,7 @@ package com.cburch.logisim.std.arith;
 
 import static com.cburch.logisim.std.Strings.S;
 
+import com.cburch.logisim.circuit.LevelizedComputer;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.BitWidth;
@@ -20,6 +21,7 @@ import com.cburch.logisim.data.Location;
 import com.cburch.logisim.data.Value;
 import com.cburch.logisim.fpga.designrulecheck.CorrectLabel;
 import com.cburch.logisim.gui.icons.ArithmeticIcon;
+import com.cburch.logisim.instance.Instance;
 import com.cburch.logisim.instance.InstanceFactory;
 import com.cburch.logisim.instance.InstancePainter;
 import com.cburch.logisim.instance.InstanceState;
@@ -61,36 +63,42 @@ public class Adder extends InstanceFactory {
         };
       }
     } else {
-      final var bits = new Value[w];
-      var carry = cIn;
-      for (int i = 0; i < w; i++) {
-        if (carry == Value.ERROR) {
-          bits[i] = Value.ERROR;
-        } else if (carry == Value.UNKNOWN) {
-          bits[i] = Value.UNKNOWN;
-        } else {
-          Value ab = valueA.get(i);
-          Value bb = valueB.get(i);
-          if (ab == Value.ERROR || bb == Value.ERROR) {
-            bits[i] = Value.ERROR;
-            carry = Value.ERROR;
-          } else if (ab == Value.UNKNOWN || bb == Value.UNKNOWN) {
-            bits[i] = Value.UNKNOWN;
-            carry = Value.UNKNOWN;
-          } else {
-            int sum =
-                (ab == Value.TRUE ? 1 : 0)
-                    + (bb == Value.TRUE ? 1 : 0)
-                    + (carry == Value.TRUE ? 1 : 0);
-            bits[i] = (sum & 1) == 1 ? Value.TRUE : Value.FALSE;
-            carry = (sum >= 2) ? Value.TRUE : Value.FALSE;
-          }
-        }
+      // the sum is exact below the lowest undefined bit; from there on the
+      // carry, and with it every higher bit, takes on the state of that bit
+      final var mask = w == 64 ? -1L : ~(-1L << w);
+      final var errors =
+          (valueA.getErrorBits() | ~widthMask(valueA) | valueB.getErrorBits() | ~widthMask(valueB))
+              & mask;
+      final var undefined = (errors | valueA.getUnknownBits() | valueB.getUnknownBits()) & mask;
+      final var lowest = undefined & -undefined;
+      final var isError = cIn == Value.ERROR || (errors & lowest) != 0;
+      final var from = cIn == Value.ERROR ? -1L : -lowest;
+      final var a = valueA.getValueBits();
+      final var b = valueB.getValueBits();
+      final var c = cIn == Value.TRUE ? 1L : 0L;
+      final var sum = a + b + c;
+      final Value carry;
+      if ((from & mask) == 0) {
+        carry = computeCarry(w, a & mask, b & mask, c) == 0 ? Value.FALSE : Value.TRUE;
+      } else {
+        carry = isError ? Value.ERROR : Value.UNKNOWN;
       }
-      return new Value[] {Value.create(bits), carry};
+      final var bits = isError ? Value.create(w, from, 0, sum) : Value.create(w, 0, from, sum);
+      return new Value[] {bits, carry};
     }
   }
 
+  private static long widthMask(Value value) {
+    return value.getWidth() == 64 ? -1L : ~(-1L << value.getWidth());
+  }
+
+  /** Returns the carry out of adding the given values, which must fit in the given width. */
+  static long computeCarry(int width, long a, long b, long cIn) {
+    final var sum = a + b + cIn;
+    if (width < 64) return (sum >>> width) & 1;
+    return ((a & b) | ((a | b) & ~sum)) >>> 63;
+  }
+
   static final int PER_DELAY = 1;
 
   public static final int IN0 = 0;
@@ -148,6 +156,30 @@ public class Adder extends InstanceFactory {
     GraphicsUtil.switchToWidth(g, 1);
   }
 
+  @Override
+  protected Object getInstanceFeature(Instance instance, Object key) {
+    if (key == LevelizedComputer.class) {
+      return (LevelizedComputer)
+          compiler -> {
+            final var width = instance.getAttributeValue(StdAttr.WIDTH).getWidth();
+            final var a = compiler.input(IN0);
+            final var b = compiler.input(IN1);
+            final var cIn = compiler.isPortConnected(C_IN) ? compiler.input(C_IN) : -1;
+            final var out = compiler.output(OUT);
+            final var cOut = compiler.output(C_OUT);
+            compiler.combinational(
+                values -> {
+                  final var x = values.get(a);
+                  final var y = values.get(b);
+                  final var c = cIn < 0 ? 0 : values.get(cIn);
+                  values.set(out, x + y + c);
+                  values.set(cOut, computeCarry(width, x, y, c));
+                });
+          };
+    }
+    return super.getInstanceFeature(instance, key);
+  }
+
   @Override
   public void propagate(InstanceState state) {
     // get attributes
@@ -164,4 +196,9 @@ public class Adder extends InstanceFactory {
     state.setPort(OUT, outs[0], delay);
     state.setPort(C_OUT, outs[1], delay);
   }
+
+  @Override
+  public boolean isReentrant() {
+    return true;
+  }
 }
@@ -168,4 +168,9 @@ public class BitAdder extends InstanceFactory {
     int delay = out.length * Adder.PER_DELAY;
     state.setPort(0, Value.create(out), delay);
   }
+
+  @Override
+  public boolean isReentrant() {
+    return true;
+  }
 }
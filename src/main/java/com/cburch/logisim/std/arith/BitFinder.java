@@ -185,4 +185,9 @@ public class BitFinder extends InstanceFactory {
     state.setPort(0, present, delay);
     state.setPort(1, index, delay);
   }
+
+  @Override
+  public boolean isReentrant() {
+    return true;
+  }
 }
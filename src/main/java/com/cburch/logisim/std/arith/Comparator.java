@@ -159,4 +159,9 @@ public class Comparator extends InstanceFactory {
     state.setPort(EQ, eq, delay);
     state.setPort(LT, lt, delay);
   }
+
+  @Override
+  public boolean isReentrant() {
+    return true;
+  }
 }
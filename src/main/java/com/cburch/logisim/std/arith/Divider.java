@@ -144,4 +144,9 @@ public class Divider extends InstanceFactory {
     state.setPort(OUT, outs[0], delay);
     state.setPort(REM, outs[1], delay);
   }
+
+  @Override
+  public boolean isReentrant() {
+    return true;
+  }
 }
@@ -205,4 +205,9 @@ public class Multiplier extends InstanceFactory {
     state.setPort(OUT, outs[0], delay);
     state.setPort(C_OUT, outs[1], delay);
   }
+
+  @Override
+  public boolean isReentrant() {
+    return true;
+  }
 }
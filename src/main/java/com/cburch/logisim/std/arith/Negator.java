@@ -112,4 +112,9 @@ public class Negator extends InstanceFactory {
     int delay = (dataWidth.getWidth() + 2) * Adder.PER_DELAY;
     state.setPort(OUT, out, delay);
   }
+
+  @Override
+  public boolean isReentrant() {
+    return true;
+  }
 }
@@ -222,4 +222,9 @@ public class Shifter extends InstanceFactory {
     int delay = dataWidth.getWidth() * (3 * Adder.PER_DELAY);
     state.setPort(OUT, vy, delay);
   }
+
+  @Override
+  public boolean isReentrant() {
+    return true;
+  }
 }
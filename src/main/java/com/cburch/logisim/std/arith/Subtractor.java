@@ -11,6 +11,7 @@ package com.cburch.logisim.std.arith;
 
 import static com.cburch.logisim.std.Strings.S;
 
+import com.cburch.logisim.circuit.LevelizedComputer;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.BitWidth;
@@ -19,6 +20,7 @@ import com.cburch.logisim.data.Direction;
 import com.cburch.logisim.data.Value;
 import com.cburch.logisim.fpga.designrulecheck.CorrectLabel;
 import com.cburch.logisim.gui.icons.ArithmeticIcon;
+import com.cburch.logisim.instance.Instance;
 import com.cburch.logisim.instance.InstanceFactory;
 import com.cburch.logisim.instance.InstancePainter;
 import com.cburch.logisim.instance.InstanceState;
@@ -93,6 +95,32 @@ public class Subtractor extends InstanceFactory {
     GraphicsUtil.switchToWidth(gfx, 1);
   }
 
+  @Override
+  protected Object getInstanceFeature(Instance instance, Object key) {
+    if (key == LevelizedComputer.class) {
+      return (LevelizedComputer)
+          compiler -> {
+            final var width = instance.getAttributeValue(StdAttr.WIDTH).getWidth();
+            final var mask = width == 64 ? -1L : (1L << width) - 1;
+            final var a = compiler.input(IN0);
+            final var b = compiler.input(IN1);
+            final var bIn = compiler.isPortConnected(B_IN) ? compiler.input(B_IN) : -1;
+            final var out = compiler.output(OUT);
+            final var bOut = compiler.output(B_OUT);
+            compiler.combinational(
+                values -> {
+                  // a - b - bIn computed as a + ~b + ~bIn, like propagate does
+                  final var x = values.get(a);
+                  final var y = ~values.get(b) & mask;
+                  final var c = bIn < 0 ? 1 : 1 - values.get(bIn);
+                  values.set(out, x + y + c);
+                  values.set(bOut, 1 - Adder.computeCarry(width, x, y, c));
+                });
+          };
+    }
+    return super.getInstanceFeature(instance, key);
+  }
+
   @Override
   public void propagate(InstanceState state) {
     // get attributes
@@ -110,4 +138,9 @@ public class Subtractor extends InstanceFactory {
     state.setPort(OUT, outs[0], delay);
     state.setPort(B_OUT, outs[1].not(), delay);
   }
+
+  @Override
+  public boolean isReentrant() {
+    return true;
+  }
 }
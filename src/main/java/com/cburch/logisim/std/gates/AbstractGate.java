@@ -13,6 +13,7 @@ import com.cburch.logisim.LogisimVersion;
 import com.cburch.logisim.analyze.model.Expression;
 import com.cburch.logisim.analyze.model.Expressions;
 import com.cburch.logisim.circuit.ExpressionComputer;
+import com.cburch.logisim.circuit.LevelizedComputer;
 import com.cburch.logisim.comp.TextField;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeSet;
@@ -116,6 +117,12 @@ abstract class AbstractGate extends InstanceFactory {
 
   protected abstract Value computeOutput(Value[] inputs, int numInputs, InstanceState state);
 
+  /**
+   * Bitwise counterpart of {@link #computeOutput} used by the levelized simulator, where every
+   * input bit is known to be 0 or 1. Bits beyond the gate's width are ignored.
+   */
+  protected abstract long computeOutputBits(long[] inputs, int numInputs, AttributeSet attrs);
+
   void computePorts(Instance instance) {
     final var attrs = (GateAttributes) instance.getAttributeSet();
     int inputs = attrs.inputs;
@@ -304,6 +311,44 @@ abstract class AbstractGate extends InstanceFactory {
             }
           };
     }
+    if (key == LevelizedComputer.class) {
+      return (LevelizedComputer)
+          compiler -> {
+            final var attrs = (GateAttributes) instance.getAttributeSet();
+            final var opts = compiler.getOptions();
+            final var errorIfUndefined =
+                opts.getValue(Options.ATTR_GATE_UNDEFINED).equals(Options.GATE_UNDEFINED_ERROR);
+            if (attrs.out != GateAttributes.OUTPUT_01) {
+              throw compiler.unsupported("has a tri-state output");
+            }
+
+            final var ports = new int[attrs.inputs];
+            final var negated = new boolean[attrs.inputs];
+            var count = 0;
+            for (var i = 1; i <= attrs.inputs; i++) {
+              if (compiler.isPortConnected(i)) {
+                ports[count] = compiler.input(i);
+                negated[count] = ((attrs.negated >> (i - 1)) & 1) == 1;
+                count++;
+              } else if (errorIfUndefined) {
+                throw compiler.unsupported("has an unconnected input");
+              }
+            }
+            if (count == 0) throw compiler.unsupported("has no connected input");
+
+            final var numInputs = count;
+            final var out = compiler.output(0);
+            final var inputs = new long[numInputs];
+            compiler.combinational(
+                values -> {
+                  for (var i = 0; i < numInputs; i++) {
+                    final var v = values.get(ports[i]);
+                    inputs[i] = negated[i] ? ~v : v;
+                  }
+                  values.set(out, computeOutputBits(inputs, numInputs, attrs));
+                });
+          };
+    }
     return super.getInstanceFeature(instance, key);
   }
 
@@ -593,4 +638,9 @@ abstract class AbstractGate extends InstanceFactory {
   protected boolean shouldRepairWire(Instance instance, WireRepairData data) {
     return false;
   }
+
+  @Override
+  public boolean isReentrant() {
+    return true;
+  }
 }
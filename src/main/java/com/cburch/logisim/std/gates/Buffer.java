@@ -12,6 +12,7 @@ package com.cburch.logisim.std.gates;
 import static com.cburch.logisim.std.Strings.S;
 
 import com.cburch.logisim.circuit.ExpressionComputer;
+import com.cburch.logisim.circuit.LevelizedComputer;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.BitWidth;
@@ -135,6 +136,18 @@ class Buffer extends InstanceFactory {
         }
       };
     }
+    if (key == LevelizedComputer.class) {
+      return (LevelizedComputer)
+          compiler -> {
+            final var outType = instance.getAttributeValue(GateAttributes.ATTR_OUTPUT);
+            if (outType != GateAttributes.OUTPUT_01) {
+              throw compiler.unsupported("has a tri-state output");
+            }
+            final var in = compiler.input(1);
+            final var out = compiler.output(0);
+            compiler.combinational(values -> values.set(out, values.get(in)));
+          };
+    }
     return super.getInstanceFeature(instance, key);
   }
 
@@ -231,4 +244,9 @@ class Buffer extends InstanceFactory {
     else
       AbstractGate.paintIconBufferAnsi(g, false, false);
   }
+
+  @Override
+  public boolean isReentrant() {
+    return true;
+  }
 }
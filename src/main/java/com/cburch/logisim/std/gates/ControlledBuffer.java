@@ -268,4 +268,9 @@ class ControlledBuffer extends InstanceFactory {
       state.setPort(0, out, GateAttributes.DELAY);
     }
   }
+
+  @Override
+  public boolean isReentrant() {
+    return true;
+  }
 }
@@ -13,52 +13,64 @@ import com.cburch.logisim.data.Value;
 
 class GateFunctions {
   static Value computeAnd(Value[] inputs, int numInputs) {
+    return Value.and(inputs, numInputs);
+  }
+
+  static Value computeExactlyOne(Value[] inputs, int numInputs) {
+    final var width = inputs[0].getWidth();
+    final var mask = width == 64 ? -1L : ~(-1L << width);
+    var undefined = 0L;
+    var seen = 0L;
+    var repeated = 0L;
+    for (var i = 0; i < numInputs; i++) {
+      final var v = inputs[i];
+      final var inputMask = v.getWidth() >= 64 ? -1L : ~(-1L << v.getWidth());
+      // bits missing from a narrower input count as errors
+      undefined |= v.getErrorBits() | v.getUnknownBits() | ~inputMask;
+      repeated |= seen & v.getValueBits();
+      seen |= v.getValueBits();
+    }
+    return Value.create(width, undefined & mask, 0, seen & ~repeated);
+  }
+
+  static Value computeOddParity(Value[] inputs, int numInputs) {
+    return Value.xor(inputs, numInputs);
+  }
+
+  static Value computeOr(Value[] inputs, int numInputs) {
+    return Value.or(inputs, numInputs);
+  }
+
+  static long computeAnd(long[] inputs, int numInputs) {
     var ret = inputs[0];
     for (int i = 1; i < numInputs; i++) {
-      ret = ret.and(inputs[i]);
+      ret &= inputs[i];
     }
     return ret;
   }
 
-  static Value computeExactlyOne(Value[] inputs, int numInputs) {
-    final var width = inputs[0].getWidth();
-    final var ret = new Value[width];
-    for (var i = 0; i < width; i++) {
-      var count = 0;
-      for (var j = 0; j < numInputs; j++) {
-        final var v = inputs[j].get(i);
-        if (v == Value.TRUE) {
-          count++;
-        } else if (v == Value.FALSE) {
-          // do nothing
-        } else {
-          count = -1;
-          break;
-        }
-      }
-      if (count < 0) {
-        ret[i] = Value.ERROR;
-      } else if (count == 1) {
-        ret[i] = Value.TRUE;
-      } else {
-        ret[i] = Value.FALSE;
-      }
+  static long computeExactlyOne(long[] inputs, int numInputs) {
+    var seen = 0L;
+    var repeated = 0L;
+    for (int i = 0; i < numInputs; i++) {
+      repeated |= seen & inputs[i];
+      seen |= inputs[i];
     }
-    return Value.create(ret);
+    return seen & ~repeated;
   }
 
-  static Value computeOddParity(Value[] inputs, int numInputs) {
+  static long computeOddParity(long[] inputs, int numInputs) {
     var ret = inputs[0];
     for (int i = 1; i < numInputs; i++) {
-      ret = ret.xor(inputs[i]);
+      ret ^= inputs[i];
     }
     return ret;
   }
 
-  static Value computeOr(Value[] inputs, int numInputs) {
+  static long computeOr(long[] inputs, int numInputs) {
     var ret = inputs[0];
     for (int i = 1; i < numInputs; i++) {
-      ret = ret.or(inputs[i]);
+      ret |= inputs[i];
     }
     return ret;
   }
@@ -13,6 +13,7 @@ import static com.cburch.logisim.std.Strings.S;
 
 import com.cburch.logisim.analyze.model.Expression;
 import com.cburch.logisim.analyze.model.Expressions;
+import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.Value;
 import com.cburch.logisim.fpga.hdlgenerator.Hdl;
 import com.cburch.logisim.instance.InstancePainter;
@@ -80,6 +81,11 @@ class NandGate extends AbstractGate {
     return GateFunctions.computeAnd(inputs, numInputs).not();
   }
 
+  @Override
+  protected long computeOutputBits(long[] inputs, int numInputs, AttributeSet attrs) {
+    return ~GateFunctions.computeAnd(inputs, numInputs);
+  }
+
   @Override
   protected Value getIdentity() {
     return Value.TRUE;
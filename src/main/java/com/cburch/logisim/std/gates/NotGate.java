@@ -13,6 +13,7 @@ import static com.cburch.logisim.std.Strings.S;
 
 import com.cburch.logisim.analyze.model.Expressions;
 import com.cburch.logisim.circuit.ExpressionComputer;
+import com.cburch.logisim.circuit.LevelizedComputer;
 import com.cburch.logisim.comp.TextField;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeOption;
@@ -152,6 +153,18 @@ class NotGate extends InstanceFactory {
             }
           };
     }
+    if (key == LevelizedComputer.class) {
+      return (LevelizedComputer)
+          compiler -> {
+            final var outType = instance.getAttributeValue(GateAttributes.ATTR_OUTPUT);
+            if (outType != GateAttributes.OUTPUT_01) {
+              throw compiler.unsupported("has a tri-state output");
+            }
+            final var in = compiler.input(1);
+            final var out = compiler.output(0);
+            compiler.combinational(values -> values.set(out, ~values.get(in)));
+          };
+    }
     return super.getInstanceFeature(instance, key);
   }
 
@@ -266,4 +279,9 @@ class NotGate extends InstanceFactory {
     out = Buffer.repair(state, out);
     state.setPort(0, out, GateAttributes.DELAY);
   }
+
+  @Override
+  public boolean isReentrant() {
+    return true;
+  }
 }
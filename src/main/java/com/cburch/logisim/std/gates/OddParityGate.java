@@ -13,6 +13,7 @@ import static com.cburch.logisim.std.Strings.S;
 
 import com.cburch.logisim.analyze.model.Expression;
 import com.cburch.logisim.analyze.model.Expressions;
+import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.Value;
 import com.cburch.logisim.instance.InstancePainter;
 import com.cburch.logisim.instance.InstanceState;
@@ -49,6 +50,11 @@ class OddParityGate extends AbstractGate {
     return GateFunctions.computeOddParity(inputs, numInputs);
   }
 
+  @Override
+  protected long computeOutputBits(long[] inputs, int numInputs, AttributeSet attrs) {
+    return GateFunctions.computeOddParity(inputs, numInputs);
+  }
+
   @Override
   protected Value getIdentity() {
     return Value.FALSE;
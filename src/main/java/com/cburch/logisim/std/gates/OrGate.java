@@ -13,6 +13,7 @@ import static com.cburch.logisim.std.Strings.S;
 
 import com.cburch.logisim.analyze.model.Expression;
 import com.cburch.logisim.analyze.model.Expressions;
+import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.Value;
 import com.cburch.logisim.fpga.hdlgenerator.Hdl;
 import com.cburch.logisim.instance.Instance;
@@ -72,6 +73,11 @@ class OrGate extends AbstractGate {
     return GateFunctions.computeOr(inputs, numInputs);
   }
 
+  @Override
+  protected long computeOutputBits(long[] inputs, int numInputs, AttributeSet attrs) {
+    return GateFunctions.computeOr(inputs, numInputs);
+  }
+
   @Override
   protected Value getIdentity() {
     return Value.FALSE;
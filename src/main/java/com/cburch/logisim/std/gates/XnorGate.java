@@ -58,6 +58,15 @@ class XnorGate extends AbstractGate {
     }
   }
 
+  @Override
+  protected long computeOutputBits(long[] inputs, int numInputs, AttributeSet attrs) {
+    if (attrs.getValue(GateAttributes.ATTR_XOR) == GateAttributes.XOR_ODD) {
+      return ~GateFunctions.computeOddParity(inputs, numInputs);
+    } else {
+      return ~GateFunctions.computeExactlyOne(inputs, numInputs);
+    }
+  }
+
   @Override
   protected Value getIdentity() {
     return Value.FALSE;
@@ -70,6 +70,15 @@ class XorGate extends AbstractGate {
     }
   }
 
+  @Override
+  protected long computeOutputBits(long[] inputs, int numInputs, AttributeSet attrs) {
+    if (attrs.getValue(GateAttributes.ATTR_XOR) == GateAttributes.XOR_ODD) {
+      return GateFunctions.computeOddParity(inputs, numInputs);
+    } else {
+      return GateFunctions.computeExactlyOne(inputs, numInputs);
+    }
+  }
+
   @Override
   protected Value getIdentity() {
     return Value.FALSE;
@@ -27,7 +27,6 @@ import com.cburch.logisim.instance.StdAttr;
 import com.cburch.logisim.util.GraphicsUtil;
 import com.cburch.logisim.util.StringUtil;
 import com.cburch.logisim.vhdl.base.VhdlSimConstants;
-import com.cburch.logisim.vhdl.sim.VhdlSimulatorTop;
 import java.awt.Color;
 import java.awt.Window;
 import java.io.IOException;
@@ -243,58 +242,7 @@ public class VhdlEntityComponent extends InstanceFactory {
     if (state.getProject().getVhdlSimulator().isEnabled()
         && state.getProject().getVhdlSimulator().isRunning()) {
 
-      VhdlSimulatorTop vhdlSimulator = state.getProject().getVhdlSimulator();
-
-      for (final var p : state.getInstance().getPorts()) {
-        final var index = state.getPortIndex(p);
-        final var val = state.getPortValue(index);
-
-        String vhdlEntityName = getSimName(state.getAttributeSet());
-
-        String message =
-            p.getType()
-                + ":"
-                + vhdlEntityName
-                + "_"
-                + p.getToolTip()
-                + ":"
-                + val.toBinaryString()
-                + ":"
-                + index;
-
-        vhdlSimulator.send(message);
-      }
-
-      vhdlSimulator.send("sync");
-
-      /* Get response from tcl server */
-      String server_response;
-      while ((server_response = vhdlSimulator.receive()) != null
-          && server_response.length() > 0
-          && !server_response.equals("sync")) {
-
-        final var parameters = server_response.split(":");
-
-        final var busValue = parameters[1];
-
-        final var vector_values = new Value[busValue.length()];
-
-        var k = busValue.length() - 1;
-        for (final var bit : busValue.toCharArray()) {
-          try {
-            switch (Character.getNumericValue(bit)) {
-              case 0 -> vector_values[k] = Value.FALSE;
-              case 1 -> vector_values[k] = Value.TRUE;
-              default -> vector_values[k] = Value.UNKNOWN;
-            }
-          } catch (NumberFormatException e) {
-            vector_values[k] = Value.UNKNOWN;
-          }
-          k--;
-        }
-
-        state.setPort(Integer.parseInt(parameters[2]), Value.create(vector_values), 1);
-      }
+      state.getProject().getVhdlSimulator().propagate(state, getSimName(state.getAttributeSet()));
 
       /* VhdlSimulation stopped/disabled */
     } else {
@@ -11,6 +11,8 @@ package com.cburch.logisim.std.memory;
 
 import static com.cburch.logisim.std.Strings.S;
 
+import com.cburch.logisim.circuit.LevelizedComputer;
+import com.cburch.logisim.comp.StateKey;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeOption;
 import com.cburch.logisim.data.AttributeSet;
@@ -124,6 +126,12 @@ abstract class AbstractFlipFlop extends InstanceFactory {
 
   private static class StateData extends ClockState implements InstanceData {
     Value curValue = (AppPreferences.Memory_Startup_Unknown.get()) ? Value.UNKNOWN : Value.FALSE;
+
+    @Override
+    public boolean addStateTo(StateKey key) {
+      addClockTo(key.add(curValue));
+      return true;
+    }
   }
 
   private static final int STD_PORTS = 5;
@@ -374,6 +382,42 @@ abstract class AbstractFlipFlop extends InstanceFactory {
     GraphicsUtil.switchToWidth(g, 1);
   }
 
+  @Override
+  protected Object getInstanceFeature(Instance instance, Object key) {
+    if (key == LevelizedComputer.class) {
+      return (LevelizedComputer)
+          compiler -> {
+            final var n = numInputs;
+            final var trigger = instance.getAttributeValue(triggerAttribute);
+            final var edge = trigger == StdAttr.TRIG_RISING || trigger == StdAttr.TRIG_FALLING;
+            if (!edge) throw compiler.unsupported("is not edge triggered");
+            if (compiler.isPortConnected(n + 3) || compiler.isPortConnected(n + 4)) {
+              throw compiler.unsupported("has a connected asynchronous input");
+            }
+            final var ports = new int[n];
+            for (var i = 0; i < n; i++) ports[i] = compiler.input(i);
+            final var q = compiler.output(n + 1);
+            final var qBar = compiler.output(n + 2);
+            final var inputs = new Value[n];
+            compiler.clocked(
+                n,
+                trigger == StdAttr.TRIG_RISING,
+                values -> {
+                  for (var i = 0; i < n; i++) {
+                    inputs[i] = values.get(ports[i]) != 0 ? Value.TRUE : Value.FALSE;
+                  }
+                  final var cur = values.get(q) != 0 ? Value.TRUE : Value.FALSE;
+                  final var next = computeValue(inputs, cur);
+                  if (next == Value.TRUE || next == Value.FALSE) {
+                    values.set(q, next == Value.TRUE ? 1 : 0);
+                    values.set(qBar, next == Value.TRUE ? 0 : 1);
+                  }
+                });
+          };
+    }
+    return super.getInstanceFeature(instance, key);
+  }
+
   @Override
   public void propagate(InstanceState state) {
     // boolean changed = false;
@@ -430,4 +474,9 @@ abstract class AbstractFlipFlop extends InstanceFactory {
       updatePorts(instance);
     }
   }
+
+  @Override
+  public boolean isReentrant() {
+    return true;
+  }
 }
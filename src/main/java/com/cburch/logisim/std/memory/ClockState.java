@@ -9,6 +9,7 @@
 
 package com.cburch.logisim.std.memory;
 
+import com.cburch.logisim.comp.StateKey;
 import com.cburch.logisim.data.Value;
 import com.cburch.logisim.instance.StdAttr;
 
@@ -28,6 +29,11 @@ public class ClockState implements Cloneable {
     }
   }
 
+  /** Adds the last clock value seen, which decides the next edge, to a state key. */
+  protected void addClockTo(StateKey key) {
+    key.add(lastClock);
+  }
+
   public boolean updateClock(Value newClock, Object trigger) {
     final var oldClock = lastClock;
     lastClock = newClock;
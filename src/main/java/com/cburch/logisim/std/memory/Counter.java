@@ -604,4 +604,9 @@ public class Counter extends InstanceFactory implements DynamicElementProvider {
   public DynamicElement createDynamicElement(int x, int y, DynamicElement.Path path) {
     return new CounterShape(x, y, path);
   }
+
+  @Override
+  public boolean isReentrant() {
+    return true;
+  }
 }
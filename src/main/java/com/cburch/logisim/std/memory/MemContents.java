@@ -13,6 +13,11 @@ import com.cburch.hex.HexModel;
 import com.cburch.hex.HexModelListener;
 import com.cburch.logisim.prefs.AppPreferences;
 import com.cburch.logisim.util.EventSourceWeakSupport;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 
 public class MemContents implements Cloneable, HexModel {
@@ -25,6 +30,9 @@ public class MemContents implements Cloneable, HexModel {
 
   private static final int PAGE_MASK = PAGE_SIZE - 1;
 
+  // image files are mapped in chunks of at most this many bytes
+  private static final int MAP_CHUNK_SIZE = 1 << 26;
+
   private EventSourceWeakSupport<HexModelListener> listeners = null;
   private int width;
   private int addrBits;
@@ -47,13 +55,13 @@ public class MemContents implements Cloneable, HexModel {
     listeners.add(l);
   }
 
-  public void clear() {
+  public synchronized void clear() {
     for (var i = 0; i < pages.length; i++) {
       if (pages[i] != null) clearPage(i);
     }
   }
 
-  public void condClear() {
+  public synchronized void condClear() {
     if (!AppPreferences.Memory_Startup_Unknown.getBoolean()) clear();
     else {
       for (var i = 0; i < pages.length; i++) {
@@ -86,15 +94,14 @@ public class MemContents implements Cloneable, HexModel {
   // other methods
   //
   @Override
-  public MemContents clone() {
+  public synchronized MemContents clone() {
     try {
       final var ret = (MemContents) super.clone();
       ret.listeners = null;
-      ret.pages = new Page[this.pages.length];
-      for (var i = 0; i < ret.pages.length; i++) {
-        if (this.pages[i] != null) {
-          ret.pages[i] = this.pages[i].clone();
-        }
+      // the pages are shared until either side writes to them
+      ret.pages = this.pages.clone();
+      for (final var page : pages) {
+        if (page != null) page.shared = true;
       }
       return ret;
     } catch (CloneNotSupportedException ex) {
@@ -102,14 +109,26 @@ public class MemContents implements Cloneable, HexModel {
     }
   }
 
-  private void ensurePage(int index) {
-    if (pages[index] == null) {
-      pages[index] = MemContentsSub.createPage(PAGE_SIZE, width, randomize);
+  // Marks the page at index as shared, once any write to it is done, and returns it.
+  private synchronized Page sharePage(int index) {
+    final var page = pages[index];
+    if (page != null) page.shared = true;
+    return page;
+  }
+
+  // Returns the page at index, created if missing and copied if shared, so it can be written.
+  private Page ensurePage(int index) {
+    var page = pages[index];
+    if (page == null) {
+      page = pages[index] = MemContentsSub.createPage(PAGE_SIZE, width, randomize);
+    } else if (page.shared) {
+      page = pages[index] = page.clone();
     }
+    return page;
   }
 
   @Override
-  public void fill(long start, long len, long value) {
+  public synchronized void fill(long start, long len, long value) {
     if (len == 0) return;
 
     var pageStart = (int) (start >>> PAGE_SIZE_BITS);
@@ -119,10 +138,9 @@ public class MemContents implements Cloneable, HexModel {
     value &= mask;
 
     if (pageStart == pageEnd) {
-      ensurePage(pageStart);
+      final var page = ensurePage(pageStart);
       final var vals = new long[(int) len];
       Arrays.fill(vals, value);
-      final var page = pages[pageStart];
       if (!page.matches(vals, startOffs, mask)) {
         final var oldValues = page.get(startOffs, (int) len);
         page.load(startOffs, vals, mask);
@@ -136,10 +154,9 @@ public class MemContents implements Cloneable, HexModel {
         if (value == 0 && pages[pageStart] == null) {
           // nothing to do
         } else {
-          ensurePage(pageStart);
+          final var page = ensurePage(pageStart);
           final var vals = new long[PAGE_SIZE - startOffs];
           Arrays.fill(vals, value);
-          final var page = pages[pageStart];
           if (!page.matches(vals, startOffs, mask)) {
             final var oldValues = page.get(startOffs, vals.length);
             page.load(startOffs, vals, mask);
@@ -156,8 +173,7 @@ public class MemContents implements Cloneable, HexModel {
         final var vals = new long[PAGE_SIZE];
         Arrays.fill(vals, value);
         for (var i = pageStart + 1; i < pageEnd; i++) {
-          ensurePage(i);
-          final var page = pages[i];
+          final var page = ensurePage(i);
           if (!page.matches(vals, 0, mask)) {
             final var oldValues = page.get(0, PAGE_SIZE);
             page.load(0, vals, mask);
@@ -166,11 +182,10 @@ public class MemContents implements Cloneable, HexModel {
         }
       }
       if (endOffs >= 0) {
-        final var page = pages[pageEnd];
-        if (value == 0 && page == null) {
+        if (value == 0 && pages[pageEnd] == null) {
           // nothing to do
         } else {
-          ensurePage(pageEnd);
+          final var page = ensurePage(pageEnd);
           final var vals = new long[endOffs + 1];
           Arrays.fill(vals, value);
           if (!page.matches(vals, 0, mask)) {
@@ -254,23 +269,20 @@ public class MemContents implements Cloneable, HexModel {
   }
 
   @Override
-  public void set(long addr, long value) {
+  public synchronized void set(long addr, long value) {
     final var page = (int) (addr >>> PAGE_SIZE_BITS);
     long offs = (addr & PAGE_MASK);
     if (page < 0 || page >= pages.length) return;
     long old = pages[page] == null ? 0 : pages[page].get(offs) & mask;
     long val = value & mask;
     if (old != val) {
-      if (pages[page] == null) {
-        pages[page] = MemContentsSub.createPage(PAGE_SIZE, width, randomize);
-      }
-      pages[page].set(offs, val);
+      ensurePage(page).set(offs, val);
       fireBytesChanged(addr, 1, new long[] {old});
     }
   }
 
   @Override
-  public void set(long start, long[] values) {
+  public synchronized void set(long start, long[] values) {
     if (values.length == 0) return;
 
     var pageStart = (int) (start >>> PAGE_SIZE_BITS);
@@ -279,8 +291,7 @@ public class MemContents implements Cloneable, HexModel {
     final var endOffs = (int) ((start + values.length - 1) & PAGE_MASK);
 
     if (pageStart == pageEnd) {
-      ensurePage(pageStart);
-      final var page = pages[pageStart];
+      final var page = ensurePage(pageStart);
       if (!page.matches(values, startOffs, mask)) {
         final var oldValues = page.get(startOffs, values.length);
         page.load(startOffs, values, mask);
@@ -293,10 +304,9 @@ public class MemContents implements Cloneable, HexModel {
         pageStart--;
         nextOffs = 0;
       } else {
-        ensurePage(pageStart);
+        final var page = ensurePage(pageStart);
         final var vals = new long[PAGE_SIZE - startOffs];
         System.arraycopy(values, 0, vals, 0, vals.length);
-        final var page = pages[pageStart];
         if (!page.matches(vals, startOffs, mask)) {
           final var oldValues = page.get(startOffs, vals.length);
           page.load(startOffs, vals, mask);
@@ -309,7 +319,9 @@ public class MemContents implements Cloneable, HexModel {
       int offs = nextOffs;
       for (var i = pageStart + 1; i < pageEnd; i++, offs += PAGE_SIZE) {
         var page = pages[i];
-        if (page == null) {
+        if (page != null) {
+          page = ensurePage(i);
+        } else {
           var allZeroes = true;
           for (var j = 0; j < PAGE_SIZE; j++) {
             if ((values[offs + j] & mask) != 0) {
@@ -324,7 +336,7 @@ public class MemContents implements Cloneable, HexModel {
         }
         if (page != null) {
           System.arraycopy(values, offs, vals, 0, PAGE_SIZE);
-          if (!page.matches(vals, startOffs, mask)) {
+          if (!page.matches(vals, 0, mask)) {
             final var oldValues = page.get(0, PAGE_SIZE);
             page.load(0, vals, mask);
             if (page.isClear()) pages[i] = null;
@@ -333,11 +345,10 @@ public class MemContents implements Cloneable, HexModel {
         }
       }
       if (endOffs >= 0) {
-        ensurePage(pageEnd);
+        final var page = ensurePage(pageEnd);
         vals = new long[endOffs + 1];
         System.arraycopy(values, offs, vals, 0, endOffs + 1);
-        final var page = pages[pageEnd];
-        if (!page.matches(vals, startOffs, mask)) {
+        if (!page.matches(vals, 0, mask)) {
           final var oldValues = page.get(0, endOffs + 1);
           page.load(0, vals, mask);
           if (page.isClear()) pages[pageEnd] = null;
@@ -347,7 +358,7 @@ public class MemContents implements Cloneable, HexModel {
     }
   }
 
-  public void copyFrom(long start, MemContents src, long offs, int count) {
+  public synchronized void copyFrom(long start, MemContents src, long offs, int count) {
     count = (int) Math.min(count, getLastOffset() - start + 1);
     if (count <= 0) return;
     if (src.addrBits != addrBits)
@@ -368,19 +379,21 @@ public class MemContents implements Cloneable, HexModel {
     var si = (int) (offs & PAGE_MASK);
 
     do {
-      var dstPage = pages[dp];
+      final var dstPage = pages[dp];
       final var srcPage = src.pages[sp];
       final var n = Math.min(count, Math.min(PAGE_SIZE - si, PAGE_SIZE - di));
       if (dstPage == null && srcPage == null) {
         // both already all zeros, so do nothing
+      } else if (n == PAGE_SIZE && src.width == width && srcPage != null) {
+        // a whole page, which both can share until either writes to it
+        pages[dp] = src.sharePage(sp);
       } else if (srcPage == null) {
         // clearing locations di..di+n on this page
         fill(dp * PAGE_SIZE + di, n, 0);
       } else {
-        if (dstPage == null) dstPage = pages[dp] = MemContentsSub.createPage(PAGE_SIZE, width, randomize);
         // copy locations di..di+n on this page
         final var vals = srcPage.get(si, n);
-        dstPage.set(di, vals);
+        ensurePage(dp).set(di, vals);
       }
       count -= n;
       di += n;
@@ -397,7 +410,51 @@ public class MemContents implements Cloneable, HexModel {
     fireBytesChanged(0, 1 << addrBits, null); /* update my listeners */
   }
 
-  public void setDimensions(int addrBits, int width) {
+  /**
+   * Replaces the contents by those of a raw binary image, which holds one word of width / 8 bytes
+   * per address in the given byte order. The file is mapped rather than read, so that loading is
+   * immediate and only the pages actually written to get copied onto the heap. Returns false,
+   * leaving the contents unchanged, if the width is not 8, 16, 32 or 64 bits.
+   *
+   * <p>Reading a mapping of a file that has since been truncated fails, so the file must not be
+   * changed while it is mapped, unless {@link #releaseImage(File)} is called first.
+   */
+  public boolean mapImage(File file, boolean bigEndian) throws IOException {
+    if (width != 8 && width != 16 && width != 32 && width != 64) return false;
+    final var order = bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+    final var pageLength = pages.length == 1 ? (int) (getLastOffset() + 1) : PAGE_SIZE;
+    final var pageBytes = pageLength * (width / 8);
+    final var chunkPages = Math.max(1, MAP_CHUNK_SIZE / pageBytes);
+    final var newPages = new Page[pages.length];
+    try (final var channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      final var size = Math.min(channel.size(), (long) pages.length * pageBytes);
+      for (var i = 0; (long) i * pageBytes < size; i += chunkPages) {
+        final var pos = (long) i * pageBytes;
+        final var chunk =
+            channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(size - pos, (long) chunkPages * pageBytes));
+        for (var j = 0; j < chunkPages && (long) j * pageBytes < chunk.capacity(); j++) {
+          final var offs = j * pageBytes;
+          final var data = chunk.slice(offs, Math.min(pageBytes, chunk.capacity() - offs)).order(order);
+          newPages[i + j] = MemContentsSub.mapPage(file, data, pageLength, width);
+        }
+      }
+    }
+    synchronized (this) {
+      pages = newPages;
+    }
+    fireBytesChanged(0, 1L << addrBits, null);
+    return true;
+  }
+
+  /**
+   * Copies all pages still mapped from the given file, in any memory, onto the heap, so that the
+   * file can be overwritten.
+   */
+  public static void releaseImage(File file) {
+    MemContentsSub.releasePages(file);
+  }
+
+  public synchronized void setDimensions(int addrBits, int width) {
     if (addrBits == this.addrBits && width == this.width) return;
     this.addrBits = addrBits;
     this.width = width;
@@ -433,7 +490,7 @@ public class MemContents implements Cloneable, HexModel {
     fireMetainfoChanged();
   }
 
-  public void condFillRandom() {
+  public synchronized void condFillRandom() {
     if (AppPreferences.Memory_Startup_Unknown.get()) {
       final var pageLength = (addrBits < PAGE_SIZE_BITS) ? 1 << addrBits : PAGE_SIZE;
       for (var i = 0; i < pages.length; i++)
@@ -442,10 +499,15 @@ public class MemContents implements Cloneable, HexModel {
   }
 
   abstract static class Page implements Cloneable {
+    // set once the page may be referenced by more than one MemContents
+    volatile boolean shared;
+
     @Override
     public Page clone() {
       try {
-        return (Page) super.clone();
+        final var ret = (Page) super.clone();
+        ret.shared = false;
+        return ret;
       } catch (CloneNotSupportedException e) {
         return this;
       }
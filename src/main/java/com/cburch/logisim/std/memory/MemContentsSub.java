@@ -10,8 +10,15 @@
 package com.cburch.logisim.std.memory;
 
 import com.cburch.logisim.prefs.AppPreferences;
-
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Random;
+import java.util.Set;
+import java.util.WeakHashMap;
 
 class MemContentsSub {
   private static class BytePage extends MemContents.Page {
@@ -224,6 +231,97 @@ class MemContentsSub {
     }
   }
 
+  // the pages still mapped from each image file
+  private static final HashMap<Path, Set<MappedPage>> mappedPages = new HashMap<>();
+
+  // A page of a mapped image file, which is never written: it is copied onto the heap first.
+  private static class MappedPage extends MemContents.Page {
+    // replaced by a copy on the heap once the file is about to be overwritten
+    private volatile ByteBuffer data;
+    private final int length;
+    private final int bits;
+
+    public MappedPage(ByteBuffer data, int length, int bits) {
+      this.data = data;
+      this.length = length;
+      this.bits = bits;
+      shared = true;
+    }
+
+    @Override
+    public MemContents.Page clone() {
+      final var ret = createPage(length, bits, false);
+      ret.load(0, get(0, length), -1L);
+      return ret;
+    }
+
+    @Override
+    long get(long addr) {
+      final var data = this.data;
+      final var bytes = bits / 8;
+      if (addr < 0 || (addr + 1) * bytes > data.limit()) return 0;
+      final var index = (int) addr * bytes;
+      return switch (bytes) {
+        case 1 -> data.get(index) & 0xffL;
+        case 2 -> data.getShort(index) & 0xffffL;
+        case 4 -> data.getInt(index) & 0xffffffffL;
+        default -> data.getLong(index);
+      };
+    }
+
+    @Override
+    int getLength() {
+      return length;
+    }
+
+    @Override
+    void load(long start, long[] values, long mask) {
+      throw new UnsupportedOperationException("mapped memory pages are read only");
+    }
+
+    @Override
+    void set(long addr, long value) {
+      throw new UnsupportedOperationException("mapped memory pages are read only");
+    }
+
+    void release() {
+      final var mapped = data;
+      final var copy = ByteBuffer.allocate(mapped.limit()).order(mapped.order());
+      copy.put(0, mapped, 0, mapped.limit());
+      data = copy;
+    }
+  }
+
+  private static Path getKey(File file) {
+    final var path = file.toPath().toAbsolutePath().normalize();
+    try {
+      return path.toRealPath();
+    } catch (IOException e) {
+      return path;
+    }
+  }
+
+  static MemContents.Page mapPage(File file, ByteBuffer data, int length, int bits) {
+    final var page = new MappedPage(data, length, bits);
+    synchronized (mappedPages) {
+      mappedPages.values().removeIf(Set::isEmpty);
+      mappedPages
+          .computeIfAbsent(getKey(file), k -> Collections.newSetFromMap(new WeakHashMap<>()))
+          .add(page);
+    }
+    return page;
+  }
+
+  static void releasePages(File file) {
+    Set<MappedPage> pages;
+    synchronized (mappedPages) {
+      pages = mappedPages.remove(getKey(file));
+    }
+    if (pages != null) {
+      for (final var page : pages) page.release();
+    }
+  }
+
   static MemContents.Page createPage(int size, int bits, boolean randomize) {
     long mask = (bits == 64) ? 0xffffffffffffffffL : (1L << bits) - 1;
     if (bits <= 8) return new BytePage(size, mask, randomize);
@@ -11,6 +11,7 @@ package com.cburch.logisim.std.memory;
 
 import static com.cburch.logisim.std.Strings.S;
 
+import com.cburch.logisim.circuit.LevelizedComputer;
 import com.cburch.logisim.circuit.appear.DynamicElement;
 import com.cburch.logisim.circuit.appear.DynamicElementProvider;
 import com.cburch.logisim.data.Attribute;
@@ -317,6 +318,29 @@ public class Register extends InstanceFactory implements DynamicElementProvider
     }
   }
 
+  @Override
+  protected Object getInstanceFeature(Instance instance, Object key) {
+    if (key == LevelizedComputer.class) {
+      return (LevelizedComputer)
+          compiler -> {
+            final var trigger = instance.getAttributeValue(StdAttr.TRIGGER);
+            final var edge = trigger == StdAttr.TRIG_RISING || trigger == StdAttr.TRIG_FALLING;
+            if (!edge) throw compiler.unsupported("is not edge triggered");
+            if (compiler.isPortConnected(CLR)) throw compiler.unsupported("has a connected clear input");
+            final var in = compiler.input(IN);
+            final var en = compiler.isPortConnected(EN) ? compiler.input(EN) : -1;
+            final var out = compiler.output(OUT);
+            compiler.clocked(
+                CK,
+                trigger == StdAttr.TRIG_RISING,
+                values -> {
+                  if (en < 0 || values.get(en) != 0) values.set(out, values.get(in));
+                });
+          };
+    }
+    return super.getInstanceFeature(instance, key);
+  }
+
   @Override
   public void propagate(InstanceState state) {
     final var dataWidth = state.getAttributeValue(StdAttr.WIDTH);
@@ -364,4 +388,9 @@ public class Register extends InstanceFactory implements DynamicElementProvider
   public DynamicElement createDynamicElement(int x, int y, DynamicElement.Path path) {
     return new RegisterShape(x, y, path);
   }
+
+  @Override
+  public boolean isReentrant() {
+    return true;
+  }
 }
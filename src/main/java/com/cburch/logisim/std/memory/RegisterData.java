@@ -9,6 +9,7 @@
 
 package com.cburch.logisim.std.memory;
 
+import com.cburch.logisim.comp.StateKey;
 import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.data.Value;
 import com.cburch.logisim.instance.InstanceData;
@@ -31,4 +32,10 @@ class RegisterData extends ClockState implements InstanceData {
   public void setValue(Value value) {
     this.value = value;
   }
+
+  @Override
+  public boolean addStateTo(StateKey key) {
+    addClockTo(key.add(value));
+    return true;
+  }
 }
@@ -9,6 +9,7 @@
 
 package com.cburch.logisim.std.memory;
 
+import com.cburch.logisim.comp.StateKey;
 import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.data.Value;
 import com.cburch.logisim.instance.InstanceData;
@@ -54,6 +55,13 @@ class ShiftRegisterData extends ClockState implements InstanceData {
     return vs.length;
   }
 
+  @Override
+  public boolean addStateTo(StateKey key) {
+    addClockTo(key);
+    for (var i = 0; i < vs.length; i++) key.add(get(i));
+    return true;
+  }
+
   public void push(Value v) {
     final var pos = vsPos;
     vs[pos] = v;
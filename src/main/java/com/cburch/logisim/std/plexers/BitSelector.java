@@ -190,4 +190,9 @@ public class BitSelector extends InstanceFactory {
     ps[2].setToolTip(S.getter("bitSelectorSelectTip"));
     instance.setPorts(ps);
   }
+
+  @Override
+  public boolean isReentrant() {
+    return true;
+  }
 }
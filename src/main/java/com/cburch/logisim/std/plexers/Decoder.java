@@ -355,4 +355,9 @@ public class Decoder extends InstanceFactory {
     }
     instance.setPorts(ps);
   }
+
+  @Override
+  public boolean isReentrant() {
+    return true;
+  }
 }
@@ -365,4 +365,9 @@ public class Demultiplexer extends InstanceFactory {
 
     instance.setPorts(ps);
   }
+
+  @Override
+  public boolean isReentrant() {
+    return true;
+  }
 }
@@ -12,6 +12,7 @@ package com.cburch.logisim.std.plexers;
 import static com.cburch.logisim.std.Strings.S;
 
 import com.cburch.logisim.LogisimVersion;
+import com.cburch.logisim.circuit.LevelizedComputer;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.BitWidth;
@@ -259,6 +260,40 @@ public class Multiplexer extends InstanceFactory {
     painter.drawPorts();
   }
 
+  @Override
+  protected Object getInstanceFeature(Instance instance, Object key) {
+    if (key == LevelizedComputer.class) {
+      return (LevelizedComputer)
+          compiler -> {
+            final var select = instance.getAttributeValue(PlexersLibrary.ATTR_SELECT);
+            final var enable = instance.getAttributeValue(PlexersLibrary.ATTR_ENABLE);
+            final var inputs = 1 << select.getWidth();
+            final var data = new int[inputs];
+            for (var i = 0; i < inputs; i++) data[i] = compiler.input(i);
+            final var sel = compiler.input(inputs);
+            var en = -1;
+            if (enable && compiler.isPortConnected(inputs + 1)) {
+              final var disabled = instance.getAttributeValue(PlexersLibrary.ATTR_DISABLED);
+              if (disabled != PlexersLibrary.DISABLED_ZERO) {
+                throw compiler.unsupported("floats its output while disabled");
+              }
+              en = compiler.input(inputs + 1);
+            }
+            final var enablePort = en;
+            final var out = compiler.output(inputs + (enable ? 2 : 1));
+            compiler.combinational(
+                values -> {
+                  if (enablePort >= 0 && values.get(enablePort) == 0) {
+                    values.set(out, 0);
+                  } else {
+                    values.set(out, values.get(data[(int) values.get(sel)]));
+                  }
+                });
+          };
+    }
+    return super.getInstanceFeature(instance, key);
+  }
+
   @Override
   public void propagate(InstanceState state) {
     final var data = state.getAttributeValue(StdAttr.WIDTH);
@@ -378,4 +413,9 @@ public class Multiplexer extends InstanceFactory {
 
     instance.setPorts(ps);
   }
+
+  @Override
+  public boolean isReentrant() {
+    return true;
+  }
 }
@@ -195,4 +195,9 @@ public class PriorityEncoder extends InstanceFactory {
 
     instance.setPorts(ps);
   }
+
+  @Override
+  public boolean isReentrant() {
+    return true;
+  }
 }
@@ -9,6 +9,7 @@
 
 package com.cburch.logisim.std.tcl;
 
+import com.cburch.logisim.comp.EndData;
 import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.data.Bounds;
@@ -199,42 +200,74 @@ public abstract class TclComponent extends InstanceFactory {
      */
     if (tclComponentData.isConnected()) {
 
-      /* Send port values to the TCL wrapper */
-      for (final var p : state.getInstance().getPorts()) {
-        final var index = state.getPortIndex(p);
-        final var val = state.getPortValue(index);
-        final var message = p.getType() + ":" + p.getToolTip() + ":" + val.toBinaryString() + ":" + index;
-
-        tclComponentData.send(message);
-      }
-
       /*
        * If it is a new tick, ask the console to force the sti in the
        * console and set them in Logisim in return. If it is not a new
        * tick, simply send the updated obs to the console.
        */
-      if (tclComponentData.isNewTick()) {
-        tclComponentData.send("sync_force");
+      final var newTick = tclComponentData.isNewTick();
+
+      /*
+       * The ports go on the line of the sync, only the inputs that changed
+       * since they were last sent and the outputs the wrapper does not know
+       * yet.
+       */
+      final var message = new StringBuilder(newTick ? "sync_force" : "sync_examine");
+      final var ports = state.getInstance().getPorts();
+      var outputCount = 0;
+      var changed = 0;
+      for (final var p : ports) {
+        final var index = state.getPortIndex(p);
+        final var val = state.getPortValue(index);
+        if (p.getType() != EndData.INPUT_ONLY) outputCount++;
+        if (!tclComponentData.needsSending(index, p.getType(), val)) continue;
+        message.append(' ').append(p.getType()).append(':').append(p.getToolTip());
+        message.append(':').append(val.toBinaryString()).append(':').append(index);
+        changed++;
+      }
+
+      /* Lines the former protocol exchanged: one per port, the sync and the replies */
+      final var lineCount = ports.size() + 1 + (newTick ? outputCount + 1 : 1);
+      if (!newTick && changed == 0) {
+        /* Nothing the console could examine changed */
+        TclComponentData.countMessages(0, lineCount);
+        return;
+      }
+      TclComponentData.countMessages(2, lineCount - 2);
+
+      tclComponentData.send(message.toString());
+      if (newTick) {
         getPortsFromServer(state, tclComponentData);
       } else {
-        tclComponentData.send("sync_examine");
-        String serverResponse;
-
-        /* Ignore all messages until "sync" is recieved */
-        while ((serverResponse = tclComponentData.receive()) != null
-            && serverResponse.length() > 0
-            && !serverResponse.equals("sync")) ;
+        receiveSync(tclComponentData);
       }
     }
   }
 
-  void getPortsFromServer(InstanceState state, TclComponentData tclComponentData) {
+  /**
+   * Returns the sync line that ends the answer of the wrapper, ignoring anything before it, or null
+   * if the connection ended.
+   */
+  private static String receiveSync(TclComponentData tclComponentData) {
     String serverResponse;
     while ((serverResponse = tclComponentData.receive()) != null
-        && serverResponse.length() > 0
-        && !serverResponse.equals("sync")) {
+        && serverResponse.length() > 0) {
+      if (serverResponse.equals("sync") || serverResponse.startsWith("sync ")) {
+        return serverResponse;
+      }
+    }
+    return null;
+  }
+
+  void getPortsFromServer(InstanceState state, TclComponentData tclComponentData) {
+    final var serverResponse = receiveSync(tclComponentData);
+    if (serverResponse == null) return;
+
+    /* The outputs that changed follow the sync, as name:value:id */
+    final var changedOutputs = serverResponse.split(" ");
+    for (var k = 1; k < changedOutputs.length; k++) {
 
-      final var parameters = serverResponse.split(":");
+      final var parameters = changedOutputs[k].split(":");
 
       /* Skip if we receive crap, still better than an out of range */
       if (parameters.length < 2) continue;
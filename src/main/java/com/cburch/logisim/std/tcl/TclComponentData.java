@@ -9,11 +9,13 @@
 
 package com.cburch.logisim.std.tcl;
 
+import com.cburch.logisim.comp.EndData;
 import com.cburch.logisim.data.Value;
 import com.cburch.logisim.instance.InstanceData;
 import com.cburch.logisim.instance.InstanceState;
 import com.cburch.logisim.instance.InstanceStateImpl;
 import com.cburch.logisim.util.SocketClient;
+import java.util.Arrays;
 
 /**
  * The TCL components needs some activity for each instance of component. Here we extend the
@@ -21,6 +23,31 @@ import com.cburch.logisim.util.SocketClient;
  */
 public class TclComponentData implements InstanceData {
 
+  /* messages exchanged and saved by all TCL components in the current second */
+  private static long messagesSent = 0;
+  private static long messagesSaved = 0;
+  private static long countStart = System.nanoTime();
+
+  /**
+   * Counts the lines a propagation exchanged with its wrapper and the ones the former protocol,
+   * which sent every port on a line of its own, would have needed on top of them. Once a second
+   * their rates are logged at debug level.
+   */
+  static synchronized void countMessages(int sent, int saved) {
+    messagesSent += sent;
+    messagesSaved += saved;
+    final var now = System.nanoTime();
+    if (now - countStart >= 1_000_000_000L) {
+      TclWrapper.logger.debug(
+          "TCL components: {} messages sent, {} saved per second",
+          messagesSent * 1_000_000_000L / (now - countStart),
+          messagesSaved * 1_000_000_000L / (now - countStart));
+      messagesSent = 0;
+      messagesSaved = 0;
+      countStart = now;
+    }
+  }
+
   /**
    * Retrieves the state associated with this Tcl console in the circuit state, generating the state
    * if necessary.
@@ -47,6 +74,9 @@ public class TclComponentData implements InstanceData {
 
   private Value prevClockValue = Value.UNKNOWN;
 
+  /* the value last sent for each port, null if never sent */
+  private Value[] sentValues = new Value[0];
+
   TclComponentData(InstanceState state) {
 
     instanceState = state;
@@ -99,6 +129,20 @@ public class TclComponentData implements InstanceData {
     return newTick;
   }
 
+  /**
+   * Returns whether a port has to be sent to the wrapper: an input whose value changed since it was
+   * last sent, or an output the wrapper does not know yet. The port is then taken as sent.
+   */
+  boolean needsSending(int index, int type, Value value) {
+    if (index >= sentValues.length) {
+      sentValues = Arrays.copyOf(sentValues, index + 1);
+    }
+    final var sent = sentValues[index];
+    if (sent != null && (type == EndData.OUTPUT_ONLY || sent.equals(value))) return false;
+    sentValues[index] = value;
+    return true;
+  }
+
   public String receive() {
     return tclWrapperListenerThread.receive();
   }
@@ -12,20 +12,21 @@ package com.cburch.logisim.std.tcl;
 import com.cburch.logisim.circuit.Simulator;
 import com.cburch.logisim.util.SocketClient;
 import com.cburch.logisim.util.UniquelyNamedThread;
-import java.util.LinkedList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 public class TclWrapperListenerThread extends UniquelyNamedThread {
 
   final SocketClient socket;
-  final LinkedList<String> messages;
+  final LinkedBlockingQueue<String> messages;
   final Simulator sim;
 
-  Boolean socketOpen = true;
+  volatile boolean socketOpen = true;
 
   TclWrapperListenerThread(SocketClient socket, Simulator simulator) {
     super("TclWrapperListenerThread");
     this.socket = socket;
-    this.messages = new LinkedList<>();
+    this.messages = new LinkedBlockingQueue<>();
     this.sim = simulator;
   }
 
@@ -36,16 +37,17 @@ public class TclWrapperListenerThread extends UniquelyNamedThread {
    * @return The next message
    */
   public String receive() {
-
-    while (socketOpen && messages.size() < 1) {
-      try {
-        sleep(100, 0);
-      } catch (InterruptedException e) {
-        e.printStackTrace();
+    try {
+      /* Wake up as soon as a message arrives, checking now and then that the socket is open */
+      String message;
+      while ((message = messages.poll(100, TimeUnit.MILLISECONDS)) == null) {
+        if (!socketOpen) return messages.poll();
       }
+      return message;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
     }
-
-    return messages.isEmpty() ? null : messages.pop();
   }
 
   @Override
@@ -162,4 +162,9 @@ public class BitExtender extends InstanceFactory {
     Value out = in.extendWidth(wout.getWidth(), extend);
     state.setPort(0, out, 1);
   }
+
+  @Override
+  public boolean isReentrant() {
+    return true;
+  }
 }
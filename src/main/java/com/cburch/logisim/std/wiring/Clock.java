@@ -14,6 +14,7 @@ import static com.cburch.logisim.std.Strings.S;
 import com.cburch.logisim.circuit.CircuitState;
 import com.cburch.logisim.circuit.RadixOption;
 import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.StateKey;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.BitWidth;
@@ -99,12 +100,7 @@ public class Clock extends InstanceFactory {
     }
 
     boolean updateTick(int ticks, AttributeSet attrs) {
-      int durationHigh = attrs.getValue(ATTR_HIGH);
-      int durationLow = attrs.getValue(ATTR_LOW);
-      int cycle = durationHigh + durationLow;
-      int phase = ((attrs.getValue(ATTR_PHASE) % cycle) + cycle) % cycle;
-      boolean isLow = ((ticks + phase) % cycle) < durationLow;
-      Value desired = (isLow ? Value.FALSE : Value.TRUE);
+      Value desired = getValueAt(ticks, attrs);
       if (sending.equals(desired)) return false;
       sending = desired;
       return true;
@@ -118,6 +114,43 @@ public class Clock extends InstanceFactory {
         return null;
       }
     }
+
+    @Override
+    public boolean addStateTo(StateKey key) {
+      key.add(sending);
+      return true;
+    }
+  }
+
+  /** Returns the value a clock with the given attributes sends once the given tick is reached. */
+  public static Value getValueAt(int ticks, AttributeSet attrs) {
+    int durationHigh = attrs.getValue(ATTR_HIGH);
+    int durationLow = attrs.getValue(ATTR_LOW);
+    int cycle = durationHigh + durationLow;
+    int phase = ((attrs.getValue(ATTR_PHASE) % cycle) + cycle) % cycle;
+    boolean isLow = ((ticks + phase) % cycle) < durationLow;
+    return isLow ? Value.FALSE : Value.TRUE;
+  }
+
+  /**
+   * Returns the number of ticks following the given one at which a clock would keep sending the
+   * same value, or 0 if its next tick may change it.
+   */
+  public static int getIdleTicks(CircuitState circState, int ticks, Component comp) {
+    final var attrs = comp.getAttributeSet();
+    if (!(circState.getData(comp) instanceof ClockState state)
+        || !state.sending.equals(getValueAt(ticks, attrs))) return 0;
+    final var durationHigh = attrs.getValue(ATTR_HIGH);
+    final var durationLow = attrs.getValue(ATTR_LOW);
+    final var cycle = durationHigh + durationLow;
+    final var phase = ((attrs.getValue(ATTR_PHASE) % cycle) + cycle) % cycle;
+    final var pos = (int) (((long) ticks + phase) % cycle);
+    return (pos < durationLow ? durationLow : cycle) - pos - 1;
+  }
+
+  /** Returns the number of ticks after which a clock with the given attributes repeats. */
+  public static int getCycle(AttributeSet attrs) {
+    return attrs.getValue(ATTR_HIGH) + attrs.getValue(ATTR_LOW);
   }
 
   private static ClockState getState(InstanceState state) {
@@ -284,4 +317,9 @@ public class Clock extends InstanceFactory {
       state.setPort(0, q.sending, 1);
     }
   }
+
+  @Override
+  public boolean isReentrant() {
+    return true;
+  }
 }
@@ -13,6 +13,7 @@ import static com.cburch.logisim.std.Strings.S;
 
 import com.cburch.logisim.analyze.model.Expressions;
 import com.cburch.logisim.circuit.ExpressionComputer;
+import com.cburch.logisim.circuit.LevelizedComputer;
 import com.cburch.logisim.data.AbstractAttributeSet;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeSet;
@@ -159,6 +160,14 @@ public class Constant extends InstanceFactory {
   @Override
   protected Object getInstanceFeature(Instance instance, Object key) {
     if (key == ExpressionComputer.class) return new ConstantExpression(instance);
+    if (key == LevelizedComputer.class) {
+      return (LevelizedComputer)
+          compiler -> {
+            final var value = instance.getAttributeValue(ATTR_VALUE);
+            final var out = compiler.output(0);
+            compiler.combinational(values -> values.set(out, value));
+          };
+    }
     return super.getInstanceFeature(instance, key);
   }
 
@@ -282,4 +291,9 @@ public class Constant extends InstanceFactory {
   }
 
   // TODO: Allow editing of value via text tool/attribute table
+
+  @Override
+  public boolean isReentrant() {
+    return true;
+  }
 }
@@ -71,4 +71,9 @@ public class DoNotConnect extends InstanceFactory {
   public void propagate(InstanceState state) {
     // do nothing
   }
+
+  @Override
+  public boolean isReentrant() {
+    return true;
+  }
 }
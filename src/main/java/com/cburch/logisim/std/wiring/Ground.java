@@ -111,4 +111,9 @@ public class Ground extends InstanceFactory {
     BitWidth width = state.getAttributeValue(StdAttr.WIDTH);
     state.setPort(0, Value.repeat(Value.FALSE, width.getWidth()), 1);
   }
+
+  @Override
+  public boolean isReentrant() {
+    return true;
+  }
 }
@@ -19,6 +19,7 @@ import com.cburch.logisim.circuit.CircuitState;
 import com.cburch.logisim.circuit.RadixOption;
 import com.cburch.logisim.circuit.Wire;
 import com.cburch.logisim.comp.EndData;
+import com.cburch.logisim.comp.StateKey;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeOption;
 import com.cburch.logisim.data.AttributeSet;
@@ -662,6 +663,12 @@ public class Pin extends InstanceFactory {
       this.foundValue = receiving;
     }
 
+    @Override
+    public boolean addStateTo(StateKey key) {
+      key.add(intendedValue).add(foundValue);
+      return true;
+    }
+
     @Override
     public Object clone() {
       try {
@@ -1284,4 +1291,9 @@ public class Pin extends InstanceFactory {
       myState.intendedValue = sendValue;
     }
   }
+
+  @Override
+  public boolean isReentrant() {
+    return true;
+  }
 }
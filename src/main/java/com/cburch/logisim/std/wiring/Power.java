@@ -121,4 +121,9 @@ public class Power extends InstanceFactory {
     BitWidth width = state.getAttributeValue(StdAttr.WIDTH);
     state.setPort(0, Value.repeat(Value.TRUE, width.getWidth()), 1);
   }
+
+  @Override
+  public boolean isReentrant() {
+    return true;
+  }
 }
@@ -12,7 +12,9 @@ package com.cburch.logisim.std.wiring;
 import static com.cburch.logisim.std.Strings.S;
 
 import com.cburch.logisim.LogisimVersion;
+import com.cburch.logisim.circuit.LevelizedComputer;
 import com.cburch.logisim.circuit.RadixOption;
+import com.cburch.logisim.comp.StateKey;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.BitWidth;
@@ -78,6 +80,12 @@ public class Probe extends InstanceFactory {
         return null;
       }
     }
+
+    @Override
+    public boolean addStateTo(StateKey key) {
+      key.add(curValue);
+      return true;
+    }
   }
 
   public static Bounds getOffsetBounds(
@@ -377,6 +385,15 @@ public class Probe extends InstanceFactory {
     painter.drawPorts();
   }
 
+  @Override
+  protected Object getInstanceFeature(Instance instance, Object key) {
+    if (key == LevelizedComputer.class) {
+      // probes only display the value of the wire they sit on
+      return (LevelizedComputer) compiler -> {};
+    }
+    return super.getInstanceFeature(instance, key);
+  }
+
   @Override
   public void propagate(InstanceState state) {
     StateData oldData = (StateData) state.getData();
@@ -401,4 +418,9 @@ public class Probe extends InstanceFactory {
       }
     }
   }
+
+  @Override
+  public boolean isReentrant() {
+    return true;
+  }
 }
@@ -189,4 +189,9 @@ public class PullResistor extends InstanceFactory {
   public void propagate(InstanceState state) {
     // nothing to do - handled by CircuitWires
   }
+
+  @Override
+  public boolean isReentrant() {
+    return true;
+  }
 }
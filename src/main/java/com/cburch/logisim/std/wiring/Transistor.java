@@ -284,4 +284,9 @@ public class Transistor extends InstanceFactory {
     }
     instance.setPorts(ports);
   }
+
+  @Override
+  public boolean isReentrant() {
+    return true;
+  }
 }
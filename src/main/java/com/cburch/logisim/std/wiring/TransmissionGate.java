@@ -238,4 +238,9 @@ public class TransmissionGate extends InstanceFactory {
     ports[GATE1].setToolTip(S.getter("transmissionGateNGate"));
     instance.setPorts(ports);
   }
+
+  @Override
+  public boolean isReentrant() {
+    return true;
+  }
 }
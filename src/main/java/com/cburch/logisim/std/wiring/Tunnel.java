@@ -11,6 +11,7 @@ package com.cburch.logisim.std.wiring;
 
 import static com.cburch.logisim.std.Strings.S;
 
+import com.cburch.logisim.circuit.LevelizedComputer;
 import com.cburch.logisim.comp.TextField;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeSet;
@@ -222,8 +223,22 @@ public class Tunnel extends InstanceFactory {
     painter.drawPorts();
   }
 
+  @Override
+  protected Object getInstanceFeature(Instance instance, Object key) {
+    if (key == LevelizedComputer.class) {
+      // tunnels are joined by the wire bundles of the circuit
+      return (LevelizedComputer) compiler -> {};
+    }
+    return super.getInstanceFeature(instance, key);
+  }
+
   @Override
   public void propagate(InstanceState state) {
     // nothing to do - handled by circuit
   }
+
+  @Override
+  public boolean isReentrant() {
+    return true;
+  }
 }
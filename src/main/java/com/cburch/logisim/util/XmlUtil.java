@@ -11,6 +11,7 @@ package com.cburch.logisim.util;
 
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
 
 public final class XmlUtil {
 
@@ -70,4 +71,15 @@ public final class XmlUtil {
 
     return dbf;
   }
+
+  /**
+   * Returns instance of XMLInputFactory configured against the same attacks: documents may not
+   * declare a DTD, and external entities are never resolved.
+   */
+  public static XMLInputFactory getHardenedInputFactory() {
+    final var factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    return factory;
+  }
 }
@@ -0,0 +1,216 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.vhdl.sim;
+
+import com.cburch.logisim.data.Value;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Logisim's end of the binary protocol spoken with the TCL binder. Every port of every VHDL
+ * component is declared once under a numeric id, kept for its name, after which a simulation step
+ * is a single frame holding the inputs that changed since the previous step, answered by a single
+ * frame holding the outputs that changed.
+ *
+ * <p>A frame is a big-endian int giving the number of bytes that follow, a kind byte and its
+ * payload:
+ *
+ * <ul>
+ *   <li>{@link #DECLARE}: int count, then for each port an int id, a byte type (1 input, 2 output,
+ *       3 inout), a byte width and its name as a short length followed by UTF-8 bytes. An id
+ *       declared again replaces the earlier declaration.
+ *   <li>{@link #STEP}: int count, then for each changed input an int id and the long value,
+ *       unknown and error bits. The simulator drives them, runs and replies.
+ *   <li>{@link #OUTPUTS}, the reply: int count, then for each changed output an int id and the
+ *       long value, unknown and error bits.
+ *   <li>{@link #RESTART} and {@link #END} have no payload; they restart and end the simulation.
+ * </ul>
+ */
+class VhdlSimulatorLink {
+  static final byte DECLARE = 1;
+  static final byte STEP = 2;
+  static final byte RESTART = 3;
+  static final byte END = 4;
+  static final byte OUTPUTS = 5;
+
+  static final int TYPE_INPUT = 1;
+  static final int TYPE_OUTPUT = 2;
+  static final int TYPE_INOUT = 3;
+
+  private static class PortInfo {
+    final String name;
+    int type;
+    int width;
+    Value sent;
+    Value staged;
+    Value received;
+
+    PortInfo(String name, int type, int width) {
+      this.name = name;
+      this.type = type;
+      this.width = width;
+    }
+  }
+
+  private final DataInputStream in;
+  private final DataOutputStream out;
+  private final ByteArrayOutputStream frame = new ByteArrayOutputStream();
+  private final DataOutputStream frameData = new DataOutputStream(frame);
+  private final ArrayList<PortInfo> ports = new ArrayList<>();
+  private final HashMap<String, Integer> portIds = new HashMap<>();
+  private final ArrayList<Integer> undeclared = new ArrayList<>();
+  private final ArrayList<Integer> staged = new ArrayList<>();
+  private long steps = 0;
+
+  VhdlSimulatorLink(InputStream in, OutputStream out) {
+    this.in = new DataInputStream(new BufferedInputStream(in));
+    this.out = new DataOutputStream(new BufferedOutputStream(out));
+  }
+
+  /**
+   * Declares a port, sent along with the next step, and returns its id. A port declared before
+   * under the same name, by a component since replaced, keeps its id; it is only declared again if
+   * its type or width changed.
+   */
+  synchronized int declare(String name, int type, int width) {
+    final var id = portIds.get(name);
+    if (id != null) {
+      final var port = ports.get(id);
+      if (port.type != type || port.width != width) {
+        port.type = type;
+        port.width = width;
+        port.sent = null;
+        port.received = null;
+        if (!undeclared.contains(id)) undeclared.add(id);
+      }
+      return id;
+    }
+    ports.add(new PortInfo(name, type, width));
+    portIds.put(name, ports.size() - 1);
+    undeclared.add(ports.size() - 1);
+    return ports.size() - 1;
+  }
+
+  /** Stages the value of an input for the next step, unless it was already sent. */
+  synchronized void set(int id, Value value) {
+    final var port = ports.get(id);
+    if (port.staged == null) {
+      if (value.equals(port.sent)) return;
+      staged.add(id);
+    }
+    port.staged = value;
+  }
+
+  /** Returns whether a step would send anything. */
+  synchronized boolean hasChanges() {
+    if (!undeclared.isEmpty()) return true;
+    for (final var id : staged) {
+      final var port = ports.get(id);
+      if (!port.staged.equals(port.sent)) return true;
+    }
+    return false;
+  }
+
+  /** Returns the last value the simulator gave to an output, or null if none yet. */
+  synchronized Value get(int id) {
+    return ports.get(id).received;
+  }
+
+  synchronized long getStepCount() {
+    return steps;
+  }
+
+  /** Sends the declarations and the changed inputs in one write and reads back the outputs. */
+  synchronized void step() throws IOException {
+    if (!undeclared.isEmpty()) {
+      frameData.writeByte(DECLARE);
+      frameData.writeInt(undeclared.size());
+      for (final var id : undeclared) {
+        final var port = ports.get(id);
+        final var name = port.name.getBytes(StandardCharsets.UTF_8);
+        frameData.writeInt(id);
+        frameData.writeByte(port.type);
+        frameData.writeByte(port.width);
+        frameData.writeShort(name.length);
+        frameData.write(name);
+      }
+      undeclared.clear();
+      writeFrame();
+    }
+    var count = 0;
+    for (final var id : staged) {
+      final var port = ports.get(id);
+      if (!port.staged.equals(port.sent)) count++;
+    }
+    frameData.writeByte(STEP);
+    frameData.writeInt(count);
+    for (final var id : staged) {
+      final var port = ports.get(id);
+      final var value = port.staged;
+      port.staged = null;
+      if (value.equals(port.sent)) continue;
+      port.sent = value;
+      frameData.writeInt(id);
+      frameData.writeLong(value.getValueBits());
+      frameData.writeLong(value.getUnknownBits());
+      frameData.writeLong(value.getErrorBits());
+    }
+    staged.clear();
+    writeFrame();
+    out.flush();
+    steps++;
+
+    in.readInt();
+    final var kind = in.readByte();
+    if (kind != OUTPUTS) throw new IOException("Unexpected frame " + kind + " from simulator");
+    final var received = in.readInt();
+    for (var i = 0; i < received; i++) {
+      final var id = in.readInt();
+      final var value = in.readLong();
+      final var unknown = in.readLong();
+      final var error = in.readLong();
+      if (id < 0 || id >= ports.size()) throw new IOException("Unknown port " + id);
+      final var port = ports.get(id);
+      port.received = Value.create(port.width, error, unknown, value);
+    }
+  }
+
+  /** Asks the simulator to restart; every input is sent again at the next step. */
+  synchronized void restart() throws IOException {
+    frameData.writeByte(RESTART);
+    writeFrame();
+    out.flush();
+    for (final var port : ports) {
+      port.sent = null;
+      port.received = null;
+    }
+  }
+
+  synchronized void end() throws IOException {
+    frameData.writeByte(END);
+    writeFrame();
+    out.flush();
+  }
+
+  private void writeFrame() throws IOException {
+    out.writeInt(frame.size());
+    frame.writeTo(out);
+    frame.reset();
+  }
+}
@@ -0,0 +1,170 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.vhdl.sim;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+
+/**
+ * Stands in for the TCL binder and Questasim, speaking the protocol of {@link VhdlSimulatorLink}
+ * without simulating any VHDL, to test and benchmark the link. The n-th declared output (or
+ * inout) simply follows the n-th declared input (or inout), cut or zero extended to its width.
+ *
+ * <p>It can be run on its own, taking the port of Logisim's socket server as argument, the same
+ * way the binder connects to it.
+ */
+class VhdlSimulatorLoopback implements Runnable {
+
+  private static class Signal {
+    final int width;
+    long value;
+    long unknown = -1L;
+    long error;
+    /* the input followed by an output, or -1 */
+    int source = -1;
+    boolean changed = true;
+
+    Signal(int width) {
+      this.width = width;
+    }
+  }
+
+  private final DataInputStream in;
+  private final DataOutputStream out;
+  private final ArrayList<Signal> signals = new ArrayList<>();
+  private final ArrayList<Integer> inputs = new ArrayList<>();
+  private final ArrayList<Integer> outputs = new ArrayList<>();
+  private long steps = 0;
+  private long inputsReceived = 0;
+
+  VhdlSimulatorLoopback(InputStream in, OutputStream out) {
+    this.in = new DataInputStream(new BufferedInputStream(in));
+    this.out = new DataOutputStream(new BufferedOutputStream(out));
+  }
+
+  public static void main(String[] args) throws IOException {
+    try (final var socket = new Socket("localhost", Integer.parseInt(args[0]))) {
+      new VhdlSimulatorLoopback(socket.getInputStream(), socket.getOutputStream()).run();
+    }
+  }
+
+  synchronized long getStepCount() {
+    return steps;
+  }
+
+  /** Returns the number of input values received over all steps. */
+  synchronized long getInputsReceived() {
+    return inputsReceived;
+  }
+
+  @Override
+  public void run() {
+    try {
+      while (true) {
+        in.readInt();
+        switch (in.readByte()) {
+          case VhdlSimulatorLink.DECLARE -> declare();
+          case VhdlSimulatorLink.STEP -> step();
+          case VhdlSimulatorLink.RESTART -> {
+            for (final var signal : signals) {
+              signal.unknown = -1L;
+              signal.changed = true;
+            }
+          }
+          case VhdlSimulatorLink.END -> {
+            return;
+          }
+          default -> throw new IOException("Unknown frame");
+        }
+      }
+    } catch (EOFException e) {
+      // Logisim closed the socket
+    } catch (IOException e) {
+      VhdlSimulatorTop.logger.error("Loopback simulator failed: {}", e.getMessage());
+    }
+  }
+
+  private void declare() throws IOException {
+    final var count = in.readInt();
+    for (var i = 0; i < count; i++) {
+      final var id = in.readInt();
+      final var type = in.readByte();
+      final var signal = new Signal(in.readByte());
+      in.skipNBytes(in.readShort());
+      while (signals.size() <= id) signals.add(null);
+      final var old = signals.set(id, signal);
+      if (old != null) {
+        // declared again with another width, it keeps its place
+        signal.source = old.source;
+        continue;
+      }
+      if (type != VhdlSimulatorLink.TYPE_OUTPUT) inputs.add(id);
+      if (type != VhdlSimulatorLink.TYPE_INPUT) {
+        if (outputs.size() < inputs.size()) signal.source = inputs.get(outputs.size());
+        outputs.add(id);
+      }
+    }
+  }
+
+  private synchronized void step() throws IOException {
+    final var count = in.readInt();
+    for (var i = 0; i < count; i++) {
+      final var signal = signals.get(in.readInt());
+      signal.value = in.readLong();
+      signal.unknown = in.readLong();
+      signal.error = in.readLong();
+    }
+    steps++;
+    inputsReceived += count;
+
+    var changed = 0;
+    for (final var id : outputs) {
+      final var signal = signals.get(id);
+      final var mask = signal.width == 64 ? -1L : (1L << signal.width) - 1;
+      var value = 0L;
+      var unknown = 0L;
+      var error = 0L;
+      if (signal.source >= 0) {
+        final var source = signals.get(signal.source);
+        value = source.value & mask;
+        unknown = source.unknown & mask;
+        error = source.error & mask;
+      }
+      if (value != signal.value || unknown != signal.unknown || error != signal.error) {
+        signal.value = value;
+        signal.unknown = unknown;
+        signal.error = error;
+        signal.changed = true;
+      }
+      if (signal.changed) changed++;
+    }
+    out.writeInt(5 + 28 * changed);
+    out.writeByte(VhdlSimulatorLink.OUTPUTS);
+    out.writeInt(changed);
+    for (final var id : outputs) {
+      final var signal = signals.get(id);
+      if (!signal.changed) continue;
+      signal.changed = false;
+      out.writeInt(id);
+      out.writeLong(signal.value);
+      out.writeLong(signal.unknown);
+      out.writeLong(signal.error);
+    }
+    out.flush();
+  }
+}
@@ -34,7 +34,7 @@ import org.slf4j.LoggerFactory;
  * flag to his stdout that is catched by Logisim to know the binder is ready. This way we ensure the
  * socket is started before trying to connect.
  *
- * <p>To end the binder, we send an "end" flag through the socket and wait for it to finish. This
+ * <p>To end the binder, we send an end frame through the socket and wait for it to finish. This
  * causes Logisim to hang if the binder doesn't listen to the socker. That can happen when
  * unexpected behavior of the simulation occurs.
  *
@@ -174,7 +174,7 @@ public class VhdlSimulatorTclBinder {
     if (!running) return;
 
     /* We ask the binder to end itself */
-    if (vsim.getSocketClient() != null) vsim.getSocketClient().send("end");
+    vsim.endLink();
 
     /* Wait for the process to end */
     /*
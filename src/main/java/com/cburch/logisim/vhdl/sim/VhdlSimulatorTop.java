@@ -14,6 +14,9 @@ import com.cburch.logisim.circuit.CircuitListener;
 import com.cburch.logisim.circuit.CircuitState;
 import com.cburch.logisim.comp.Component;
 import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.instance.InstanceState;
+import com.cburch.logisim.instance.InstanceStateImpl;
 import com.cburch.logisim.proj.Project;
 import com.cburch.logisim.std.hdl.VhdlEntityComponent;
 import com.cburch.logisim.util.SocketClient;
@@ -26,6 +29,7 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import javax.help.UnsupportedOperationException;
 import org.slf4j.Logger;
@@ -36,6 +40,10 @@ import org.slf4j.LoggerFactory;
  * task to Questasim. Communication between Logisim and Questasim is done by a TCL socket
  * (TclBinder). Path to Questasim has to be specified in Logisim's preferences.
  *
+ * <p>The ports of all VHDL components go over a single {@link VhdlSimulatorLink}: when one
+ * component propagates with changed inputs, the inputs of all components are sent in one step and
+ * the components whose outputs changed are marked dirty, to pick them up without another step.
+ *
  * @author christian.mueller@heig-vd.ch
  * @since 2.12.0
  */
@@ -45,6 +53,8 @@ public class VhdlSimulatorTop implements CircuitListener {
   private final VhdlSimulatorTclComp tclRun = new VhdlSimulatorTclComp(this);
   private VhdlSimulatorTclBinder tclBinder;
   private final SocketClient socketClient = new SocketClient();
+  private VhdlSimulatorLink link;
+  private final HashMap<String, EntityPorts> entities = new HashMap<>();
 
   public static final Logger logger = LoggerFactory.getLogger(VhdlSimulatorTop.class);
 
@@ -55,6 +65,48 @@ public class VhdlSimulatorTop implements CircuitListener {
 
   private State state = State.DISABLED;
 
+  /** The ports of a VHDL component as declared on the link. */
+  private static class EntityPorts {
+    final Component component;
+    CircuitState circuitState;
+    final int[] types;
+    final int[] ids;
+    /* the outputs last given to the component */
+    final Value[] applied;
+
+    EntityPorts(VhdlSimulatorLink link, String simName, Component component, InstanceState state) {
+      this.component = component;
+      final var ports = state.getInstance().getPorts();
+      types = new int[ports.size()];
+      ids = new int[ports.size()];
+      applied = new Value[ports.size()];
+      for (var i = 0; i < ports.size(); i++) {
+        final var port = ports.get(i);
+        types[i] = port.getType();
+        final var width = port.getFixedBitWidth().getWidth();
+        ids[i] = link.declare(simName + "_" + port.getToolTip(), types[i], width);
+      }
+    }
+
+    void stageInputs(VhdlSimulatorLink link) {
+      for (var i = 0; i < ids.length; i++) {
+        if (types[i] != VhdlSimulatorLink.TYPE_OUTPUT) {
+          link.set(ids[i], circuitState.getValue(component.getEnd(i).getLocation()));
+        }
+      }
+    }
+
+    boolean hasNewOutputs(VhdlSimulatorLink link) {
+      for (var i = 0; i < ids.length; i++) {
+        if (types[i] != VhdlSimulatorLink.TYPE_INPUT) {
+          final var value = link.get(ids[i]);
+          if (value != null && !value.equals(applied[i])) return true;
+        }
+      }
+      return false;
+    }
+  }
+
   public VhdlSimulatorTop(Project circuitState) {
     this.project = circuitState;
   }
@@ -269,22 +321,59 @@ public class VhdlSimulatorTop implements CircuitListener {
   }
 
   /**
-   * Receive a message from the VHDL simulator
-   *
-   * @return
+   * Exchanges the ports of a VHDL component with the simulator and sets its outputs. A step is
+   * only run when an input of some component changed since the last one.
    */
-  public String receive() {
-    if (!isRunning()) throw new UnsupportedOperationException();
+  public synchronized void propagate(InstanceState state, String simName) {
+    if (!isRunning() || link == null) throw new UnsupportedOperationException();
+
+    final var component = state.getInstance().getComponent();
+    var entity = entities.get(simName);
+    if (entity == null || entity.component != component) {
+      entity = new EntityPorts(link, simName, component, state);
+      entities.put(simName, entity);
+    }
+    entity.circuitState = ((InstanceStateImpl) state).getCircuitState();
+
+    entity.stageInputs(link);
+    if (link.hasChanges()) {
+      for (final var other : entities.values()) {
+        if (other != entity) other.stageInputs(link);
+      }
+      try {
+        link.step();
+      } catch (IOException e) {
+        logger.error("Cannot exchange signals with the VHDL simulator: {}", e.getMessage());
+        return;
+      }
+      for (final var other : entities.values()) {
+        if (other != entity && other.hasNewOutputs(link)) {
+          other.circuitState.markComponentAsDirty(other.component);
+        }
+      }
+    }
 
-    return socketClient.receive();
+    for (var i = 0; i < entity.ids.length; i++) {
+      if (entity.types[i] == VhdlSimulatorLink.TYPE_INPUT) continue;
+      final var value = link.get(entity.ids[i]);
+      if (value != null) {
+        state.setPort(i, value, 1);
+        entity.applied[i] = value;
+      }
+    }
   }
 
   public void removeVhdlSimStateListener(VhdlSimulatorListener l) {
     listeners.remove(l);
   }
 
-  public void reset() {
-    if (isEnabled()) socketClient.send("restart");
+  public synchronized void reset() {
+    if (!isEnabled() || link == null) return;
+    try {
+      link.restart();
+    } catch (IOException e) {
+      logger.error("Cannot restart the VHDL simulator: {}", e.getMessage());
+    }
   }
 
   /** Stop and restart. If not running, just start */
@@ -303,17 +392,6 @@ public class VhdlSimulatorTop implements CircuitListener {
     }
   }
 
-  /**
-   * Send a message to the VHDL simulator
-   *
-   * @param message
-   */
-  public void send(String message) {
-    if (!isRunning()) throw new UnsupportedOperationException();
-
-    socketClient.send(message);
-  }
-
   public void setEnabled(Boolean enable) {
     if (enable) enable();
     else disable();
@@ -377,6 +455,32 @@ public class VhdlSimulatorTop implements CircuitListener {
 
   public void tclStartCallback() {
     socketClient.start();
+    synchronized (this) {
+      entities.clear();
+      link = null;
+      try {
+        final var socket = socketClient.getSocket();
+        if (socket != null) {
+          // a step is one small frame each way, which must not wait for more data
+          socket.setTcpNoDelay(true);
+          link = new VhdlSimulatorLink(socket.getInputStream(), socket.getOutputStream());
+        }
+      } catch (IOException e) {
+        logger.error("Cannot open the link to the VHDL simulator: {}", e.getMessage());
+      }
+    }
     setState(State.RUNNING);
   }
+
+  /** Asks the binder to end the simulation. */
+  synchronized void endLink() {
+    if (link == null) return;
+    try {
+      link.end();
+    } catch (IOException e) {
+      logger.error("Cannot end the VHDL simulator: {}", e.getMessage());
+    }
+    link = null;
+    entities.clear();
+  }
 }
@@ -19,102 +19,180 @@
 # Version   Author Date               Description
 # v1.1      CMR    25.06.14           - Exit if socket fails
 # v1.2      CMR    23.07.14           - Better error handling, add reset option
+# v2.0                                - Binary frames: ports are declared once
+#                                       by id, a step carries only the changed
+#                                       inputs and returns the changed outputs
 #-------------------------------------------------------------------------------
-set Version 1.2
-
-set msgs {}
-set channel 0
+set Version 2.0
+
+# Ports declared by Logisim, id -> {type width name}
+set ports [dict create]
+# Last value sent to Logisim for each output, id -> value
+set sent [dict create]
+
+# A frame is a big-endian int giving the number of bytes that follow, then a
+# kind byte and its payload (see VhdlSimulatorLink).
+proc ReadFrame {channel} {
+	set header [read $channel 4]
+	if {[string length $header] < 4} {
+		return ""
+	}
+	binary scan $header I length
+	set frame [read $channel $length]
+	if {[string length $frame] < $length} {
+		return ""
+	}
+	return $frame
+}
 
 proc MessageReceived {channel} {
-	global msgs ;
+	global sent
 
-	if {[eof $channel] || [catch {gets $channel msg}]} {
+	if {[eof $channel] || [catch {set frame [ReadFrame $channel]}]
+	    || [string length $frame] == 0} {
 		end_binder $channel
-  } else {
-
-		# If end of communication is asked
-		if {$msg == "end"} {
-
-			# Sim end procedure
-			end_binder $channel
+		return
+	}
 
-		# When restart is requested
-		} elseif {$msg == "restart"} {
+	binary scan $frame c kind
+	switch -- $kind {
+		1 {
+			DeclarePorts $frame
+		}
+		2 {
+			RunStep $channel $frame
+		}
+		3 {
 			puts "Restart simulation"
 			if {[catch {restart -f} errmsg]} {
 				puts "Error at simulation reset: $errmsg"
 			}
-			set msgs {}
-
-		# When a sync is received
-		} elseif {$msg == "sync"} {
-
-			# Drive input signals in simulation
-			foreach msg $msgs {
-
-				# Get parameters from message
-				set signal [split $msg :]
-				set type [lindex $signal 0]
-				set name [lindex $signal 1]
-				set value [lindex $signal 2]
-				set id [lindex $signal 3]
-
-				# If signal is "in"
-				if {$type == 1} {
-					# Drive simulation signal (force signal, no internal logic changes possible)
-					if {[catch {force -freeze sim:/top_sim/$name $value} errmsg]} {
-						puts "Error forcing simulation signal: $errmsg"
-					}
-
-				# If signal is "inout"
-				} elseif {$type == 3} {
-
-					# Use deposit so value can be changed by internal logic
-					if {[catch {force -deposit sim:/top_sim/$name $value} errmsg]} {
-						puts "Error forcing simulation signal: $errmsg"
-					}
-				}
-			}
+			set sent [dict create]
+		}
+		4 {
+			end_binder $channel
+		}
+	}
+}
 
-			# Run the simulation
-			if {[catch {run 100} errmsg]} {
-				puts "Error running simulation: $errmsg"
-			}
+# Payload: int count, then per port int id, byte type, byte width, short name
+# length and the name
+proc DeclarePorts {frame} {
+	global ports sent
+
+	binary scan $frame x1I count
+	set pos 5
+	for {set i 0} {$i < $count} {incr i} {
+		binary scan $frame @${pos}IccS id type width length
+		incr pos 8
+		set name [string range $frame $pos [expr {$pos + $length - 1}]]
+		incr pos $length
+		# an id declared again has changed, its output is sent anew
+		dict set ports $id [list $type $width [encoding convertfrom utf-8 $name]]
+		dict unset sent $id
+	}
+}
 
-			# Read output signals from simulation
-			foreach msg $msgs {
-				# Get signal and value from message
-				set signal [split $msg :]
-				set type [lindex $signal 0]
-				set name [lindex $signal 1]
-				set value [lindex $signal 2]
-				set id [lindex $signal 3]
-
-				# If signal is "out" or "inout"
-				if {$type == 2 || $type == 3} {
-
-					# Read in sim
-					if {[catch {set value [examine sim:/top_sim/$name]} errmsg]} {
-						puts "Error examining simulation signal: $errmsg"
-					} else {
-						# Send to logisim
-						puts $channel [concat $name:$value:$id]
-					}
-				}
+# Value, unknown and error bits to a std_logic string, most significant first
+proc ToBits {width value unknown error} {
+	set bits ""
+	for {set i [expr {$width - 1}]} {$i >= 0} {incr i -1} {
+		if {($error >> $i) & 1} {
+			append bits X
+		} elseif {($unknown >> $i) & 1} {
+			append bits U
+		} elseif {($value >> $i) & 1} {
+			append bits 1
+		} else {
+			append bits 0
+		}
+	}
+	return $bits
+}
+
+# A std_logic string to the value and unknown bits, as signed 64-bit integers
+proc FromBits {bits} {
+	set value 0
+	set unknown 0
+	foreach bit [split $bits ""] {
+		if {$bit eq "0" || $bit eq "1"} {
+			set value [expr {($value << 1) | $bit}]
+			set unknown [expr {$unknown << 1}]
+		} elseif {[string is alpha $bit]} {
+			set value [expr {$value << 1}]
+			set unknown [expr {($unknown << 1) | 1}]
+		}
+	}
+	set result {}
+	foreach word [list $value $unknown] {
+		set word [expr {$word & 0xFFFFFFFFFFFFFFFF}]
+		if {$word >= 0x8000000000000000} {
+			set word [expr {$word - 0x10000000000000000}]
+		}
+		lappend result $word
+	}
+	return $result
+}
+
+# Payload: int count, then per changed input int id and the long value,
+# unknown and error bits. Drives them, runs the simulation and replies with
+# the outputs that changed.
+proc RunStep {channel frame} {
+	global ports sent
+
+	binary scan $frame x1I count
+	set pos 5
+	for {set i 0} {$i < $count} {incr i} {
+		binary scan $frame @${pos}IWWW id value unknown error
+		incr pos 28
+		lassign [dict get $ports $id] type width name
+		set bits [ToBits $width $value $unknown $error]
+
+		# If signal is "in"
+		if {$type == 1} {
+			# Drive simulation signal (force signal, no internal logic changes possible)
+			if {[catch {force -freeze sim:/top_sim/$name $bits} errmsg]} {
+				puts "Error forcing simulation signal: $errmsg"
 			}
 
-			# Send sync to alert logisim of end of step
-			puts $channel "sync"
-			#puts "sent : sync"
-			flush $channel
+		# If signal is "inout"
+		} elseif {$type == 3} {
 
-			set msgs {}
+			# Use deposit so value can be changed by internal logic
+			if {[catch {force -deposit sim:/top_sim/$name $bits} errmsg]} {
+				puts "Error forcing simulation signal: $errmsg"
+			}
+		}
+	}
 
-		# If it's a signal, add to list
-		} else {
-			lappend msgs $msg ;
+	# Run the simulation
+	if {[catch {run 100} errmsg]} {
+		puts "Error running simulation: $errmsg"
+	}
+
+	# Read output signals from simulation
+	set reply ""
+	set changed 0
+	dict for {id port} $ports {
+		lassign $port type width name
+
+		# If signal is "out" or "inout"
+		if {$type == 2 || $type == 3} {
+			if {[catch {set bits [examine sim:/top_sim/$name]} errmsg]} {
+				puts "Error examining simulation signal: $errmsg"
+			} elseif {![dict exists $sent $id] || [dict get $sent $id] ne $bits} {
+				dict set sent $id $bits
+				lassign [FromBits $bits] value unknown
+				append reply [binary format IWWW $id $value $unknown 0]
+				incr changed
+			}
 		}
-  }
+	}
+
+	# Send all changed outputs in one frame to end the step
+	set reply [binary format cI 5 $changed]$reply
+	puts -nonewline $channel [binary format I [string length $reply]]$reply
+	flush $channel
 }
 
 proc {main} {port} {
@@ -131,6 +209,7 @@ proc {main} {port} {
 		puts "TCL_BINDER_CONNECTED"
 		puts "TCL_BINDER_RUNNING"
 
+		fconfigure $channel -translation binary -blocking 1
 		fileevent $channel readable [list MessageReceived $channel]
 
 		vwait forever
@@ -18,11 +18,16 @@
 # Version   Author Date               Description
 # v1.0      CMR 20.08.2014  Original, copied from questasim_binder
 # v1.1      YSR 26.06.2015  Modifications to support and fix issues with sequential systems
+# v1.2                      Ports come on the line of the sync and only when
+#                           they changed; only changed outputs are sent back
 #-------------------------------------------------------------------------------
-set Version 1.1
+set Version 1.2
 
 set channel 0
-set msgs {}
+# Outputs known from Logisim, name -> {type id}
+set outputs [dict create]
+# Last value sent to Logisim for each output, name -> value
+set sent [dict create]
 
 
 
@@ -133,13 +138,53 @@ proc getIndex {signal} {
 	return $index
 }
 
+# Sets the inputs carried by a sync line and learns the outputs. Ports are
+# only sent when they changed, so the values stay set between steps; the
+# outputs are computed again at each step.
+proc ApplyPorts {ports} {
+	global outputs
+
+	foreach msg $ports {
+
+		# Get parameters from message
+		set signal [split $msg :]
+		set type [lindex $signal 0]
+		set name [lindex $signal 1]
+		set value [lindex $signal 2]
+		set id [lindex $signal 3]
+
+		global $name
+		# If signal is "in" or "inout"
+		if {$type == 1 || $type == 3} {
+			#echo "Received from Logsim : $name:$value"
+			set $name $value
+		}
+		# If signal is "out" or "inout"
+		if {$type == 2 || $type == 3} {
+			dict set outputs $name [list $type $id]
+		}
+	}
+
+	dict for {name port} $outputs {
+		global $name
+		if {[lindex $port 0] == 2} {
+			set $name X
+		}
+	}
+}
+
 proc MessageReceived {channel} {
-	global msgs
+	global outputs
+	global sent
 
 	if {[eof $channel] || [catch {gets $channel msg}]} {
 		end_binder $channel
   } else {
 
+		# A sync carries the ports that changed on the same line
+		set words [split $msg " "]
+		set command [lindex $words 0]
+
 		# If end of communication is asked
 		if {$msg == "end"} {
 
@@ -147,91 +192,40 @@ proc MessageReceived {channel} {
 			end_binder $channel
 
 		# When a sync_force is received
-		} elseif {$msg == "sync_force"} {
+		} elseif {$command == "sync_force"} {
                         #echo "Recieved sync_force!"
 
 			# Drive input signals in simulation
-			foreach msg $msgs {
-
-				# Get parameters from message
-				set signal [split $msg :]
-				set type [lindex $signal 0]
-				set name [lindex $signal 1]
-				set value [lindex $signal 2]
-				set id [lindex $signal 3]
-
-				global $name
-				# If signal is "in" or "inout"
-				if {$type == 1 || $type == 3} {
-					#echo "Received from Logsim : $name:$value"
-					set $name $value
-				} else {
-					set $name X
-				}
-			}
+			ApplyPorts [lrange $words 1 end]
 
 			logisimForce
 
-			# Read output signals from simulation
-			foreach msg $msgs {
-
-				# Get signal and value from message
-				set signal [split $msg :]
-				set type [lindex $signal 0]
-				set name [lindex $signal 1]
-				set value [lindex $signal 2]
-				set id [lindex $signal 3]
-
-
-				# If signal is "out" or "inout"
-				if {$type == 2 || $type == 3} {
-					#echo "Send [concat $name:[set $name]:$id] to logisim"
-					# Send to logisim
-					send_socket $channel [concat $name:[set $name]:$id]
+			# Send sync to alert logisim of end of step, followed by the
+			# output signals that changed
+			set reply "sync"
+			dict for {name port} $outputs {
+				global $name
+				set value [set $name]
+				if {![dict exists $sent $name] || [dict get $sent $name] ne $value} {
+					dict set sent $name $value
+					append reply " $name:$value:[lindex $port 1]"
 				}
 			}
-
-			# Send sync to alert logisim of end of step
-			#echo "Send : sync"
-			send_socket $channel "sync"
-
-			set msgs {}
+			#echo "Send : $reply"
+			send_socket $channel $reply
 
 		# When a sync_examine is received
-		} elseif {$msg == "sync_examine"} {
+		} elseif {$command == "sync_examine"} {
                         #echo "Recieved sync_examine!"
 
 			# Drive input signals in simulation
-			foreach msg $msgs {
-
-				# Get parameters from message
-				set signal [split $msg :]
-				set type [lindex $signal 0]
-				set name [lindex $signal 1]
-				set value [lindex $signal 2]
-				set id [lindex $signal 3]
-
-				global $name
-				# If signal is "in" or "inout"
-				if {$type == 1 || $type == 3} {
-					#echo "Received from Logsim : $name:$value"
-					set $name $value
-				} else {
-					set $name X
-				}
-			}
+			ApplyPorts [lrange $words 1 end]
 
 			logisimExamine
 
 			# Send sync to alert logisim of end of step
 			#echo "Send : sync"
 			send_socket $channel "sync"
-
-			set msgs {}
-
-		# If it's a signal, add to list
-		} else {
-			lappend msgs $msg ;
 		}
   }
 }
@@ -245,7 +239,6 @@ proc end_binder {channel} {
 
 proc init_wrapper {} {
 
-	global msgs
 	global argv
 	global channel
 
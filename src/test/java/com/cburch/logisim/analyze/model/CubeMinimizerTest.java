@@ -0,0 +1,98 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.analyze.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class CubeMinimizerTest {
+
+  private static AnalyzerModel createModel(Entry[] column, int nrOfInputs) {
+    final var model = new AnalyzerModel();
+    final var inputs = new ArrayList<Var>();
+    for (var i = 0; i < nrOfInputs; i++) inputs.add(new Var("i" + i, 1));
+    model.setVariables(inputs, List.of(new Var("x", 1)));
+    model.getTruthTable().setOutputColumn(0, column);
+    return model;
+  }
+
+  private static void assertCovers(Entry[] column, Entry desired, List<Implicant> cover) {
+    final var covered = new boolean[column.length];
+    for (final var implicant : cover) {
+      for (final var term : implicant.getTerms()) covered[term.getRow()] = true;
+    }
+    for (var row = 0; row < column.length; row++) {
+      if (column[row] == desired) {
+        assertTrue(covered[row], "row " + row + " is not covered");
+      } else if (column[row] != Entry.DONT_CARE) {
+        assertFalse(covered[row], "row " + row + " is covered");
+      }
+    }
+  }
+
+  /** A 16-to-1 multiplexer has a cover of one cube per data input. */
+  @Test
+  public void testMultiplexerIsMinimal() {
+    final var nrOfInputs = 20;
+    final var column = new Entry[1 << nrOfInputs];
+    for (var row = 0; row < column.length; row++) {
+      final var select = row >>> 16;
+      column[row] = ((row >> select) & 1) != 0 ? Entry.ONE : Entry.ZERO;
+    }
+    final var model = createModel(column, nrOfInputs);
+    // a budget that no machine runs into, so the result does not depend on its speed
+    final var cover = CubeMinimizer.minimize(model.getTruthTable(), 0, Entry.ONE, 60_000, 0);
+    assertEquals(16, cover.size());
+    for (final var implicant : cover) assertEquals(nrOfInputs - 5, implicant.getUnknownCount());
+    assertCovers(column, Entry.ONE, cover);
+  }
+
+  /** When the time budget has run out, the rows are still covered, by their minterms. */
+  @Test
+  public void testExpiredBudgetStillCovers() {
+    final var random = new Random(7);
+    final var column = new Entry[1 << 10];
+    for (var row = 0; row < column.length; row++) {
+      column[row] = random.nextBoolean() ? Entry.ONE : Entry.ZERO;
+    }
+    final var model = createModel(column, 10);
+    final var cover = CubeMinimizer.minimize(model.getTruthTable(), 0, Entry.ONE, -1, 0);
+    for (final var implicant : cover) assertEquals(0, implicant.getUnknownCount());
+    assertCovers(column, Entry.ONE, cover);
+  }
+
+  /** Random functions with don't cares must be covered exactly, in both formats. */
+  @Test
+  public void testRandomFunctionsAreCovered() {
+    final var random = new Random(12);
+    for (final var nrOfInputs : new int[] {7, 10, 13}) {
+      final var column = new Entry[1 << nrOfInputs];
+      for (var row = 0; row < column.length; row++) {
+        final var value = random.nextInt(10);
+        column[row] = value < 4 ? Entry.ONE : value < 8 ? Entry.ZERO : Entry.DONT_CARE;
+      }
+      final var model = createModel(column, nrOfInputs);
+      assertCovers(
+          column,
+          Entry.ONE,
+          Implicant.computeMinimal(AnalyzerModel.FORMAT_SUM_OF_PRODUCTS, model, "x", null));
+      assertCovers(
+          column,
+          Entry.ZERO,
+          Implicant.computeMinimal(AnalyzerModel.FORMAT_PRODUCT_OF_SUMS, model, "x", null));
+    }
+  }
+}
@@ -0,0 +1,182 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.circuit;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.Direction;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Clock;
+import com.cburch.logisim.std.wiring.Tunnel;
+import com.cburch.logisim.tools.AddTool;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+public class CircuitWiresTest {
+
+  // the benchmark circuit holds this many rows of this many gates
+  private static final int BENCHMARK_ROWS = 100;
+  private static final int BENCHMARK_GATES = 100;
+  private static final int BENCHMARK_EDITS = 400;
+
+  /** Creates a project file holding an empty main circuit. */
+  private static LogisimFile createFile() {
+    final var loader = new Loader(null);
+    final var file = LogisimFile.createNew(loader, null);
+    file.addLibrary(loader.getBuiltin().getLibrary("Wiring"));
+    file.addLibrary(loader.getBuiltin().getLibrary("Gates"));
+    final var circuit = new Circuit("main", file, null);
+    file.addCircuit(circuit);
+    file.setMainCircuit(circuit);
+    return file;
+  }
+
+  private static void mutate(Circuit circuit, Component add, Component remove) {
+    final var mutation = new CircuitMutation(circuit);
+    if (add != null) mutation.add(add);
+    if (remove != null) mutation.remove(remove);
+    mutation.execute();
+  }
+
+  private static Location at(int x, int y) {
+    return Location.create(x, y, false);
+  }
+
+  @Test
+  public void testBundlesFollowEdits() {
+    final var circuit = createFile().getMainCircuit();
+    mutate(circuit, Wire.create(at(100, 100), at(200, 100)), null);
+    mutate(circuit, Wire.create(at(200, 200), at(300, 200)), null);
+    final var wires = circuit.wires;
+    assertNotSame(wires.getWireBundle(at(100, 100)), wires.getWireBundle(at(300, 200)));
+
+    // not in line with either wire, so it is not merged into them
+    final var bridge = Wire.create(at(200, 100), at(200, 200));
+    mutate(circuit, bridge, null);
+    assertNotNull(wires.getWireBundle(at(100, 100)));
+    assertSame(wires.getWireBundle(at(100, 100)), wires.getWireBundle(at(300, 200)));
+
+    mutate(circuit, null, bridge);
+    assertNotSame(wires.getWireBundle(at(100, 100)), wires.getWireBundle(at(300, 200)));
+    assertNull(wires.getWireBundle(at(200, 150)));
+  }
+
+  /**
+   * Measures how long the bundle map takes to get back after each wire edit, while the clock of a
+   * circuit of 10000 gates ticks on another thread, as it does when the simulation ticks
+   * automatically. This takes a while, so it only runs when the environment variable
+   * LOGISIM_BENCHMARK is set to true.
+   */
+  @Test
+  @EnabledIfEnvironmentVariable(named = "LOGISIM_BENCHMARK", matches = "true")
+  public void benchmarkBundleMapWhileTicking() throws Exception {
+    final var file = createFile();
+    final var circuit = file.getMainCircuit();
+    final var not = ((AddTool) file.getLibrary("Gates").getTool("NOT Gate")).getFactory();
+    final var comps = new ArrayList<Component>();
+    final var outputs = new ArrayList<Location>();
+    // rows of NOT gates, each fed by the output of the previous one, and the first one by the
+    // clock through a tunnel: every wire edit repairs all wires, so the gates touch directly
+    // a gate is placed at its output, this far to the right of its input
+    final var sample = not.createComponent(at(0, 0), not.createAttributeSet());
+    final var length = -sample.getEnd(1).getLocation().getX();
+    for (var row = 0; row < BENCHMARK_ROWS; row++) {
+      final var y = 100 + 40 * row;
+      comps.add(Wire.create(at(180, y), at(200, y)));
+      comps.add(createTunnel(at(180, y), Direction.EAST));
+      for (var g = 1; g <= BENCHMARK_GATES; g++) {
+        final var out = at(200 + length * g, y);
+        comps.add(not.createComponent(out, not.createAttributeSet()));
+        outputs.add(out);
+      }
+    }
+    final var clock =
+        Clock.FACTORY.createComponent(at(100, 60), Clock.FACTORY.createAttributeSet());
+    comps.add(clock);
+    comps.add(Wire.create(at(100, 60), at(120, 60)));
+    comps.add(createTunnel(at(120, 60), Direction.WEST));
+    final var mutation = new CircuitMutation(circuit);
+    mutation.addAll(comps);
+    mutation.execute();
+
+    final var state = new CircuitState(new Project(file), circuit);
+    final var prop = state.getPropagator();
+    prop.propagate();
+    final var failure = new AtomicReference<Throwable>();
+    final var ticks = new long[1];
+    final var ticker =
+        new Thread(
+            () -> {
+              try {
+                while (!Thread.currentThread().isInterrupted()) {
+                  prop.toggleClocks();
+                  prop.propagate();
+                  ticks[0]++;
+                }
+              } catch (Throwable t) {
+                failure.set(t);
+              }
+            });
+    ticker.start();
+
+    final var wires = circuit.wires;
+    final var nanos = new long[BENCHMARK_EDITS];
+    final var start = System.nanoTime();
+    Wire stub = null;
+    for (var i = 0; i < BENCHMARK_EDITS; i++) {
+      // hang a stub off some gate output, then take it away again
+      if (stub == null) {
+        final var out = outputs.get((int) ((long) i * 7919 % outputs.size()));
+        stub = Wire.create(out, at(out.getX(), out.getY() + 10));
+        mutate(circuit, stub, null);
+      } else {
+        mutate(circuit, null, stub);
+        stub = null;
+      }
+      final var before = System.nanoTime();
+      assertNotNull(wires.getWireBundle(at(100, 60)));
+      nanos[i] = System.nanoTime() - before;
+    }
+    final var elapsed = System.nanoTime() - start;
+    ticker.interrupt();
+    ticker.join();
+    if (failure.get() != null) throw new AssertionError(failure.get());
+
+    Arrays.sort(nanos);
+    System.out.printf(
+        "%d wire edits while ticking %d gates in %d ms: bundle map in %d us median, %d us at"
+            + " the 99th percentile, %d us at most; %d ticks meanwhile%n",
+        BENCHMARK_EDITS,
+        BENCHMARK_ROWS * BENCHMARK_GATES,
+        elapsed / 1_000_000,
+        nanos[nanos.length / 2] / 1000,
+        nanos[nanos.length * 99 / 100] / 1000,
+        nanos[nanos.length - 1] / 1000,
+        ticks[0]);
+  }
+
+  private static Component createTunnel(Location loc, Direction facing) {
+    final var attrs = Tunnel.FACTORY.createAttributeSet();
+    attrs.setValue(StdAttr.LABEL, "clk");
+    attrs.setValue(StdAttr.FACING, facing);
+    return Tunnel.FACTORY.createComponent(loc, attrs);
+  }
+}
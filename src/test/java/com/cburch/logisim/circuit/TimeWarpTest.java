@@ -0,0 +1,393 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.circuit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.comp.StateKey;
+import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Direction;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Clock;
+import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.std.wiring.Probe;
+import com.cburch.logisim.std.wiring.Tunnel;
+import com.cburch.logisim.tools.AddTool;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class TimeWarpTest {
+
+  /** Builds a circuit whose components are connected through tunnels on their ports. */
+  private static class Builder {
+    final LogisimFile file;
+    final Circuit circuit;
+    final List<Component> comps = new ArrayList<>();
+    int nextY = 100;
+
+    Builder() {
+      final var loader = new Loader(null);
+      file = LogisimFile.createNew(loader, null);
+      for (final var name : new String[] {"Wiring", "Gates", "Memory"}) {
+        file.addLibrary(loader.getBuiltin().getLibrary(name));
+      }
+      circuit = new Circuit("main", file, null);
+      file.addCircuit(circuit);
+    }
+
+    ComponentFactory factory(String lib, String name) {
+      return ((AddTool) file.getLibrary(lib).getTool(name)).getFactory();
+    }
+
+    /** Sets an attribute by its name, parsing the value if it is given as text. */
+    @SuppressWarnings("unchecked")
+    static void set(AttributeSet attrs, String name, Object value) {
+      for (final var attr : attrs.getAttributes()) {
+        if (attr.getName().equals(name)) {
+          attrs.setValue(
+              (Attribute<Object>) attr, value instanceof String text ? attr.parse(text) : value);
+          return;
+        }
+      }
+      throw new IllegalArgumentException(name);
+    }
+
+    /** Places a component, whose attributes are given as pairs of names and values. */
+    Component place(ComponentFactory factory, Object... attrs) {
+      final var set = factory.createAttributeSet();
+      for (var i = 0; i < attrs.length; i += 2) set(set, (String) attrs[i], attrs[i + 1]);
+      final var comp = factory.createComponent(Location.create(500, nextY, false), set);
+      nextY += 400;
+      comps.add(comp);
+      return comp;
+    }
+
+    Component clock(int high, int low, int phase, String net) {
+      final var clock =
+          place(Clock.FACTORY, "highDuration", high, "lowDuration", low, "phaseOffset", phase);
+      return connect(clock, 0, net);
+    }
+
+    Component output(String label, int width, String net) {
+      final var pin =
+          place(Pin.FACTORY, "label", label, "output", true, "width", BitWidth.create(width));
+      return connect(pin, 0, net);
+    }
+
+    /** Ties a port of a component to the net of the given name with a tunnel. */
+    Component connect(Component comp, int port, String net) {
+      final var end = comp.getEnd(port);
+      final var loc = end.getLocation();
+      final var bounds = comp.getBounds();
+      final var west = loc.getX() < bounds.getX() + bounds.getWidth() / 2;
+      final var to = Location.create(loc.getX() + (west ? -20 : 20), loc.getY(), false);
+      comps.add(Wire.create(loc, to));
+      final var attrs = Tunnel.FACTORY.createAttributeSet();
+      attrs.setValue(StdAttr.LABEL, net);
+      attrs.setValue(StdAttr.WIDTH, end.getWidth());
+      attrs.setValue(StdAttr.FACING, west ? Direction.EAST : Direction.WEST);
+      comps.add(Tunnel.FACTORY.createComponent(to, attrs));
+      return comp;
+    }
+
+    CircuitState build() {
+      final var mutation = new CircuitMutation(circuit);
+      for (final var comp : comps) mutation.add(comp);
+      mutation.execute();
+      file.setMainCircuit(circuit);
+      final var state = new CircuitState(new Project(file), circuit);
+      state.getPropagator().propagate();
+      return state;
+    }
+  }
+
+  /** A counter running to its maximum and wrapping, with its carry caught in a flip-flop. */
+  private static CircuitState buildCounter() {
+    final var b = new Builder();
+    b.clock(3, 5, 0, "clk");
+    final var counter =
+        b.place(b.factory("Memory", "Counter"), "width", BitWidth.create(8), "max", 0x2fL);
+    b.connect(counter, 0, "q");
+    b.connect(counter, 2, "clk");
+    b.connect(counter, 7, "c");
+    final var flipFlop = b.place(b.factory("Memory", "D Flip-Flop"));
+    b.connect(flipFlop, 0, "c");
+    b.connect(flipFlop, 1, "clk");
+    b.connect(flipFlop, 2, "d");
+    b.output("Q", 8, "q");
+    b.output("D", 1, "d");
+    return b.build();
+  }
+
+  /** A shift register fed with the inverse of its output, cycling through ten states. */
+  private static CircuitState buildShiftRegister() {
+    final var b = new Builder();
+    b.clock(2, 2, 0, "clk");
+    final var shift = b.place(b.factory("Memory", "Shift Register"), "length", 5);
+    b.connect(shift, 0, "ns");
+    b.connect(shift, 2, "clk");
+    b.connect(shift, 4, "s");
+    final var not = b.place(b.factory("Gates", "NOT Gate"));
+    b.connect(not, 0, "ns");
+    b.connect(not, 1, "s");
+    b.output("S", 1, "s");
+    return b.build();
+  }
+
+  /** Two counters on clocks of different durations and phases. */
+  private static CircuitState buildPhases() {
+    final var b = new Builder();
+    b.clock(1, 1, 0, "clk1");
+    b.clock(3, 4, 2, "clk2");
+    for (final var i : new int[] {1, 2}) {
+      final var counter = b.place(b.factory("Memory", "Counter"), "width", BitWidth.create(4));
+      b.connect(counter, 0, "q" + i);
+      b.connect(counter, 2, "clk" + i);
+      b.output("Q" + i, 4, "q" + i);
+    }
+    return b.build();
+  }
+
+  /**
+   * A counter and a register behind it that run unseen until the counter stops at its maximum,
+   * while the only output is a flip-flop that keeps the first value it took.
+   */
+  private static CircuitState buildQuiet() {
+    final var b = new Builder();
+    b.clock(1, 1, 0, "clk");
+    final var counter =
+        b.place(b.factory("Memory", "Counter"), "width", BitWidth.create(4), "ongoal", "stay");
+    b.connect(counter, 0, "q");
+    b.connect(counter, 2, "clk");
+    final var register = b.place(b.factory("Memory", "Register"), "width", BitWidth.create(4));
+    b.connect(register, 1, "q");
+    b.connect(register, 2, "clk");
+    b.connect(b.place(Probe.FACTORY), 0, "q");
+    final var constant = b.place(b.factory("Wiring", "Constant"));
+    b.connect(constant, 0, "one");
+    final var flipFlop = b.place(b.factory("Memory", "D Flip-Flop"));
+    b.connect(flipFlop, 0, "one");
+    b.connect(flipFlop, 1, "clk");
+    b.connect(flipFlop, 2, "d");
+    b.output("D", 1, "d");
+    return b.build();
+  }
+
+  /** A slow counter whose carry, raised on its 200th rising edge, halts the simulation. */
+  private static CircuitState buildHalt() {
+    final var b = new Builder();
+    b.clock(2, 3, 0, "clk");
+    final var counter =
+        b.place(b.factory("Memory", "Counter"), "width", BitWidth.create(8), "max", 200L);
+    b.connect(counter, 2, "clk");
+    b.connect(counter, 7, "c");
+    b.output("halt", 1, "c");
+    return b.build();
+  }
+
+  private static List<Value> getOutputs(CircuitState state, List<Instance> pins) {
+    final var ret = new ArrayList<Value>();
+    for (final var pin : pins) ret.add(Pin.FACTORY.getValue(state.getInstanceState(pin)));
+    return ret;
+  }
+
+  private static List<Instance> getOutputPins(CircuitState state) {
+    final var ret = new ArrayList<Instance>();
+    for (final var comp : state.getCircuit().getNonWires()) {
+      if (comp.getFactory() instanceof Pin) ret.add(Instance.getInstanceFor(comp));
+    }
+    ret.sort(Comparator.comparing(pin -> pin.getAttributeValue(StdAttr.LABEL)));
+    return ret;
+  }
+
+  /** Returns the outputs at every tick from 0 to the given one, ticking one at a time. */
+  private static List<List<Value>> runReference(CircuitState state, int ticks) {
+    final var pins = getOutputPins(state);
+    final var prop = state.getPropagator();
+    final var ret = new ArrayList<List<Value>>();
+    ret.add(getOutputs(state, pins));
+    for (var tick = 1; tick <= ticks; tick++) {
+      prop.toggleClocks();
+      prop.propagate();
+      ret.add(getOutputs(state, pins));
+    }
+    return ret;
+  }
+
+  /**
+   * Runs a fresh circuit through a time warp, as the batch runner does, and checks that the
+   * outputs match the reference at every tick, including those skipped. Returns the number of
+   * steps the warp took.
+   */
+  private static int runWarp(CircuitState state, List<List<Value>> reference, boolean repeats) {
+    final var pins = getOutputPins(state);
+    final var warp = new TimeWarp(state.getPropagator(), true);
+    final var ticks = reference.size() - 1;
+    var outputs = getOutputs(state, pins);
+    assertEquals(reference.get(0), outputs);
+    var tick = 0;
+    var lastChange = 0;
+    var steps = 0;
+    while (tick < ticks) {
+      final var quiet = repeats && tick - lastChange >= warp.getPeriod();
+      final var advanced = (int) warp.advance(ticks - tick, quiet);
+      assertTrue(advanced > 0 && tick + advanced <= ticks);
+      steps++;
+      // whatever was skipped did not change the outputs
+      for (var skipped = tick + 1; skipped < tick + advanced; skipped++) {
+        assertEquals(reference.get(skipped), outputs, "tick " + skipped);
+      }
+      tick += advanced;
+      assertEquals(tick, state.getPropagator().getTickCount());
+      final var next = getOutputs(state, pins);
+      assertEquals(reference.get(tick), next, "tick " + tick);
+      if (!next.equals(outputs)) lastChange = tick;
+      outputs = next;
+    }
+    return steps;
+  }
+
+  private interface CircuitSource {
+    CircuitState build();
+  }
+
+  private static void assertWarpMatches(CircuitSource source, int ticks) {
+    final var reference = runReference(source.build(), ticks);
+    runWarp(source.build(), reference, false);
+    runWarp(source.build(), reference, true);
+  }
+
+  @Test
+  public void testCounterMatches() {
+    assertWarpMatches(TimeWarpTest::buildCounter, 2000);
+  }
+
+  @Test
+  public void testShiftRegisterMatches() {
+    assertWarpMatches(TimeWarpTest::buildShiftRegister, 500);
+  }
+
+  @Test
+  public void testClockPhasesMatch() {
+    final var state = buildPhases();
+    assertEquals(14, new TimeWarp(state.getPropagator(), true).getPeriod());
+    assertWarpMatches(TimeWarpTest::buildPhases, 1000);
+  }
+
+  /** A circuit that only repeats itself unseen is skipped whole periods at a time. */
+  @Test
+  public void testQuietRepeatsAreSkipped() {
+    final var reference = runReference(buildQuiet(), 4000);
+    final var stepsPerTick = runWarp(buildQuiet(), reference, false);
+    final var stepsSkipping = runWarp(buildQuiet(), reference, true);
+    assertEquals(4000, stepsPerTick);
+    assertTrue(stepsSkipping < 100, "took " + stepsSkipping + " steps");
+  }
+
+  /** The halt pin rises at the same tick with and without the warp. */
+  @Test
+  public void testHaltPinMatches() {
+    final var ticks = 3000;
+    final var reference = runReference(buildHalt(), ticks);
+    final var haltTick = reference.indexOf(List.of(Value.TRUE));
+    // the first rising edge comes after the three low ticks
+    assertEquals(3 + 199 * 5, haltTick);
+    for (final var repeats : new boolean[] {false, true}) {
+      final var state = buildHalt();
+      final var warp = new TimeWarp(state.getPropagator(), true);
+      final var halt = getOutputPins(state).get(0);
+      var tick = 0L;
+      while (tick < ticks
+          && !Pin.FACTORY.getValue(state.getInstanceState(halt)).equals(Value.TRUE)) {
+        tick += warp.advance(ticks - tick, repeats);
+      }
+      assertEquals(haltTick, tick);
+    }
+  }
+
+  /** The idle ticks of a clock end right before it changes its value. */
+  @Test
+  public void testIdleTicks() {
+    final var b = new Builder();
+    final var clock = b.clock(3, 4, 2, "clk");
+    final var state = b.build();
+    final var prop = state.getPropagator();
+    final var attrs = clock.getAttributeSet();
+    for (var tick = 0; tick < 50; tick++) {
+      final var value = Clock.getValueAt(tick, attrs);
+      var idle = 0;
+      while (Clock.getValueAt(tick + idle + 1, attrs).equals(value)) idle++;
+      assertEquals(idle, Clock.getIdleTicks(state, tick, clock), "tick " + tick);
+      prop.toggleClocks();
+      prop.propagate();
+    }
+    final var tick = prop.getTickCount();
+    final var idle = Clock.getIdleTicks(state, tick, clock);
+    assertEquals(idle, prop.skipIdleTicks(100));
+    assertEquals(tick + idle, prop.getTickCount());
+    // nothing is skipped while something is left to propagate
+    prop.toggleClocks();
+    assertEquals(0, prop.skipIdleTicks(100));
+  }
+
+  /** The states of all components used here can be taken down, and change as the clocks tick. */
+  @Test
+  public void testStateKeys() {
+    final var sources =
+        new CircuitSource[] {
+          TimeWarpTest::buildCounter, TimeWarpTest::buildShiftRegister, TimeWarpTest::buildQuiet
+        };
+    for (final var source : sources) {
+      final var state = source.build();
+      final var before = new StateKey();
+      assertTrue(state.addStateTo(before));
+      final var again = new StateKey();
+      assertTrue(state.addStateTo(again));
+      assertTrue(before.isSame(again));
+      // long enough for every clock used here to rise
+      final var prop = state.getPropagator();
+      for (var tick = 0; tick < 8; tick++) {
+        prop.toggleClocks();
+        prop.propagate();
+      }
+      final var after = new StateKey();
+      assertTrue(state.addStateTo(after));
+      assertFalse(before.isSame(after));
+    }
+  }
+
+  /** Keys with the same hash are still told apart by their words. */
+  @Test
+  public void testStateKeyHashCollision() {
+    final var a = new StateKey().add(1).add(2);
+    // the word that brings the second key to the hash of the first
+    final var b = new StateKey().add(3);
+    final var afterA = Long.rotateLeft(0x9E3779B97F4A7C15L * (1 ^ 1), 29);
+    final var afterB = Long.rotateLeft(0x9E3779B97F4A7C15L * (1 ^ 3), 29);
+    b.add(afterA ^ 2 ^ afterB);
+    assertEquals(a.getHash(), b.getHash());
+    assertFalse(a.isSame(b));
+    assertTrue(a.isSame(new StateKey().add(1).add(2)));
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.file;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.cburch.logisim.circuit.SubcircuitFactory;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.api.io.TempDir;
+
+public class LogisimFileCloneTest {
+
+  private static final int NR_OF_CIRCUITS = 8;
+  private static final int NR_OF_GATES = 20;
+  // the benchmark project saves to about 4 MB
+  private static final int BENCHMARK_CIRCUITS = 32;
+  private static final int BENCHMARK_GATES = 1000;
+
+  @TempDir File tempDir;
+
+  /**
+   * Generates a project of chained circuits, each one holding gates, a ROM and an instance of
+   * the previous circuit.
+   */
+  private static String generateProject(int nrOfCircuits, int nrOfGates) {
+    final var circ = new StringBuilder();
+    circ.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n");
+    circ.append("<project source=\"3.8.0\" version=\"1.0\">\n");
+    circ.append("  <lib desc=\"#Wiring\" name=\"0\"/>\n");
+    circ.append("  <lib desc=\"#Gates\" name=\"1\"/>\n");
+    circ.append("  <lib desc=\"#Memory\" name=\"2\"/>\n");
+    circ.append("  <lib desc=\"#Base\" name=\"3\"/>\n");
+    circ.append("  <main name=\"c0\"/>\n");
+    circ.append("  <options/>\n");
+    circ.append("  <mappings>\n");
+    circ.append("    <tool lib=\"3\" map=\"Button2\" name=\"Menu Tool\"/>\n");
+    circ.append("  </mappings>\n");
+    circ.append("  <toolbar>\n");
+    circ.append("    <tool lib=\"3\" name=\"Poke Tool\"/>\n");
+    circ.append("    <sep/>\n");
+    circ.append("    <tool name=\"c1\"/>\n");
+    circ.append("  </toolbar>\n");
+    for (var i = 0; i < nrOfCircuits; i++) {
+      circ.append("  <circuit name=\"c").append(i).append("\">\n");
+      circ.append("    <a name=\"circuit\" val=\"c").append(i).append("\"/>\n");
+      circ.append("    <comp lib=\"0\" loc=\"(100,100)\" name=\"Pin\">\n");
+      circ.append("      <a name=\"label\" val=\"in\"/>\n");
+      circ.append("    </comp>\n");
+      circ.append("    <comp lib=\"0\" loc=\"(500,100)\" name=\"Pin\">\n");
+      circ.append("      <a name=\"facing\" val=\"west\"/>\n");
+      circ.append("      <a name=\"label\" val=\"out\"/>\n");
+      circ.append("      <a name=\"output\" val=\"true\"/>\n");
+      circ.append("    </comp>\n");
+      for (var g = 0; g < nrOfGates; g++) {
+        circ.append("    <comp lib=\"1\" loc=\"(300,").append(200 + 60 * g);
+        circ.append(")\" name=\"").append(g % 2 == 0 ? "AND Gate" : "XOR Gate").append("\"/>\n");
+      }
+      circ.append("    <comp lib=\"2\" loc=\"(700,300)\" name=\"ROM\">\n");
+      circ.append("      <a name=\"contents\">addr/data: 8 8\n").append(i).append(" 1 2 3\n</a>\n");
+      circ.append("    </comp>\n");
+      if (i > 0) {
+        circ.append("    <comp loc=\"(900,100)\" name=\"c").append(i - 1).append("\">\n");
+        circ.append("      <a name=\"label\" val=\"u").append(i).append("\"/>\n");
+        circ.append("    </comp>\n");
+      }
+      circ.append("    <wire from=\"(100,100)\" to=\"(200,100)\"/>\n");
+      circ.append("    <wire from=\"(200,100)\" to=\"(200,180)\"/>\n");
+      circ.append("  </circuit>\n");
+    }
+    circ.append("</project>\n");
+    return circ.toString();
+  }
+
+  private static String toXml(LogisimFile file) {
+    final var out = new ByteArrayOutputStream();
+    file.write(out, file.getLoader());
+    return out.toString(StandardCharsets.UTF_8);
+  }
+
+  private LogisimFile loadGeneratedProject(Loader loader, int nrOfCircuits, int nrOfGates)
+      throws IOException, LoadFailedException {
+    final var circFile = new File(tempDir, "generated.circ");
+    Files.writeString(circFile.toPath(), generateProject(nrOfCircuits, nrOfGates));
+    return loader.openLogisimFile(circFile);
+  }
+
+  private LogisimFile loadGeneratedProject(Loader loader) throws IOException, LoadFailedException {
+    return loadGeneratedProject(loader, NR_OF_CIRCUITS, NR_OF_GATES);
+  }
+
+  /** The structural copy must save to exactly what the XML round-trip saves to. */
+  @Test
+  public void testCloneMatchesXmlRoundTrip() throws Exception {
+    final var loader = new Loader(null);
+    final var file = loadGeneratedProject(loader);
+    final var clone = file.cloneLogisimFile(loader);
+    final var reference = file.cloneLogisimFileThroughXml(loader);
+    assertNotNull(clone);
+    assertNotNull(reference);
+    assertEquals(toXml(file), toXml(clone));
+    assertEquals(toXml(reference), toXml(clone));
+  }
+
+  /** The copy must not share circuits with the original, only the libraries. */
+  @Test
+  public void testCloneIsDeep() throws Exception {
+    final var loader = new Loader(null);
+    final var file = loadGeneratedProject(loader);
+    final var clone = file.cloneLogisimFile(loader);
+    assertEquals(file.getLibraries(), clone.getLibraries());
+    assertEquals("c0", clone.getMainCircuit().getName());
+    for (final var circuit : clone.getCircuits()) {
+      assertNotSame(file.getCircuit(circuit.getName()), circuit);
+      for (final var comp : circuit.getNonWires()) {
+        if (comp.getFactory() instanceof SubcircuitFactory factory) {
+          assertSame(clone.getCircuit(factory.getSubcircuit().getName()), factory.getSubcircuit());
+        }
+      }
+    }
+  }
+
+  /**
+   * Times the structural copy against the XML round-trip on a large generated project. The
+   * round-trip takes several seconds there, so this only runs when the environment variable
+   * LOGISIM_BENCHMARK is set to true.
+   */
+  @Test
+  @EnabledIfEnvironmentVariable(named = "LOGISIM_BENCHMARK", matches = "true")
+  public void benchmarkClone() throws Exception {
+    final var loader = new Loader(null);
+    final var file = loadGeneratedProject(loader, BENCHMARK_CIRCUITS, BENCHMARK_GATES);
+    // the first copy loads classes and warms up both paths
+    assertNotNull(file.cloneLogisimFile(loader));
+    var start = System.nanoTime();
+    final var clone = file.cloneLogisimFile(loader);
+    final var structuralMillis = (System.nanoTime() - start) / 1_000_000;
+    start = System.nanoTime();
+    final var reference = file.cloneLogisimFileThroughXml(loader);
+    final var xmlMillis = (System.nanoTime() - start) / 1_000_000;
+    assertNotNull(clone);
+    assertNotNull(reference);
+    assertEquals(toXml(reference), toXml(clone));
+    System.out.printf(
+        "Copied %d circuits: %d ms structurally, %d ms through XML%n",
+        BENCHMARK_CIRCUITS, structuralMillis, xmlMillis);
+  }
+}
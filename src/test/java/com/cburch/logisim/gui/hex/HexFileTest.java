@@ -3,6 +3,7 @@ package com.cburch.logisim.gui.hex;
 import com.cburch.logisim.Main;
 import com.cburch.logisim.std.memory.MemContents;
 import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -40,8 +41,11 @@ public class HexFileTest {
       HashMap<Long, Long> values)
       throws IOException {
     final var memory = MemContents.create(addressSize, wordSize, true);
-    if (desc.startsWith("Binary") || desc.startsWith("ASCII") || !autodetect) {
-      // these can't be auto-detected
+    if (desc.startsWith("Binary")
+        || desc.startsWith("ASCII")
+        || desc.startsWith("Intel HEX little-endian")
+        || !autodetect) {
+      // these can't be auto-detected, Intel HEX only up to the byte order
       if (!HexFile.open(memory, savedFile, desc)) {
         throw new IOException("Failed to load: " + savedFile.toString());
       }
@@ -58,6 +62,62 @@ public class HexFileTest {
     }
   }
 
+  /** Large enough images that the text formats get parsed in several pieces. */
+  @Test
+  public void testLargeImages() throws IOException {
+    final var addressSize = 18;
+    final var rng = new Random(7);
+    final var memoryContents = MemContents.create(addressSize, 32, false);
+    final var values = new HashMap<Long, Long>();
+    for (var i = 0; i < 40000; i++) {
+      final var a = (long) rng.nextInt(1 << addressSize);
+      final var v = rng.nextLong() & 0xffffffffL;
+      values.put(a, v);
+      memoryContents.set(a, v);
+    }
+    for (final var desc :
+        new String[] {
+          "v3.0 hex words plain", "v3.0 hex words addressed", "Intel HEX little-endian",
+          "Binary data big-endian"
+        }) {
+      final var tempFile = new File(tempDir, "large.dat");
+      HexFile.save(tempFile, memoryContents, desc);
+      compare(true, desc, tempFile, addressSize, 32, values);
+    }
+  }
+
+  /** Saving over the file an image was loaded from, whether it was read or mapped. */
+  @Test
+  public void testSaveOverLoadedImage() throws IOException {
+    final var desc = "Binary data big-endian";
+    final var file = new File(tempDir, "image.bin");
+    final var original = MemContents.create(20, 32, false);
+    for (long address = 0; address <= original.getLastOffset(); address++) {
+      original.set(address, address * 0x9E3779B9L & 0xffffffffL);
+    }
+    HexFile.save(file, original, desc);
+
+    final var read = MemContents.create(20, 32, false);
+    assertTrue(HexFile.open(read, file, desc));
+    final var mapped = MemContents.create(20, 32, false);
+    assertTrue(mapped.mapImage(file, true));
+    final var copy = mapped.clone();
+    read.set(1, 1);
+    mapped.set(2, 2);
+    HexFile.save(file, read, desc);
+    HexFile.save(file, mapped, desc);
+
+    final var saved = MemContents.create(20, 32, false);
+    assertTrue(HexFile.open(saved, file, desc));
+    for (long address = 0; address <= original.getLastOffset(); address++) {
+      final var value = original.get(address);
+      assertEquals(address == 1 ? 1 : value, read.get(address));
+      assertEquals(address == 2 ? 2 : value, mapped.get(address));
+      assertEquals(value, copy.get(address));
+      assertEquals(mapped.get(address), saved.get(address));
+    }
+  }
+
   /**
    * returns an array of triples of [description index, address size, and word size] which should be
    * tested
@@ -0,0 +1,149 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.gui.log;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.std.wiring.Pin;
+import java.util.ArrayList;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class SignalTest {
+
+  private static final int WIDTH = 4;
+
+  /** The values and durations of a signal, kept the simple way. */
+  private static class Reference {
+    final ArrayList<Value> values = new ArrayList<>();
+    final ArrayList<Long> durations = new ArrayList<>();
+    long timeStart;
+    int maxSize;
+
+    void extend(Value v, long duration) {
+      final var n = values.size();
+      if (n > 0 && values.get(n - 1).equals(v)) {
+        durations.set(n - 1, durations.get(n - 1) + duration);
+        return;
+      }
+      if (maxSize > 0 && n >= maxSize) discard(n - maxSize + 1);
+      values.add(v);
+      durations.add(duration);
+    }
+
+    void discard(int amt) {
+      for (var i = 0; i < amt; i++) {
+        timeStart += durations.remove(0);
+        values.remove(0);
+      }
+    }
+
+    long getEndTime() {
+      var t = timeStart;
+      for (final var d : durations) t += d;
+      return t;
+    }
+
+    Value getValue(long t) {
+      var tt = timeStart;
+      for (var i = 0; i < values.size() && t >= timeStart; i++) {
+        tt += durations.get(i);
+        if (t < tt) return values.get(i);
+      }
+      return null;
+    }
+  }
+
+  private static SignalInfo createInfo() {
+    final var attrs = Pin.FACTORY.createAttributeSet();
+    attrs.setValue(StdAttr.WIDTH, BitWidth.create(WIDTH));
+    final var pin = Pin.FACTORY.createComponent(Location.create(0, 0, false), attrs);
+    return new SignalInfo(new Circuit("main", null, null), new Component[] {pin}, null);
+  }
+
+  private static void assertSame(Reference ref, Signal signal, Random random) {
+    final var end = ref.getEndTime();
+    assertEquals(end, signal.getEndTime());
+    for (var k = 0; k < 20; k++) {
+      final var t = ref.timeStart - 2 + (long) (random.nextDouble() * (end - ref.timeStart + 4));
+      assertEquals(ref.getValue(t), signal.getValue(t), "value at " + t);
+      final var it = signal.new Iterator(t);
+      if (t < end) {
+        assertEquals(ref.getValue(Math.max(t, ref.timeStart)), it.value, "iterator at " + t);
+        assertEquals(Math.max(t, ref.timeStart) + it.duration, end(ref, it.time));
+      } else {
+        assertNull(it.value);
+      }
+    }
+    // a full walk visits every value
+    final var it = signal.new Iterator();
+    var time = ref.timeStart;
+    for (var i = 0; i < ref.values.size(); i++) {
+      assertEquals(ref.values.get(i), it.value);
+      assertEquals(time, it.time);
+      assertEquals((long) ref.durations.get(i), it.duration);
+      time += it.duration;
+      it.advance();
+    }
+    assertNull(it.value);
+  }
+
+  // the end of the value holding time t
+  private static long end(Reference ref, long t) {
+    var tt = ref.timeStart;
+    for (final var d : ref.durations) {
+      tt += d;
+      if (t < tt) return tt;
+    }
+    return tt;
+  }
+
+  @Test
+  public void testMatchesReference() {
+    final var random = new Random(20);
+    for (final var maxSize : new int[] {0, 3, 400, 1500}) {
+      final var ref = new Reference();
+      ref.maxSize = maxSize;
+      final var first = Value.createKnown(BitWidth.create(WIDTH), 0);
+      ref.extend(first, 1);
+      final var signal = new Signal(0, createInfo(), first, 1, 0, maxSize);
+      for (var step = 0; step < 4000; step++) {
+        final var value = random.nextInt(8) == 0
+            ? Value.createUnknown(BitWidth.create(WIDTH))
+            : Value.createKnown(BitWidth.create(WIDTH), random.nextInt(3));
+        final long duration = 1 + random.nextInt(5);
+        if (random.nextInt(10) == 0) {
+          signal.extend(duration);
+          final var n = ref.durations.size();
+          ref.durations.set(n - 1, ref.durations.get(n - 1) + duration);
+        } else {
+          signal.extend(value, duration);
+          ref.extend(value, duration);
+        }
+        if (step % 97 == 0) assertSame(ref, signal, random);
+      }
+      assertSame(ref, signal, random);
+      if (maxSize != 0) {
+        assertEquals(ref.timeStart, signal.omittedDataTime());
+        signal.resize(2);
+        ref.maxSize = 2;
+        ref.discard(ref.values.size() - 2);
+        assertSame(ref, signal, random);
+      }
+    }
+  }
+}
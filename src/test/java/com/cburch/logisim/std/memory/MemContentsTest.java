@@ -0,0 +1,82 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.std.memory;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class MemContentsTest {
+
+  @TempDir File tempDir;
+
+  @Test
+  public void testClonesDoNotSeeEachOthersWrites() {
+    final var random = new Random(3);
+    final var mem = MemContents.create(16, 16, false);
+    final var expected = new long[1 << 16];
+    for (var i = 0; i < 5000; i++) {
+      final var addr = random.nextInt(expected.length);
+      expected[addr] = random.nextInt(1 << 16);
+      mem.set(addr, expected[addr]);
+    }
+    final var copy = mem.clone();
+    final var copyExpected = expected.clone();
+    for (var i = 0; i < 5000; i++) {
+      final var addr = random.nextInt(expected.length);
+      if (random.nextBoolean()) {
+        expected[addr] = random.nextInt(1 << 16);
+        mem.set(addr, expected[addr]);
+      } else {
+        copyExpected[addr] = random.nextInt(1 << 16);
+        copy.set(addr, copyExpected[addr]);
+      }
+    }
+    copy.fill(0x1000, 0x2000, 7);
+    for (var i = 0x1000; i < 0x3000; i++) copyExpected[i] = 7;
+    for (var i = 0; i < expected.length; i++) {
+      assertEquals(expected[i], mem.get(i));
+      assertEquals(copyExpected[i], copy.get(i));
+    }
+  }
+
+  @Test
+  public void testMappedImage() throws Exception {
+    final var words = (1 << 14) + 5;
+    final var buf = ByteBuffer.allocate(words * 4).order(ByteOrder.BIG_ENDIAN);
+    for (var i = 0; i < words; i++) buf.putInt(i * 0x9E3779B9);
+    final var file = new File(tempDir, "image.bin");
+    Files.write(file.toPath(), buf.array());
+
+    final var mem = MemContents.create(16, 32, false);
+    assertTrue(mem.mapImage(file, true));
+    for (var i = 0; i < 1 << 16; i++) {
+      assertEquals(i < words ? (i * 0x9E3779B9) & 0xffffffffL : 0, mem.get(i));
+    }
+
+    // writes go to the heap, never to the file or to a clone
+    final var copy = mem.clone();
+    mem.set(3, 42);
+    mem.fill(0x3ffe, 20, 1);
+    assertEquals(42, mem.get(3));
+    assertEquals(1, mem.get(0x4004));
+    assertEquals(3 * 0x9E3779B9 & 0xffffffffL, copy.get(3));
+    assertEquals(0, copy.get(0x4010));
+    assertArrayEquals(buf.array(), Files.readAllBytes(file.toPath()));
+  }
+}
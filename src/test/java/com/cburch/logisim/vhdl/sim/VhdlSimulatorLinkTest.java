@@ -0,0 +1,83 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.vhdl.sim;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Value;
+import java.net.ServerSocket;
+import java.net.Socket;
+import org.junit.jupiter.api.Test;
+
+public class VhdlSimulatorLinkTest {
+
+  @Test
+  public void testStepsOnlyCarryChanges() throws Exception {
+    try (final var server = new ServerSocket(0);
+        final var client = new Socket("localhost", server.getLocalPort());
+        final var socket = server.accept()) {
+      final var loopback =
+          new VhdlSimulatorLoopback(client.getInputStream(), client.getOutputStream());
+      final var thread = new Thread(loopback);
+      thread.start();
+      final var link = new VhdlSimulatorLink(socket.getInputStream(), socket.getOutputStream());
+
+      final var a = link.declare("comp_0_a", VhdlSimulatorLink.TYPE_INPUT, 8);
+      final var b = link.declare("comp_0_b", VhdlSimulatorLink.TYPE_INPUT, 1);
+      final var y = link.declare("comp_0_y", VhdlSimulatorLink.TYPE_OUTPUT, 4);
+      final var z = link.declare("comp_0_z", VhdlSimulatorLink.TYPE_OUTPUT, 1);
+      assertNull(link.get(y));
+
+      link.set(a, Value.createKnown(BitWidth.create(8), 0xA5));
+      link.set(b, Value.createUnknown(BitWidth.ONE));
+      assertTrue(link.hasChanges());
+      link.step();
+      assertEquals(Value.createKnown(BitWidth.create(4), 0x5), link.get(y));
+      assertEquals(Value.UNKNOWN, link.get(z));
+      assertEquals(2, loopback.getInputsReceived());
+
+      // the same values again: nothing to send
+      link.set(a, Value.createKnown(BitWidth.create(8), 0xA5));
+      link.set(b, Value.createUnknown(BitWidth.ONE));
+      assertFalse(link.hasChanges());
+
+      link.set(b, Value.TRUE);
+      link.step();
+      assertEquals(3, loopback.getInputsReceived());
+      assertEquals(Value.createKnown(BitWidth.create(4), 0x5), link.get(y));
+      assertEquals(Value.TRUE, link.get(z));
+
+      // after a restart all inputs are sent again
+      link.restart();
+      link.set(a, Value.createKnown(BitWidth.create(8), 0xA5));
+      link.set(b, Value.TRUE);
+      link.step();
+      assertEquals(5, loopback.getInputsReceived());
+      assertEquals(Value.TRUE, link.get(z));
+      assertEquals(3, link.getStepCount());
+
+      // a replaced component gets the ids of its ports back
+      assertEquals(a, link.declare("comp_0_a", VhdlSimulatorLink.TYPE_INPUT, 8));
+      assertEquals(y, link.declare("comp_0_y", VhdlSimulatorLink.TYPE_OUTPUT, 4));
+      assertFalse(link.hasChanges());
+      assertEquals(z, link.declare("comp_0_z", VhdlSimulatorLink.TYPE_OUTPUT, 2));
+      assertTrue(link.hasChanges());
+      link.step();
+      assertEquals(Value.createKnown(BitWidth.create(2), 1), link.get(z));
+
+      link.end();
+      thread.join();
+    }
+  }
+}